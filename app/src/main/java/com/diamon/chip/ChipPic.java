@@ -45,17 +45,114 @@ public class ChipPic {
 
     private HashMap<String, String> variablesProgramacion;
 
-    private HashMap<String, Integer> secuenciaEncedido;
+    private boolean icsp;
 
-    private HashMap<String, Boolean> vccVppTiempo;
+    // Propiedades resueltas una vez a partir de variablesDeChip
+    private final DescriptorChip descriptor;
 
-    private HashMap<String, String> socketImagen;
+    // Tabla de fuses compilada al primer uso; se descarta si cambia el mapa
+    private volatile TablaFuses tablaFuses;
 
-    private HashMap<String, Integer> tipoDeNucleo;
+    // Tablas de traduccion de los textos de chipinfo, comunes a todos los chips
 
-    private HashMap<String, Boolean> respuestas;
+    private static final Map<String, Integer> SECUENCIA_ENCENDIDO;
 
-    private boolean icsp;
+    private static final Map<String, Boolean> VCC_VPP_TIEMPO;
+
+    private static final Map<String, String> SOCKET_IMAGEN;
+
+    private static final Map<String, Integer> TIPO_DE_NUCLEO;
+
+    private static final Map<String, Boolean> RESPUESTAS;
+
+    static {
+
+        SECUENCIA_ENCENDIDO = new HashMap<>();
+
+        SECUENCIA_ENCENDIDO.put("vcc", 0);
+
+        SECUENCIA_ENCENDIDO.put("vccvpp1", 1);
+
+        SECUENCIA_ENCENDIDO.put("vccvpp2", 2);
+
+        SECUENCIA_ENCENDIDO.put("vpp1vcc", 3);
+
+        SECUENCIA_ENCENDIDO.put("vpp2vcc", 4);
+
+        SECUENCIA_ENCENDIDO.put("vccfastvpp1", 1);
+
+        SECUENCIA_ENCENDIDO.put("vccfastvpp2", 2);
+
+        VCC_VPP_TIEMPO = new HashMap<>();
+
+        VCC_VPP_TIEMPO.put("vcc", false);
+
+        VCC_VPP_TIEMPO.put("vccvpp1", false);
+
+        VCC_VPP_TIEMPO.put("vccvpp2", false);
+
+        VCC_VPP_TIEMPO.put("vpp1vcc", false);
+
+        VCC_VPP_TIEMPO.put("vpp2vcc", false);
+
+        VCC_VPP_TIEMPO.put("vccfastvpp1", true);
+
+        VCC_VPP_TIEMPO.put("vccfastvpp2", true);
+
+        SOCKET_IMAGEN = new HashMap<>();
+
+        SOCKET_IMAGEN.put("0pin", "ICSP"); // PIC10xxx y chips solo-ICSP
+
+        SOCKET_IMAGEN.put("8pin", "socket pin 13");
+
+        SOCKET_IMAGEN.put("14pin", "socket pin 13");
+
+        SOCKET_IMAGEN.put("18pin", "socket pin 2");
+
+        SOCKET_IMAGEN.put("28Npin", "socket pin 1");
+
+        SOCKET_IMAGEN.put("40pin", "socket pin 1");
+
+        TIPO_DE_NUCLEO = new HashMap<>();
+
+        TIPO_DE_NUCLEO.put("bit16_a", 1);
+
+        TIPO_DE_NUCLEO.put("bit16_b", 2);
+
+        TIPO_DE_NUCLEO.put("bit14_g", 3);
+
+        TIPO_DE_NUCLEO.put("bit12_a", 4);
+
+        TIPO_DE_NUCLEO.put("bit14_a", 5);
+
+        TIPO_DE_NUCLEO.put("bit14_b", 6);
+
+        TIPO_DE_NUCLEO.put("bit14_c", 7);
+
+        TIPO_DE_NUCLEO.put("bit14_d", 8);
+
+        TIPO_DE_NUCLEO.put("bit14_e", 9);
+
+        TIPO_DE_NUCLEO.put("bit14_f", 10);
+
+        TIPO_DE_NUCLEO.put("bit12_b", 11);
+
+        TIPO_DE_NUCLEO.put("bit14_h", 12);
+
+        TIPO_DE_NUCLEO.put("bit16_c", 13);
+
+        TIPO_DE_NUCLEO.put("newf12b", 11); // No esta en la documentacion
+
+        RESPUESTAS = new HashMap<>();
+
+        RESPUESTAS.put("y", true);
+
+        RESPUESTAS.put("1", true);
+
+        RESPUESTAS.put("n", false);
+
+        RESPUESTAS.put("0", false);
+    }
 
     /**
      * Constructor para inicializar un objeto ChipPic con todas las configuraciones.
@@ -116,52 +213,6 @@ public class ChipPic {
             throw new ChipConfigurationException("Tipo de núcleo no puede ser nulo o vacío");
         }
 
-        secuenciaEncedido = new HashMap<String, Integer>();
-
-        secuenciaEncedido.put("vcc", 0);
-
-        secuenciaEncedido.put("vccvpp1", 1);
-
-        secuenciaEncedido.put("vccvpp2", 2);
-
-        secuenciaEncedido.put("vpp1vcc", 3);
-
-        secuenciaEncedido.put("vpp2vcc", 4);
-
-        secuenciaEncedido.put("vccfastvpp1", 1);
-
-        secuenciaEncedido.put("vccfastvpp2", 2);
-
-        vccVppTiempo = new HashMap<String, Boolean>();
-
-        vccVppTiempo.put("vcc", false);
-
-        vccVppTiempo.put("vccvpp1", false);
-
-        vccVppTiempo.put("vccvpp2", false);
-
-        vccVppTiempo.put("vpp1vcc", false);
-
-        vccVppTiempo.put("vpp2vcc", false);
-
-        vccVppTiempo.put("vccfastvpp1", true);
-
-        vccVppTiempo.put("vccfastvpp2", true);
-
-        socketImagen = new HashMap<String, String>();
-
-        socketImagen.put("0pin", "ICSP"); // PIC10xxx y chips solo-ICSP
-
-        socketImagen.put("8pin", "socket pin 13");
-
-        socketImagen.put("14pin", "socket pin 13");
-
-        socketImagen.put("18pin", "socket pin 2");
-
-        socketImagen.put("28Npin", "socket pin 1");
-
-        socketImagen.put("40pin", "socket pin 1");
-
         variablesProgramacion = new HashMap<String, String>();
 
         variablesDeChip = new HashMap<String, Object>();
@@ -177,7 +228,7 @@ public class ChipPic {
         variablesDeChip.put("FlashChip", "" + FlashChip);
 
         variablesDeChip.put(
-                "power_sequence", "" + secuenciaEncedido.get(PowerSequence.toLowerCase()));
+                "power_sequence", "" + SECUENCIA_ENCENDIDO.get(PowerSequence.toLowerCase()));
 
         variablesDeChip.put("power_sequence_str", "" + PowerSequence);
 
@@ -207,47 +258,9 @@ public class ChipPic {
 
         variablesDeChip.put("fuses", fuses);
 
-        tipoDeNucleo = new HashMap<String, Integer>();
-
-        tipoDeNucleo.put("bit16_a", 1);
-
-        tipoDeNucleo.put("bit16_b", 2);
-
-        tipoDeNucleo.put("bit14_g", 3);
-
-        tipoDeNucleo.put("bit12_a", 4);
-
-        tipoDeNucleo.put("bit14_a", 5);
-
-        tipoDeNucleo.put("bit14_b", 6);
-
-        tipoDeNucleo.put("bit14_c", 7);
-
-        tipoDeNucleo.put("bit14_d", 8);
-
-        tipoDeNucleo.put("bit14_e", 9);
-
-        tipoDeNucleo.put("bit14_f", 10);
-
-        tipoDeNucleo.put("bit12_b", 11);
-
-        tipoDeNucleo.put("bit14_h", 12);
-
-        tipoDeNucleo.put("bit16_c", 13);
-
-        tipoDeNucleo.put("newf12b", 11); // No esta en la documentacion
-
-        respuestas = new HashMap<String, Boolean>();
-
-        respuestas.put("y", true);
-
-        respuestas.put("1", true);
-
-        respuestas.put("n", false);
-
-        respuestas.put("0", false);
-
         icsp = false;
+
+        descriptor = new DescriptorChip(this);
     }
 
     /**
@@ -257,40 +270,11 @@ public class ChipPic {
      * @throws ChipConfigurationException Si el tipo de núcleo es inválido
      */
     public int getTipoDeNucleoBit() throws ChipConfigurationException {
-
-        try {
-            String coreTypeStr = variablesDeChip.get("core_type").toString().toLowerCase();
-            Integer nucleoObj = tipoDeNucleo.get(coreTypeStr);
-            if (nucleoObj == null) {
-                throw new ChipConfigurationException(
-                        "Tipo de núcleo no encontrado: " + coreTypeStr);
-            }
-
-            int nucleo = nucleoObj;
-
-            if (nucleo == 1 || nucleo == 2 || nucleo == 13) {
-                nucleo = 16;
-            } else if (nucleo == 3
-                    || nucleo == 5
-                    || nucleo == 6
-                    || nucleo == 7
-                    || nucleo == 8
-                    || nucleo == 9
-                    || nucleo == 10
-                    || nucleo == 12) {
-                nucleo = 14;
-            } else if (nucleo == 4 || nucleo == 11) {
-                nucleo = 12;
-            } else {
-                throw new ChipConfigurationException("Tipo de núcleo inválido: " + nucleo);
-            }
-
-            return nucleo;
-
-        } catch (NumberFormatException e) {
-            throw new ChipConfigurationException(
-                    "Error al procesar tipo de núcleo: " + e.getMessage(), e);
+        if (!descriptor.esValida(DescriptorChip.NUCLEO_BIT)) {
+            // Texto invalido: repetir el calculo para lanzar el error original
+            return calcularTipoDeNucleoBit();
         }
+        return descriptor.getNucleoBit();
     }
 
     /**
@@ -301,26 +285,10 @@ public class ChipPic {
      *                                    configuración ICSP
      */
     public boolean isICSPonly() throws ChipConfigurationException {
-
-        try {
-            String socketImage = "" + variablesDeChip.get("SocketImage");
-            if ("0pin".equalsIgnoreCase(socketImage.trim())) {
-                return true;
-            }
-
-            String icspOnlyStr = variablesDeChip.get("ICSPonly").toString().toLowerCase();
-
-            Boolean valor = respuestas.get(icspOnlyStr);
-            if (valor == null) {
-                throw new ChipConfigurationException("Valor ICSPonly inválido: " + icspOnlyStr);
-            }
-
-            return valor;
-
-        } catch (Exception e) {
-            throw new ChipConfigurationException(
-                    "Error al verificar ICSPonly: " + e.getMessage(), e);
+        if (!descriptor.esValida(DescriptorChip.ICSP_ONLY)) {
+            return calcularICSPonly();
         }
+        return descriptor.isICSPonly();
     }
 
     /**
@@ -354,8 +322,8 @@ public class ChipPic {
 
             // Flag 18F single panel access mode
             String coreType = variablesDeChip.get("core_type").toString().toLowerCase();
-            Integer coreTypeValue = tipoDeNucleo.get(coreType);
-            Integer bit16aValue = tipoDeNucleo.get("bit16_a");
+            Integer coreTypeValue = TIPO_DE_NUCLEO.get(coreType);
+            Integer bit16aValue = TIPO_DE_NUCLEO.get("bit16_a");
 
             if (coreTypeValue != null && bit16aValue != null) {
                 variablesProgramacion.put(
@@ -367,7 +335,7 @@ public class ChipPic {
 
             // Flag VCC VPP delay
             String powerSequence = variablesDeChip.get("power_sequence_str").toString().toLowerCase();
-            Boolean vccVppDelay = vccVppTiempo.get(powerSequence);
+            Boolean vccVppDelay = VCC_VPP_TIEMPO.get(powerSequence);
 
             if (vccVppDelay != null) {
                 variablesProgramacion.put("flag_vcc_vpp_delay", "" + vccVppDelay);
@@ -384,32 +352,18 @@ public class ChipPic {
     }
 
     public boolean isFlagCalibration() {
-        Object raw = variablesDeChip.get("flag_calibration_value_in_ROM");
-        if (raw == null)
-            return false;
-        Boolean valor = respuestas.get(raw.toString().toLowerCase());
-        return valor != null && valor;
+        return descriptor.isFlagCalibracion();
     }
 
     public boolean isFlagBandGap() {
-        Object raw = variablesDeChip.get("flag_band_gap_fuse");
-        if (raw == null)
-            return false;
-        Boolean valor = respuestas.get(raw.toString().toLowerCase());
-        return valor != null && valor;
+        return descriptor.isFlagBandGap();
     }
 
     public boolean isFlag18fSingle() {
-
-        String dato = ""
-                + tipoDeNucleo
-                        .get(variablesDeChip.get("core_type").toString().toLowerCase())
-                        .toString()
-                        .equals("" + tipoDeNucleo.get("bit16_a"));
-
-        boolean valor = Boolean.parseBoolean(dato);
-
-        return valor;
+        if (!descriptor.esValida(DescriptorChip.FLAG_18F_SINGLE)) {
+            return calcularFlag18fSingle();
+        }
+        return descriptor.isFlag18fSingle();
     }
 
     /**
@@ -419,62 +373,52 @@ public class ChipPic {
      * @throws ChipConfigurationException Si hay un error al procesar el valor
      */
     public int getProgramDelay() throws ChipConfigurationException {
-
-        try {
-            String delayStr = variablesDeChip.get("program_delay").toString();
-            int valor = Integer.parseUnsignedInt(delayStr, 10);
-
-            return valor;
-
-        } catch (NumberFormatException e) {
-            throw new ChipConfigurationException(
-                    "Error al procesar retardo de programación: " + e.getMessage(), e);
+        if (!descriptor.esValida(DescriptorChip.PROGRAM_DELAY)) {
+            return calcularProgramDelay();
         }
+        return descriptor.getProgramDelay();
     }
 
     public int getPowerSequence() {
-        int valor = Integer.parseUnsignedInt("" + variablesDeChip.get("power_sequence"), 10);
-
-        return valor;
+        if (!descriptor.esValida(DescriptorChip.POWER_SEQUENCE)) {
+            return calcularPowerSequence();
+        }
+        return descriptor.getPowerSequence();
     }
 
     public int getEraseMode() {
-        int valor = Integer.parseUnsignedInt("" + variablesDeChip.get("erase_mode"), 10);
-
-        return valor;
+        if (!descriptor.esValida(DescriptorChip.ERASE_MODE)) {
+            return calcularEraseMode();
+        }
+        return descriptor.getEraseMode();
     }
 
     public int getProgramTries() {
-        int valor = Integer.parseUnsignedInt("" + variablesDeChip.get("program_tries"), 10);
-
-        return valor;
+        if (!descriptor.esValida(DescriptorChip.PROGRAM_TRIES)) {
+            return calcularProgramTries();
+        }
+        return descriptor.getProgramTries();
     }
 
     public int getOverProgram() {
-        int valor = Integer.parseUnsignedInt("" + variablesDeChip.get("over_program"), 10);
-
-        return valor;
+        if (!descriptor.esValida(DescriptorChip.OVER_PROGRAM)) {
+            return calcularOverProgram();
+        }
+        return descriptor.getOverProgram();
     }
 
     public boolean isFlagVccVppDelay() {
-
-        boolean valor = vccVppTiempo.get(("" + variablesDeChip.get("power_sequence_str")).toLowerCase());
-
-        return valor;
+        if (!descriptor.esValida(DescriptorChip.FLAG_VCC_VPP_DELAY)) {
+            return calcularFlagVccVppDelay();
+        }
+        return descriptor.isFlagVccVppDelay();
     }
 
     public int getTipoDeNucleoDelPic() {
-
-        int nucleo = Integer.parseInt(
-                ""
-                        + tipoDeNucleo.get(
-                                ""
-                                        + variablesDeChip
-                                                .get("core_type")
-                                                .toString()
-                                                .toLowerCase()));
-
-        return nucleo;
+        if (!descriptor.esValida(DescriptorChip.TIPO_NUCLEO)) {
+            return calcularTipoDeNucleoDelPic();
+        }
+        return descriptor.getTipoNucleo();
     }
 
     public void setActivarICSP(boolean activar) {
@@ -489,7 +433,7 @@ public class ChipPic {
 
     public int getSecuenciaDeEncendido() {
 
-        int secuencia = Integer.parseUnsignedInt("" + variablesDeChip.get("power_sequence"), 10);
+        int secuencia = getPowerSequence();
 
         if (icsp) {
 
@@ -501,25 +445,13 @@ public class ChipPic {
 
                 secuencia = 3;
             }
-
-        } else {
-
-            secuencia = Integer.parseUnsignedInt("" + variablesDeChip.get("power_sequence"), 10);
         }
 
         return secuencia;
     }
 
     public boolean isTamanoValidoDeEEPROM() {
-
-        try {
-            // EEPROMsize en chipinfo.cid esta en hexadecimal: 00000080 = 128 bytes
-            int tamano = Integer.parseUnsignedInt(
-                    variablesDeChip.get("eeprom_size").toString().trim(), 16);
-            return tamano != 0;
-        } catch (NumberFormatException e) {
-            return false;
-        }
+        return descriptor.isTamanoValidoDeEEPROM();
     }
 
     /**
@@ -529,17 +461,10 @@ public class ChipPic {
      * @throws ChipConfigurationException Si hay un error al procesar el tamaño
      */
     public int getTamanoROM() throws ChipConfigurationException {
-
-        try {
-            String romSizeStr = variablesDeChip.get("rom_size").toString();
-            int tamano = Integer.parseUnsignedInt(romSizeStr, 16);
-
-            return tamano;
-
-        } catch (NumberFormatException e) {
-            throw new ChipConfigurationException(
-                    "Error al procesar tamaño de ROM: " + e.getMessage(), e);
+        if (!descriptor.esValida(DescriptorChip.TAMANO_ROM)) {
+            return calcularTamanoROM();
         }
+        return descriptor.getTamanoROM();
     }
 
     /**
@@ -549,50 +474,24 @@ public class ChipPic {
      * @throws ChipConfigurationException Si hay un error al procesar el tamaño
      */
     public int getTamanoEEPROM() throws ChipConfigurationException {
-
-        try {
-            String eepromSizeStr = variablesDeChip.get("eeprom_size").toString();
-            int tamano = Integer.parseUnsignedInt(eepromSizeStr, 16);
-
-            return tamano;
-
-        } catch (NumberFormatException e) {
-            throw new ChipConfigurationException(
-                    "Error al procesar tamaño de EEPROM: " + e.getMessage(), e);
+        if (!descriptor.esValida(DescriptorChip.TAMANO_EEPROM)) {
+            return calcularTamanoEEPROM();
         }
+        return descriptor.getTamanoEEPROM();
     }
 
     /**
      * Obtiene los valores blank de fuses como array de enteros.
      *
-     * @return Array con los valores blank de fuses
+     * @return Array con los valores blank de fuses; es compartido y no debe
+     *         modificarse
      * @throws ChipConfigurationException Si hay un error al procesar los fuses
      */
     public int[] getFuseBlank() throws ChipConfigurationException {
-        try {
-            String[] fusesTexto = (String[]) variablesDeChip.get("FUSEblank");
-
-            if (fusesTexto == null) {
-                return new int[0];
-            }
-
-            int[] fuseBlank = new int[fusesTexto.length];
-
-            for (int i = 0; i < fuseBlank.length; i++) {
-                try {
-                    fuseBlank[i] = Integer.parseUnsignedInt(fusesTexto[i], 16);
-                } catch (NumberFormatException e) {
-                    throw new ChipConfigurationException(
-                            "Error al procesar fuse[" + i + "]: " + fusesTexto[i], e);
-                }
-            }
-
-            return fuseBlank;
-
-        } catch (ClassCastException e) {
-            throw new ChipConfigurationException(
-                    "Error de tipo al obtener fuses: " + e.getMessage(), e);
+        if (!descriptor.esValida(DescriptorChip.FUSE_BLANK)) {
+            return calcularFuseBlank();
         }
+        return descriptor.getFuseBlank();
     }
 
     /**
@@ -602,24 +501,14 @@ public class ChipPic {
      * @throws ChipConfigurationException Si hay un error al procesar el ID
      */
     public int getIDPIC() throws ChipConfigurationException {
-
-        try {
-            String chipIdStr = variablesDeChip.get("ChipID").toString();
-            int id = Integer.parseUnsignedInt(chipIdStr, 16);
-
-            return id;
-
-        } catch (NumberFormatException e) {
-            throw new ChipConfigurationException(
-                    "Error al procesar ID del PIC: " + e.getMessage(), e);
+        if (!descriptor.esValida(DescriptorChip.ID_PIC)) {
+            return calcularIDPIC();
         }
+        return descriptor.getIDPIC();
     }
 
     public String getUbicacionPin1DelPic() {
-
-        String ubicacion = "" + socketImagen.get("" + variablesDeChip.get("SocketImage"));
-
-        return ubicacion;
+        return descriptor.getUbicacionPin1();
     }
 
     /**
@@ -641,10 +530,13 @@ public class ChipPic {
         return icsp;
     }
 
-    public String getNombreDelPic() {
-        String chipIdStr = variablesDeChip.get("CHIPname").toString();
+    /** @return Propiedades del chip ya resueltas */
+    public DescriptorChip getDescriptor() {
+        return descriptor;
+    }
 
-        return chipIdStr;
+    public String getNombreDelPic() {
+        return descriptor.getNombre();
     }
 
     /**
@@ -653,23 +545,7 @@ public class ChipPic {
      * @return Numero de pines (8, 14, 18, 28, 40) o 0 si no se reconoce.
      */
     public int getNumeroDePines() {
-        String socketImage = (String) variablesDeChip.get("SocketImage");
-        if (socketImage == null)
-            return 0;
-
-        String lowerValue = socketImage.toLowerCase();
-        if (lowerValue.contains("40pin"))
-            return 40;
-        if (lowerValue.contains("28npin"))
-            return 28;
-        if (lowerValue.contains("18pin"))
-            return 18;
-        if (lowerValue.contains("14pin"))
-            return 14;
-        if (lowerValue.contains("8pin"))
-            return 8;
-
-        return 0;
+        return descriptor.getNumeroDePines();
     }
 
     // -------------------------------------------------------------------------
@@ -707,6 +583,28 @@ public class ChipPic {
      */
     public void setFusesMap(Map<String, Map<String, List<FuseValue>>> fusesMap) {
         variablesDeChip.put("fuses", fusesMap);
+        tablaFuses = null;
+    }
+
+    /**
+     * Devuelve la tabla de fuses compilada en arrays planos, construida una
+     * sola vez por chip. Permite codificar y decodificar sin crear objetos.
+     *
+     * @return Tabla de fuses, o null si los fuses no se cargaron como mapa
+     *         estructurado
+     */
+    public TablaFuses getTablaFuses() {
+        TablaFuses tabla = tablaFuses;
+        if (tabla == null) {
+            Map<String, Map<String, List<FuseValue>>> fuses = getFusesMap();
+            if (fuses == null) {
+                return null;
+            }
+            // Una carrera solo compila la misma tabla dos veces
+            tabla = new TablaFuses(fuses);
+            tablaFuses = tabla;
+        }
+        return tabla;
     }
 
     /**
@@ -717,21 +615,33 @@ public class ChipPic {
      * @return Lista de enteros (palabras de config con los bits de fuse aplicados)
      * @throws FuseError Si algun fusible o valor es desconocido
      */
-    @SuppressWarnings("unchecked")
     public List<Integer> encodeFuseData(Map<String, String> fuseDict) throws FuseError {
+        int[] palabras = codificarFuses(fuseDict);
+        List<Integer> result = new ArrayList<>(palabras.length);
+        for (int v : palabras)
+            result.add(v);
+        return result;
+    }
+
+    /**
+     * Igual que {@link #encodeFuseData(Map)}, pero devuelve las palabras de
+     * configuracion en un array sin encapsular.
+     *
+     * @param fuseDict Mapa con la configuracion deseada: nombre_fuse → opcion
+     * @return Palabras de config con los bits de fuse aplicados
+     * @throws FuseError Si algun fusible o valor es desconocido
+     */
+    public int[] codificarFuses(Map<String, String> fuseDict) throws FuseError {
         // Base: copiar los valores blank de fuses
-        int[] fuseBlankArr;
+        int[] palabras;
         try {
-            fuseBlankArr = getFuseBlank();
+            palabras = getFuseBlank().clone();
         } catch (ChipConfigurationException e) {
             throw new FuseError("No se pudo obtener FUSEblank: " + e.getMessage());
         }
-        List<Integer> result = new ArrayList<>();
-        for (int v : fuseBlankArr)
-            result.add(v);
 
-        Map<String, Map<String, List<FuseValue>>> fuseParamList = getFusesMap();
-        if (fuseParamList == null || fuseParamList.isEmpty()) {
+        TablaFuses tabla = getTablaFuses();
+        if (tabla == null || tabla.cantidadFuses() == 0) {
             throw new FuseError("No hay configuraciones de fusibles disponibles para " + getNombreDelPic());
         }
 
@@ -739,15 +649,15 @@ public class ChipPic {
             String fuse = entry.getKey();
             String fuseValue = entry.getValue();
 
-            String actualFuseName = findFuseName(fuseParamList, fuse);
-            if (actualFuseName == null) {
+            int indiceFuse = tabla.buscarFuse(fuse);
+            if (indiceFuse < 0) {
                 StringBuilder sb = new StringBuilder("Fusible desconocido: \"").append(fuse)
                         .append("\". Fusibles disponibles: ");
                 int count = 0;
-                for (String key : fuseParamList.keySet()) {
+                for (int f = 0; f < tabla.cantidadFuses(); f++) {
                     if (count++ > 0)
                         sb.append(", ");
-                    sb.append(key);
+                    sb.append(tabla.nombreFuse(f));
                     if (count >= 10) {
                         sb.append("...");
                         break;
@@ -756,24 +666,23 @@ public class ChipPic {
                 throw new FuseError(sb.toString());
             }
 
-            Map<String, List<FuseValue>> fuseSettings = fuseParamList.get(actualFuseName);
-            if (!fuseSettings.containsKey(fuseValue)) {
+            int opcion = tabla.buscarOpcion(indiceFuse, fuseValue);
+            if (opcion < 0) {
                 StringBuilder sb = new StringBuilder("Valor invalido '").append(fuseValue)
-                        .append("' para fuse '").append(actualFuseName)
+                        .append("' para fuse '").append(tabla.nombreFuse(indiceFuse))
                         .append("'. Valores disponibles: ");
-                int count = 0;
-                for (String key : fuseSettings.keySet()) {
-                    if (count++ > 0)
+                for (int o = 0; o < tabla.cantidadOpciones(indiceFuse); o++) {
+                    if (o > 0)
                         sb.append(", ");
-                    sb.append(key);
+                    sb.append(tabla.nombreOpcion(indiceFuse, o));
                 }
                 throw new FuseError(sb.toString());
             }
 
-            result = indexwiseAnd(result, fuseSettings.get(fuseValue));
+            tabla.aplicarOpcion(indiceFuse, opcion, palabras);
         }
 
-        return result;
+        return palabras;
     }
 
     /**
@@ -784,33 +693,33 @@ public class ChipPic {
      * @return Mapa nombre_fuse → opcion_activa
      * @throws FuseError Si no hay fuses disponibles
      */
-    @SuppressWarnings("unchecked")
     public Map<String, String> decodeFuseData(List<Integer> fuseValues) throws FuseError {
-        Map<String, Map<String, List<FuseValue>>> fuseParamList = getFusesMap();
-        if (fuseParamList == null || fuseParamList.isEmpty()) {
+        int[] palabras = new int[fuseValues.size()];
+        for (int i = 0; i < palabras.length; i++)
+            palabras[i] = fuseValues.get(i);
+        return decodeFuseData(palabras, palabras.length);
+    }
+
+    /**
+     * Decodifica palabras de configuracion sin encapsular a su representacion
+     * simbolica (nombre_fuse → opcion_activa).
+     *
+     * @param fuseValues Palabras leidas del PIC o del archivo HEX
+     * @param cantidad   Numero de palabras validas en el array
+     * @return Mapa nombre_fuse → opcion_activa
+     * @throws FuseError Si no hay fuses disponibles
+     */
+    public Map<String, String> decodeFuseData(int[] fuseValues, int cantidad) throws FuseError {
+        TablaFuses tabla = getTablaFuses();
+        if (tabla == null || tabla.cantidadFuses() == 0) {
             throw new FuseError("No hay configuraciones de fusibles disponibles para " + getNombreDelPic());
         }
 
         Map<String, String> result = new HashMap<>();
-
-        for (Map.Entry<String, Map<String, List<FuseValue>>> fuseParamEntry : fuseParamList.entrySet()) {
-            String fuseParam = fuseParamEntry.getKey();
-            Map<String, List<FuseValue>> fuseSettings = fuseParamEntry.getValue();
-
-            String bestSetting = null;
-            int bestScore = -1;
-
-            for (Map.Entry<String, List<FuseValue>> settingEntry : fuseSettings.entrySet()) {
-                int score = calculateMatchScore(fuseValues, settingEntry.getValue());
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestSetting = settingEntry.getKey();
-                }
-            }
-
-            result.put(fuseParam, bestSetting != null ? bestSetting : "Unknown");
+        for (int f = 0; f < tabla.cantidadFuses(); f++) {
+            int opcion = tabla.decodificarOpcion(f, fuseValues, cantidad);
+            result.put(tabla.nombreFuse(f), opcion >= 0 ? tabla.nombreOpcion(f, opcion) : "Unknown");
         }
-
         return result;
     }
 
@@ -839,50 +748,6 @@ public class ChipPic {
         return sb.toString();
     }
 
-    /** Busqueda flexible de nombre de fuse: exacta, case-insensitive, parcial. */
-    private String findFuseName(
-            Map<String, Map<String, List<FuseValue>>> fuseConfigs,
-            String fuseName) {
-        if (fuseConfigs.containsKey(fuseName))
-            return fuseName;
-        for (String key : fuseConfigs.keySet()) {
-            if (key.equalsIgnoreCase(fuseName))
-                return key;
-        }
-        String search = fuseName.toLowerCase();
-        for (String key : fuseConfigs.keySet()) {
-            String kl = key.toLowerCase();
-            if (kl.contains(search) || search.contains(kl))
-                return key;
-        }
-        return null;
-    }
-
-    /** Calcula cuantos bits coinciden entre fuseValues y settingValues. */
-    private int calculateMatchScore(List<Integer> fuseValues, List<FuseValue> settingValues) {
-        int score = 0;
-        for (FuseValue fv : settingValues) {
-            if (fv.index < fuseValues.size()) {
-                score += Integer.bitCount(fuseValues.get(fv.index) & fv.value);
-            }
-        }
-        return score;
-    }
-
-    /**
-     * Aplica un AND por posicion entre la lista de fuses y los valores de la
-     * opcion.
-     */
-    private List<Integer> indexwiseAnd(List<Integer> fuses, List<FuseValue> settingValues) {
-        List<Integer> result = new ArrayList<>(fuses);
-        for (FuseValue fv : settingValues) {
-            if (fv.index < result.size()) {
-                result.set(fv.index, result.get(fv.index) & fv.value);
-            }
-        }
-        return result;
-    }
-
     // -------------------------------------------------------------------------
     // Exposición de info del chip (equivalente a Python to_dict() + chip_info)
     // -------------------------------------------------------------------------
@@ -1019,11 +884,7 @@ public class ChipPic {
      * Equivalente a Python ChipInfoEntry.flash_chip.
      */
     public boolean isFlashChip() {
-        Object flashChip = variablesDeChip.get("FlashChip");
-        if (flashChip == null)
-            return false;
-        Boolean valor = respuestas.get(flashChip.toString().toLowerCase());
-        return valor != null && valor;
+        return descriptor.isFlashChip();
     }
 
     /**
@@ -1031,10 +892,289 @@ public class ChipPic {
      * Equivalente a Python ChipInfoEntry.cp_warn.
      */
     public boolean isCPWarn() {
+        return descriptor.isCPWarn();
+    }
+
+    // -------------------------------------------------------------------------
+    // Calculo desde los textos de chipinfo. DescriptorChip los usa una vez al
+    // construir el chip; los getters solo los repiten si el valor no es valido.
+    // -------------------------------------------------------------------------
+
+    int calcularTipoDeNucleoBit() throws ChipConfigurationException {
+
+        try {
+            String coreTypeStr = variablesDeChip.get("core_type").toString().toLowerCase();
+            Integer nucleoObj = TIPO_DE_NUCLEO.get(coreTypeStr);
+            if (nucleoObj == null) {
+                throw new ChipConfigurationException(
+                        "Tipo de núcleo no encontrado: " + coreTypeStr);
+            }
+
+            int nucleo = nucleoObj;
+
+            if (nucleo == 1 || nucleo == 2 || nucleo == 13) {
+                nucleo = 16;
+            } else if (nucleo == 3
+                    || nucleo == 5
+                    || nucleo == 6
+                    || nucleo == 7
+                    || nucleo == 8
+                    || nucleo == 9
+                    || nucleo == 10
+                    || nucleo == 12) {
+                nucleo = 14;
+            } else if (nucleo == 4 || nucleo == 11) {
+                nucleo = 12;
+            } else {
+                throw new ChipConfigurationException("Tipo de núcleo inválido: " + nucleo);
+            }
+
+            return nucleo;
+
+        } catch (NumberFormatException e) {
+            throw new ChipConfigurationException(
+                    "Error al procesar tipo de núcleo: " + e.getMessage(), e);
+        }
+    }
+
+    boolean calcularICSPonly() throws ChipConfigurationException {
+
+        try {
+            String socketImage = "" + variablesDeChip.get("SocketImage");
+            if ("0pin".equalsIgnoreCase(socketImage.trim())) {
+                return true;
+            }
+
+            String icspOnlyStr = variablesDeChip.get("ICSPonly").toString().toLowerCase();
+
+            Boolean valor = RESPUESTAS.get(icspOnlyStr);
+            if (valor == null) {
+                throw new ChipConfigurationException("Valor ICSPonly inválido: " + icspOnlyStr);
+            }
+
+            return valor;
+
+        } catch (Exception e) {
+            throw new ChipConfigurationException(
+                    "Error al verificar ICSPonly: " + e.getMessage(), e);
+        }
+    }
+
+    boolean calcularFlagCalibration() {
+        Object raw = variablesDeChip.get("flag_calibration_value_in_ROM");
+        if (raw == null)
+            return false;
+        Boolean valor = RESPUESTAS.get(raw.toString().toLowerCase());
+        return valor != null && valor;
+    }
+
+    boolean calcularFlagBandGap() {
+        Object raw = variablesDeChip.get("flag_band_gap_fuse");
+        if (raw == null)
+            return false;
+        Boolean valor = RESPUESTAS.get(raw.toString().toLowerCase());
+        return valor != null && valor;
+    }
+
+    boolean calcularFlag18fSingle() {
+
+        String dato = ""
+                + TIPO_DE_NUCLEO
+                        .get(variablesDeChip.get("core_type").toString().toLowerCase())
+                        .toString()
+                        .equals("" + TIPO_DE_NUCLEO.get("bit16_a"));
+
+        boolean valor = Boolean.parseBoolean(dato);
+
+        return valor;
+    }
+
+    int calcularProgramDelay() throws ChipConfigurationException {
+
+        try {
+            String delayStr = variablesDeChip.get("program_delay").toString();
+            int valor = Integer.parseUnsignedInt(delayStr, 10);
+
+            return valor;
+
+        } catch (NumberFormatException e) {
+            throw new ChipConfigurationException(
+                    "Error al procesar retardo de programación: " + e.getMessage(), e);
+        }
+    }
+
+    int calcularPowerSequence() {
+        int valor = Integer.parseUnsignedInt("" + variablesDeChip.get("power_sequence"), 10);
+
+        return valor;
+    }
+
+    int calcularEraseMode() {
+        int valor = Integer.parseUnsignedInt("" + variablesDeChip.get("erase_mode"), 10);
+
+        return valor;
+    }
+
+    int calcularProgramTries() {
+        int valor = Integer.parseUnsignedInt("" + variablesDeChip.get("program_tries"), 10);
+
+        return valor;
+    }
+
+    int calcularOverProgram() {
+        int valor = Integer.parseUnsignedInt("" + variablesDeChip.get("over_program"), 10);
+
+        return valor;
+    }
+
+    boolean calcularFlagVccVppDelay() {
+
+        boolean valor = VCC_VPP_TIEMPO.get(("" + variablesDeChip.get("power_sequence_str")).toLowerCase());
+
+        return valor;
+    }
+
+    int calcularTipoDeNucleoDelPic() {
+
+        int nucleo = Integer.parseInt(
+                ""
+                        + TIPO_DE_NUCLEO.get(
+                                ""
+                                        + variablesDeChip
+                                                .get("core_type")
+                                                .toString()
+                                                .toLowerCase()));
+
+        return nucleo;
+    }
+
+    boolean calcularTamanoValidoDeEEPROM() {
+
+        try {
+            // EEPROMsize en chipinfo.cid esta en hexadecimal: 00000080 = 128 bytes
+            int tamano = Integer.parseUnsignedInt(
+                    variablesDeChip.get("eeprom_size").toString().trim(), 16);
+            return tamano != 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    int calcularTamanoROM() throws ChipConfigurationException {
+
+        try {
+            String romSizeStr = variablesDeChip.get("rom_size").toString();
+            int tamano = Integer.parseUnsignedInt(romSizeStr, 16);
+
+            return tamano;
+
+        } catch (NumberFormatException e) {
+            throw new ChipConfigurationException(
+                    "Error al procesar tamaño de ROM: " + e.getMessage(), e);
+        }
+    }
+
+    int calcularTamanoEEPROM() throws ChipConfigurationException {
+
+        try {
+            String eepromSizeStr = variablesDeChip.get("eeprom_size").toString();
+            int tamano = Integer.parseUnsignedInt(eepromSizeStr, 16);
+
+            return tamano;
+
+        } catch (NumberFormatException e) {
+            throw new ChipConfigurationException(
+                    "Error al procesar tamaño de EEPROM: " + e.getMessage(), e);
+        }
+    }
+
+    int[] calcularFuseBlank() throws ChipConfigurationException {
+        try {
+            String[] fusesTexto = (String[]) variablesDeChip.get("FUSEblank");
+
+            if (fusesTexto == null) {
+                return new int[0];
+            }
+
+            int[] fuseBlank = new int[fusesTexto.length];
+
+            for (int i = 0; i < fuseBlank.length; i++) {
+                try {
+                    fuseBlank[i] = Integer.parseUnsignedInt(fusesTexto[i], 16);
+                } catch (NumberFormatException e) {
+                    throw new ChipConfigurationException(
+                            "Error al procesar fuse[" + i + "]: " + fusesTexto[i], e);
+                }
+            }
+
+            return fuseBlank;
+
+        } catch (ClassCastException e) {
+            throw new ChipConfigurationException(
+                    "Error de tipo al obtener fuses: " + e.getMessage(), e);
+        }
+    }
+
+    int calcularIDPIC() throws ChipConfigurationException {
+
+        try {
+            String chipIdStr = variablesDeChip.get("ChipID").toString();
+            int id = Integer.parseUnsignedInt(chipIdStr, 16);
+
+            return id;
+
+        } catch (NumberFormatException e) {
+            throw new ChipConfigurationException(
+                    "Error al procesar ID del PIC: " + e.getMessage(), e);
+        }
+    }
+
+    String calcularUbicacionPin1DelPic() {
+
+        String ubicacion = "" + SOCKET_IMAGEN.get("" + variablesDeChip.get("SocketImage"));
+
+        return ubicacion;
+    }
+
+    String calcularNombreDelPic() {
+        String chipIdStr = variablesDeChip.get("CHIPname").toString();
+
+        return chipIdStr;
+    }
+
+    int calcularNumeroDePines() {
+        String socketImage = (String) variablesDeChip.get("SocketImage");
+        if (socketImage == null)
+            return 0;
+
+        String lowerValue = socketImage.toLowerCase();
+        if (lowerValue.contains("40pin"))
+            return 40;
+        if (lowerValue.contains("28npin"))
+            return 28;
+        if (lowerValue.contains("18pin"))
+            return 18;
+        if (lowerValue.contains("14pin"))
+            return 14;
+        if (lowerValue.contains("8pin"))
+            return 8;
+
+        return 0;
+    }
+
+    boolean calcularFlashChip() {
+        Object flashChip = variablesDeChip.get("FlashChip");
+        if (flashChip == null)
+            return false;
+        Boolean valor = RESPUESTAS.get(flashChip.toString().toLowerCase());
+        return valor != null && valor;
+    }
+
+    boolean calcularCPWarn() {
         Object cpWarn = variablesDeChip.get("CPwarn");
         if (cpWarn == null)
             return false;
-        Boolean valor = respuestas.get(cpWarn.toString().toLowerCase());
+        Boolean valor = RESPUESTAS.get(cpWarn.toString().toLowerCase());
         return valor != null && valor;
     }
 }
@@ -0,0 +1,216 @@
+package com.diamon.chip;
+
+/**
+ * Propiedades de un chip PIC resueltas una sola vez a partir de los textos de
+ * chipinfo.
+ *
+ * <p>
+ * Es inmutable: los getters de {@link ChipPic} que se usan durante la
+ * programacion leen estos campos sin analizar texto, sin crear objetos y sin
+ * lanzar excepciones. Una propiedad cuyo texto no es valido queda marcada como
+ * invalida; ChipPic repite entonces el calculo original para lanzar el mismo
+ * error que antes.
+ * </p>
+ */
+public final class DescriptorChip {
+
+    // Bits de las propiedades que pueden no resolverse
+    static final int NUCLEO_BIT = 1;
+    static final int TIPO_NUCLEO = 1 << 1;
+    static final int ICSP_ONLY = 1 << 2;
+    static final int FLAG_18F_SINGLE = 1 << 3;
+    static final int FLAG_VCC_VPP_DELAY = 1 << 4;
+    static final int PROGRAM_DELAY = 1 << 5;
+    static final int POWER_SEQUENCE = 1 << 6;
+    static final int ERASE_MODE = 1 << 7;
+    static final int PROGRAM_TRIES = 1 << 8;
+    static final int OVER_PROGRAM = 1 << 9;
+    static final int TAMANO_ROM = 1 << 10;
+    static final int TAMANO_EEPROM = 1 << 11;
+    static final int FUSE_BLANK = 1 << 12;
+    static final int ID_PIC = 1 << 13;
+
+    private interface CalculoEntero {
+        int calcular() throws Exception;
+    }
+
+    private interface CalculoLogico {
+        boolean calcular() throws Exception;
+    }
+
+    private static final int[] SIN_FUSES = new int[0];
+
+    private final String nombre;
+    private final int nucleoBit;
+    private final int tipoNucleo;
+    private final boolean icspOnly;
+    private final boolean flag18fSingle;
+    private final boolean flagVccVppDelay;
+    private final boolean flagCalibracion;
+    private final boolean flagBandGap;
+    private final boolean flashChip;
+    private final boolean cpWarn;
+    private final int programDelay;
+    private final int powerSequence;
+    private final int eraseMode;
+    private final int programTries;
+    private final int overProgram;
+    private final int tamanoROM;
+    private final int tamanoEEPROM;
+    private final boolean tamanoValidoDeEEPROM;
+    private final int[] fuseBlank;
+    private final int idPic;
+    private final int numeroDePines;
+    private final String ubicacionPin1;
+
+    // Solo se escribe durante el constructor
+    private int invalidas;
+
+    DescriptorChip(final ChipPic chip) {
+        nombre = chip.calcularNombreDelPic();
+        nucleoBit = entero(NUCLEO_BIT, chip::calcularTipoDeNucleoBit);
+        tipoNucleo = entero(TIPO_NUCLEO, chip::calcularTipoDeNucleoDelPic);
+        icspOnly = logico(ICSP_ONLY, chip::calcularICSPonly);
+        flag18fSingle = logico(FLAG_18F_SINGLE, chip::calcularFlag18fSingle);
+        flagVccVppDelay = logico(FLAG_VCC_VPP_DELAY, chip::calcularFlagVccVppDelay);
+        flagCalibracion = chip.calcularFlagCalibration();
+        flagBandGap = chip.calcularFlagBandGap();
+        flashChip = chip.calcularFlashChip();
+        cpWarn = chip.calcularCPWarn();
+        programDelay = entero(PROGRAM_DELAY, chip::calcularProgramDelay);
+        powerSequence = entero(POWER_SEQUENCE, chip::calcularPowerSequence);
+        eraseMode = entero(ERASE_MODE, chip::calcularEraseMode);
+        programTries = entero(PROGRAM_TRIES, chip::calcularProgramTries);
+        overProgram = entero(OVER_PROGRAM, chip::calcularOverProgram);
+        tamanoROM = entero(TAMANO_ROM, chip::calcularTamanoROM);
+        tamanoEEPROM = entero(TAMANO_EEPROM, chip::calcularTamanoEEPROM);
+        tamanoValidoDeEEPROM = chip.calcularTamanoValidoDeEEPROM();
+        idPic = entero(ID_PIC, chip::calcularIDPIC);
+        numeroDePines = chip.calcularNumeroDePines();
+        ubicacionPin1 = chip.calcularUbicacionPin1DelPic();
+
+        int[] blank;
+        try {
+            blank = chip.calcularFuseBlank();
+        } catch (Exception e) {
+            blank = SIN_FUSES;
+            invalidas |= FUSE_BLANK;
+        }
+        fuseBlank = blank;
+    }
+
+    private int entero(int propiedad, CalculoEntero calculo) {
+        try {
+            return calculo.calcular();
+        } catch (Exception e) {
+            invalidas |= propiedad;
+            return 0;
+        }
+    }
+
+    private boolean logico(int propiedad, CalculoLogico calculo) {
+        try {
+            return calculo.calcular();
+        } catch (Exception e) {
+            invalidas |= propiedad;
+            return false;
+        }
+    }
+
+    /** @return true si la propiedad se resolvio sin error */
+    boolean esValida(int propiedad) {
+        return (invalidas & propiedad) == 0;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /** @return Tipo de nucleo en bits (16, 14 o 12), o 0 si no es valido */
+    public int getNucleoBit() {
+        return nucleoBit;
+    }
+
+    /** @return Codigo del tipo de nucleo que usa el protocolo del programador */
+    public int getTipoNucleo() {
+        return tipoNucleo;
+    }
+
+    public boolean isICSPonly() {
+        return icspOnly;
+    }
+
+    public boolean isFlag18fSingle() {
+        return flag18fSingle;
+    }
+
+    public boolean isFlagVccVppDelay() {
+        return flagVccVppDelay;
+    }
+
+    public boolean isFlagCalibracion() {
+        return flagCalibracion;
+    }
+
+    public boolean isFlagBandGap() {
+        return flagBandGap;
+    }
+
+    public boolean isFlashChip() {
+        return flashChip;
+    }
+
+    public boolean isCPWarn() {
+        return cpWarn;
+    }
+
+    public int getProgramDelay() {
+        return programDelay;
+    }
+
+    /** @return Secuencia de encendido sin el ajuste del modo ICSP */
+    public int getPowerSequence() {
+        return powerSequence;
+    }
+
+    public int getEraseMode() {
+        return eraseMode;
+    }
+
+    public int getProgramTries() {
+        return programTries;
+    }
+
+    public int getOverProgram() {
+        return overProgram;
+    }
+
+    public int getTamanoROM() {
+        return tamanoROM;
+    }
+
+    public int getTamanoEEPROM() {
+        return tamanoEEPROM;
+    }
+
+    public boolean isTamanoValidoDeEEPROM() {
+        return tamanoValidoDeEEPROM;
+    }
+
+    /** @return Valores blank de fuses; el array es compartido y no debe modificarse */
+    public int[] getFuseBlank() {
+        return fuseBlank;
+    }
+
+    public int getIDPIC() {
+        return idPic;
+    }
+
+    public int getNumeroDePines() {
+        return numeroDePines;
+    }
+
+    public String getUbicacionPin1() {
+        return ubicacionPin1;
+    }
+}
@@ -0,0 +1,207 @@
+package com.diamon.chip;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tabla de fuses de un chip compilada en arrays planos.
+ *
+ * <p>
+ * Se construye una vez a partir del mapa nombre → (opción → List&lt;FuseValue&gt;)
+ * y conserva su orden de iteración. Cada opción queda como un tramo de pares
+ * (índice de palabra, máscara) en dos arrays paralelos, de modo que codificar
+ * y decodificar recorren solo enteros, sin crear objetos. Los nombres de fuse
+ * se resuelven a índices con mapas precalculados.
+ * </p>
+ *
+ * <p>
+ * Es inmutable y puede compartirse entre hilos.
+ * </p>
+ */
+public final class TablaFuses {
+
+    private final String[] nombresFuse;
+    private final String[] nombresFuseMinusculas;
+
+    /** Opciones del fuse f: [primeraOpcion[f], primeraOpcion[f + 1]) */
+    private final int[] primeraOpcion;
+    private final String[] nombresOpcion;
+
+    /** Pares de la opción o: [primerPar[o], primerPar[o + 1]) */
+    private final int[] primerPar;
+    private final int[] indicesPalabra;
+    private final int[] mascaras;
+
+    private final Map<String, Integer> indicePorNombre;
+    private final Map<String, Integer> indicePorNombreMinusculas;
+
+    TablaFuses(Map<String, Map<String, List<ChipPic.FuseValue>>> fuses) {
+        int cantidadFuses = fuses.size();
+        int cantidadOpciones = 0;
+        int cantidadPares = 0;
+        for (Map<String, List<ChipPic.FuseValue>> opciones : fuses.values()) {
+            cantidadOpciones += opciones.size();
+            for (List<ChipPic.FuseValue> valores : opciones.values()) {
+                cantidadPares += valores.size();
+            }
+        }
+
+        nombresFuse = new String[cantidadFuses];
+        nombresFuseMinusculas = new String[cantidadFuses];
+        primeraOpcion = new int[cantidadFuses + 1];
+        nombresOpcion = new String[cantidadOpciones];
+        primerPar = new int[cantidadOpciones + 1];
+        indicesPalabra = new int[cantidadPares];
+        mascaras = new int[cantidadPares];
+        indicePorNombre = new HashMap<>(cantidadFuses * 2);
+        indicePorNombreMinusculas = new HashMap<>(cantidadFuses * 2);
+
+        int f = 0;
+        int o = 0;
+        int p = 0;
+        for (Map.Entry<String, Map<String, List<ChipPic.FuseValue>>> fuse : fuses.entrySet()) {
+            String nombre = fuse.getKey();
+            nombresFuse[f] = nombre;
+            nombresFuseMinusculas[f] = nombre.toLowerCase(Locale.ROOT);
+            indicePorNombre.put(nombre, f);
+            // Ante nombres que solo difieren en mayusculas gana el primero, como en la busqueda lineal
+            indicePorNombreMinusculas.putIfAbsent(nombresFuseMinusculas[f], f);
+            primeraOpcion[f] = o;
+
+            for (Map.Entry<String, List<ChipPic.FuseValue>> opcion : fuse.getValue().entrySet()) {
+                nombresOpcion[o] = opcion.getKey();
+                primerPar[o] = p;
+                for (ChipPic.FuseValue valor : opcion.getValue()) {
+                    indicesPalabra[p] = valor.index;
+                    mascaras[p] = valor.value;
+                    p++;
+                }
+                o++;
+            }
+            f++;
+        }
+        primeraOpcion[cantidadFuses] = o;
+        primerPar[cantidadOpciones] = p;
+    }
+
+    /** @return Número de fuses del chip */
+    public int cantidadFuses() {
+        return nombresFuse.length;
+    }
+
+    public String nombreFuse(int fuse) {
+        return nombresFuse[fuse];
+    }
+
+    /** @return Número de opciones del fuse */
+    public int cantidadOpciones(int fuse) {
+        return primeraOpcion[fuse + 1] - primeraOpcion[fuse];
+    }
+
+    public String nombreOpcion(int fuse, int opcion) {
+        return nombresOpcion[primeraOpcion[fuse] + opcion];
+    }
+
+    /**
+     * Busca un fuse por nombre: primero exacto, luego sin distinguir mayúsculas
+     * y por último por coincidencia parcial en cualquier sentido.
+     *
+     * @param nombre Nombre buscado
+     * @return Índice del fuse, o -1 si no existe
+     */
+    public int buscarFuse(String nombre) {
+        Integer indice = indicePorNombre.get(nombre);
+        if (indice != null) {
+            return indice;
+        }
+        String buscado = nombre.toLowerCase(Locale.ROOT);
+        indice = indicePorNombreMinusculas.get(buscado);
+        if (indice != null) {
+            return indice;
+        }
+        for (int f = 0; f < nombresFuseMinusculas.length; f++) {
+            String candidato = nombresFuseMinusculas[f];
+            if (candidato.contains(buscado) || buscado.contains(candidato)) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param fuse   Índice del fuse
+     * @param nombre Nombre exacto de la opción
+     * @return Índice de la opción dentro del fuse, o -1 si no existe
+     */
+    public int buscarOpcion(int fuse, String nombre) {
+        // Cada fuse tiene pocas opciones: el recorrido evita crear claves compuestas
+        for (int o = primeraOpcion[fuse]; o < primeraOpcion[fuse + 1]; o++) {
+            if (nombresOpcion[o].equals(nombre)) {
+                return o - primeraOpcion[fuse];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Aplica una opción sobre las palabras de configuración con un AND por
+     * posición. Las posiciones fuera del array se ignoran.
+     *
+     * @param fuse     Índice del fuse
+     * @param opcion   Índice de la opción dentro del fuse
+     * @param palabras Palabras de configuración, modificadas en el sitio
+     */
+    public void aplicarOpcion(int fuse, int opcion, int[] palabras) {
+        int o = primeraOpcion[fuse] + opcion;
+        for (int p = primerPar[o]; p < primerPar[o + 1]; p++) {
+            int indice = indicesPalabra[p];
+            if (indice < palabras.length) {
+                palabras[indice] &= mascaras[p];
+            }
+        }
+    }
+
+    /**
+     * Elige la opción de un fuse cuya máscara comparte más bits con las
+     * palabras leídas. Ante un empate gana la primera opción.
+     *
+     * @param fuse     Índice del fuse
+     * @param palabras Palabras de configuración
+     * @param cantidad Número de palabras válidas en el array
+     * @return Índice de la opción, o -1 si el fuse no tiene opciones
+     */
+    public int decodificarOpcion(int fuse, int[] palabras, int cantidad) {
+        int mejor = -1;
+        int mejorPuntuacion = -1;
+        for (int o = primeraOpcion[fuse]; o < primeraOpcion[fuse + 1]; o++) {
+            int puntuacion = 0;
+            for (int p = primerPar[o]; p < primerPar[o + 1]; p++) {
+                int indice = indicesPalabra[p];
+                if (indice < cantidad) {
+                    puntuacion += Integer.bitCount(palabras[indice] & mascaras[p]);
+                }
+            }
+            if (puntuacion > mejorPuntuacion) {
+                mejorPuntuacion = puntuacion;
+                mejor = o - primeraOpcion[fuse];
+            }
+        }
+        return mejor;
+    }
+
+    /**
+     * Decodifica todas las opciones de una vez.
+     *
+     * @param palabras Palabras de configuración
+     * @param cantidad Número de palabras válidas en el array
+     * @param destino  Array de al menos {@link #cantidadFuses()} posiciones que
+     *                 recibe la opción elegida de cada fuse, o -1
+     */
+    public void decodificar(int[] palabras, int cantidad, int[] destino) {
+        for (int f = 0; f < nombresFuse.length; f++) {
+            destino[f] = decodificarOpcion(f, palabras, cantidad);
+        }
+    }
+}
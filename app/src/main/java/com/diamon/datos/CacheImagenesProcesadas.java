@@ -0,0 +1,171 @@
+package com.diamon.datos;
+
+import com.diamon.chip.ChipPic;
+import com.diamon.excepciones.ChipConfigurationException;
+import com.diamon.excepciones.HexProcessingException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Caché LRU de imágenes de firmware ya procesadas.
+ *
+ * <p>La clave combina la huella SHA-256 del archivo HEX y el nombre del chip, de modo que al
+ * grabar la misma imagen en muchos chips del mismo modelo solo el primero paga el análisis del
+ * HEX y la fusión de regiones. La caché está acotada por la suma de bytes de las imágenes
+ * guardadas: al superarla se descartan las menos usadas recientemente.
+ *
+ * <p>Las instancias devueltas se comparten entre llamadas y deben tratarse como de solo lectura;
+ * los arrays que exponen sus getters no deben modificarse.
+ *
+ * @author Danielk10
+ * @version 1.0
+ * @since 2025
+ */
+public final class CacheImagenesProcesadas {
+
+    /** Presupuesto por defecto: holgado para varias imágenes de PIC18F de 128 KB */
+    public static final int BYTES_MAXIMOS_POR_DEFECTO = 1024 * 1024;
+
+    private final int bytesMaximos;
+    private final LinkedHashMap<String, DatosPicProcesados> imagenes =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    private int bytesOcupados;
+    private long aciertos;
+    private long fallos;
+
+    public CacheImagenesProcesadas() {
+        this(BYTES_MAXIMOS_POR_DEFECTO);
+    }
+
+    /**
+     * @param bytesMaximos Suma máxima de bytes de imagen retenidos; una imagen mayor que este
+     *                     límite no se guarda
+     */
+    public CacheImagenesProcesadas(int bytesMaximos) {
+        if (bytesMaximos < 0) {
+            throw new IllegalArgumentException("Tamaño de caché no puede ser negativo");
+        }
+        this.bytesMaximos = bytesMaximos;
+    }
+
+    /**
+     * Devuelve la imagen procesada de la fuente para el chip, procesándola solo si no está en
+     * caché. Las fuentes de flujo se leen una vez para calcular la huella, pero no se analizan.
+     *
+     * @param context Contexto para localización
+     * @param fuente  Origen del archivo HEX
+     * @param chipPIC Chip objetivo
+     * @return Datos procesados, posiblemente compartidos con llamadas anteriores
+     * @throws HexProcessingException     Si el archivo no se puede leer o es inválido
+     * @throws ChipConfigurationException Si la configuración del chip es inválida
+     */
+    public DatosPicProcesados obtenerOProcesar(
+            android.content.Context context, FuenteHex fuente, ChipPic chipPIC)
+            throws HexProcessingException, ChipConfigurationException {
+        if (fuente == null) {
+            throw new IllegalArgumentException("Firmware no puede ser null o vacío");
+        }
+        if (chipPIC == null) {
+            throw new IllegalArgumentException("ChipPIC no puede ser null");
+        }
+
+        DatosPicProcesados encontrados = obtener(fuente.calcularHuella(), chipPIC);
+        if (encontrados != null) {
+            return encontrados;
+        }
+
+        // El procesamiento ocurre fuera del bloqueo; la clave se toma de los bytes realmente
+        // analizados por si el archivo cambió entre la huella y la lectura
+        DatosPicProcesados procesados = new DatosPicProcesados(context, fuente, chipPIC);
+        procesados.iniciarProcesamientoDeDatos();
+        guardar(procesados);
+        return procesados;
+    }
+
+    /**
+     * Busca una imagen procesada y actualiza los contadores de aciertos y fallos.
+     *
+     * @return Datos en caché, o null si no existen
+     */
+    public synchronized DatosPicProcesados obtener(String huella, ChipPic chipPIC) {
+        DatosPicProcesados datos = imagenes.get(clave(huella, chipPIC));
+        if (datos != null) {
+            aciertos++;
+        } else {
+            fallos++;
+        }
+        return datos;
+    }
+
+    /**
+     * Guarda una imagen ya procesada, descartando las menos usadas si se supera el límite.
+     *
+     * @param datos Datos procesados con {@link DatosPicProcesados#iniciarProcesamientoDeDatos()}
+     */
+    public synchronized void guardar(DatosPicProcesados datos) {
+        if (datos == null || datos.getHuellaFirmware() == null) {
+            return;
+        }
+        int tamano = tamanoDe(datos);
+        if (tamano > bytesMaximos) {
+            return;
+        }
+
+        DatosPicProcesados anterior =
+                imagenes.put(clave(datos.getHuellaFirmware(), datos.getChipPIC()), datos);
+        if (anterior != null) {
+            bytesOcupados -= tamanoDe(anterior);
+        }
+        bytesOcupados += tamano;
+
+        Iterator<DatosPicProcesados> iterador = imagenes.values().iterator();
+        while (bytesOcupados > bytesMaximos && iterador.hasNext()) {
+            bytesOcupados -= tamanoDe(iterador.next());
+            iterador.remove();
+        }
+    }
+
+    /** Descarta todas las imágenes; los contadores se conservan. */
+    public synchronized void limpiar() {
+        imagenes.clear();
+        bytesOcupados = 0;
+    }
+
+    /** @return Número de imágenes en caché */
+    public synchronized int tamano() {
+        return imagenes.size();
+    }
+
+    /** @return Suma de bytes de las imágenes en caché */
+    public synchronized int getBytesOcupados() {
+        return bytesOcupados;
+    }
+
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    public synchronized long getFallos() {
+        return fallos;
+    }
+
+    private static String clave(String huella, ChipPic chipPIC) {
+        return huella + '|' + chipPIC.getNombreDelPic();
+    }
+
+    /** Bytes retenidos por una imagen procesada */
+    private static int tamanoDe(DatosPicProcesados datos) {
+        int tamano = 0;
+        byte[] rom = datos.obtenerBytesHexROMProcesado();
+        byte[] eeprom = datos.obtenerBytesHexEEPROMProcesado();
+        byte[] id = datos.obtenerValoresBytesHexIDProcesado();
+        int[] fuses = datos.obtenerValoresIntHexFusesProcesado();
+        tamano += rom != null ? rom.length : 0;
+        tamano += eeprom != null ? eeprom.length : 0;
+        tamano += id != null ? id.length : 0;
+        tamano += fuses != null ? fuses.length * Integer.BYTES : 0;
+        return tamano;
+    }
+}
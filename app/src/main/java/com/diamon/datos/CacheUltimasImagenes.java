@@ -0,0 +1,100 @@
+package com.diamon.datos;
+
+import com.diamon.utilidades.ByteUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Última ROM grabada en cada chip, para la reprogramación diferencial.
+ *
+ * <p>La clave combina el modelo del chip con su bloque de configuración leído (chip ID, ID de
+ * usuario, fuses y calibración). Si al volver a grabar el chip la configuración coincide, la
+ * ROM recordada sirve para calcular qué cambió sin leerla antes. La clave no distingue dos
+ * chips iguales con la misma configuración, así que quien la use debe confirmar el resultado
+ * con la lectura posterior a la grabación. Cualquier otra escritura en el chip debe olvidar las
+ * entradas, porque la caché no puede detectarla.
+ *
+ * <p>Las ROM guardadas son arrays compartidos de solo lectura. La caché está acotada por
+ * número de chips y descarta el menos usado recientemente.
+ *
+ * @author Danielk10
+ * @version 1.0
+ * @since 2025
+ */
+public final class CacheUltimasImagenes {
+
+    /** Chips recordados por defecto: suficiente para alternar entre varias placas */
+    public static final int CHIPS_MAXIMOS_POR_DEFECTO = 8;
+
+    private final int chipsMaximos;
+    private final LinkedHashMap<String, byte[]> imagenes;
+
+    public CacheUltimasImagenes() {
+        this(CHIPS_MAXIMOS_POR_DEFECTO);
+    }
+
+    /**
+     * @param chipsMaximos Número máximo de chips recordados
+     */
+    public CacheUltimasImagenes(int chipsMaximos) {
+        if (chipsMaximos < 1) {
+            throw new IllegalArgumentException("La caché debe recordar al menos un chip");
+        }
+        this.chipsMaximos = chipsMaximos;
+        this.imagenes =
+                new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, byte[]> mayor) {
+                        return size() > CacheUltimasImagenes.this.chipsMaximos;
+                    }
+                };
+    }
+
+    /**
+     * Construye la clave de un chip a partir de su configuración leída.
+     *
+     * @param nombreChip Modelo del chip
+     * @param configuracion Bloque de configuración leído del programador
+     * @param longitud Bytes válidos del bloque
+     * @return Clave del chip
+     */
+    public static String crearClave(String nombreChip, byte[] configuracion, int longitud) {
+        byte[] exactos = new byte[longitud];
+        System.arraycopy(configuracion, 0, exactos, 0, longitud);
+        return nombreChip + ":" + ByteUtils.bytesToHex(exactos);
+    }
+
+    /**
+     * @param clave Clave del chip
+     * @return ROM grabada por última vez, o null si no se conoce
+     */
+    public synchronized byte[] obtener(String clave) {
+        return imagenes.get(clave);
+    }
+
+    /**
+     * Recuerda la ROM recién grabada en un chip.
+     *
+     * @param clave Clave del chip tras la grabación
+     * @param rom ROM leída del chip tras la grabación; no debe modificarse después
+     */
+    public synchronized void recordar(String clave, byte[] rom) {
+        imagenes.put(clave, rom);
+    }
+
+    /** Olvida la ROM de un chip, por ejemplo si su grabación falló */
+    public synchronized void olvidar(String clave) {
+        imagenes.remove(clave);
+    }
+
+    /** Olvida todos los chips */
+    public synchronized void olvidarTodo() {
+        imagenes.clear();
+    }
+
+    /** @return Número de chips recordados */
+    public synchronized int tamano() {
+        return imagenes.size();
+    }
+}
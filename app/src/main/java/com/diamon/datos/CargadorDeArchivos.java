@@ -2,11 +2,17 @@ package com.diamon.datos;
 
 import android.app.Activity;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import com.diamon.nucleo.ManejadorArchivos;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 public class CargadorDeArchivos implements ManejadorArchivos {
 
@@ -38,4 +44,37 @@ public class CargadorDeArchivos implements ManejadorArchivos {
 
         return manejador.open(nombre);
     }
+
+    /**
+     * Proyecta un asset en memoria sin copiarlo al heap. Requiere que el asset se
+     * empaquete sin comprimir (noCompress en build.gradle); si está comprimido se
+     * lee completo como respaldo.
+     *
+     * @param nombre Nombre del asset
+     * @return Contenido del asset, de solo lectura
+     * @throws FileNotFoundException Si el asset no existe
+     * @throws IOException           Si no se puede leer
+     */
+    public ByteBuffer mapearAsset(String nombre) throws IOException {
+        try (AssetFileDescriptor descriptor = manejador.openFd(nombre);
+                FileInputStream entrada = descriptor.createInputStream()) {
+            return entrada.getChannel()
+                    .map(
+                            FileChannel.MapMode.READ_ONLY,
+                            descriptor.getStartOffset(),
+                            descriptor.getDeclaredLength());
+        } catch (FileNotFoundException e) {
+            // openFd falla también con assets comprimidos
+        }
+
+        try (InputStream entrada = leerAsset(nombre)) {
+            ByteArrayOutputStream salida = new ByteArrayOutputStream();
+            byte[] bloque = new byte[8192];
+            int leidos;
+            while ((leidos = entrada.read(bloque)) != -1) {
+                salida.write(bloque, 0, leidos);
+            }
+            return ByteBuffer.wrap(salida.toByteArray()).asReadOnlyBuffer();
+        }
+    }
 }
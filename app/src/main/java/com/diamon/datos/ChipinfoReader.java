@@ -5,17 +5,27 @@ import android.app.Activity;
 import com.diamon.chip.ChipPic;
 import com.diamon.excepciones.ChipConfigurationException;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
- * Lee y procesa el archivo chipinfo.cid creando objetos ChipPic.
+ * Lee la base de datos de chips y crea objetos ChipPic bajo demanda.
+ *
+ * <p>
+ * El archivo chipinfo.cid se compila al construir la app a un asset binario
+ * indexado (ver {@link CompiladorChipinfo}). Al arrancar solo se lee el indice
+ * de nombres, ya ordenado; cada ChipPic se decodifica la primera vez que se pide con
+ * {@link #getChipEntry(String)}.
+ * </p>
  *
  * <p>
  * Formato del archivo (un bloque por chip, separado por linea vacia):
@@ -55,254 +65,191 @@ import java.util.regex.Pattern;
  */
 public class ChipinfoReader {
 
-    // Regex para lineas de asignacion: CAMPO=valor
-    // Equivalente a assignment_regexp del parser Python de referencia.
-    private static final Pattern ASSIGNMENT_REGEXP = Pattern.compile("^(\\S+)\\s*=\\s*(.*)\\s*$");
-
-    // Regex para lineas LIST de fusibles:
-    // LIST<n> FUSE<w> "nombre" "opcion1"=HHHH "opcion2"=HHHH ...
-    // Grupo 1: indice de la palabra de configuracion (1..7)
-    // Grupo 2: nombre del fusible
-    // Grupo 3: resto de la linea con pares "opcion"=valor
-    private static final Pattern FUSE_LIST_REGEXP = Pattern.compile("^LIST\\d+\\s+FUSE(\\d)\\s+\"([^\"]*)\"\\s*(.*)$");
-
-    // Regex para pares "opcion"=HHHH dentro de una linea LIST
-    // El valor puede ser HHHH&HHHH para fusibles que afectan multiples palabras de
-    // config
-    private static final Pattern FUSE_VALUE_REGEXP = Pattern
-            .compile("\"([^\"]*)\"\\s*=\\s*([0-9a-fA-F]+(?:&[0-9a-fA-F]+)*)");
-
-    // Nombres de campo en chipinfo.cid que se mapean al constructor de ChipPic
-    // Los campos desconocidos se ignoran silenciosamente
-    private static final Map<String, String> KEY_MAP;
-    static {
-        KEY_MAP = new HashMap<>();
-        KEY_MAP.put("CHIPname", "CHIPname");
-        KEY_MAP.put("INCLUDE", "INCLUDE");
-        KEY_MAP.put("SocketImage", "SocketImage");
-        KEY_MAP.put("EraseMode", "EraseMode");
-        KEY_MAP.put("FlashChip", "FlashChip");
-        KEY_MAP.put("PowerSequence", "PowerSequence");
-        KEY_MAP.put("ProgramDelay", "ProgramDelay");
-        KEY_MAP.put("ProgramTries", "ProgramTries");
-        KEY_MAP.put("OverProgram", "OverProgram");
-        KEY_MAP.put("CoreType", "CoreType");
-        KEY_MAP.put("ROMsize", "ROMsize");
-        KEY_MAP.put("EEPROMsize", "EEPROMsize");
-        KEY_MAP.put("FUSEblank", "FUSEblank");
-        KEY_MAP.put("CPwarn", "CPwarn");
-        KEY_MAP.put("CALword", "CALword");
-        KEY_MAP.put("BandGap", "BandGap");
-        KEY_MAP.put("ICSPonly", "ICSPonly");
-        KEY_MAP.put("ChipID", "ChipID");
-        // Alias que aparece en algunas versiones del archivo
-        KEY_MAP.put("KITSRUS.COM", "SocketImage");
-        // Campos ignorados (presentes en algunas versiones del archivo)
-        KEY_MAP.put("ProgramFlag2", null);
-        KEY_MAP.put("PanelSizing", null);
-    }
-
-    private final Map<String, ChipPic> chipEntries;
+    // Indices de los campos en el registro binario (ver CompiladorChipinfo.CAMPOS)
+    private static final int INCLUDE = 0;
+    private static final int SOCKET_IMAGE = 1;
+    private static final int ERASE_MODE = 2;
+    private static final int FLASH_CHIP = 3;
+    private static final int POWER_SEQUENCE = 4;
+    private static final int PROGRAM_DELAY = 5;
+    private static final int PROGRAM_TRIES = 6;
+    private static final int OVER_PROGRAM = 7;
+    private static final int CORE_TYPE = 8;
+    private static final int ROM_SIZE = 9;
+    private static final int EEPROM_SIZE = 10;
+    private static final int FUSE_BLANK = 11;
+    private static final int CP_WARN = 12;
+    private static final int CAL_WORD = 13;
+    private static final int BAND_GAP = 14;
+    private static final int ICSP_ONLY = 15;
+    private static final int CHIP_ID = 16;
+
+    // Base de datos binaria; solo se lee sobre duplicados
+    private final ByteBuffer baseDatos;
+    // Indice: nombres ya ordenados al compilar y posicion del registro de cada uno
+    private final String[] nombres;
+    private final int[] posiciones;
+    // ChipPic decodificados al pedirlos por primera vez, en el orden del indice
+    private final ChipPic[] chipsDecodificados;
     private final ArrayList<String> modelosPic;
 
     /**
-     * Obtiene el valor de un mapa o un valor por defecto si la clave no existe o es
-     * nula.
-     * Alternativa a Map.getOrDefault que requiere API nivel 24.
+     * Devuelve el valor o un valor por defecto si el campo no estaba en el bloque.
      */
-    private String getMapValueOrDefault(Map<String, String> map, String key, String defaultValue) {
-        String value = map.get(key);
+    private static String getValueOrDefault(String value, String defaultValue) {
         return value != null ? value : defaultValue;
     }
 
     /**
-     * Constructor: lee el archivo chipinfo.cid desde los assets de Android
-     * y construye el mapa de chips.
+     * Constructor: abre la base de datos de chips desde los assets de Android
+     * y lee su indice.
      *
      * @param actividad Actividad Android para acceder a los assets
      * @throws ChipConfigurationException si ocurre un error critico al leer el
      *                                    archivo
      */
     public ChipinfoReader(Activity actividad) throws ChipConfigurationException {
-        if (actividad == null) {
-            throw new ChipConfigurationException("La actividad no puede ser nula");
-        }
+        this(cargarBaseDatos(actividad));
+    }
 
-        chipEntries = new HashMap<>();
-        modelosPic = new ArrayList<>();
+    /**
+     * Constructor a partir de una base de datos ya cargada, generada por
+     * {@link CompiladorChipinfo}.
+     *
+     * @param baseDatos Contenido de chipinfo.bin
+     * @throws ChipConfigurationException si la base de datos no es valida
+     */
+    ChipinfoReader(ByteBuffer baseDatos) throws ChipConfigurationException {
+        this.baseDatos = baseDatos;
 
         try {
-            final List<String> lines = new LectorArchivoChipinfo(actividad).getInformacionPic();
-            final int totalLines = lines.size();
-
-            // 'block' acumula los campos del chip actual como Strings
-            // Se crea al encontrar la primera linea no-vacia de un bloque
-            Map<String, String> block = null;
-            // 'fusesBlock' acumula los fusibles estructurados del chip actual
-            Map<String, Map<String, List<ChipPic.FuseValue>>> fusesBlock = null;
-
-            for (int i = 0; i < totalLines; i++) {
-                final String raw = lines.get(i);
-                final String line = (raw != null) ? raw.trim() : "";
-                final boolean isLast = (i == totalLines - 1);
-
-                if (!line.isEmpty()) {
-                    // Primera linea de un bloque nuevo
-                    if (block == null) {
-                        block = new HashMap<>();
-                        fusesBlock = new HashMap<>();
-                    }
-                    parsearLinea(block, fusesBlock, line);
-                }
+            ByteBuffer lector = baseDatos.duplicate();
+            if (lector.getInt() != CompiladorChipinfo.MAGIA
+                    || lector.getShort() != CompiladorChipinfo.VERSION) {
+                throw new ChipConfigurationException("Base de datos de chips con formato desconocido");
+            }
 
-                // Fin del bloque: linea vacia o ultima linea
-                if (block != null && (line.isEmpty() || isLast)) {
-                    guardarBloque(block, fusesBlock);
-                    block = null;
-                    fusesBlock = null;
-                }
+            int cantidad = lector.getInt();
+            nombres = new String[cantidad];
+            posiciones = new int[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                nombres[i] = leerTexto(lector);
+                posiciones[i] = lector.getInt();
             }
+            chipsDecodificados = new ChipPic[cantidad];
+            modelosPic = new ArrayList<>(Arrays.asList(nombres));
 
-        } catch (Exception e) {
-            throw new ChipConfigurationException(
-                    "Error al inicializar ChipinfoReader: " + e.getMessage(), e);
+        } catch (BufferUnderflowException e) {
+            throw new ChipConfigurationException("Base de datos de chips truncada", e);
         }
     }
 
     /**
-     * Parsea una linea y actualiza el bloque.
-     * Las lineas de asignacion (CAMPO=valor) actualizan el mapa de Strings.
-     * Las lineas LIST actualizan el mapa de fusibles estructurado.
+     * Carga chipinfo.bin; si falta (compilacion sin la tarea de Gradle), compila
+     * chipinfo.cid en memoria.
      */
-    private void parsearLinea(
-            Map<String, String> block,
-            Map<String, Map<String, List<ChipPic.FuseValue>>> fusesBlock,
-            String line) {
-
-        // Intento 1: linea de asignacion CAMPO=valor
-        Matcher assignMatcher = ASSIGNMENT_REGEXP.matcher(line);
-        if (assignMatcher.matches()) {
-            String rawKey = assignMatcher.group(1);
-            String value = assignMatcher.group(2).trim();
-
-            String key = KEY_MAP.get(rawKey);
-            if (key != null) {
-                // key == null solo para campos ignorados (ProgramFlag2, PanelSizing)
-                block.put(key, value);
-            }
-            return;
+    private static ByteBuffer cargarBaseDatos(Activity actividad) throws ChipConfigurationException {
+        if (actividad == null) {
+            throw new ChipConfigurationException("La actividad no puede ser nula");
         }
 
-        // Intento 2: linea LIST de fusibles
-        Matcher listMatcher = FUSE_LIST_REGEXP.matcher(line);
-        if (listMatcher.matches()) {
-            // fuseWordIndex es 0-based: FUSE1 → 0, FUSE2 → 1, etc.
-            int fuseWordIndex = Integer.parseInt(listMatcher.group(1)) - 1;
-            String fuseName = listMatcher.group(2);
-            String valoresStr = listMatcher.group(3);
-
-            if (fuseName == null || fuseName.isEmpty())
-                return;
-
-            // Obtener o crear el mapa de opciones para este fusible
-            Map<String, List<ChipPic.FuseValue>> fuseOptions = fusesBlock.get(fuseName);
-            if (fuseOptions == null) {
-                fuseOptions = new HashMap<>();
-                fusesBlock.put(fuseName, fuseOptions);
-            }
-
-            // Parsear cada par "opcion"=HHHH en la linea
-            Matcher valueMatcher = FUSE_VALUE_REGEXP.matcher(
-                    valoresStr != null ? valoresStr : "");
-            while (valueMatcher.find()) {
-                String opcion = valueMatcher.group(1);
-                String rawValues = valueMatcher.group(2);
-
-                // Un valor puede ser HHHH&HHHH para opciones que afectan
-                // multiples palabras de configuracion consecutivas.
-                // Equivalente al split('&') del parser Python.
-                String[] partes = rawValues.split("&");
-                List<ChipPic.FuseValue> fuseValueList = new ArrayList<>();
-                for (int i = 0; i < partes.length; i++) {
-                    try {
-                        int wordValue = Integer.parseInt(partes[i].trim(), 16);
-                        fuseValueList.add(
-                                new ChipPic.FuseValue(fuseWordIndex + i, wordValue));
-                    } catch (NumberFormatException ignored) {
-                    }
+        CargadorDeArchivos cargador = new CargadorDeArchivos(actividad);
+        try {
+            try {
+                return cargador.mapearAsset(CompiladorChipinfo.ASSET_BINARIO);
+            } catch (FileNotFoundException e) {
+                try (InputStream texto = cargador.leerAsset(CompiladorChipinfo.ASSET_FUENTE)) {
+                    return ByteBuffer.wrap(CompiladorChipinfo.compilar(texto));
                 }
-                fuseOptions.put(opcion, fuseValueList);
             }
+        } catch (IOException e) {
+            throw new ChipConfigurationException(
+                    "Error al inicializar ChipinfoReader: " + e.getMessage(), e);
         }
-        // Lineas no reconocidas se ignoran silenciosamente
     }
 
     /**
-     * Crea un objeto ChipPic con los datos del bloque y lo registra en el mapa.
+     * Decodifica el registro de un chip y crea su objeto ChipPic.
      * El constructor de ChipPic recibe los valores como Strings y hace sus
      * propias conversiones internas.
      */
-    private void guardarBloque(
-            Map<String, String> block,
-            Map<String, Map<String, List<ChipPic.FuseValue>>> fusesBlock) {
+    private ChipPic decodificarChip(String chipName, int posicion) throws Exception {
+        ByteBuffer lector = baseDatos.duplicate();
+        lector.position(posicion);
 
-        String chipName = block.get("CHIPname");
-        if (chipName == null || chipName.isEmpty())
-            return;
-
-        String romSize = block.get("ROMsize");
-        String coreType = block.get("CoreType");
-        if (romSize == null || romSize.isEmpty())
-            return;
-        if (coreType == null || coreType.isEmpty())
-            return;
+        String[] campos = new String[CompiladorChipinfo.CAMPOS.length];
+        for (int i = 0; i < campos.length; i++) {
+            campos[i] = leerTexto(lector);
+        }
 
         // FUSEblank: separar por espacios en blanco → String[]
         // ChipPic.getFuseBlank() los parsea como hex internamente.
-        String fuseBlankRaw = block.get("FUSEblank");
+        String fuseBlankRaw = campos[FUSE_BLANK];
         String[] fuseBlankArr = null;
         if (fuseBlankRaw != null && !fuseBlankRaw.isEmpty()) {
             fuseBlankArr = fuseBlankRaw.trim().split("\\s+");
         }
 
-        // El constructor de ChipPic recibe todo como String.
         // El parametro 'fuses' es un Map<String,Object> legado que se usa
         // solo como contenedor; el mapa estructurado se establece via setFusesMap().
         Map<String, Object> fusesLegacy = new HashMap<>();
 
-        try {
-            ChipPic chipPic = new ChipPic(
-                    chipName,
-                    getMapValueOrDefault(block, "INCLUDE", "Y"),
-                    getMapValueOrDefault(block, "SocketImage", "0pin"),
-                    getMapValueOrDefault(block, "EraseMode", "0"),
-                    getMapValueOrDefault(block, "FlashChip", "N"),
-                    getMapValueOrDefault(block, "PowerSequence", "VccVpp1"),
-                    getMapValueOrDefault(block, "ProgramDelay", "1"),
-                    getMapValueOrDefault(block, "ProgramTries", "1"),
-                    getMapValueOrDefault(block, "OverProgram", "0"),
-                    coreType,
-                    romSize,
-                    getMapValueOrDefault(block, "EEPROMsize", "00000000"),
-                    fuseBlankArr,
-                    getMapValueOrDefault(block, "CPwarn", "N"),
-                    getMapValueOrDefault(block, "CALword", "N"),
-                    getMapValueOrDefault(block, "BandGap", "N"),
-                    getMapValueOrDefault(block, "ICSPonly", "N"),
-                    getMapValueOrDefault(block, "ChipID", "FFFF"),
-                    fusesLegacy);
-
-            // Inyectar el mapa estructurado de fusibles para encode/decode
-            if (!fusesBlock.isEmpty()) {
-                chipPic.setFusesMap(new HashMap<>(fusesBlock));
+        ChipPic chipPic = new ChipPic(
+                chipName,
+                getValueOrDefault(campos[INCLUDE], "Y"),
+                getValueOrDefault(campos[SOCKET_IMAGE], "0pin"),
+                getValueOrDefault(campos[ERASE_MODE], "0"),
+                getValueOrDefault(campos[FLASH_CHIP], "N"),
+                getValueOrDefault(campos[POWER_SEQUENCE], "VccVpp1"),
+                getValueOrDefault(campos[PROGRAM_DELAY], "1"),
+                getValueOrDefault(campos[PROGRAM_TRIES], "1"),
+                getValueOrDefault(campos[OVER_PROGRAM], "0"),
+                campos[CORE_TYPE],
+                campos[ROM_SIZE],
+                getValueOrDefault(campos[EEPROM_SIZE], "00000000"),
+                fuseBlankArr,
+                getValueOrDefault(campos[CP_WARN], "N"),
+                getValueOrDefault(campos[CAL_WORD], "N"),
+                getValueOrDefault(campos[BAND_GAP], "N"),
+                getValueOrDefault(campos[ICSP_ONLY], "N"),
+                getValueOrDefault(campos[CHIP_ID], "FFFF"),
+                fusesLegacy);
+
+        // Inyectar el mapa estructurado de fusibles para encode/decode
+        int cantidadFusibles = lector.getShort() & 0xFFFF;
+        if (cantidadFusibles > 0) {
+            Map<String, Map<String, List<ChipPic.FuseValue>>> fusesBlock = new HashMap<>();
+            for (int i = 0; i < cantidadFusibles; i++) {
+                String fuseName = leerTexto(lector);
+                int cantidadOpciones = lector.getShort() & 0xFFFF;
+                Map<String, List<ChipPic.FuseValue>> fuseOptions = new HashMap<>();
+                for (int j = 0; j < cantidadOpciones; j++) {
+                    String opcion = leerTexto(lector);
+                    int cantidadPalabras = lector.get() & 0xFF;
+                    List<ChipPic.FuseValue> fuseValueList = new ArrayList<>(cantidadPalabras);
+                    for (int k = 0; k < cantidadPalabras; k++) {
+                        int indice = lector.get() & 0xFF;
+                        fuseValueList.add(new ChipPic.FuseValue(indice, lector.getInt()));
+                    }
+                    fuseOptions.put(opcion, fuseValueList);
+                }
+                fusesBlock.put(fuseName, fuseOptions);
             }
+            chipPic.setFusesMap(new HashMap<>(fusesBlock));
+        }
 
-            modelosPic.add(chipName);
-            chipEntries.put(chipName, chipPic);
+        return chipPic;
+    }
 
-        } catch (Exception e) {
-            // Si el chip tiene datos invalidos, simplemente se omite
+    /** Lee un texto con longitud de 16 bits; null si el campo estaba ausente. */
+    private static String leerTexto(ByteBuffer lector) {
+        int longitud = lector.getShort() & 0xFFFF;
+        if (longitud == CompiladorChipinfo.TEXTO_AUSENTE) {
+            return null;
         }
+        byte[] bytes = new byte[longitud];
+        lector.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     // -------------------------------------------------------------------------
@@ -310,67 +257,79 @@ public class ChipinfoReader {
     // -------------------------------------------------------------------------
 
     /**
-     * Obtiene el objeto ChipPic para el chip indicado.
+     * Obtiene el objeto ChipPic para el chip indicado. Se decodifica de la base
+     * de datos la primera vez y las llamadas siguientes devuelven el mismo objeto.
      *
      * @param chipName Nombre del chip (exacto, tal como aparece en el archivo)
      * @return ChipPic o null si no existe
      */
-    public ChipPic getChipEntry(String chipName) {
+    public synchronized ChipPic getChipEntry(String chipName) {
         if (chipName == null || chipName.isEmpty())
             return null;
-        return chipEntries.get(chipName);
+        int indice = buscarEnIndice(chipName);
+        if (indice < 0)
+            return null;
+
+        ChipPic chipPic = chipsDecodificados[indice];
+        if (chipPic == null) {
+            try {
+                chipPic = decodificarChip(chipName, posiciones[indice]);
+            } catch (Exception e) {
+                // Si el chip tiene datos invalidos, se trata como inexistente
+                return null;
+            }
+            chipsDecodificados[indice] = chipPic;
+        }
+        return chipPic;
     }
 
     /**
-     * Lista de modelos PIC disponibles, ordenada alfabetica y numericamente.
-     * Orden: primero por familia (PIC10 &lt; PIC12 &lt; PIC16 &lt; PIC18),
-     * luego por numero de modelo de menor a mayor.
+     * Busqueda binaria en el indice. El comparador considera iguales nombres que
+     * difieren en mayusculas, asi que se recorre el tramo de iguales buscando el
+     * nombre exacto; si esta repetido, gana el ultimo bloque del archivo.
      *
-     * @return Lista con los nombres de los modelos PIC disponibles
+     * @return Posicion en el indice, o -1 si no existe
      */
-    public ArrayList<String> getModelosPic() {
-        Collections.sort(modelosPic, new Comparator<String>() {
-            @Override
-            public int compare(String a, String b) {
-                return comparePicNames(a, b);
+    private int buscarEnIndice(String chipName) {
+        int bajo = 0;
+        int alto = nombres.length - 1;
+        try {
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                int cmp = CompiladorChipinfo.compararNombres(nombres[medio], chipName);
+                if (cmp < 0) {
+                    bajo = medio + 1;
+                } else if (cmp > 0) {
+                    alto = medio - 1;
+                } else {
+                    int fin = medio;
+                    while (fin + 1 < nombres.length
+                            && CompiladorChipinfo.compararNombres(nombres[fin + 1], chipName) == 0) {
+                        fin++;
+                    }
+                    for (int i = fin; i >= 0 && CompiladorChipinfo.compararNombres(nombres[i], chipName) == 0; i--) {
+                        if (nombres[i].equals(chipName)) {
+                            return i;
+                        }
+                    }
+                    return -1;
+                }
             }
-        });
-        return modelosPic;
+        } catch (NumberFormatException e) {
+            // Secuencia de digitos fuera de rango: no es un nombre del indice
+        }
+        return -1;
     }
 
     /**
-     * Comparador alfabetico-numerico para nombres de PIC.
-     * Cuando se encuentra una secuencia de digitos, se compara como numero entero
-     * para evitar que "PIC16F10" aparezca despues de "PIC16F9".
+     * Lista de modelos PIC disponibles, ordenada alfabetica y numericamente.
+     * Orden: primero por familia (PIC10 &lt; PIC12 &lt; PIC16 &lt; PIC18),
+     * luego por numero de modelo de menor a mayor. El orden viene del indice
+     * compilado, asi que no se reordena en cada llamada.
+     *
+     * @return Lista con los nombres de los modelos PIC disponibles
      */
-    private int comparePicNames(String a, String b) {
-        int ia = 0, ib = 0;
-        while (ia < a.length() && ib < b.length()) {
-            char ca = a.charAt(ia);
-            char cb = b.charAt(ib);
-            boolean aDigit = Character.isDigit(ca);
-            boolean bDigit = Character.isDigit(cb);
-
-            if (aDigit && bDigit) {
-                int startA = ia, startB = ib;
-                while (ia < a.length() && Character.isDigit(a.charAt(ia)))
-                    ia++;
-                while (ib < b.length() && Character.isDigit(b.charAt(ib)))
-                    ib++;
-                int numA = Integer.parseInt(a.substring(startA, ia));
-                int numB = Integer.parseInt(b.substring(startB, ib));
-                if (numA != numB)
-                    return Integer.compare(numA, numB);
-            } else {
-                int cmp = Character.compare(
-                        Character.toUpperCase(ca),
-                        Character.toUpperCase(cb));
-                if (cmp != 0)
-                    return cmp;
-                ia++;
-                ib++;
-            }
-        }
-        return Integer.compare(a.length(), b.length());
+    public ArrayList<String> getModelosPic() {
+        return modelosPic;
     }
 }
@@ -0,0 +1,406 @@
+package com.diamon.datos;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compila chipinfo.cid a una base de datos binaria indexada (chipinfo.bin).
+ *
+ * <p>
+ * Se ejecuta al compilar la app (tarea {@code compilarChipinfo} de Gradle) para
+ * que {@link ChipinfoReader} no tenga que aplicar expresiones regulares a cada
+ * linea del archivo al arrancar: solo lee el indice y decodifica el chip que se
+ * selecciona. Si el asset binario falta, ChipinfoReader usa esta misma clase en
+ * tiempo de ejecucion. No depende de Android.
+ * </p>
+ *
+ * <p>
+ * Formato (big-endian, como {@link DataOutputStream}):
+ * </p>
+ *
+ * <pre>
+ *   int    MAGIA ('KCID')
+ *   short  VERSION
+ *   int    cantidad de chips
+ *   indice, ordenado con {@link #compararNombres(String, String)}:
+ *     texto  CHIPname
+ *     int    posicion del registro desde el inicio del archivo
+ *   registros:
+ *     texto  cada campo de {@link #CAMPOS}, en orden (puede estar ausente)
+ *     short  cantidad de fusibles
+ *       texto  nombre del fusible
+ *       short  cantidad de opciones
+ *         texto  nombre de la opcion
+ *         byte   cantidad de palabras
+ *           byte  indice de la palabra de configuracion
+ *           int   valor
+ * </pre>
+ *
+ * <p>
+ * Un texto es un short con la longitud en bytes ({@link #TEXTO_AUSENTE} si el
+ * campo no aparece en el bloque) seguido de los bytes UTF-8.
+ * </p>
+ */
+public final class CompiladorChipinfo {
+
+    public static final String ASSET_FUENTE = "chipinfo.cid";
+    public static final String ASSET_BINARIO = "chipinfo.bin";
+
+    static final int MAGIA = 0x4B434944;
+    static final short VERSION = 2;
+    static final int TEXTO_AUSENTE = 0xFFFF;
+
+    /** Campos de cada registro, en orden. CHIPname va en el indice. */
+    static final String[] CAMPOS = {
+        "INCLUDE",
+        "SocketImage",
+        "EraseMode",
+        "FlashChip",
+        "PowerSequence",
+        "ProgramDelay",
+        "ProgramTries",
+        "OverProgram",
+        "CoreType",
+        "ROMsize",
+        "EEPROMsize",
+        "FUSEblank",
+        "CPwarn",
+        "CALword",
+        "BandGap",
+        "ICSPonly",
+        "ChipID"
+    };
+
+    // Regex para lineas de asignacion: CAMPO=valor
+    // Equivalente a assignment_regexp del parser Python de referencia.
+    private static final Pattern ASSIGNMENT_REGEXP = Pattern.compile("^(\\S+)\\s*=\\s*(.*)\\s*$");
+
+    // Regex para lineas LIST de fusibles:
+    // LIST<n> FUSE<w> "nombre" "opcion1"=HHHH "opcion2"=HHHH ...
+    // Grupo 1: indice de la palabra de configuracion (1..7)
+    // Grupo 2: nombre del fusible
+    // Grupo 3: resto de la linea con pares "opcion"=valor
+    private static final Pattern FUSE_LIST_REGEXP = Pattern.compile("^LIST\\d+\\s+FUSE(\\d)\\s+\"([^\"]*)\"\\s*(.*)$");
+
+    // Regex para pares "opcion"=HHHH dentro de una linea LIST
+    // El valor puede ser HHHH&HHHH para fusibles que afectan multiples palabras de
+    // config
+    private static final Pattern FUSE_VALUE_REGEXP = Pattern
+            .compile("\"([^\"]*)\"\\s*=\\s*([0-9a-fA-F]+(?:&[0-9a-fA-F]+)*)");
+
+    // Nombres de campo en chipinfo.cid que se guardan en el registro
+    // Los campos desconocidos se ignoran silenciosamente
+    private static final Map<String, String> KEY_MAP;
+    static {
+        KEY_MAP = new HashMap<>();
+        KEY_MAP.put("CHIPname", "CHIPname");
+        for (String campo : CAMPOS) {
+            KEY_MAP.put(campo, campo);
+        }
+        // Alias que aparece en algunas versiones del archivo
+        KEY_MAP.put("KITSRUS.COM", "SocketImage");
+        // Campos ignorados (presentes en algunas versiones del archivo)
+        KEY_MAP.put("ProgramFlag2", null);
+        KEY_MAP.put("PanelSizing", null);
+    }
+
+    private CompiladorChipinfo() {
+    }
+
+    /**
+     * Uso desde Gradle: {@code CompiladorChipinfo <chipinfo.cid> <chipinfo.bin>}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Uso: CompiladorChipinfo <chipinfo.cid> <chipinfo.bin>");
+            System.exit(2);
+        }
+        compilar(new File(args[0]), new File(args[1]));
+    }
+
+    /**
+     * Compila un archivo chipinfo.cid y escribe el resultado en el destino.
+     *
+     * @param entrada Archivo de texto chipinfo.cid
+     * @param salida  Archivo binario a generar
+     * @throws IOException Si no se puede leer o escribir
+     */
+    public static void compilar(File entrada, File salida) throws IOException {
+        byte[] binario;
+        try (InputStream flujo = new FileInputStream(entrada)) {
+            binario = compilar(flujo);
+        }
+        File directorio = salida.getParentFile();
+        if (directorio != null && !directorio.isDirectory() && !directorio.mkdirs()) {
+            throw new IOException("No se pudo crear " + directorio);
+        }
+        try (OutputStream flujo = new FileOutputStream(salida)) {
+            flujo.write(binario);
+        }
+    }
+
+    /**
+     * Compila el contenido de chipinfo.cid a la base de datos binaria.
+     *
+     * @param entrada Flujo con el texto del archivo (UTF-8); no se cierra
+     * @return Base de datos binaria
+     * @throws IOException Si no se puede leer el flujo
+     */
+    public static byte[] compilar(InputStream entrada) throws IOException {
+        List<Bloque> bloques = new ArrayList<>();
+        BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+
+        // 'bloque' acumula los campos del chip actual
+        // Se crea al encontrar la primera linea no-vacia de un bloque
+        Bloque bloque = null;
+        String raw;
+        while ((raw = lector.readLine()) != null) {
+            final String line = raw.trim();
+
+            if (!line.isEmpty()) {
+                // Primera linea de un bloque nuevo
+                if (bloque == null) {
+                    bloque = new Bloque();
+                }
+                parsearLinea(bloque, line);
+            } else if (bloque != null) {
+                // Fin del bloque: linea vacia
+                agregarSiEsValido(bloques, bloque);
+                bloque = null;
+            }
+        }
+        // Fin del bloque: ultima linea del archivo
+        if (bloque != null) {
+            agregarSiEsValido(bloques, bloque);
+        }
+
+        return codificar(bloques);
+    }
+
+    // ========== LECTURA DEL TEXTO ==========
+
+    /** Campos y fusibles de un bloque del archivo, en el orden en que aparecen */
+    private static final class Bloque {
+        final Map<String, String> campos = new HashMap<>();
+        final Map<String, Map<String, int[]>> fusibles = new LinkedHashMap<>();
+    }
+
+    /**
+     * Parsea una linea y actualiza el bloque.
+     * Las lineas de asignacion (CAMPO=valor) actualizan los campos.
+     * Las lineas LIST actualizan los fusibles; cada opcion se guarda como pares
+     * [indice de palabra, valor].
+     */
+    private static void parsearLinea(Bloque bloque, String line) {
+
+        // Intento 1: linea de asignacion CAMPO=valor
+        Matcher assignMatcher = ASSIGNMENT_REGEXP.matcher(line);
+        if (assignMatcher.matches()) {
+            String rawKey = assignMatcher.group(1);
+            String value = assignMatcher.group(2).trim();
+
+            String key = KEY_MAP.get(rawKey);
+            if (key != null) {
+                // key == null para campos ignorados o desconocidos
+                bloque.campos.put(key, value);
+            }
+            return;
+        }
+
+        // Intento 2: linea LIST de fusibles
+        Matcher listMatcher = FUSE_LIST_REGEXP.matcher(line);
+        if (listMatcher.matches()) {
+            // fuseWordIndex es 0-based: FUSE1 → 0, FUSE2 → 1, etc.
+            int fuseWordIndex = Integer.parseInt(listMatcher.group(1)) - 1;
+            String fuseName = listMatcher.group(2);
+            String valoresStr = listMatcher.group(3);
+
+            if (fuseName == null || fuseName.isEmpty())
+                return;
+
+            // Obtener o crear el mapa de opciones para este fusible
+            Map<String, int[]> fuseOptions = bloque.fusibles.get(fuseName);
+            if (fuseOptions == null) {
+                fuseOptions = new LinkedHashMap<>();
+                bloque.fusibles.put(fuseName, fuseOptions);
+            }
+
+            // Parsear cada par "opcion"=HHHH en la linea
+            Matcher valueMatcher = FUSE_VALUE_REGEXP.matcher(
+                    valoresStr != null ? valoresStr : "");
+            while (valueMatcher.find()) {
+                String opcion = valueMatcher.group(1);
+                String rawValues = valueMatcher.group(2);
+
+                // Un valor puede ser HHHH&HHHH para opciones que afectan
+                // multiples palabras de configuracion consecutivas.
+                // Equivalente al split('&') del parser Python.
+                String[] partes = rawValues.split("&");
+                int[] pares = new int[partes.length * 2];
+                int usados = 0;
+                for (int i = 0; i < partes.length; i++) {
+                    try {
+                        int wordValue = Integer.parseInt(partes[i].trim(), 16);
+                        pares[usados++] = fuseWordIndex + i;
+                        pares[usados++] = wordValue;
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+                fuseOptions.put(opcion, Arrays.copyOf(pares, usados));
+            }
+        }
+        // Lineas no reconocidas se ignoran silenciosamente
+    }
+
+    /** Descarta los bloques sin nombre, tamaño de ROM o tipo de nucleo. */
+    private static void agregarSiEsValido(List<Bloque> bloques, Bloque bloque) {
+        if (esVacio(bloque.campos.get("CHIPname"))
+                || esVacio(bloque.campos.get("ROMsize"))
+                || esVacio(bloque.campos.get("CoreType"))) {
+            return;
+        }
+        bloques.add(bloque);
+    }
+
+    private static boolean esVacio(String valor) {
+        return valor == null || valor.isEmpty();
+    }
+
+    // ========== ESCRITURA DEL BINARIO ==========
+
+    /**
+     * Comparador alfabetico-numerico para nombres de PIC.
+     * Cuando se encuentra una secuencia de digitos, se compara como numero entero
+     * para evitar que "PIC16F10" aparezca despues de "PIC16F9".
+     * Es el orden del indice y el de {@link ChipinfoReader#getModelosPic()}.
+     */
+    static int compararNombres(String a, String b) {
+        int ia = 0, ib = 0;
+        while (ia < a.length() && ib < b.length()) {
+            char ca = a.charAt(ia);
+            char cb = b.charAt(ib);
+            boolean aDigit = Character.isDigit(ca);
+            boolean bDigit = Character.isDigit(cb);
+
+            if (aDigit && bDigit) {
+                int startA = ia, startB = ib;
+                while (ia < a.length() && Character.isDigit(a.charAt(ia)))
+                    ia++;
+                while (ib < b.length() && Character.isDigit(b.charAt(ib)))
+                    ib++;
+                int numA = Integer.parseInt(a.substring(startA, ia));
+                int numB = Integer.parseInt(b.substring(startB, ib));
+                if (numA != numB)
+                    return Integer.compare(numA, numB);
+            } else {
+                int cmp = Character.compare(
+                        Character.toUpperCase(ca),
+                        Character.toUpperCase(cb));
+                if (cmp != 0)
+                    return cmp;
+                ia++;
+                ib++;
+            }
+        }
+        return Integer.compare(a.length(), b.length());
+    }
+
+    private static byte[] codificar(final List<Bloque> bloques) throws IOException {
+        // Registros primero, para conocer sus posiciones relativas
+        ByteArrayOutputStream registros = new ByteArrayOutputStream();
+        DataOutputStream salidaRegistros = new DataOutputStream(registros);
+        int[] posiciones = new int[bloques.size()];
+
+        for (int i = 0; i < bloques.size(); i++) {
+            Bloque bloque = bloques.get(i);
+            posiciones[i] = salidaRegistros.size();
+
+            for (String campo : CAMPOS) {
+                escribirTexto(salidaRegistros, bloque.campos.get(campo));
+            }
+
+            salidaRegistros.writeShort(bloque.fusibles.size());
+            for (Map.Entry<String, Map<String, int[]>> fusible : bloque.fusibles.entrySet()) {
+                escribirTexto(salidaRegistros, fusible.getKey());
+                salidaRegistros.writeShort(fusible.getValue().size());
+                for (Map.Entry<String, int[]> opcion : fusible.getValue().entrySet()) {
+                    int[] pares = opcion.getValue();
+                    escribirTexto(salidaRegistros, opcion.getKey());
+                    salidaRegistros.writeByte(pares.length / 2);
+                    for (int j = 0; j < pares.length; j += 2) {
+                        salidaRegistros.writeByte(pares[j]);
+                        salidaRegistros.writeInt(pares[j + 1]);
+                    }
+                }
+            }
+        }
+
+        // Indice ordenado por nombre; el orden es estable, asi que los nombres
+        // repetidos conservan el orden del archivo
+        List<Integer> orden = new ArrayList<>(bloques.size());
+        for (int i = 0; i < bloques.size(); i++) {
+            orden.add(i);
+        }
+        Collections.sort(orden, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compararNombres(
+                        bloques.get(a).campos.get("CHIPname"),
+                        bloques.get(b).campos.get("CHIPname"));
+            }
+        });
+
+        ByteArrayOutputStream indice = new ByteArrayOutputStream();
+        DataOutputStream salidaIndice = new DataOutputStream(indice);
+        salidaIndice.writeInt(MAGIA);
+        salidaIndice.writeShort(VERSION);
+        salidaIndice.writeInt(bloques.size());
+        int tamanoIndice = 4 + 2 + 4;
+        for (Bloque bloque : bloques) {
+            tamanoIndice += 2 + bytesUtf8(bloque.campos.get("CHIPname")).length + 4;
+        }
+        for (int i : orden) {
+            escribirTexto(salidaIndice, bloques.get(i).campos.get("CHIPname"));
+            salidaIndice.writeInt(tamanoIndice + posiciones[i]);
+        }
+
+        registros.writeTo(indice);
+        return indice.toByteArray();
+    }
+
+    private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        if (texto == null) {
+            salida.writeShort(TEXTO_AUSENTE);
+            return;
+        }
+        byte[] bytes = bytesUtf8(texto);
+        if (bytes.length >= TEXTO_AUSENTE) {
+            throw new IOException("Texto demasiado largo en chipinfo: " + bytes.length + " bytes");
+        }
+        salida.writeShort(bytes.length);
+        salida.write(bytes);
+    }
+
+    private static byte[] bytesUtf8(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+}
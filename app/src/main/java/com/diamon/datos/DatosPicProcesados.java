@@ -3,12 +3,12 @@ package com.diamon.datos;
 import com.diamon.chip.ChipPic;
 import com.diamon.excepciones.ChipConfigurationException;
 import com.diamon.excepciones.HexProcessingException;
+import com.diamon.nucleo.TablaChecksums;
 import com.diamon.utilidades.ByteUtils;
 import com.diamon.utilidades.HexFileUtils;
 
-import java.util.ArrayList;
+import java.security.MessageDigest;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * Procesador de datos específicos para chips PIC con logging integrado.
@@ -40,8 +40,8 @@ public class DatosPicProcesados {
     /** Contexto para localización */
     private final android.content.Context context;
 
-    /** Firmware HEX a procesar */
-    private final String firmware;
+    /** Origen del firmware HEX a procesar */
+    private final FuenteHex fuente;
 
     /** Información del chip PIC objetivo */
     private ChipPic chipPIC;
@@ -64,11 +64,21 @@ public class DatosPicProcesados {
     /** Información del procesamiento para logging */
     private String informacionProcesamiento;
 
+    /** Huella SHA-256 del contenido procesado, para identificar la imagen */
+    private String huellaFirmware;
+
+    /** Byte alto con el que se completa un segmento de longitud impar al intercambiar bytes */
+    private static final byte RELLENO_SWAP = (byte) 0x3F;
+
     /** Indican si el HEX fuente trae registros de cada región (aunque sean blank). */
     private boolean romPresenteEnHex;
     private boolean eepromPresenteEnHex;
     private boolean configPresenteEnHex;
 
+    /** CRC por bloque de la ROM y la EEPROM procesadas, calculados al primer uso */
+    private volatile TablaChecksums checksumsROM;
+    private volatile TablaChecksums checksumsEEPROM;
+
     /**
      * Constructor para procesamiento de datos PIC.
      *
@@ -76,7 +86,17 @@ public class DatosPicProcesados {
      * @param chipPIC Información del chip PIC objetivo
      */
     public DatosPicProcesados(android.content.Context context, String firmware, ChipPic chipPIC) throws ChipConfigurationException {
-        if (firmware == null || firmware.trim().isEmpty()) {
+        this(context, FuenteHex.desdeTexto(firmware), chipPIC);
+    }
+
+    /**
+     * Constructor para procesar el firmware desde una fuente que puede leerse por flujo.
+     *
+     * @param fuente Origen del archivo HEX
+     * @param chipPIC Información del chip PIC objetivo
+     */
+    public DatosPicProcesados(android.content.Context context, FuenteHex fuente, ChipPic chipPIC) throws ChipConfigurationException {
+        if (fuente == null) {
             throw new IllegalArgumentException("Firmware no puede ser null o vacío");
         }
 
@@ -85,7 +105,7 @@ public class DatosPicProcesados {
         }
 
         this.context = context;
-        this.firmware = firmware;
+        this.fuente = fuente;
         this.chipPIC = chipPIC;
     }
 
@@ -139,30 +159,27 @@ public class DatosPicProcesados {
                 fuseWordEnd = 0x4010;
             }
 
-            // Procesar archivo HEX
-            ProcesadorHex procesado;
-            try {
-                procesado = new ProcesadorHex(context, firmware);
-            } catch (HexProcessingException e) {
-                throw e;
-            }
-
-            // Convertir registros HEX a formato interno
-            List<HexFileUtils.Pair<Integer, String>> records = convertirRegistrosHex(procesado);
-
-            // Filtrar registros por rangos de memoria
-            List<HexFileUtils.Pair<Integer, String>> romRecords = HexFileUtils.rangeFilterRecords(records, romWordBase,
-                    romWordEnd);
-            List<HexFileUtils.Pair<Integer, String>> eepromRecords = HexFileUtils.rangeFilterRecords(records,
-                    eepromWordBase, eepromWordEnd);
-            List<HexFileUtils.Pair<Integer, String>> idRecords = HexFileUtils.rangeFilterRecords(records,
-                    idWordBase, idWordEnd);
-            List<HexFileUtils.Pair<Integer, String>> fuseRecords = HexFileUtils.rangeFilterRecords(records,
-                    fuseWordBase, fuseWordEnd);
-
-            this.romPresenteEnHex = !romRecords.isEmpty();
-            this.eepromPresenteEnHex = !eepromRecords.isEmpty();
-            this.configPresenteEnHex = !idRecords.isEmpty() || !fuseRecords.isEmpty();
+            // Procesar archivo HEX conservando solo los registros de las regiones del chip
+            int[] rangosRetenidos = {
+                romWordBase, romWordEnd,
+                eepromWordBase, eepromWordEnd,
+                idWordBase, idWordEnd,
+                fuseWordBase, fuseWordEnd
+            };
+            MessageDigest huella = FuenteHex.crearHuella();
+            ProcesadorHex procesado = fuente.procesar(context, rangosRetenidos, huella);
+            this.huellaFirmware = ByteUtils.bytesToHex(huella.digest());
+            MapaSegmentos segmentos = procesado.getSegmentos();
+
+            // Filtrar segmentos por rangos de memoria (búsqueda binaria, una copia por región)
+            MapaSegmentos romRecords = segmentos.filtrarRango(romWordBase, romWordEnd);
+            MapaSegmentos eepromRecords = segmentos.filtrarRango(eepromWordBase, eepromWordEnd);
+            MapaSegmentos idRecords = segmentos.filtrarRango(idWordBase, idWordEnd);
+            MapaSegmentos fuseRecords = segmentos.filtrarRango(fuseWordBase, fuseWordEnd);
+
+            this.romPresenteEnHex = !romRecords.estaVacio();
+            this.eepromPresenteEnHex = !eepromRecords.estaVacio();
+            this.configPresenteEnHex = !idRecords.estaVacio() || !fuseRecords.estaVacio();
 
             // Generar datos en blanco para cada tipo de memoria
             byte[] romBlank = HexFileUtils.generateRomBlank(
@@ -185,7 +202,7 @@ public class DatosPicProcesados {
             // palabra de fuse usando su máscara blank. Solo modifica swapBytes (y con
             // ello el swab de romRecords) cuando no hay ROM — es seguro porque en ese
             // caso no hay datos ROM que proteger.
-            if (coreBits != 16 && romRecords.isEmpty() && !fuseRecords.isEmpty()) {
+            if (coreBits != 16 && romRecords.estaVacio() && !fuseRecords.estaVacio()) {
                 try {
                     Boolean swapDesdeFuses = detectarEndiannessDesdeFuses(
                             fuseRecords,
@@ -207,7 +224,7 @@ public class DatosPicProcesados {
             // swapConfig se aplica SOLO a id/fuseRecords, nunca a romRecords, evitando
             // la corrupción de ROM que introducía el fix anterior.
             boolean swapConfig = swapBytes;
-            if (coreBits != 16 && !romRecords.isEmpty() && !fuseRecords.isEmpty()) {
+            if (coreBits != 16 && !romRecords.estaVacio() && !fuseRecords.estaVacio()) {
                 try {
                     Boolean swapDesdeFuses = detectarEndiannessDesdeFuses(
                             fuseRecords,
@@ -220,7 +237,8 @@ public class DatosPicProcesados {
                 }
             }
 
-            // Ajustar registros según endianness detectado.
+            // Ajustar segmentos según endianness detectado (intercambio en el sitio; los
+            // segmentos de longitud impar se completan con 0x3F como byte alto).
             // - romRecords usa swapBytes (detectado desde ROM) → nunca se contamina
             //   con la detección de fuses.
             // - idRecords / fuseRecords usan swapConfig, que en dump completo se
@@ -228,14 +246,14 @@ public class DatosPicProcesados {
             // - EEPROM en 12/14-bit se trata más abajo con byte-picking específico,
             //   por eso aquí solo se swabbea EEPROM para 16-bit.
             if (swapBytes) {
-                romRecords = HexFileUtils.swabRecords(romRecords);
+                romRecords.intercambiarBytes(RELLENO_SWAP);
                 if (coreBits == 16) {
-                    eepromRecords = HexFileUtils.swabRecords(eepromRecords);
+                    eepromRecords.intercambiarBytes(RELLENO_SWAP);
                 }
             }
             if (swapConfig) {
-                idRecords = HexFileUtils.swabRecords(idRecords);
-                fuseRecords = HexFileUtils.swabRecords(fuseRecords);
+                idRecords.intercambiarBytes(RELLENO_SWAP);
+                fuseRecords.intercambiarBytes(RELLENO_SWAP);
             }
 
             // BUG FIX: Se eliminó la condición "romRecords.isEmpty()" para que la
@@ -245,17 +263,19 @@ public class DatosPicProcesados {
             // false y elegir el byte de padding 0x00 en lugar del dato real,
             // dejando la EEPROM toda en ceros al recargar.
             Integer pickByteEepromForzado = null;
-            if (coreBits != 16 && !eepromRecords.isEmpty()) {
+            if (coreBits != 16 && !eepromRecords.estaVacio()) {
                 pickByteEepromForzado = detectarPickByteEepromSinRom(eepromRecords);
             }
 
             // Procesar EEPROM con byte picking según endianness
-            List<HexFileUtils.Pair<Integer, String>> adjustedEepromRecords = procesarRegistrosEEPROM(eepromRecords,
+            MapaSegmentos adjustedEepromRecords = procesarRegistrosEEPROM(eepromRecords,
                     eepromWordBase, swapBytes, coreBits, pickByteEepromForzado);
 
             // Fusionar todos los datos
             this.romData = fusionarDatos(romRecords, romBlank, romWordBase, "ROM");
             this.eepromData = fusionarDatos(adjustedEepromRecords, eepromBlank, eepromWordBase, "EEPROM");
+            this.checksumsROM = null;
+            this.checksumsEEPROM = null;
 
             // Procesar ID y fuses
             procesarIDyFuses(idRecords, idWordBase, fuseRecords, fuseWordBase, coreBits);
@@ -275,78 +295,41 @@ public class DatosPicProcesados {
 
     // ========== MÉTODOS AUXILIARES DE PROCESAMIENTO ==========
 
-    /**
-     * Convierte los registros HEX procesados a formato interno.
-     *
-     * @param procesado Objeto ProcesadorHex con los registros
-     * @return Lista de pares (dirección, datos) convertidos
-     */
-    private List<HexFileUtils.Pair<Integer, String>> convertirRegistrosHex(ProcesadorHex procesado) {
-        List<HexFileUtils.Pair<Integer, String>> records = new ArrayList<>();
-
-        for (int i = 0; i < procesado.getRecords().size(); i++) {
-            ProcesadorHex.HexRecord registro = procesado.getRecords().get(i);
-            // Convertir a hexadecimal para reutilizar la infraestructura de fusión.
-            String datosHex = ByteUtils.bytesToHex(registro.data);
-            records.add(new HexFileUtils.Pair<>(registro.address, datosHex));
-        }
-
-        return records;
-    }
-
     /**
      * Detecta el endianness de los datos ROM analizando las palabras.
      *
-     * @param romRecords Lista de registros ROM
+     * @param romRecords Segmentos de la región ROM
      * @return true si es little-endian, false si es big-endian
      */
     private boolean detectarEndianness(
-            List<HexFileUtils.Pair<Integer, String>> romRecords, byte[] romBlank, boolean defaultSwap) {
-        boolean swapBytes = defaultSwap;
-        boolean swapBytesDetected = false;
+            MapaSegmentos romRecords, byte[] romBlank, boolean defaultSwap) {
         int romBlankWord = ByteUtils.bytesToInt(romBlank);
 
-        for (HexFileUtils.Pair<Integer, String> record : romRecords) {
+        for (int i = 0; i < romRecords.cantidadSegmentos(); i++) {
             // Ignorar direcciones impares, equivalente al parser de referencia.
-            if (record.first % 2 != 0) {
+            if (romRecords.inicio(i) % 2 != 0) {
                 continue;
             }
 
-            String data = record.second;
-            // Procesar palabras completas de 16 bits (4 caracteres hex).
-            for (int x = 0; x < data.length(); x += 4) {
-                if ((x + 4) <= data.length()) {
-                    String wordHex = data.substring(x, x + 4);
-                    int BE_word = Integer.parseInt(wordHex, 16);
-                    int LE_word = Integer.reverseBytes(BE_word) >>> 16;
+            byte[] data = romRecords.datos(i);
+            int longitud = romRecords.longitud(i);
+            // Procesar palabras completas de 16 bits.
+            for (int x = 0; x + 2 <= longitud; x += 2) {
+                int BE_word = (data[x] & 0xFF) << 8 | (data[x + 1] & 0xFF);
+                int LE_word = Integer.reverseBytes(BE_word) >>> 16;
 
-                    boolean BE_ok = (BE_word & romBlankWord) == BE_word;
-                    boolean LE_ok = (LE_word & romBlankWord) == LE_word;
+                boolean BE_ok = (BE_word & romBlankWord) == BE_word;
+                boolean LE_ok = (LE_word & romBlankWord) == LE_word;
 
-                    if (BE_ok && !LE_ok) {
-                        swapBytes = false;
-                        swapBytesDetected = true;
-                        break;
-                    } else if (LE_ok && !BE_ok) {
-                        swapBytes = true;
-                        swapBytesDetected = true;
-                        break;
-                    } else if (!BE_ok && !LE_ok) {
-                        continue;
-                    }
+                if (BE_ok && !LE_ok) {
+                    return false;
+                } else if (LE_ok && !BE_ok) {
+                    return true;
                 }
             }
-
-            if (swapBytesDetected) {
-                break;
-            }
         }
 
-        if (!swapBytesDetected) {
-            swapBytes = defaultSwap;
-        }
-
-        return swapBytes;
+        return defaultSwap;
     }
 
     /**
@@ -354,7 +337,7 @@ public class DatosPicProcesados {
      * Devuelve null si no es posible decidir de forma inequívoca.
      */
     private Boolean detectarEndiannessDesdeFuses(
-            List<HexFileUtils.Pair<Integer, String>> fuseRecords,
+            MapaSegmentos fuseRecords,
             int[] fuseBlankValues) {
 
         if (fuseBlankValues == null || fuseBlankValues.length == 0) {
@@ -363,10 +346,11 @@ public class DatosPicProcesados {
 
         int fuseMask = fuseBlankValues[0] & 0xFFFF;
 
-        for (HexFileUtils.Pair<Integer, String> record : fuseRecords) {
-            String data = record.second;
-            for (int x = 0; x + 4 <= data.length(); x += 4) {
-                int beWord = Integer.parseInt(data.substring(x, x + 4), 16) & 0xFFFF;
+        for (int i = 0; i < fuseRecords.cantidadSegmentos(); i++) {
+            byte[] data = fuseRecords.datos(i);
+            int longitud = fuseRecords.longitud(i);
+            for (int x = 0; x + 2 <= longitud; x += 2) {
+                int beWord = (data[x] & 0xFF) << 8 | (data[x + 1] & 0xFF);
                 int leWord = Integer.reverseBytes(beWord) >>> 16;
 
                 boolean beOk = (beWord & fuseMask) == beWord;
@@ -387,13 +371,13 @@ public class DatosPicProcesados {
     /**
      * Procesa registros EEPROM aplicando byte picking según endianness.
      *
-     * @param eepromRecords  Registros EEPROM originales
+     * @param eepromRecords  Segmentos EEPROM originales
      * @param eepromWordBase Dirección base de EEPROM
      * @param swapBytes      true si es little-endian
-     * @return Lista de registros EEPROM ajustados
+     * @return Segmentos EEPROM ajustados, con un byte por dirección
      */
-    private List<HexFileUtils.Pair<Integer, String>> procesarRegistrosEEPROM(
-            List<HexFileUtils.Pair<Integer, String>> eepromRecords,
+    private MapaSegmentos procesarRegistrosEEPROM(
+            MapaSegmentos eepromRecords,
             int eepromWordBase,
             boolean swapBytes,
             int coreBits,
@@ -407,18 +391,19 @@ public class DatosPicProcesados {
         // Seleccionar el byte apropiado según el endianness detectado
         int pickByte = (pickByteForzado != null) ? pickByteForzado : (swapBytes ? 0 : 1);
 
-        List<HexFileUtils.Pair<Integer, String>> adjustedEepromRecords = new ArrayList<>();
+        MapaSegmentos adjustedEepromRecords = new MapaSegmentos();
 
-        for (HexFileUtils.Pair<Integer, String> record : eepromRecords) {
-            int baseAddress = eepromWordBase + (record.first - eepromWordBase) / 2;
-            StringBuilder filteredData = new StringBuilder();
+        for (int i = 0; i < eepromRecords.cantidadSegmentos(); i++) {
+            int baseAddress = eepromWordBase + (eepromRecords.inicio(i) - eepromWordBase) / 2;
+            byte[] data = eepromRecords.datos(i);
+            int longitud = eepromRecords.longitud(i);
 
-            for (int x = pickByte * 2; x < record.second.length(); x += 4) {
-                filteredData.append(record.second.substring(x, x + 2));
+            byte[] filteredData = new byte[(longitud - pickByte + 1) / 2];
+            for (int x = pickByte, j = 0; x < longitud; x += 2, j++) {
+                filteredData[j] = data[x];
             }
 
-            adjustedEepromRecords.add(
-                    new HexFileUtils.Pair<>(baseAddress, filteredData.toString()));
+            adjustedEepromRecords.escribir(baseAddress, filteredData, 0, filteredData.length);
         }
 
         return adjustedEepromRecords;
@@ -431,32 +416,33 @@ public class DatosPicProcesados {
      * @return 0/1 si se pudo inferir, null si es ambiguo.
      */
     private Integer detectarPickByteEepromSinRom(
-            List<HexFileUtils.Pair<Integer, String>> eepromRecords) {
+            MapaSegmentos eepromRecords) {
 
         int strongScoreLane0 = 0;
         int strongScoreLane1 = 0;
         int weakScoreLane0 = 0;
         int weakScoreLane1 = 0;
 
-        for (HexFileUtils.Pair<Integer, String> record : eepromRecords) {
-            String data = record.second;
-            for (int x = 0; x + 4 <= data.length(); x += 4) {
-                String b0 = data.substring(x, x + 2);
-                String b1 = data.substring(x + 2, x + 4);
+        for (int i = 0; i < eepromRecords.cantidadSegmentos(); i++) {
+            byte[] data = eepromRecords.datos(i);
+            int longitud = eepromRecords.longitud(i);
+            for (int x = 0; x + 2 <= longitud; x += 2) {
+                int b0 = data[x] & 0xFF;
+                int b1 = data[x + 1] & 0xFF;
 
                 // Señal fuerte: byte distinto de 00 y FF (típico dato real)
-                if (!"00".equals(b0) && !"FF".equals(b0)) {
+                if (b0 != 0x00 && b0 != 0xFF) {
                     strongScoreLane0++;
                 }
-                if (!"00".equals(b1) && !"FF".equals(b1)) {
+                if (b1 != 0x00 && b1 != 0xFF) {
                     strongScoreLane1++;
                 }
 
                 // Señal débil: byte distinto de FF (incluye 00 válido en EEPROM)
-                if (!"FF".equals(b0)) {
+                if (b0 != 0xFF) {
                     weakScoreLane0++;
                 }
-                if (!"FF".equals(b1)) {
+                if (b1 != 0xFF) {
                     weakScoreLane1++;
                 }
             }
@@ -482,20 +468,20 @@ public class DatosPicProcesados {
     /**
      * Fusiona registros en un buffer de datos con logging detallado.
      *
-     * @param records     Lista de registros a fusionar
+     * @param records     Segmentos a fusionar
      * @param blankData   Datos en blanco como base
      * @param baseAddress Dirección base
      * @param tipoMemoria Tipo de memoria para logging
      * @return Buffer fusionado
      */
     private byte[] fusionarDatos(
-            List<HexFileUtils.Pair<Integer, String>> records,
+            MapaSegmentos records,
             byte[] blankData,
             int baseAddress,
             String tipoMemoria)
             throws HexProcessingException {
         try {
-            byte[] resultado = HexFileUtils.mergeRecords(context, records, blankData, baseAddress);
+            byte[] resultado = HexFileUtils.mergeSegments(context, records, blankData, baseAddress);
 
             return resultado;
         } catch (Exception e) {
@@ -511,16 +497,16 @@ public class DatosPicProcesados {
      * @param configWordBase Dirección base de configuración
      */
     private void procesarIDyFuses(
-            List<HexFileUtils.Pair<Integer, String>> idRecords,
+            MapaSegmentos idRecords,
             int idWordBase,
-            List<HexFileUtils.Pair<Integer, String>> fuseRecords,
+            MapaSegmentos fuseRecords,
             int fuseWordBase,
             int coreBits)
             throws HexProcessingException {
 
         try {
             byte[] IDBlanco = HexFileUtils.generarArrayDeDatos((byte) 0x00, 8);
-            this.IDData = HexFileUtils.mergeRecords(context, idRecords, IDBlanco, idWordBase);
+            this.IDData = HexFileUtils.mergeSegments(context, idRecords, IDBlanco, idWordBase);
 
             // Ajustar ID para chips de 14 bits
             if (coreBits != 16) {
@@ -534,7 +520,7 @@ public class DatosPicProcesados {
             }
 
             byte[] fusesBytes = HexFileUtils.encodeToBytes(chipPIC.getFuseBlank());
-            this.fuseData = HexFileUtils.mergeRecords(context, fuseRecords, fusesBytes, fuseWordBase);
+            this.fuseData = HexFileUtils.mergeSegments(context, fuseRecords, fusesBytes, fuseWordBase);
             this.fuseValues = HexFileUtils.decodeFromBytes(context, fuseData);
 
         } catch (Exception e) {
@@ -655,6 +641,20 @@ public class DatosPicProcesados {
         return configPresenteEnHex;
     }
 
+    /**
+     * Huella SHA-256 del archivo tal como se leyó al procesarlo.
+     *
+     * @return Huella en hexadecimal, o null si aún no se procesó
+     */
+    public String getHuellaFirmware() {
+        return huellaFirmware;
+    }
+
+    /** @return Chip para el que se procesaron los datos */
+    public ChipPic getChipPIC() {
+        return chipPIC;
+    }
+
     public byte[] obtenerBytesHexROMProcesado() {
 
         return this.romData;
@@ -665,6 +665,37 @@ public class DatosPicProcesados {
         return this.eepromData;
     }
 
+    /**
+     * Tabla de CRC por bloque de la ROM procesada. Se calcula una sola vez por imagen, de modo
+     * que las verificaciones sucesivas con la misma imagen cacheada solo calculan la de la
+     * lectura.
+     *
+     * @return Tabla de la ROM, o null si no hay ROM procesada
+     */
+    public TablaChecksums getChecksumsROM() {
+        TablaChecksums tabla = checksumsROM;
+        if (tabla == null && romData != null) {
+            // Cálculo idempotente: si dos hilos compiten, ambos obtienen la misma tabla
+            tabla = TablaChecksums.calcular(romData, romData.length);
+            checksumsROM = tabla;
+        }
+        return tabla;
+    }
+
+    /**
+     * Tabla de CRC por bloque de la EEPROM procesada, calculada una sola vez por imagen.
+     *
+     * @return Tabla de la EEPROM, o null si no hay EEPROM procesada
+     */
+    public TablaChecksums getChecksumsEEPROM() {
+        TablaChecksums tabla = checksumsEEPROM;
+        if (tabla == null && eepromData != null) {
+            tabla = TablaChecksums.calcular(eepromData, eepromData.length);
+            checksumsEEPROM = tabla;
+        }
+        return tabla;
+    }
+
     public int[] obtenerValoresIntHexFusesProcesado() {
 
         return this.fuseValues;
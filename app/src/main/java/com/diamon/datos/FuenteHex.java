@@ -0,0 +1,148 @@
+package com.diamon.datos;
+
+import com.diamon.excepciones.HexProcessingException;
+import com.diamon.utilidades.ByteUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Origen del contenido de un archivo HEX.
+ *
+ * <p>Puede envolver un texto ya cargado en memoria o un flujo que se vuelve a abrir en cada
+ * procesamiento (por ejemplo, el {@code Uri} elegido en el selector de archivos). En el segundo
+ * caso el archivo nunca se guarda completo como String: se lee por bloques y solo se conservan
+ * los registros que caen en las regiones de memoria del chip.
+ *
+ * @author Danielk10
+ * @version 1.0
+ * @since 2025
+ */
+public final class FuenteHex {
+
+    /** Abre un flujo nuevo con el contenido del archivo HEX */
+    public interface Apertura {
+        InputStream abrir() throws IOException;
+    }
+
+    /** Contenido en memoria, o null si la fuente es un flujo */
+    private final String texto;
+
+    /** Apertura del flujo, o null si la fuente es un texto */
+    private final Apertura apertura;
+
+    private FuenteHex(String texto, Apertura apertura) {
+        this.texto = texto;
+        this.apertura = apertura;
+    }
+
+    /**
+     * Crea una fuente a partir de un texto HEX ya cargado.
+     *
+     * @param texto Contenido del archivo HEX
+     */
+    public static FuenteHex desdeTexto(String texto) {
+        if (texto == null || texto.trim().isEmpty()) {
+            throw new IllegalArgumentException("Firmware no puede ser null o vacío");
+        }
+        return new FuenteHex(texto, null);
+    }
+
+    /**
+     * Crea una fuente que lee el archivo HEX por flujo cada vez que se procesa.
+     *
+     * @param apertura Abre el flujo del archivo; el flujo se cierra tras procesarlo
+     */
+    public static FuenteHex desdeFlujo(Apertura apertura) {
+        if (apertura == null) {
+            throw new IllegalArgumentException("Apertura del archivo HEX no puede ser null");
+        }
+        return new FuenteHex(null, apertura);
+    }
+
+    /**
+     * Calcula la huella SHA-256 del contenido actual de la fuente. Para un flujo se lee el
+     * archivo completo, sin procesarlo.
+     *
+     * @return Huella en hexadecimal
+     * @throws HexProcessingException Si el archivo no se puede leer
+     */
+    public String calcularHuella() throws HexProcessingException {
+        MessageDigest huella = crearHuella();
+        if (texto != null) {
+            huella.update(texto.getBytes(StandardCharsets.UTF_8));
+            return ByteUtils.bytesToHex(huella.digest());
+        }
+
+        try (InputStream entrada = apertura.abrir()) {
+            if (entrada == null) {
+                throw new HexProcessingException("No se pudo abrir el archivo HEX");
+            }
+            consumir(new DigestInputStream(entrada, huella));
+        } catch (IOException e) {
+            throw new HexProcessingException("Error leyendo archivo HEX", e);
+        }
+        return ByteUtils.bytesToHex(huella.digest());
+    }
+
+    /**
+     * Procesa el contenido conservando solo los registros de datos que se solapan con los
+     * rangos indicados.
+     *
+     * @param context           Contexto para localización
+     * @param rangosRetenidos   Pares [inicio, fin) de direcciones a conservar, o null para todas
+     * @param huella            Si no es null, se actualiza con todos los bytes de la fuente, de
+     *                          modo que coincide con {@link #calcularHuella()} del mismo contenido
+     * @return Procesador con los registros retenidos
+     * @throws HexProcessingException Si el archivo no se puede leer o es inválido
+     */
+    ProcesadorHex procesar(android.content.Context context, int[] rangosRetenidos, MessageDigest huella)
+            throws HexProcessingException {
+        if (texto != null) {
+            if (huella != null) {
+                huella.update(texto.getBytes(StandardCharsets.UTF_8));
+            }
+            return new ProcesadorHex(context, texto, rangosRetenidos);
+        }
+
+        try (InputStream entrada = apertura.abrir()) {
+            if (entrada == null) {
+                throw new HexProcessingException("No se pudo abrir el archivo HEX");
+            }
+            if (huella == null) {
+                return new ProcesadorHex(context, entrada, rangosRetenidos);
+            }
+
+            // El procesador puede detenerse en un comentario final: el resto se lee igualmente
+            // para que la huella cubra el archivo completo
+            InputStream conHuella = new DigestInputStream(entrada, huella);
+            ProcesadorHex procesado = new ProcesadorHex(context, conHuella, rangosRetenidos);
+            consumir(conHuella);
+            return procesado;
+        } catch (IOException e) {
+            throw new HexProcessingException("Error leyendo archivo HEX", e);
+        }
+    }
+
+    /** @return Un MessageDigest SHA-256 nuevo */
+    static MessageDigest crearHuella() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 es obligatorio en toda implementación de Java y Android
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Lee el flujo hasta el final descartando los bytes. */
+    private static void consumir(InputStream entrada) throws IOException {
+        byte[] bloque = new byte[8192];
+        while (entrada.read(bloque) != -1) {
+            // Solo interesa que el flujo actualice la huella
+        }
+    }
+}
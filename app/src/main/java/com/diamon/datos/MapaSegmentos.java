@@ -0,0 +1,246 @@
+package com.diamon.datos;
+
+import java.util.Arrays;
+
+/**
+ * Mapa disperso de direcciones a tramos contiguos de bytes.
+ *
+ * <p>
+ * Los tramos se guardan ordenados por dirección en arrays primitivos paralelos
+ * (inicio, longitud y datos), sin solaparse ni tocarse: al escribir bytes
+ * adyacentes o solapados con un tramo existente, se fusionan en uno solo y los
+ * bytes nuevos sobrescriben a los anteriores. Un archivo HEX típico, con
+ * registros consecutivos, queda reducido a uno o pocos tramos por región.
+ *
+ * <p>
+ * Las búsquedas por rango son O(log n) sobre el número de tramos. El array de
+ * datos de cada tramo puede tener capacidad sobrante: solo los primeros
+ * {@link #longitud(int)} bytes son válidos.
+ *
+ * @author Danielk10
+ * @version 1.0
+ * @since 2025
+ */
+public final class MapaSegmentos {
+
+    private static final int CAPACIDAD_INICIAL = 8;
+
+    /** Tamaño mínimo del array de un tramo nuevo, para absorber registros consecutivos */
+    private static final int CAPACIDAD_MINIMA_TRAMO = 256;
+
+    private int[] inicios = new int[CAPACIDAD_INICIAL];
+    private int[] longitudes = new int[CAPACIDAD_INICIAL];
+    private byte[][] datos = new byte[CAPACIDAD_INICIAL][];
+    private int cantidad;
+
+    /** @return Número de tramos */
+    public int cantidadSegmentos() {
+        return cantidad;
+    }
+
+    /** @return true si no hay ningún byte en el mapa */
+    public boolean estaVacio() {
+        return cantidad == 0;
+    }
+
+    /** @return Dirección del primer byte del tramo */
+    public int inicio(int segmento) {
+        return inicios[segmento];
+    }
+
+    /** @return Cantidad de bytes válidos del tramo */
+    public int longitud(int segmento) {
+        return longitudes[segmento];
+    }
+
+    /** @return Array del tramo; solo los primeros {@link #longitud(int)} bytes son válidos */
+    public byte[] datos(int segmento) {
+        return datos[segmento];
+    }
+
+    /** @return Suma de las longitudes de todos los tramos */
+    public int totalBytes() {
+        int total = 0;
+        for (int i = 0; i < cantidad; i++) {
+            total += longitudes[i];
+        }
+        return total;
+    }
+
+    /**
+     * Escribe bytes a partir de una dirección, fusionándolos con los tramos
+     * adyacentes o solapados. Escribir justo al final del último tramo, el caso
+     * habitual al leer un HEX ordenado, es O(1) amortizado.
+     *
+     * @param direccion Dirección del primer byte
+     * @param origen    Array con los bytes
+     * @param offset    Posición inicial en el origen
+     * @param longitud  Cantidad de bytes a escribir
+     */
+    public void escribir(int direccion, byte[] origen, int offset, int longitud) {
+        if (longitud <= 0) {
+            return;
+        }
+
+        int fin = direccion + longitud;
+
+        // Caso habitual: registros consecutivos o posteriores al último tramo
+        if (cantidad == 0 || direccion > finDe(cantidad - 1)) {
+            insertarTramo(cantidad, direccion, origen, offset, longitud, CAPACIDAD_MINIMA_TRAMO);
+            return;
+        }
+        int ultimo = cantidad - 1;
+        if (direccion == finDe(ultimo)) {
+            agregarAlFinal(ultimo, origen, offset, longitud);
+            return;
+        }
+
+        // Tramos que se solapan o tocan [direccion, fin]
+        int primero = primerTramoConFinDesde(direccion);
+        int limite = primero;
+        while (limite < cantidad && inicios[limite] <= fin) {
+            limite++;
+        }
+
+        if (primero == limite) {
+            insertarTramo(primero, direccion, origen, offset, longitud, CAPACIDAD_MINIMA_TRAMO);
+            return;
+        }
+
+        int nuevoInicio = Math.min(inicios[primero], direccion);
+        int nuevoFin = Math.max(finDe(limite - 1), fin);
+        byte[] fusion = new byte[nuevoFin - nuevoInicio];
+        for (int i = primero; i < limite; i++) {
+            System.arraycopy(datos[i], 0, fusion, inicios[i] - nuevoInicio, longitudes[i]);
+        }
+        System.arraycopy(origen, offset, fusion, direccion - nuevoInicio, longitud);
+
+        inicios[primero] = nuevoInicio;
+        longitudes[primero] = fusion.length;
+        datos[primero] = fusion;
+        eliminarTramos(primero + 1, limite);
+    }
+
+    /**
+     * Devuelve un mapa nuevo con los bytes comprendidos en [desde, hasta),
+     * recortando los tramos que cruzan los límites. Los bytes se copian, por lo
+     * que el resultado puede modificarse sin afectar a este mapa.
+     *
+     * @param desde Dirección inicial (inclusive)
+     * @param hasta Dirección final (exclusiva)
+     * @return Mapa con los bytes del rango
+     */
+    public MapaSegmentos filtrarRango(int desde, int hasta) {
+        MapaSegmentos resultado = new MapaSegmentos();
+        if (desde >= hasta) {
+            return resultado;
+        }
+        for (int i = primerTramoConFinDesde(desde + 1); i < cantidad && inicios[i] < hasta; i++) {
+            int inicio = Math.max(inicios[i], desde);
+            int fin = Math.min(finDe(i), hasta);
+            resultado.insertarTramo(
+                    resultado.cantidad,
+                    inicio,
+                    datos[i],
+                    inicio - inicios[i],
+                    fin - inicio,
+                    0);
+        }
+        return resultado;
+    }
+
+    /**
+     * Intercambia en el sitio los dos bytes de cada palabra de 16 bits, contando
+     * desde el inicio de cada tramo. Un tramo de longitud impar se completa antes
+     * con un byte de relleno, que queda como byte alto de la última palabra.
+     *
+     * @param relleno Byte que completa los tramos de longitud impar
+     */
+    public void intercambiarBytes(byte relleno) {
+        for (int i = 0; i < cantidad; i++) {
+            if ((longitudes[i] & 1) != 0) {
+                asegurarCapacidadTramo(i, longitudes[i] + 1);
+                datos[i][longitudes[i]++] = relleno;
+            }
+
+            byte[] tramo = datos[i];
+            for (int j = 0; j + 1 < longitudes[i]; j += 2) {
+                byte temporal = tramo[j];
+                tramo[j] = tramo[j + 1];
+                tramo[j + 1] = temporal;
+            }
+        }
+    }
+
+    // ========== AUXILIARES ==========
+
+    private int finDe(int segmento) {
+        return inicios[segmento] + longitudes[segmento];
+    }
+
+    /**
+     * Búsqueda binaria del primer tramo cuyo fin es mayor o igual que la
+     * dirección. Como los tramos no se tocan, los fines también están ordenados.
+     */
+    private int primerTramoConFinDesde(int direccion) {
+        int bajo = 0;
+        int alto = cantidad;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (finDe(medio) < direccion) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private void insertarTramo(
+            int posicion, int direccion, byte[] origen, int offset, int longitud, int capacidadMinima) {
+        if (cantidad == inicios.length) {
+            int capacidad = inicios.length * 2;
+            inicios = Arrays.copyOf(inicios, capacidad);
+            longitudes = Arrays.copyOf(longitudes, capacidad);
+            datos = Arrays.copyOf(datos, capacidad);
+        }
+
+        int desplazar = cantidad - posicion;
+        if (desplazar > 0) {
+            System.arraycopy(inicios, posicion, inicios, posicion + 1, desplazar);
+            System.arraycopy(longitudes, posicion, longitudes, posicion + 1, desplazar);
+            System.arraycopy(datos, posicion, datos, posicion + 1, desplazar);
+        }
+
+        byte[] tramo = new byte[Math.max(longitud, capacidadMinima)];
+        System.arraycopy(origen, offset, tramo, 0, longitud);
+        inicios[posicion] = direccion;
+        longitudes[posicion] = longitud;
+        datos[posicion] = tramo;
+        cantidad++;
+    }
+
+    private void agregarAlFinal(int segmento, byte[] origen, int offset, int longitud) {
+        asegurarCapacidadTramo(segmento, longitudes[segmento] + longitud);
+        System.arraycopy(origen, offset, datos[segmento], longitudes[segmento], longitud);
+        longitudes[segmento] += longitud;
+    }
+
+    private void asegurarCapacidadTramo(int segmento, int requerida) {
+        if (requerida > datos[segmento].length) {
+            datos[segmento] = Arrays.copyOf(
+                    datos[segmento], Math.max(requerida, datos[segmento].length * 2));
+        }
+    }
+
+    /** Elimina los tramos en [desde, hasta) desplazando los siguientes. */
+    private void eliminarTramos(int desde, int hasta) {
+        int mover = cantidad - hasta;
+        System.arraycopy(inicios, hasta, inicios, desde, mover);
+        System.arraycopy(longitudes, hasta, longitudes, desde, mover);
+        System.arraycopy(datos, hasta, datos, desde, mover);
+        int nuevaCantidad = cantidad - (hasta - desde);
+        Arrays.fill(datos, nuevaCantidad, cantidad, null);
+        cantidad = nuevaCantidad;
+    }
+}
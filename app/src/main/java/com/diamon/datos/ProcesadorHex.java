@@ -3,10 +3,9 @@ package com.diamon.datos;
 import com.diamon.excepciones.HexProcessingException;
 import com.diamon.utilidades.ByteUtils;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 
 /**
  * Procesador de archivos HEX Intel con logging integrado y manejo robusto de
@@ -31,6 +30,13 @@ import java.util.regex.Pattern;
  * <li>Validación de integridad de datos
  * </ul>
  *
+ * <p>
+ * Las líneas en blanco y las que tras los espacios iniciales empiezan con ';' o '#' se
+ * ignoran. Al leer un archivo por flujo se aplica además la regla del selector de archivos:
+ * una línea con ';' en la primera columna termina el archivo. Un texto ya cargado, en
+ * cambio, puede traer esa cabecera (por ejemplo el banner de un compilador) antes de los
+ * registros, y se procesa entero.
+ *
  * @author Danielk10
  * @version 2.0 - Integrado con sistema de logging y excepciones mejoradas
  * @since 2025
@@ -42,22 +48,64 @@ public class ProcesadorHex {
 
     // ========== PROCESAMIENTO HEX ==========
 
-    // Clase para representar un registro HEX
-    public class HexRecord {
-        public int address;
-        public byte[] data;
+    /** Bytes de los registros de datos, agrupados en tramos contiguos por dirección */
+    private final MapaSegmentos segmentos = new MapaSegmentos();
+
+    /** Información del archivo procesado para logging */
+    private final String informacionArchivo;
+
+    /** Valor de cada carácter ASCII como dígito hexadecimal, o -1 si no lo es */
+    private static final byte[] VALOR_HEX = new byte[128];
 
-        public HexRecord(int address, byte[] data) {
-            this.address = address;
-            this.data = data;
+    static {
+        Arrays.fill(VALOR_HEX, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            VALOR_HEX['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALOR_HEX['A' + i] = (byte) (10 + i);
+            VALOR_HEX['a' + i] = (byte) (10 + i);
         }
     }
 
-    /** Lista de registros HEX procesados */
-    private final List<HexRecord> records = new ArrayList<>();
+    /** Dígitos hexadecimales fijos de un registro: longitud, dirección, tipo y checksum */
+    private static final int DIGITOS_CABECERA_Y_CHECKSUM = 10;
 
-    /** Información del archivo procesado para logging */
-    private final String informacionArchivo;
+    /** Bytes decodificados del registro en curso, reutilizados entre líneas */
+    private byte[] registro = new byte[64];
+
+    /** Línea en curso (sin el salto de línea), reutilizada entre líneas */
+    private char[] linea = new char[80];
+
+    /** Caracteres acumulados en la línea en curso */
+    private int longitudLinea;
+
+    /** Número de la última línea completada (1-based) */
+    private int numeroLinea;
+
+    /** true tras recibir el registro de fin de archivo */
+    private boolean eof;
+
+    /** Dirección base de los registros tipo 02/04 */
+    private int extendedAddress;
+
+    /** true si se encontró algún carácter distinto de espacio */
+    private boolean hayContenido;
+
+    /** Bytes leídos por bloque al procesar un flujo */
+    private static final int TAMANO_BLOQUE_LECTURA = 8192;
+
+    /** Pares [inicio, fin) de direcciones cuyos registros se conservan, o null para todos */
+    private final int[] rangosRetenidos;
+
+    /** true si una línea con ';' en la primera columna termina el archivo (lectura por flujo) */
+    private final boolean comentarioTerminaArchivo;
+
+    /** true tras la línea que termina el archivo: el resto de la entrada no se procesa */
+    private boolean finDeContenido;
+
+    /** true si el último salto de línea del flujo fue '\r' (para tratar "\r\n" como uno) */
+    private boolean ultimoSaltoFueCR;
 
     /**
      * Constructor que procesa un archivo HEX completo con logging integrado.
@@ -66,128 +114,365 @@ public class ProcesadorHex {
      * @throws HexProcessingException Si ocurre error durante el procesamiento
      */
     public ProcesadorHex(android.content.Context context, String fileContent) throws HexProcessingException {
-        if (fileContent == null || fileContent.trim().isEmpty()) {
+        this(context, (CharSequence) fileContent);
+    }
+
+    /**
+     * Procesa un archivo HEX en una sola pasada sobre sus caracteres, sin expresiones
+     * regulares, sin split y sin crear Strings por línea.
+     *
+     * @param fileContent Contenido del archivo HEX
+     * @throws HexProcessingException Si ocurre error durante el procesamiento
+     */
+    public ProcesadorHex(android.content.Context context, CharSequence fileContent) throws HexProcessingException {
+        this(context, fileContent, null);
+    }
+
+    /**
+     * Procesa un archivo HEX conservando solo los registros de datos que se solapan con
+     * alguno de los rangos indicados.
+     *
+     * @param fileContent     Contenido del archivo HEX
+     * @param rangosRetenidos Pares [inicio, fin) de direcciones a conservar, o null para todas
+     * @throws HexProcessingException Si ocurre error durante el procesamiento
+     */
+    public ProcesadorHex(android.content.Context context, CharSequence fileContent, int[] rangosRetenidos)
+            throws HexProcessingException {
+        if (fileContent == null) {
             throw new IllegalArgumentException(
                     "Contenido del archivo HEX no puede ser null o vacío");
         }
 
-        String[] lineas = fileContent.split("\n");
-        this.informacionArchivo = String.format("%d líneas, %d caracteres", lineas.length, fileContent.length());
-
-        boolean eof = false;
-        int extendedAddress = 0;
-        int lineasProcesadas = 0;
-        int registrosValidos = 0;
-
-        // Expresiones regulares optimizadas para validación
         this.context = context;
-        Pattern hexRecordPattern = Pattern.compile("^:[0-9A-Fa-f]+$");
-        Pattern hexRecordChopper = Pattern.compile(
-                "^:([0-9A-Fa-f]{2})([0-9A-Fa-f]{4})([0-9A-Fa-f]{2})([0-9A-Fa-f]*)([0-9A-Fa-f]{2})$");
+        this.rangosRetenidos = rangosRetenidos;
+        this.comentarioTerminaArchivo = false;
 
         try {
-            for (int numeroLinea = 0; numeroLinea < lineas.length; numeroLinea++) {
-                String line = lineas[numeroLinea].trim();
-                lineasProcesadas++;
-
-                // Ignorar líneas vacías o comentarios (comunes en algunos compiladores/IDE)
-                if (line.isEmpty() || line.startsWith(";") || line.startsWith("#")) {
-                    continue;
+            if (fileContent instanceof String) {
+                cargarLineas((String) fileContent);
+            } else {
+                int longitud = fileContent.length();
+                for (int i = 0; i < longitud && !finDeContenido; i++) {
+                    procesarCaracter(fileContent.charAt(i));
                 }
+            }
+            terminar();
+        } catch (RuntimeException e) {
+            throw new HexProcessingException("Error inesperado procesando archivo HEX", e);
+        }
 
-                // Validar formato básico del registro
-                Matcher matcher = hexRecordPattern.matcher(line);
-                if (!matcher.matches()) {
-                    throw HexProcessingException.crearErrorFormato(
-                            numeroLinea + 1,
-                            line,
-                            "Caracteres no hexadecimales o formato incorrecto");
-                }
+        if (!hayContenido) {
+            throw new IllegalArgumentException(
+                    "Contenido del archivo HEX no puede ser null o vacío");
+        }
 
-                // Verificar registros después del EOF
-                if (eof) {
-                    throw HexProcessingException.crearErrorFormato(
-                            numeroLinea + 1, line, "Registro extra después del EOF");
-                }
+        this.informacionArchivo = String.format("%d líneas, %d caracteres", numeroLinea, fileContent.length());
+    }
 
-                // Parsear componentes del registro
-                Matcher chop = hexRecordChopper.matcher(line);
-                if (!chop.matches()) {
-                    throw HexProcessingException.crearErrorFormato(
-                            numeroLinea + 1, line, "Estructura del registro incorrecta");
-                }
+    /**
+     * Procesa un archivo HEX leyéndolo por bloques desde un flujo, sin acumular el texto.
+     *
+     * <p>
+     * Solo se conservan los registros de datos que se solapan con los rangos indicados, por
+     * lo que la memoria usada depende de las regiones del chip y no del tamaño del archivo.
+     * Igual que la lectura desde el selector de archivos, una línea con ';' en la primera
+     * columna termina el archivo y la lectura se detiene ahí. El flujo no se cierra.
+     *
+     * @param entrada         Flujo con el contenido del archivo HEX
+     * @param rangosRetenidos Pares [inicio, fin) de direcciones a conservar, o null para todas
+     * @throws HexProcessingException Si el flujo falla o el contenido es inválido
+     */
+    public ProcesadorHex(android.content.Context context, InputStream entrada, int[] rangosRetenidos)
+            throws HexProcessingException {
+        if (entrada == null) {
+            throw new IllegalArgumentException(
+                    "Contenido del archivo HEX no puede ser null o vacío");
+        }
 
-                // Extraer campos del registro
-                int length = Integer.parseInt(chop.group(1), 16);
-                int address = Integer.parseInt(chop.group(2), 16);
-                int type = Integer.parseInt(chop.group(3), 16);
-                String dataStr = chop.group(4);
-                int checksum = Integer.parseInt(chop.group(5), 16);
-
-                // Convertir datos a bytes
-                byte[] data = hexStringToByteArraySeguro(dataStr);
-
-                // Validar longitud
-                if (length != data.length) {
-                    String razon = String.format(
-                            "Longitud declarada (%d) no coincide con datos (%d)",
-                            length, data.length);
-                    throw HexProcessingException.crearErrorFormato(numeroLinea + 1, line, razon);
-                }
+        this.context = context;
+        this.rangosRetenidos = rangosRetenidos;
+        this.comentarioTerminaArchivo = true;
 
-                // Verificar checksum con logging detallado
-                if (!verificarChecksumRegistro(line, checksum, numeroLinea + 1)) {
-                    // La excepción ya fue lanzada en verificarChecksumRegistro
-                    return;
-                }
+        long bytesLeidos = 0;
+        try {
+            byte[] bloque = new byte[TAMANO_BLOQUE_LECTURA];
+            int leidos;
+            while (!finDeContenido && (leidos = entrada.read(bloque)) != -1) {
+                cargarBloque(bloque, leidos);
+                bytesLeidos += leidos;
+            }
+            terminar();
+        } catch (IOException e) {
+            throw new HexProcessingException("Error leyendo archivo HEX", e);
+        } catch (RuntimeException e) {
+            throw new HexProcessingException("Error inesperado procesando archivo HEX", e);
+        }
 
-                // Procesar registros según su tipo
-                switch (type) {
-                    case 0: // Registro de datos
-                        int direccionCompleta = address | extendedAddress;
-                        records.add(new HexRecord(direccionCompleta, data));
-                        registrosValidos++;
-                        break;
-
-                    case 1: // EOF
-                        eof = true;
-                        break;
-
-                    case 2: // Extended Segment Address
-                        extendedAddress = ((data[0] & 0xFF) << 8 | (data[1] & 0xFF)) << 4;
-                        break;
-
-                    case 4: // Extended Linear Address
-                        extendedAddress = ((data[0] & 0xFF) << 8 | (data[1] & 0xFF)) << 16;
-                        break;
-
-                    default:
-                        throw HexProcessingException.crearTipoDesconocido(
-                                numeroLinea + 1, line, type);
+        if (!hayContenido) {
+            throw new IllegalArgumentException(
+                    "Contenido del archivo HEX no puede ser null o vacío");
+        }
+
+        this.informacionArchivo = String.format("%d líneas, %d caracteres", numeroLinea, bytesLeidos);
+    }
+
+    /**
+     * Acumula un bloque leído del flujo y procesa cada línea completa. Acepta "\n", "\r\n"
+     * y "\r" como fin de línea; la línea sin terminar queda pendiente para el siguiente
+     * bloque.
+     */
+    private void cargarBloque(byte[] bloque, int cantidad) throws HexProcessingException {
+        for (int i = 0; i < cantidad && !finDeContenido; i++) {
+            int c = bloque[i] & 0xFF;
+            if (c == '\n' || c == '\r') {
+                boolean mismoSalto = c == '\n' && ultimoSaltoFueCR;
+                ultimoSaltoFueCR = c == '\r';
+                if (!mismoSalto) {
+                    procesarLinea();
                 }
+                continue;
             }
 
-            // Verificar que se encontró EOF
-            if (!eof) {
+            ultimoSaltoFueCR = false;
+            if (longitudLinea == linea.length) {
+                linea = Arrays.copyOf(linea, linea.length * 2);
             }
+            linea[longitudLinea++] = (char) c;
+        }
+    }
 
-        } catch (NumberFormatException e) {
-            throw new HexProcessingException("Error de formato numérico en archivo HEX", e);
-        } catch (Exception e) {
-            if (e instanceof HexProcessingException) {
-                throw e;
-            } else {
-                throw new HexProcessingException("Error inesperado procesando archivo HEX", e);
+    /**
+     * Indica si un registro de datos se solapa con alguno de los rangos retenidos. El registro
+     * se conserva entero; lo que quede fuera del rango se recorta después con {@link
+     * MapaSegmentos#filtrarRango(int, int)}.
+     */
+    private boolean estaRetenido(int direccion, int longitud) {
+        if (rangosRetenidos == null) {
+            return true;
+        }
+        int fin = direccion + longitud;
+        for (int i = 0; i + 1 < rangosRetenidos.length; i += 2) {
+            int inicio = rangosRetenidos[i];
+            int limite = rangosRetenidos[i + 1];
+            if ((direccion < inicio && fin > inicio) || (direccion >= inicio && direccion < limite)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Procesa cada línea completa de un String copiándola en bloque al búfer de
+     * línea. La última línea sin salto final queda pendiente para
+     * {@link #terminar()}.
+     */
+    private void cargarLineas(String texto) throws HexProcessingException {
+        int longitud = texto.length();
+        int posicion = 0;
+        while (posicion < longitud && !finDeContenido) {
+            int salto = texto.indexOf('\n', posicion);
+            int finLinea = salto < 0 ? longitud : salto;
+            int caracteres = finLinea - posicion;
+
+            asegurarCapacidadLinea(caracteres);
+            texto.getChars(posicion, finLinea, linea, 0);
+            longitudLinea = caracteres;
+
+            if (salto < 0) {
+                return;
             }
+            procesarLinea();
+            posicion = salto + 1;
+        }
+    }
+
+    private void asegurarCapacidadLinea(int caracteres) {
+        if (caracteres > linea.length) {
+            linea = new char[Math.max(caracteres, linea.length * 2)];
+        }
+    }
+
+    /**
+     * Acumula un carácter de la entrada y procesa la línea al llegar el salto de
+     * línea.
+     */
+    private void procesarCaracter(int c) throws HexProcessingException {
+        if (c == '\n') {
+            procesarLinea();
+            return;
         }
+
+        if (longitudLinea == linea.length) {
+            linea = Arrays.copyOf(linea, linea.length * 2);
+        }
+        linea[longitudLinea++] = (char) c;
     }
 
-    public List<HexRecord> getRecords() {
-        return records;
+    /** Procesa la última línea si el archivo no termina en salto de línea. */
+    private void terminar() throws HexProcessingException {
+        if (!finDeContenido && longitudLinea > 0) {
+            procesarLinea();
+        }
     }
 
     /**
-     * Fusiona todos los registros HEX en un buffer de datos con validación y
+     * Valida y decodifica la línea acumulada.
+     *
+     * <p>
+     * Aplica las mismas comprobaciones, en el mismo orden y con los mismos
+     * diagnósticos, que el parser por expresiones regulares: formato, registro
+     * tras EOF, estructura, longitud declarada, checksum y tipo.
+     */
+    private void procesarLinea() throws HexProcessingException {
+        // En la lectura por flujo, un ';' en la primera columna termina el archivo
+        if (comentarioTerminaArchivo && longitudLinea > 0 && linea[0] == ';') {
+            longitudLinea = 0;
+            finDeContenido = true;
+            return;
+        }
+        numeroLinea++;
+
+        // Equivalente a trim(): descartar caracteres de control y espacios en los extremos
+        int inicio = 0;
+        int fin = longitudLinea;
+        longitudLinea = 0;
+        while (inicio < fin && linea[inicio] <= ' ') {
+            inicio++;
+        }
+        while (fin > inicio && linea[fin - 1] <= ' ') {
+            fin--;
+        }
+
+        // Ignorar líneas vacías o comentarios sangrados (comunes en algunos compiladores/IDE)
+        if (inicio == fin) {
+            return;
+        }
+        hayContenido = true;
+
+        char primero = linea[inicio];
+        if (primero == ';' || primero == '#') {
+            return;
+        }
+
+        // Decodificar todos los pares de dígitos en una sola pasada por tabla,
+        // marcando cualquier carácter no hexadecimal y acumulando la suma de bytes
+        int digitos = fin - inicio - 1;
+        int pares = digitos >> 1;
+        if (pares > registro.length) {
+            registro = new byte[pares];
+        }
+        int invalido = 0;
+        int suma = 0;
+        for (int i = 0, q = inicio + 1; i < pares; i++, q += 2) {
+            char alto = linea[q];
+            char bajo = linea[q + 1];
+            int valorAlto = VALOR_HEX[alto & 0x7F];
+            int valorBajo = VALOR_HEX[bajo & 0x7F];
+            invalido |= ((alto | bajo) >> 7) | ((valorAlto | valorBajo) >>> 31);
+            int valor = (valorAlto << 4) | valorBajo;
+            registro[i] = (byte) valor;
+            suma += valor;
+        }
+        if ((digitos & 1) != 0) {
+            char ultimo = linea[fin - 1];
+            invalido |= (ultimo >> 7) | (VALOR_HEX[ultimo & 0x7F] >>> 31);
+        }
+
+        // Validar formato básico del registro: ':' seguido solo de dígitos hexadecimales
+        if (primero != ':' || digitos == 0 || invalido != 0) {
+            throw HexProcessingException.crearErrorFormato(
+                    numeroLinea,
+                    new String(linea, inicio, fin - inicio),
+                    "Caracteres no hexadecimales o formato incorrecto");
+        }
+
+        // Verificar registros después del EOF
+        if (eof) {
+            throw HexProcessingException.crearErrorFormato(
+                    numeroLinea, new String(linea, inicio, fin - inicio), "Registro extra después del EOF");
+        }
+
+        // Estructura: longitud(2) dirección(4) tipo(2) datos(*) checksum(2)
+        if (digitos < DIGITOS_CABECERA_Y_CHECKSUM) {
+            throw HexProcessingException.crearErrorFormato(
+                    numeroLinea, new String(linea, inicio, fin - inicio), "Estructura del registro incorrecta");
+        }
+
+        int digitosDatos = digitos - DIGITOS_CABECERA_Y_CHECKSUM;
+        if ((digitosDatos & 1) != 0) {
+            throw new HexProcessingException(
+                    "Error en datos hexadecimales: " + new String(linea, inicio + 9, digitosDatos));
+        }
+
+        // Extraer campos del registro
+        int length = registro[0] & 0xFF;
+        int address = (registro[1] & 0xFF) << 8 | (registro[2] & 0xFF);
+        int type = registro[3] & 0xFF;
+        int checksum = registro[pares - 1] & 0xFF;
+
+        // Validar longitud
+        int bytesDatos = digitosDatos / 2;
+        if (length != bytesDatos) {
+            String razon = String.format(
+                    "Longitud declarada (%d) no coincide con datos (%d)",
+                    length, bytesDatos);
+            throw HexProcessingException.crearErrorFormato(
+                    numeroLinea, new String(linea, inicio, fin - inicio), razon);
+        }
+
+        // La suma incluye el checksum: se descuenta para comparar
+        int checksumCalculado = (256 - ((suma - checksum) & 0xFF)) & 0xFF;
+        if (checksumCalculado != checksum) {
+            throw HexProcessingException.crearErrorChecksum(
+                    numeroLinea, new String(linea, inicio, fin - inicio), checksumCalculado, checksum);
+        }
+
+        // Procesar registros según su tipo
+        switch (type) {
+            case 0: // Registro de datos: se copia directamente al mapa de segmentos
+                int direccionCompleta = address | extendedAddress;
+                if (estaRetenido(direccionCompleta, bytesDatos)) {
+                    segmentos.escribir(direccionCompleta, registro, 4, bytesDatos);
+                }
+                break;
+
+            case 1: // EOF
+                eof = true;
+                break;
+
+            case 2: // Extended Segment Address
+                extendedAddress = leerDireccionExtendida(bytesDatos) << 4;
+                break;
+
+            case 4: // Extended Linear Address
+                extendedAddress = leerDireccionExtendida(bytesDatos) << 16;
+                break;
+
+            default:
+                throw HexProcessingException.crearTipoDesconocido(
+                        numeroLinea, new String(linea, inicio, fin - inicio), type);
+        }
+    }
+
+    /**
+     * Lee los dos bytes de datos de un registro de dirección extendida.
+     *
+     * @throws ArrayIndexOutOfBoundsException Si el registro trae menos de dos bytes
+     */
+    private int leerDireccionExtendida(int bytesDatos) {
+        if (bytesDatos < 2) {
+            throw new ArrayIndexOutOfBoundsException(bytesDatos);
+        }
+        return (registro[4] & 0xFF) << 8 | (registro[5] & 0xFF);
+    }
+
+    /** @return Bytes de datos del archivo, agrupados en tramos contiguos por dirección */
+    public MapaSegmentos getSegmentos() {
+        return segmentos;
+    }
+
+    /**
+     * Fusiona todos los segmentos HEX en un buffer de datos con validación y
      * logging.
      *
      * @param dataBuffer Buffer de destino donde fusionar los datos
@@ -200,26 +485,18 @@ public class ProcesadorHex {
 
         try {
 
-            int registrosFusionados = 0;
-            int bytesFusionados = 0;
-
-            for (HexRecord record : records) {
-                int address = record.address;
-                byte[] data = record.data;
+            for (int i = 0; i < segmentos.cantidadSegmentos(); i++) {
+                int address = segmentos.inicio(i);
+                int longitud = segmentos.longitud(i);
 
-                // Validar que el registro cabe en el buffer
-                if ((address + data.length) > dataBuffer.length) {
-                    String mensaje = String.format(
-                            "Registro fuera de rango: addr=0x%06X, len=%d, bufferSize=%d",
-                            address, data.length, dataBuffer.length);
+                // Validar que el segmento cabe en el buffer
+                if ((address + longitud) > dataBuffer.length) {
                     throw HexProcessingException.crearErrorDireccion(
                             -1, address, 0, dataBuffer.length - 1, "BUFFER");
                 }
 
                 // Fusionar datos usando ByteUtils
-                ByteUtils.copiarBytes(context, data, 0, dataBuffer, address, data.length);
-                registrosFusionados++;
-                bytesFusionados += data.length;
+                ByteUtils.copiarBytes(context, segmentos.datos(i), 0, dataBuffer, address, longitud);
             }
 
             return dataBuffer;
@@ -232,52 +509,4 @@ public class ProcesadorHex {
             }
         }
     }
-
-    /**
-     * Verifica el checksum de un registro HEX con logging detallado.
-     *
-     * @param registro         Línea completa del registro
-     * @param checksumEsperado Checksum esperado del registro
-     * @param numeroLinea      Número de línea para logging
-     * @return true si el checksum es válido
-     * @throws HexProcessingException Si el checksum es inválido
-     */
-    private boolean verificarChecksumRegistro(
-            String registro, int checksumEsperado, int numeroLinea) throws HexProcessingException {
-
-        int checksumCalculado = 0;
-
-        // Calcular checksum excluyendo el ':' inicial y los 2 últimos caracteres
-        // (checksum)
-        for (int i = 1; i < registro.length() - 2; i += 2) {
-            String byteHex = registro.substring(i, i + 2);
-            checksumCalculado = (checksumCalculado + Integer.parseInt(byteHex, 16)) % 256;
-        }
-        checksumCalculado = (256 - checksumCalculado) % 256;
-
-        boolean valido = (checksumCalculado == checksumEsperado);
-
-        if (!valido) {
-            throw HexProcessingException.crearErrorChecksum(
-                    numeroLinea, registro, checksumCalculado, checksumEsperado);
-        }
-
-        return true;
-    }
-
-    /**
-     * Convierte string hexadecimal a array de bytes de forma segura.
-     *
-     * @param hexStr String hexadecimal
-     * @return Array de bytes
-     * @throws HexProcessingException Si el string no es válido
-     */
-    private byte[] hexStringToByteArraySeguro(String hexStr) throws HexProcessingException {
-        try {
-            return ByteUtils.hexToBytes(context, hexStr);
-        } catch (IllegalArgumentException e) {
-            throw new HexProcessingException("Error en datos hexadecimales: " + hexStr, e);
-        }
-    }
-
 }
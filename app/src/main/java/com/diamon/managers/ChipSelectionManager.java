@@ -13,6 +13,7 @@ import com.diamon.pic.R;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * Gestor de selección de chips PIC.
@@ -43,9 +44,12 @@ public class ChipSelectionManager {
 
     /**
      * Inicializa la base de datos de chips de forma asíncrona para evitar ANR.
+     *
+     * @param ejecutor Hilo del programador; la base queda cargada antes de la
+     *                 primera operación encolada después
      */
-    public void initializeAsync() {
-        new Thread(() -> {
+    public void initializeAsync(ProgrammerExecutor ejecutor) {
+        Future<?> carga = ejecutor.enviar(context.getString(R.string.cargar_base_de_datos_chips), () -> {
             try {
                 chipReader = new ChipinfoReader(activity);
                 List<String> models = chipReader.getModelosPic();
@@ -61,7 +65,10 @@ public class ChipSelectionManager {
                     notifyError(context.getString(R.string.error_inicializando_base_de_da) + ": " + e.getMessage());
                 });
             }
-        }).start();
+        });
+        if (carga == null) {
+            notifyError(context.getString(R.string.error_inicializando_base_de_da));
+        }
     }
 
     public void setSelectionListener(ChipSelectionListener listener) {
@@ -10,11 +10,10 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.diamon.chip.ChipPic;
+import com.diamon.datos.FuenteHex;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import com.diamon.pic.R;
 
 /**
@@ -25,12 +24,12 @@ public class FileManager {
     private final Context context;
     private final AppCompatActivity activity;
     private FileLoadListener fileLoadListener;
-    private String hexFileContent = "";
+    private FuenteHex fuenteHex;
     private ActivityResultLauncher<String[]> filePickerLauncher;
     private ChipPic currentChip;
 
     public interface FileLoadListener {
-        void onFileLoaded(String content, String fileName);
+        void onFileLoaded(FuenteHex fuente, String fileName);
 
         void onFileLoadError(String errorMessage);
     }
@@ -92,74 +91,79 @@ public class FileManager {
             return;
         }
 
-        hexFileContent = readFileContent(uri, lowerFileName.endsWith(".bin"), currentChip);
+        fuenteHex = readFileContent(uri, lowerFileName.endsWith(".bin"), currentChip);
     }
 
-    /** Lee archivo HEX o BIN y lo retorna en formato Intel HEX textual. */
-    private String readFileContent(Uri uri, boolean isBinary, ChipPic chip) {
+    /** Prepara la fuente del archivo: .bin se convierte a Intel HEX, .hex se lee por flujo. */
+    private FuenteHex readFileContent(Uri uri, boolean isBinary, ChipPic chip) {
         if (isBinary) {
             return readBinaryAsIntelHex(uri, chip);
         }
-        return readHexText(uri);
+        return openHexStream(uri);
     }
 
-    private String readFileContent(Uri uri, boolean isBinary) {
-        return readFileContent(uri, isBinary, null);
-    }
-
-    /** Lee archivo .hex de texto hasta comentario ';' o EOF. */
-    private String readHexText(Uri uri) {
-        try {
-            InputStream inputStream = context.getContentResolver().openInputStream(uri);
-
+    /**
+     * Valida que el .hex tenga contenido y devuelve una fuente que lo vuelve a abrir por flujo
+     * en cada procesamiento, sin cargar el texto completo en memoria.
+     */
+    private FuenteHex openHexStream(Uri uri) {
+        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
             if (inputStream == null) {
                 notifyError(context.getString(R.string.error_abriendo_el_archivo_sele));
-                return "";
+                return null;
             }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-            StringBuilder fileContent = new StringBuilder();
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                // En formato HEX, una línea iniciada con ';' se considera comentario.
-                if (line.length() > 0 && line.charAt(0) == ';') {
-                    break;
-                }
-                fileContent.append(line).append("\n");
-            }
-
-            reader.close();
-            inputStream.close();
-
-            String content = fileContent.toString();
-
-            if (content.trim().isEmpty()) {
+            if (!hasHexContent(inputStream)) {
                 notifyError(context.getString(R.string.el_archivo_seleccionado_esta_v));
-                return "";
+                return null;
             }
 
-            String fileName = getFileName(uri);
-            notifyFileLoaded(content, fileName);
-
-            return content;
+            FuenteHex fuente = FuenteHex.desdeFlujo(
+                    () -> context.getContentResolver().openInputStream(uri));
+            notifyFileLoaded(fuente, getFileName(uri));
+            return fuente;
 
         } catch (IOException e) {
             notifyError(context.getString(R.string.error_leyendo_el_archivo) + ": " + e.getMessage());
-            return "";
+            return null;
         } catch (Exception e) {
             notifyError(context.getString(R.string.error_inesperado_leyendo_el_ar));
-            return "";
+            return null;
+        }
+    }
+
+    /**
+     * Indica si hay algún carácter visible antes del primer comentario ';' al inicio de línea.
+     * Solo lee hasta encontrarlo, normalmente el primer byte.
+     */
+    private boolean hasHexContent(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[512];
+        boolean lineStart = true;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                int c = buffer[i] & 0xFF;
+                if (c == '\n' || c == '\r') {
+                    lineStart = true;
+                } else if (lineStart && c == ';') {
+                    return false;
+                } else if (c > ' ') {
+                    return true;
+                } else {
+                    lineStart = false;
+                }
+            }
         }
+        return false;
     }
 
     /** Lee archivo .bin y lo convierte a Intel HEX de forma segura. */
-    private String readBinaryAsIntelHex(Uri uri, ChipPic chip) {
+    private FuenteHex readBinaryAsIntelHex(Uri uri, ChipPic chip) {
         try {
             InputStream inputStream = context.getContentResolver().openInputStream(uri);
             if (inputStream == null) {
                 notifyError(context.getString(R.string.error_abriendo_el_archivo_sele));
-                return "";
+                return null;
             }
 
             byte[] data = readAllBytes(inputStream);
@@ -167,24 +171,24 @@ public class FileManager {
 
             if (data.length == 0) {
                 notifyError(context.getString(R.string.el_archivo_seleccionado_esta_v));
-                return "";
+                return null;
             }
 
-            String content = binaryToIntelHex(data, chip);
+            FuenteHex fuente = FuenteHex.desdeTexto(binaryToIntelHex(data, chip));
             String fileName = getFileName(uri);
-            notifyFileLoaded(content, fileName);
-            return content;
+            notifyFileLoaded(fuente, fileName);
+            return fuente;
 
         } catch (IOException e) {
             notifyError(context.getString(R.string.error_leyendo_el_archivo) + ": " + e.getMessage());
-            return "";
+            return null;
         } catch (Exception e) {
             notifyError(context.getString(R.string.error_inesperado_leyendo_el_ar));
-            return "";
+            return null;
         }
     }
 
-    private String readBinaryAsIntelHex(Uri uri) {
+    private FuenteHex readBinaryAsIntelHex(Uri uri) {
         return readBinaryAsIntelHex(uri, null);
     }
 
@@ -356,21 +360,21 @@ public class FileManager {
         return fileName;
     }
 
-    public String getHexFileContent() {
-        return hexFileContent;
+    public FuenteHex getFuenteHex() {
+        return fuenteHex;
     }
 
     public boolean hasFileLoaded() {
-        return hexFileContent != null && !hexFileContent.isEmpty();
+        return fuenteHex != null;
     }
 
     public void clearFileContent() {
-        hexFileContent = "";
+        fuenteHex = null;
     }
 
-    private void notifyFileLoaded(String content, String fileName) {
+    private void notifyFileLoaded(FuenteHex fuente, String fileName) {
         if (fileLoadListener != null) {
-            fileLoadListener.onFileLoaded(content, fileName);
+            fileLoadListener.onFileLoaded(fuente, fileName);
         }
     }
 
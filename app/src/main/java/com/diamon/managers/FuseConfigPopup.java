@@ -566,12 +566,7 @@ public class FuseConfigPopup {
                 return;
             }
 
-            List<Integer> fuseList = new ArrayList<>();
-            for (int fuse : hexFuses) {
-                fuseList.add(fuse);
-            }
-
-            Map<String, String> decodedFuses = currentChip.decodeFuseData(fuseList);
+            Map<String, String> decodedFuses = currentChip.decodeFuseData(hexFuses, hexFuses.length);
             restoreConfiguration(decodedFuses);
 
             if (hexID != null && hexID.length > 0) {
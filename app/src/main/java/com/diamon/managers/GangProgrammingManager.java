@@ -0,0 +1,549 @@
+package com.diamon.managers;
+
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbManager;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.content.IntentCompat;
+
+import com.diamon.chip.ChipPic;
+import com.diamon.datos.CacheImagenesProcesadas;
+import com.diamon.datos.DatosPicProcesados;
+import com.diamon.datos.FuenteHex;
+import com.diamon.protocolo.ProtocoloP18A;
+import com.diamon.protocolo.TipoProtocolo;
+import com.diamon.pic.R;
+import com.hoho.android.usbserial.driver.UsbSerialDriver;
+import com.hoho.android.usbserial.driver.UsbSerialPort;
+import com.hoho.android.usbserial.driver.UsbSerialProber;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gestor de grabación múltiple (gang programming) con varios programadores K150.
+ *
+ * Conecta cada programador USB detectado con su propio puerto, protocolo y
+ * gestor de programación, y le asigna un hilo de trabajo exclusivo. La imagen
+ * del firmware se procesa una sola vez y se graba en todos los sockets en
+ * paralelo; el resultado se informa por socket.
+ *
+ * Los programadores conectados aquí no deben estar abiertos a la vez por
+ * UsbConnectionManager: un puerto USB solo admite una conexión.
+ *
+ * Los programadores sin permiso se conectan cuando el usuario lo concede: el
+ * receptor del permiso abre el dispositivo en un hilo propio. Al terminar con
+ * el gestor hay que llamar a {@link #liberar()}.
+ */
+public class GangProgrammingManager {
+
+    private static final String TAG = "GangProgrammingManager";
+    private static final String ACTION_USB_PERMISSION = "com.diamon.pic.USB_PERMISSION_GANG";
+
+    private final Context context;
+    private final UsbManager usbManager;
+    private final SafeBroadcastManager broadcastManager;
+
+    // Abre los programadores a medida que el usuario concede el permiso, fuera del hilo principal
+    private final ProgrammerExecutor hiloConexiones = new ProgrammerExecutor("K150-gang-conexion");
+
+    // Protocolo de la última conexión, para los programadores que se conecten más tarde
+    private TipoProtocolo tipoProtocolo;
+
+    // Imagen compartida por todos los programadores
+    private final CacheImagenesProcesadas cacheImagenes = new CacheImagenesProcesadas();
+
+    // Copia en escritura: cancelarTodos la recorre sin el bloqueo del gestor
+    private final List<Programador> programadores = new CopyOnWriteArrayList<>();
+
+    /**
+     * Interfaz para seguir el progreso de cada socket. Se invoca desde los hilos de trabajo,
+     * o desde el hilo de {@link #programarTodos} si la tarea de un socket no llega a ejecutarse.
+     */
+    public interface GangListener {
+        void onSocketProgress(int socket, String message, int progress);
+
+        void onSocketCompleted(ResultadoSocket resultado);
+    }
+
+    /** Resultado de grabar un socket */
+    public static class ResultadoSocket {
+        public final int socket;
+        public final String dispositivo;
+        public final boolean exito;
+        public final String error;
+        public final long duracionMs;
+
+        public ResultadoSocket(int socket, String dispositivo, boolean exito, String error, long duracionMs) {
+            this.socket = socket;
+            this.dispositivo = dispositivo;
+            this.exito = exito;
+            this.error = error;
+            this.duracionMs = duracionMs;
+        }
+    }
+
+    /** Resultados de una grabación múltiple, en el orden de los sockets */
+    public static class ResultadoGang {
+        public final List<ResultadoSocket> resultados;
+
+        public ResultadoGang(List<ResultadoSocket> resultados) {
+            this.resultados = Collections.unmodifiableList(resultados);
+        }
+
+        public int getExitosos() {
+            int exitosos = 0;
+            for (ResultadoSocket resultado : resultados) {
+                if (resultado.exito) {
+                    exitosos++;
+                }
+            }
+            return exitosos;
+        }
+
+        public int getFallidos() {
+            return resultados.size() - getExitosos();
+        }
+
+        public boolean todosExitosos() {
+            return !resultados.isEmpty() && getFallidos() == 0;
+        }
+    }
+
+    /** Programador conectado con sus recursos exclusivos */
+    private static class Programador {
+        final int socket;
+        final String dispositivo;
+        final UsbSerialPort puerto;
+        final PicProgrammingManager manager;
+        final LinkTuner linkTuner;
+        final String clave;
+        final ProgrammerExecutor hilo;
+
+        Programador(
+                int socket,
+                String dispositivo,
+                UsbSerialPort puerto,
+                PicProgrammingManager manager,
+                LinkTuner linkTuner,
+                String clave) {
+            this.socket = socket;
+            this.dispositivo = dispositivo;
+            this.puerto = puerto;
+            this.manager = manager;
+            this.linkTuner = linkTuner;
+            this.clave = clave;
+            this.hilo = new ProgrammerExecutor("K150-socket-" + socket, 1);
+            this.hilo.setCancelador(manager::cancelarOperacion);
+        }
+    }
+
+    /** Conecta cada programador en cuanto el usuario concede su permiso */
+    private final BroadcastReceiver permisoReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (!ACTION_USB_PERMISSION.equals(intent.getAction())
+                    || !intent.getBooleanExtra(UsbManager.EXTRA_PERMISSION_GRANTED, false)) {
+                return;
+            }
+            UsbDevice dispositivo = IntentCompat.getParcelableExtra(intent, UsbManager.EXTRA_DEVICE, UsbDevice.class);
+            if (dispositivo != null) {
+                hiloConexiones.enviar(
+                        GangProgrammingManager.this.context.getString(R.string.conectando_programador),
+                        () -> {
+                            agregarProgramador(dispositivo);
+                            return null;
+                        });
+            }
+        }
+    };
+
+    /**
+     * Constructor del gestor de grabación múltiple
+     *
+     * @param context Contexto de la aplicacion
+     */
+    public GangProgrammingManager(Context context) {
+        this.context = context;
+        this.usbManager = (UsbManager) context.getSystemService(Context.USB_SERVICE);
+        this.broadcastManager = new SafeBroadcastManager(context);
+        if (!broadcastManager.registerReceiver(
+                permisoReceiver, new IntentFilter(ACTION_USB_PERMISSION), false)) {
+            Log.w(TAG, "No se pudo registrar el receptor de permisos USB");
+        }
+    }
+
+    /**
+     * Detecta todos los programadores USB y conecta los que ya tienen permiso.
+     * Para el resto se solicita el permiso y cada uno se conecta en cuanto el
+     * usuario lo concede. Las conexiones anteriores se cierran.
+     *
+     * Debe llamarse fuera del hilo principal: inicializa cada protocolo.
+     *
+     * @param tipoProtocolo Protocolo a usar en todos los programadores
+     * @return Número de programadores conectados
+     */
+    public synchronized int conectarProgramadores(TipoProtocolo tipoProtocolo) {
+        desconectarTodos();
+        this.tipoProtocolo = tipoProtocolo;
+
+        List<UsbSerialDriver> drivers = UsbSerialProber.getDefaultProber().findAllDrivers(usbManager);
+        for (UsbSerialDriver driver : drivers) {
+            if (driver.getPorts().isEmpty()) {
+                continue;
+            }
+
+            if (!usbManager.hasPermission(driver.getDevice())) {
+                // Mutable: UsbManager añade el dispositivo y el resultado al intent.
+                // Explícito: un intent mutable implícito no se admite desde Android 14.
+                Intent intent = new Intent(ACTION_USB_PERMISSION).setPackage(context.getPackageName());
+                int flags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S ? PendingIntent.FLAG_MUTABLE : 0;
+                PendingIntent permissionIntent = PendingIntent.getBroadcast(context, 0, intent, flags);
+                usbManager.requestPermission(driver.getDevice(), permissionIntent);
+                continue;
+            }
+
+            Programador programador = conectar(driver, programadores.size(), tipoProtocolo);
+            if (programador != null) {
+                programadores.add(programador);
+            }
+        }
+        return programadores.size();
+    }
+
+    /** Conecta un programador cuyo permiso acaba de concederse, si no lo estaba ya */
+    private synchronized void agregarProgramador(UsbDevice dispositivo) {
+        if (tipoProtocolo == null) {
+            return;
+        }
+        for (Programador programador : programadores) {
+            if (programador.dispositivo.equals(dispositivo.getDeviceName())) {
+                return;
+            }
+        }
+        UsbSerialDriver driver = UsbSerialProber.getDefaultProber().probeDevice(dispositivo);
+        if (driver == null || driver.getPorts().isEmpty()) {
+            return;
+        }
+        Programador programador = conectar(driver, programadores.size(), tipoProtocolo);
+        if (programador != null) {
+            programadores.add(programador);
+        }
+    }
+
+    /** Abre el primer puerto del driver e inicia su protocolo, o devuelve null si falla */
+    private Programador conectar(UsbSerialDriver driver, int socket, TipoProtocolo tipoProtocolo) {
+        String dispositivo = driver.getDevice().getDeviceName();
+        UsbSerialPort puerto = driver.getPorts().get(0);
+        try {
+            UsbDeviceConnection conexion = usbManager.openDevice(driver.getDevice());
+            if (conexion == null) {
+                Log.w(TAG, "No se pudo abrir " + dispositivo);
+                return null;
+            }
+            puerto.open(conexion);
+            UsbConnectionManager.configurarPuerto(puerto);
+        } catch (Exception e) {
+            Log.w(TAG, context.getString(R.string.error_de_conexion_usb) + ": " + dispositivo, e);
+            cerrar(puerto);
+            return null;
+        }
+        return iniciar(socket, dispositivo, puerto, LinkTuner.crearClave(driver.getDevice()), tipoProtocolo);
+    }
+
+    /**
+     * Inicia el protocolo sobre un puerto ya abierto, con el enlace más rápido que
+     * soporte, como en la conexión principal. Cierra el puerto si falla.
+     *
+     * @return Programador listo, o null si no responde
+     */
+    private Programador iniciar(
+            int socket, String dispositivo, UsbSerialPort puerto, String clave, TipoProtocolo tipoProtocolo) {
+        try {
+            ProtocoloP18A protocolo = new ProtocoloP18A(context, puerto, tipoProtocolo);
+            LinkTuner linkTuner = new LinkTuner(context);
+            if (!linkTuner.sintonizar(puerto, protocolo, clave)) {
+                Log.w(TAG, context.getString(R.string.error_inicializando_protocolo_) + ": " + dispositivo);
+                cerrar(puerto);
+                return null;
+            }
+            linkTuner.aplicarVentanaROM(protocolo);
+
+            PicProgrammingManager manager = new PicProgrammingManager(context, cacheImagenes);
+            manager.setProtocolo(protocolo);
+            return new Programador(socket, dispositivo, puerto, manager, linkTuner, clave);
+        } catch (Exception e) {
+            Log.w(TAG, context.getString(R.string.error_de_conexion_usb) + ": " + dispositivo, e);
+            cerrar(puerto);
+            return null;
+        }
+    }
+
+    /**
+     * Añade como socket siguiente un puerto ya abierto y configurado, sin pasar
+     * por la detección USB; lo usan las pruebas con programadores simulados.
+     *
+     * @param dispositivo   Nombre del dispositivo
+     * @param puerto        Puerto abierto
+     * @param tipoProtocolo Protocolo del programador
+     * @return true si el programador respondió y quedó conectado
+     */
+    synchronized boolean conectarPuerto(String dispositivo, UsbSerialPort puerto, TipoProtocolo tipoProtocolo) {
+        Programador programador = iniciar(programadores.size(), dispositivo, puerto, dispositivo, tipoProtocolo);
+        if (programador == null) {
+            return false;
+        }
+        programadores.add(programador);
+        return true;
+    }
+
+    /** @return Hilo de trabajo del socket, para las pruebas */
+    ProgrammerExecutor getHiloDelSocket(int socket) {
+        return programadores.get(socket).hilo;
+    }
+
+    /** @return Número de programadores conectados */
+    public synchronized int getCantidadProgramadores() {
+        return programadores.size();
+    }
+
+    /**
+     * Graba la misma imagen en todos los programadores conectados, en paralelo.
+     * Bloquea hasta que terminan todos los sockets; debe llamarse fuera del hilo
+     * principal.
+     *
+     * @param chipPIC      Chip PIC colocado en todos los sockets
+     * @param fuente       Origen del archivo HEX
+     * @param IDPic        ID de usuario, o null
+     * @param fusesUsuario Fuses configurados por el usuario, o null
+     * @param listener     Listener de progreso por socket, o null
+     * @return Resultado de cada socket; vacío si no hay programadores
+     */
+    public synchronized ResultadoGang programarTodos(
+            ChipPic chipPIC,
+            FuenteHex fuente,
+            byte[] IDPic,
+            List<Integer> fusesUsuario,
+            GangListener listener) {
+        List<ResultadoSocket> resultados = new ArrayList<>(programadores.size());
+        if (programadores.isEmpty()) {
+            return new ResultadoGang(resultados);
+        }
+
+        // El HEX se procesa una vez; todos los sockets comparten la imagen de solo lectura
+        DatosPicProcesados datos;
+        try {
+            datos = cacheImagenes.obtenerOProcesar(context, fuente, chipPIC);
+        } catch (Exception e) {
+            String error = context.getString(R.string.error_inesperado) + ": " + e.getMessage();
+            for (Programador programador : programadores) {
+                ResultadoSocket resultado =
+                        new ResultadoSocket(programador.socket, programador.dispositivo, false, error, 0);
+                resultados.add(resultado);
+                notificarCompletado(listener, resultado);
+            }
+            return new ResultadoGang(resultados);
+        }
+
+        // Cada socket lo reclama su tarea al empezar o la espera si se interrumpe antes:
+        // solo quien lo reclama avisa de que terminó
+        List<Future<ResultadoSocket>> pendientes = new ArrayList<>(programadores.size());
+        List<AtomicBoolean> reclamados = new ArrayList<>(programadores.size());
+        for (Programador programador : programadores) {
+            AtomicBoolean reclamado = new AtomicBoolean();
+            reclamados.add(reclamado);
+            pendientes.add(programador.hilo.enviar(
+                    context.getString(R.string.grabacion_multiple),
+                    () -> reclamado.compareAndSet(false, true)
+                            ? programarSocket(programador, chipPIC, datos, IDPic, fusesUsuario, listener)
+                            : null));
+        }
+
+        boolean interrumpido = false;
+        for (int i = 0; i < pendientes.size(); i++) {
+            Programador programador = programadores.get(i);
+            Future<ResultadoSocket> pendiente = pendientes.get(i);
+            ResultadoSocket resultado;
+            if (pendiente == null) {
+                // La tarea no llegó a encolarse: nadie más avisará de este socket
+                resultado = new ResultadoSocket(
+                        programador.socket,
+                        programador.dispositivo,
+                        false,
+                        context.getString(R.string.programador_ocupado),
+                        0);
+                notificarCompletado(listener, resultado);
+            } else if (interrumpido) {
+                resultado = resultadoTrasInterrupcion(programador, pendiente, reclamados.get(i), listener);
+            } else {
+                try {
+                    resultado = pendiente.get();
+                } catch (InterruptedException e) {
+                    // Los sockets en curso terminan su bloque y avisan ellos mismos
+                    interrumpido = true;
+                    cancelarTodos();
+                    resultado = resultadoTrasInterrupcion(programador, pendiente, reclamados.get(i), listener);
+                } catch (ExecutionException e) {
+                    resultado = resultadoConExcepcion(programador, e, listener);
+                }
+            }
+            resultados.add(resultado);
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+        return new ResultadoGang(resultados);
+    }
+
+    /** Graba un socket en su hilo de trabajo */
+    private ResultadoSocket programarSocket(
+            Programador programador,
+            ChipPic chipPIC,
+            DatosPicProcesados datos,
+            byte[] IDPic,
+            List<Integer> fusesUsuario,
+            GangListener listener) {
+        final String[] ultimoError = new String[1];
+        programador.manager.setProgrammingListener(new PicProgrammingManager.ProgrammingListener() {
+            @Override
+            public void onProgrammingStarted() {}
+
+            @Override
+            public void onProgrammingProgress(String message, int progress) {
+                if (listener != null) {
+                    listener.onSocketProgress(programador.socket, message, progress);
+                }
+            }
+
+            @Override
+            public void onProgrammingCompleted(boolean success) {}
+
+            @Override
+            public void onProgrammingError(String errorMessage) {
+                ultimoError[0] = errorMessage;
+            }
+        });
+
+        long inicio = System.nanoTime();
+        boolean exito = programador.manager.programChip(chipPIC, datos, IDPic, fusesUsuario);
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000L;
+        programador.linkTuner.recordarVentanaROM(programador.manager.getProtocolo(), programador.clave);
+
+        ResultadoSocket resultado = new ResultadoSocket(
+                programador.socket, programador.dispositivo, exito, exito ? null : ultimoError[0], duracionMs);
+        notificarCompletado(listener, resultado);
+        return resultado;
+    }
+
+    /**
+     * Resultado de un socket cuando la espera de programarTodos se interrumpe. Una tarea
+     * terminada aporta su resultado real. Si la tarea aún no había empezado, se reclama el
+     * socket para que no llegue a grabar y se avisa aquí; una tarea en curso avisará ella
+     * misma al terminar, así que solo se informa como interrumpida en el resultado devuelto.
+     */
+    private ResultadoSocket resultadoTrasInterrupcion(
+            Programador programador,
+            Future<ResultadoSocket> pendiente,
+            AtomicBoolean reclamado,
+            GangListener listener) {
+        if (pendiente.isDone() && !pendiente.isCancelled()) {
+            try {
+                ResultadoSocket resultado = pendiente.get();
+                if (resultado != null) {
+                    return resultado;
+                }
+            } catch (ExecutionException e) {
+                return resultadoConExcepcion(programador, e, listener);
+            } catch (InterruptedException e) {
+                // No ocurre: la tarea ya terminó
+            }
+        }
+        ResultadoSocket resultado = new ResultadoSocket(
+                programador.socket,
+                programador.dispositivo,
+                false,
+                context.getString(R.string.grabacion_interrumpida),
+                0);
+        if (reclamado.compareAndSet(false, true)) {
+            pendiente.cancel(false);
+            notificarCompletado(listener, resultado);
+        }
+        return resultado;
+    }
+
+    /** La tarea terminó con una excepción antes de avisar */
+    private ResultadoSocket resultadoConExcepcion(
+            Programador programador, ExecutionException e, GangListener listener) {
+        ResultadoSocket resultado = new ResultadoSocket(
+                programador.socket,
+                programador.dispositivo,
+                false,
+                context.getString(R.string.error_inesperado) + ": " + e.getCause().getMessage(),
+                0);
+        notificarCompletado(listener, resultado);
+        return resultado;
+    }
+
+    private static void notificarCompletado(GangListener listener, ResultadoSocket resultado) {
+        if (listener != null) {
+            listener.onSocketCompleted(resultado);
+        }
+    }
+
+    /**
+     * Cancela la grabación en curso en todos los sockets. Cada socket termina
+     * su bloque actual y programarTodos devuelve el resultado como fallido.
+     * No está sincronizado para poder llamarse mientras programarTodos bloquea.
+     */
+    public void cancelarTodos() {
+        for (Programador programador : programadores) {
+            programador.manager.cancelarOperacion();
+        }
+    }
+
+    /**
+     * Cierra todos los puertos y detiene los hilos de trabajo. Las grabaciones
+     * en curso se cancelan a la vez y cada puerto se cierra cuando su hilo
+     * termina o vence la espera de {@link ProgrammerExecutor#cerrar()}.
+     */
+    public synchronized void desconectarTodos() {
+        cancelarTodos();
+        for (Programador programador : programadores) {
+            programador.hilo.cerrar();
+            cerrar(programador.puerto);
+        }
+        programadores.clear();
+    }
+
+    /**
+     * Desconecta todos los programadores y deja de escuchar los permisos USB.
+     * El gestor no puede usarse después.
+     */
+    public synchronized void liberar() {
+        broadcastManager.unregisterReceiver(permisoReceiver);
+        hiloConexiones.cerrar();
+        tipoProtocolo = null;
+        desconectarTodos();
+    }
+
+    private static void cerrar(UsbSerialPort puerto) {
+        try {
+            puerto.close();
+        } catch (IOException e) {
+            // Ignorar errores al cerrar
+        }
+    }
+}
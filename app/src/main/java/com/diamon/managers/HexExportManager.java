@@ -245,49 +245,6 @@ public class HexExportManager {
         createDocumentLauncher.launch(suggestedName + ".bin");
     }
 
-    /**
-     * Exporta un string hexadecimal (como el retornado por leerMemoriaROMDelPic)
-     * como archivo Intel HEX.
-     *
-     * @param hexString     String hexadecimal con los datos de memoria
-     * @param suggestedName Nombre sugerido para el archivo
-     */
-    public void exportHexStringAsFile(String hexString, String suggestedName) {
-        if (hexString == null || hexString.isEmpty() || hexString.startsWith("Error")) {
-            notifyError(context.getString(com.diamon.pic.R.string.no_hay_datos_validos_para_exportar));
-            return;
-        }
-
-        byte[] data = hexStringToBytes(hexString);
-        if (data == null) {
-            notifyError(context.getString(com.diamon.pic.R.string.error_convirtiendo_datos_hex));
-            return;
-        }
-
-        exportAsHex(data, suggestedName);
-    }
-
-    /**
-     * Exporta un string hexadecimal como archivo binario crudo.
-     *
-     * @param hexString     String hexadecimal con los datos de memoria
-     * @param suggestedName Nombre sugerido para el archivo
-     */
-    public void exportBinStringAsFile(String hexString, String suggestedName) {
-        if (hexString == null || hexString.isEmpty() || hexString.startsWith("Error")) {
-            notifyError(context.getString(com.diamon.pic.R.string.no_hay_datos_validos_para_exportar));
-            return;
-        }
-
-        byte[] data = hexStringToBytes(hexString);
-        if (data == null) {
-            notifyError(context.getString(com.diamon.pic.R.string.error_convirtiendo_datos_hex));
-            return;
-        }
-
-        exportAsBinary(data, suggestedName);
-    }
-
     /**
      * Escribe los datos al URI seleccionado por el usuario.
      */
@@ -459,26 +416,6 @@ public class HexExportManager {
         return record.toString();
     }
 
-    /**
-     * Convierte un string hexadecimal a array de bytes.
-     */
-    private byte[] hexStringToBytes(String hexStr) {
-        try {
-            String clean = hexStr.replaceAll("\\s+", "");
-            if (clean.length() % 2 != 0) {
-                return null;
-            }
-
-            byte[] result = new byte[clean.length() / 2];
-            for (int i = 0; i < result.length; i++) {
-                result[i] = (byte) Integer.parseInt(clean.substring(i * 2, i * 2 + 2), 16);
-            }
-            return result;
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
     private void notifyError(String errorMessage) {
         if (exportListener != null) {
             exportListener.onExportError(errorMessage);
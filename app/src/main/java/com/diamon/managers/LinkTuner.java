@@ -0,0 +1,362 @@
+package com.diamon.managers;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.hardware.usb.UsbDevice;
+import android.util.Log;
+
+import com.diamon.nucleo.Protocolo;
+import com.diamon.protocolo.ProtocoloP18A;
+import com.hoho.android.usbserial.driver.FtdiSerialDriver;
+import com.hoho.android.usbserial.driver.UsbSerialPort;
+
+import java.io.IOException;
+
+/**
+ * Ajuste del enlace serie con el programador.
+ *
+ * Busca la velocidad más alta y la latencia más baja con las que el
+ * programador responde de forma fiable y guarda el resultado por dispositivo,
+ * para no repetir la búsqueda en cada conexión. Si el enlace ajustado empieza
+ * a fallar vuelve a los parámetros por defecto y lo recuerda.
+ *
+ * En los K150 clásicos la UART del firmware trabaja a 19200 baudios y la
+ * búsqueda termina ahí; los clones con USB nativo aceptan cualquier velocidad.
+ * En los puentes FTDI se baja además el temporizador de latencia, que por
+ * defecto retiene cada respuesta corta (los ACK) hasta 16 ms.
+ *
+ * Con el ajuste se guarda también la ventana de escritura ROM. Empieza en
+ * lock-step y solo se amplía cuando la primera grabación de un chip borrado
+ * supera {@link ProtocoloP18A#probarVentanaEscrituraROM}.
+ *
+ * Todos los métodos usan el puerto: deben llamarse desde el hilo que lo posee.
+ */
+public class LinkTuner {
+
+    private static final String TAG = "LinkTuner";
+    private static final String PREFERENCIAS = "ajuste_enlace_usb";
+
+    /** Velocidad del firmware K150 */
+    public static final int BAUDIOS_POR_DEFECTO = 19200;
+
+    /** Velocidades a probar, de mayor a menor; la última es la del firmware */
+    static final int[] BAUDIOS_CANDIDATOS = { 115200, 57600, 38400, BAUDIOS_POR_DEFECTO };
+
+    /** Latencia de fábrica del puente FTDI en milisegundos */
+    public static final int LATENCIA_POR_DEFECTO_MS = 16;
+
+    private static final int LATENCIA_MINIMA_MS = 1;
+
+    /** Ida y vuelta consecutivas que debe superar un ajuste distinto del de fábrica */
+    private static final int SALUDOS_POR_PRUEBA = 3;
+
+    /** Operaciones fallidas seguidas antes de volver a los parámetros por defecto */
+    private static final int FALLOS_PARA_DEGRADAR = 2;
+
+    /** Parámetros del enlace serie */
+    public static final class AjusteEnlace {
+        /** Ajuste de fábrica: 19200 baudios sin tocar la latencia */
+        public static final AjusteEnlace POR_DEFECTO = new AjusteEnlace(BAUDIOS_POR_DEFECTO, -1);
+
+        public final int baudios;
+        /** Temporizador de latencia en ms, o -1 si no se modifica */
+        public final int latenciaMs;
+        /** Ventana de escritura ROM comprobada, o 0 si aún no se ha probado */
+        public final int ventanaROM;
+
+        public AjusteEnlace(int baudios, int latenciaMs) {
+            this(baudios, latenciaMs, 0);
+        }
+
+        public AjusteEnlace(int baudios, int latenciaMs, int ventanaROM) {
+            this.baudios = baudios;
+            this.latenciaMs = latenciaMs;
+            this.ventanaROM = ventanaROM;
+        }
+
+        public boolean esPorDefecto() {
+            return baudios == BAUDIOS_POR_DEFECTO
+                    && (latenciaMs < 0 || latenciaMs == LATENCIA_POR_DEFECTO_MS);
+        }
+
+        /**
+         * Bloques ROM que pueden enviarse sin esperar su confirmación: los
+         * que se comprobaron con este dispositivo, o 1 (lock-step) mientras
+         * no se haya probado.
+         *
+         * @return Ventana para {@link ProtocoloP18A#setVentanaEscrituraROM(int)}
+         */
+        public int getVentanaEscrituraROM() {
+            return Math.max(1, ventanaROM);
+        }
+
+        /**
+         * Ventana que queda por probar. Solo los clones con USB nativo pasan
+         * de 19200 baudios, y reciben por su endpoint con control de flujo;
+         * en el K150 clásico la UART del PIC guarda 2 bytes mientras graba,
+         * así que ni siquiera se prueba.
+         *
+         * @return Ventana para {@link ProtocoloP18A#setVentanaEscrituraROMCandidata(int)}
+         */
+        public int getVentanaEscrituraROMPorProbar() {
+            return ventanaROM == 0 && baudios > BAUDIOS_POR_DEFECTO ? ProtocoloP18A.VENTANA_MAXIMA_ROM : 1;
+        }
+
+        /** @return Este ajuste con la ventana ROM ya probada */
+        AjusteEnlace conVentanaROM(int ventana) {
+            return new AjusteEnlace(baudios, latenciaMs, ventana);
+        }
+
+        String aTexto() {
+            return baudios + "," + latenciaMs + "," + ventanaROM;
+        }
+
+        /**
+         * Los ajustes guardados antes de existir la ventana ROM tienen dos
+         * campos y se leen como no probados.
+         *
+         * @return Ajuste guardado, o null si el texto no es válido
+         */
+        static AjusteEnlace desdeTexto(String texto) {
+            if (texto == null) {
+                return null;
+            }
+            String[] partes = texto.split(",");
+            if (partes.length != 2 && partes.length != 3) {
+                return null;
+            }
+            try {
+                return new AjusteEnlace(
+                        Integer.parseInt(partes[0]),
+                        Integer.parseInt(partes[1]),
+                        partes.length == 3 ? Integer.parseInt(partes[2]) : 0);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            String texto = latenciaMs >= 0
+                    ? baudios + " baudios, latencia " + latenciaMs + " ms"
+                    : baudios + " baudios";
+            return ventanaROM > 1 ? texto + ", ventana ROM " + ventanaROM : texto;
+        }
+    }
+
+    private final SharedPreferences preferencias;
+    private AjusteEnlace ajusteActual = AjusteEnlace.POR_DEFECTO;
+    private int fallosSeguidos;
+
+    /**
+     * Constructor del ajustador del enlace
+     *
+     * @param context Contexto de la aplicacion
+     */
+    public LinkTuner(Context context) {
+        this.preferencias = context.getSharedPreferences(PREFERENCIAS, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Identifica el dispositivo por fabricante, producto y número de serie, que
+     * se mantienen entre reconexiones.
+     *
+     * @param dispositivo Dispositivo USB con permiso concedido
+     * @return Clave del dispositivo
+     */
+    public static String crearClave(UsbDevice dispositivo) {
+        String clave = String.format("%04X:%04X", dispositivo.getVendorId(), dispositivo.getProductId());
+        try {
+            String serie = dispositivo.getSerialNumber();
+            if (serie != null) {
+                clave += ":" + serie;
+            }
+        } catch (SecurityException e) {
+            // Sin permiso para leer el número de serie: basta con el modelo
+        }
+        return clave;
+    }
+
+    /**
+     * Ajusta el enlace de un puerto recién abierto e inicia el protocolo. Usa el
+     * ajuste guardado del dispositivo; si no lo hay o dejó de funcionar, busca
+     * uno nuevo y lo guarda.
+     *
+     * @param puerto    Puerto abierto
+     * @param protocolo Protocolo sobre el puerto
+     * @param clave     Clave del dispositivo
+     * @return true si el protocolo quedó iniciado
+     */
+    public boolean sintonizar(UsbSerialPort puerto, Protocolo protocolo, String clave) {
+        fallosSeguidos = 0;
+
+        AjusteEnlace guardado = AjusteEnlace.desdeTexto(preferencias.getString(clave, null));
+        if (guardado != null) {
+            if (aplicarYProbar(puerto, protocolo, guardado)) {
+                ajusteActual = guardado;
+                return true;
+            }
+            Log.w(TAG, "El ajuste guardado dejó de responder: " + guardado);
+            preferencias.edit().remove(clave).apply();
+        }
+
+        AjusteEnlace encontrado = buscar(puerto, protocolo);
+        if (encontrado == null) {
+            ajusteActual = AjusteEnlace.POR_DEFECTO;
+            return false;
+        }
+        Log.i(TAG, "Enlace ajustado a " + encontrado + " para " + clave);
+        preferencias.edit().putString(clave, encontrado.aTexto()).apply();
+        ajusteActual = encontrado;
+        return true;
+    }
+
+    /** Prueba de la combinación más rápida a la de fábrica; null si ninguna responde */
+    private AjusteEnlace buscar(UsbSerialPort puerto, Protocolo protocolo) {
+        boolean ftdi = puerto instanceof FtdiSerialDriver.FtdiSerialPort;
+        for (int baudios : BAUDIOS_CANDIDATOS) {
+            if (ftdi) {
+                AjusteEnlace rapido = new AjusteEnlace(baudios, LATENCIA_MINIMA_MS);
+                if (aplicarYProbar(puerto, protocolo, rapido)) {
+                    return rapido;
+                }
+            }
+            AjusteEnlace ajuste = new AjusteEnlace(baudios, ftdi ? LATENCIA_POR_DEFECTO_MS : -1);
+            if (aplicarYProbar(puerto, protocolo, ajuste)) {
+                return ajuste;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Aplica un ajuste y comprueba que el programador responde. El de fábrica
+     * solo necesita el saludo inicial, como antes de existir el ajuste; los
+     * demás deben devolver la misma identificación varias veces seguidas.
+     *
+     * Antes del saludo se vacía la recepción: un intento fallido a otra
+     * velocidad deja respuestas tardías o bytes mal enmarcados que, si no, se
+     * tomarían por la respuesta de este.
+     */
+    private boolean aplicarYProbar(UsbSerialPort puerto, Protocolo protocolo, AjusteEnlace ajuste) {
+        try {
+            aplicar(puerto, ajuste);
+            if (!protocolo.descartarRecepcion() || !protocolo.iniciarProtocolo()) {
+                return false;
+            }
+            if (ajuste.esPorDefecto()) {
+                return true;
+            }
+
+            String primera = protocolo.obtenerProtocoloDelProgramador();
+            if (!esIdentificacionValida(primera)) {
+                return false;
+            }
+            for (int i = 1; i < SALUDOS_POR_PRUEBA; i++) {
+                if (!primera.equals(protocolo.obtenerProtocoloDelProgramador())) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /** Las respuestas válidas empiezan por el nombre del protocolo, p. ej. "P18A" */
+    private static boolean esIdentificacionValida(String respuesta) {
+        if (respuesta == null || respuesta.length() < 4 || respuesta.charAt(0) != 'P') {
+            return false;
+        }
+        for (int i = 1; i < 4; i++) {
+            if (!Character.isLetterOrDigit(respuesta.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void aplicar(UsbSerialPort puerto, AjusteEnlace ajuste) throws IOException {
+        UsbConnectionManager.configurarPuerto(puerto, ajuste.baudios);
+        if (ajuste.latenciaMs >= 0 && puerto instanceof FtdiSerialDriver.FtdiSerialPort) {
+            ((FtdiSerialDriver.FtdiSerialPort) puerto).setLatencyTimer(ajuste.latenciaMs);
+        }
+    }
+
+    /** Registra una operación correcta: el enlace ajustado sigue siendo fiable */
+    public void registrarExito() {
+        fallosSeguidos = 0;
+    }
+
+    /**
+     * Registra una operación fallida. Tras varios fallos seguidos con un ajuste
+     * distinto del de fábrica vuelve a 19200 baudios y latencia por defecto,
+     * reinicia el protocolo y guarda el cambio para las próximas conexiones.
+     *
+     * @param puerto    Puerto del programador
+     * @param protocolo Protocolo sobre el puerto
+     * @param clave     Clave del dispositivo
+     * @return true si se volvió a los parámetros por defecto
+     */
+    public boolean registrarFallo(UsbSerialPort puerto, Protocolo protocolo, String clave) {
+        if (ajusteActual.esPorDefecto() || ++fallosSeguidos < FALLOS_PARA_DEGRADAR) {
+            return false;
+        }
+        Log.w(TAG, "Fallos repetidos con " + ajusteActual + ": vuelta a los parámetros por defecto");
+        fallosSeguidos = 0;
+
+        AjusteEnlace seguro = puerto instanceof FtdiSerialDriver.FtdiSerialPort
+                ? new AjusteEnlace(BAUDIOS_POR_DEFECTO, LATENCIA_POR_DEFECTO_MS)
+                : AjusteEnlace.POR_DEFECTO;
+        ajusteActual = seguro;
+        preferencias.edit().putString(clave, seguro.aTexto()).apply();
+        aplicarYProbar(puerto, protocolo, seguro);
+        return true;
+    }
+
+    /**
+     * Pasa al protocolo la ventana ROM del ajuste actual y, si aún no se ha
+     * probado, la ventana candidata. Debe llamarse tras sintonizar y tras
+     * volver a los parámetros por defecto.
+     *
+     * @param protocolo Protocolo sobre el puerto
+     */
+    public void aplicarVentanaROM(ProtocoloP18A protocolo) {
+        protocolo.setVentanaEscrituraROM(ajusteActual.getVentanaEscrituraROM());
+        protocolo.setVentanaEscrituraROMCandidata(ajusteActual.getVentanaEscrituraROMPorProbar());
+    }
+
+    /**
+     * Guarda el resultado de la prueba de la ventana ROM si el protocolo la
+     * hizo durante la última operación; si no, no hace nada.
+     *
+     * @param protocolo Protocolo sobre el puerto
+     * @param clave     Clave del dispositivo
+     * @return true si se guardó una ventana nueva
+     */
+    public boolean recordarVentanaROM(ProtocoloP18A protocolo, String clave) {
+        if (ajusteActual.getVentanaEscrituraROMPorProbar() <= 1
+                || protocolo.getVentanaEscrituraROMCandidata() > 1) {
+            return false;
+        }
+        ajusteActual = ajusteActual.conVentanaROM(protocolo.getVentanaEscrituraROM());
+        Log.i(TAG, "Ventana ROM probada para " + clave + ": " + ajusteActual);
+        preferencias.edit().putString(clave, ajusteActual.aTexto()).apply();
+        return true;
+    }
+
+    /** @return Ajuste en uso en la conexión actual */
+    public AjusteEnlace getAjusteActual() {
+        return ajusteActual;
+    }
+
+    /**
+     * Olvida el ajuste guardado de un dispositivo para volver a buscarlo en la
+     * próxima conexión.
+     *
+     * @param clave Clave del dispositivo
+     */
+    public void olvidar(String clave) {
+        preferencias.edit().remove(clave).apply();
+    }
+}
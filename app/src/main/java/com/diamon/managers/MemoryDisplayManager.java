@@ -25,6 +25,7 @@ import android.widget.ScrollView;
 import android.widget.TextView;
 
 import com.diamon.pic.R;
+import com.diamon.utilidades.ByteUtils;
 
 /**
  * Gestor de visualizacion de memoria - VERSION MEJORADA
@@ -123,7 +124,7 @@ public class MemoryDisplayManager {
      * Actualiza el popup con los datos de memoria.
      * Llamar DESPUES de que la lectura termine.
      */
-    public void updateWithData(String romData, int romSize, String eepromData, int eepromSize, boolean hasEeprom) {
+    public void updateWithData(byte[] romData, int romSize, byte[] eepromData, int eepromSize, boolean hasEeprom) {
         if (memoryPopup == null || !memoryPopup.isShowing()) {
             return;
         }
@@ -153,7 +154,7 @@ public class MemoryDisplayManager {
 
         if (romContainer != null) {
             romContainer.removeAllViews();
-            displayDataWithColors(romContainer, romData != null ? romData : "", 4, 8, true, romSize);
+            displayDataWithColors(romContainer, romData != null ? romData : new byte[0], 2, 8, true, romSize);
         }
 
         if (hasEeprom) {
@@ -165,7 +166,7 @@ public class MemoryDisplayManager {
             }
             if (eepromContainer != null) {
                 eepromContainer.removeAllViews();
-                displayDataWithColors(eepromContainer, eepromData != null ? eepromData : "", 2, 8, false, eepromSize);
+                displayDataWithColors(eepromContainer, eepromData != null ? eepromData : new byte[0], 1, 8, false, eepromSize);
             }
         }
 
@@ -177,7 +178,7 @@ public class MemoryDisplayManager {
     /**
      * Metodo legacy para compatibilidad.
      */
-    public void showMemoryDataPopup(String romData, int romSize, String eepromData, int eepromSize, boolean hasEeprom) {
+    public void showMemoryDataPopup(byte[] romData, int romSize, byte[] eepromData, int eepromSize, boolean hasEeprom) {
         showLoadingState();
         new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
             updateWithData(romData, romSize, eepromData, eepromSize, hasEeprom);
@@ -335,12 +336,17 @@ public class MemoryDisplayManager {
         return container;
     }
 
-    private void displayDataWithColors(LinearLayout container, String data, int groupSize, int columns, boolean isROM,
-            int memorySize) {
+    /**
+     * Muestra los datos leídos en filas de {@code columns} grupos.
+     *
+     * @param bytesPerGroup 2 para palabras ROM, 1 para bytes EEPROM
+     */
+    private void displayDataWithColors(LinearLayout container, byte[] data, int bytesPerGroup, int columns,
+            boolean isROM, int memorySize) {
         int address = 0;
-        int bytesPerRow = groupSize * columns;
+        int bytesPerRow = bytesPerGroup * columns;
 
-        for (int i = 0; i < data.length(); i += bytesPerRow) {
+        for (int i = 0; i < data.length; i += bytesPerRow) {
             StringBuilder hexPart = new StringBuilder();
             StringBuilder asciiPart = new StringBuilder();
 
@@ -348,39 +354,36 @@ public class MemoryDisplayManager {
             hexPart.append(addressHex).append(": ");
 
             for (int j = 0; j < columns; j++) {
-                int start = i + j * groupSize;
-                int end = Math.min(start + groupSize, data.length());
+                int start = i + j * bytesPerGroup;
+                int end = Math.min(start + bytesPerGroup, data.length);
 
-                if (start < data.length()) {
-                    String hexGroup = data.substring(start, end);
-                    hexPart.append(hexGroup).append(" ");
+                if (start < data.length) {
+                    ByteUtils.appendHexToBuilder(data, start, end - start, hexPart);
+                    hexPart.append(" ");
 
                     if (isROM) {
-                        if (hexGroup.length() >= 2) {
-                            String lowByteHex = hexGroup.substring(hexGroup.length() - 2);
-                            appendAscii(asciiPart, lowByteHex);
-                        }
+                        // Byte bajo de la palabra
+                        appendAscii(asciiPart, data[end - 1]);
                     } else {
-                        for (int k = 0; k < hexGroup.length(); k += 2) {
-                            if (k + 2 <= hexGroup.length()) {
-                                appendAscii(asciiPart, hexGroup.substring(k, k + 2));
-                            }
+                        for (int k = start; k < end; k++) {
+                            appendAscii(asciiPart, data[k]);
                         }
                     }
                 }
             }
 
             String fullText = hexPart.toString() + "│" + asciiPart.toString();
-            TextView rowTextView = createColoredRowWithAscii(fullText, addressHex, groupSize, isROM, hexPart.length());
+            TextView rowTextView = createColoredRowWithAscii(fullText, addressHex, bytesPerGroup * 2, isROM,
+                    hexPart.length());
             container.addView(rowTextView);
 
             address += columns;
         }
 
-        int totalDataRows = (int) Math.ceil(data.length() / (double) bytesPerRow);
+        int totalDataRows = (int) Math.ceil(data.length / (double) bytesPerRow);
         int totalMemoryRows = (int) Math.ceil(memorySize / (double) columns);
 
-        String emptyValue = isROM ? (groupSize == 4 ? "3FFF" : "FFFF") : "FF";
+        String emptyValue = isROM ? (bytesPerGroup == 2 ? "3FFF" : "FFFF") : "FF";
 
         for (int i = totalDataRows; i < totalMemoryRows && i < totalDataRows + 50; i++) {
             String addressHex = String.format("%04X", address);
@@ -391,13 +394,14 @@ public class MemoryDisplayManager {
 
             for (int j = 0; j < columns; j++) {
                 hexPart.append(emptyValue).append(" ");
-                for (int k = 0; k < groupSize / 2; k++) {
+                for (int k = 0; k < bytesPerGroup; k++) {
                     asciiPart.append('.');
                 }
             }
 
             String fullText = hexPart.toString() + "│" + asciiPart.toString();
-            TextView rowTextView = createColoredRowWithAscii(fullText, addressHex, groupSize, isROM, hexPart.length());
+            TextView rowTextView = createColoredRowWithAscii(fullText, addressHex, bytesPerGroup * 2, isROM,
+                    hexPart.length());
             container.addView(rowTextView);
 
             address += columns;
@@ -537,13 +541,8 @@ public class MemoryDisplayManager {
         return Math.round(dp * context.getResources().getDisplayMetrics().density);
     }
 
-    private void appendAscii(StringBuilder builder, String hexByte) {
-        try {
-            int value = Integer.parseInt(hexByte, 16);
-            char c = (value >= 32 && value <= 126) ? (char) value : '.';
-            builder.append(c);
-        } catch (NumberFormatException e) {
-            builder.append('.');
-        }
+    private void appendAscii(StringBuilder builder, byte value) {
+        int c = value & 0xFF;
+        builder.append((c >= 32 && c <= 126) ? (char) c : '.');
     }
 }
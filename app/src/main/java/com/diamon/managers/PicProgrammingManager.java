@@ -3,10 +3,19 @@ package com.diamon.managers;
 import android.content.Context;
 
 import com.diamon.chip.ChipPic;
+import com.diamon.datos.CacheImagenesProcesadas;
+import com.diamon.datos.CacheUltimasImagenes;
 import com.diamon.datos.DatosPicProcesados;
+import com.diamon.datos.FuenteHex;
+import com.diamon.excepciones.ChipConfigurationException;
+import com.diamon.excepciones.HexProcessingException;
+import com.diamon.nucleo.ResultadoLectura;
+import com.diamon.nucleo.TokenCancelacion;
 import com.diamon.protocolo.ProtocoloP18A;
 import com.diamon.pic.R;
+import com.diamon.utilidades.HexFileUtils;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -23,6 +32,23 @@ public class PicProgrammingManager {
     // Interfaz para notificar el progreso de operaciones
     private ProgrammingListener programmingListener;
 
+    // Búferes reutilizables para las lecturas internas de blank-check
+    private byte[] bufferLecturaROM;
+    private byte[] bufferLecturaEEPROM;
+    private byte[] bufferLecturaConfig;
+
+    // Bytes válidos de bufferLecturaROM tras la última lectura completa de la ROM
+    private int longitudLecturaROM;
+
+    // Imágenes ya procesadas, para no repetir el análisis del HEX en cada chip grabado
+    private final CacheImagenesProcesadas cacheImagenes;
+
+    // Última ROM grabada en cada chip, para la reprogramación diferencial
+    private final CacheUltimasImagenes ultimasImagenes = new CacheUltimasImagenes();
+
+    // Token de la operación en curso; cancelarOperacion() lo marca desde otro hilo
+    private volatile TokenCancelacion tokenEnCurso;
+
     /** Interfaz para manejar eventos de programacion */
     public interface ProgrammingListener {
         void onProgrammingStarted();
@@ -76,7 +102,19 @@ public class PicProgrammingManager {
      * @param context Contexto de la aplicacion
      */
     public PicProgrammingManager(Context context) {
+        this(context, new CacheImagenesProcesadas());
+    }
+
+    /**
+     * Constructor que comparte la caché de imágenes con otros gestores, por ejemplo
+     * uno por programador en la grabación múltiple
+     *
+     * @param context       Contexto de la aplicacion
+     * @param cacheImagenes Caché de imágenes procesadas compartida
+     */
+    public PicProgrammingManager(Context context, CacheImagenesProcesadas cacheImagenes) {
         this.context = context;
+        this.cacheImagenes = cacheImagenes;
     }
 
     /**
@@ -115,31 +153,190 @@ public class PicProgrammingManager {
      */
     public boolean programChip(
             ChipPic chipPIC, String firmware, byte[] IDPic, List<Integer> fusesUsuario) {
+        return programChip(chipPIC, crearFuente(firmware), IDPic, fusesUsuario);
+    }
+
+    /**
+     * Programa completamente un chip PIC leyendo el firmware desde su fuente
+     *
+     * @param chipPIC Chip PIC a programar
+     * @param fuente  Origen del archivo HEX
+     * @return true si la programacion fue exitosa, false en caso contrario
+     */
+    public boolean programChip(
+            ChipPic chipPIC, FuenteHex fuente, byte[] IDPic, List<Integer> fusesUsuario) {
+        if (protocolo == null) {
+            notifyError(context.getString(R.string.protocolo_no_inicializado));
+            return false;
+        }
+
+        if (chipPIC == null || fuente == null) {
+            notifyError(context.getString(R.string.datos_invalidos_para_programac));
+            return false;
+        }
+
+        DatosPicProcesados datosPicProcesados;
+        try {
+            datosPicProcesados = obtenerDatosProcesados(chipPIC, fuente);
+        } catch (Exception e) {
+            notifyStarted();
+            notifyError(context.getString(R.string.error_inesperado) + ": " + e.getMessage());
+            return false;
+        }
+        return programChip(chipPIC, datosPicProcesados, IDPic, fusesUsuario);
+    }
+
+    /**
+     * Reprograma un chip PIC reescribiendo solo lo que cambió, leyendo el
+     * firmware desde su fuente
+     *
+     * @param chipPIC Chip PIC a programar
+     * @param fuente  Origen del archivo HEX
+     * @return true si la programacion fue exitosa, false en caso contrario
+     * @see #programChipDiferencial(ChipPic, DatosPicProcesados, byte[], List)
+     */
+    public boolean programChipDiferencial(
+            ChipPic chipPIC, FuenteHex fuente, byte[] IDPic, List<Integer> fusesUsuario) {
+        if (protocolo == null) {
+            notifyError(context.getString(R.string.protocolo_no_inicializado));
+            return false;
+        }
+
+        if (chipPIC == null || fuente == null) {
+            notifyError(context.getString(R.string.datos_invalidos_para_programac));
+            return false;
+        }
+
+        DatosPicProcesados datosPicProcesados;
+        try {
+            datosPicProcesados = obtenerDatosProcesados(chipPIC, fuente);
+        } catch (Exception e) {
+            notifyStarted();
+            notifyError(context.getString(R.string.error_inesperado) + ": " + e.getMessage());
+            return false;
+        }
+        return programChipDiferencial(chipPIC, datosPicProcesados, IDPic, fusesUsuario);
+    }
+
+    /**
+     * Programa completamente un chip PIC con una imagen ya procesada
+     *
+     * @param chipPIC            Chip PIC a programar
+     * @param datosPicProcesados Imagen procesada para ese chip; no se modifica
+     * @return true si la programacion fue exitosa, false en caso contrario
+     */
+    public boolean programChip(
+            ChipPic chipPIC, DatosPicProcesados datosPicProcesados, byte[] IDPic, List<Integer> fusesUsuario) {
+        if (protocolo == null) {
+            notifyError(context.getString(R.string.protocolo_no_inicializado));
+            return false;
+        }
+
+        if (chipPIC == null || datosPicProcesados == null) {
+            notifyError(context.getString(R.string.datos_invalidos_para_programac));
+            return false;
+        }
+
+        // La ROM cambia sin que la caché diferencial lo registre
+        ultimasImagenes.olvidarTodo();
+
+        notifyStarted();
+
+        TokenCancelacion token = iniciarOperacion();
+        try {
+            return programarCompleto(chipPIC, datosPicProcesados, IDPic, fusesUsuario, token);
+        } finally {
+            finalizarOperacion(token);
+        }
+    }
+
+    /**
+     * Reprograma un chip reescribiendo solo la parte de la ROM que cambió
+     *
+     * El comando de programación de ROM siempre escribe desde la dirección 0,
+     * así que la región mínima llega hasta la última palabra distinta. Para
+     * conocer el contenido actual se usa la última imagen grabada en ese chip,
+     * identificado por su bloque de configuración; si no se conoce, se lee la
+     * ROM. Dos chips iguales con la misma configuración comparten clave, así
+     * que lo recordado se confirma con la lectura posterior a la grabación y,
+     * si no coincide con la imagen, se programa el chip completo. No se borra
+     * el chip: EEPROM, fuses e ID se vuelven a escribir como en la programación
+     * completa.
+     *
+     * Los chips que no admiten reescritura sin borrado (no flash o PIC18F, que
+     * borran por bloques) y las imágenes sin ROM se programan de forma completa.
+     *
+     * @param chipPIC            Chip PIC a programar
+     * @param datosPicProcesados Imagen procesada para ese chip; no se modifica
+     * @return true si la programacion fue exitosa, false en caso contrario
+     */
+    public boolean programChipDiferencial(
+            ChipPic chipPIC, DatosPicProcesados datosPicProcesados, byte[] IDPic, List<Integer> fusesUsuario) {
         if (protocolo == null) {
             notifyError(context.getString(R.string.protocolo_no_inicializado));
             return false;
         }
 
-        if (chipPIC == null || firmware == null || firmware.isEmpty()) {
+        if (chipPIC == null || datosPicProcesados == null) {
             notifyError(context.getString(R.string.datos_invalidos_para_programac));
             return false;
         }
 
         notifyStarted();
 
+        TokenCancelacion token = iniciarOperacion();
+        try {
+            byte[] rom = datosPicProcesados.obtenerBytesHexROMProcesado();
+            String clave = leerClaveChip(chipPIC);
+            // Solo cuenta la lectura posterior a una grabación de esta operación
+            protocolo.descartarReadbackROM();
+
+            // -1: hace falta la programación completa
+            int palabras = -1;
+            if (clave != null && admiteDiferencial(chipPIC, datosPicProcesados)) {
+                palabras = calcularPalabrasACambiar(chipPIC, clave, rom);
+                // Desde aquí el contenido del chip deja de ser el recordado
+                ultimasImagenes.olvidar(clave);
+            }
+
+            if (notificarSiCancelada(token, context.getString(R.string.programando_memoria_rom))) {
+                return false;
+            }
+
+            boolean exito = palabras < 0
+                    ? programarCompleto(chipPIC, datosPicProcesados, IDPic, fusesUsuario, token)
+                    : programarDiferencias(chipPIC, datosPicProcesados, palabras, IDPic, fusesUsuario, token);
+
+            // Se recuerda lo que el chip contiene de verdad, no la imagen enviada
+            byte[] romGrabada = palabras == 0
+                    ? Arrays.copyOf(bufferLecturaROM, longitudLecturaROM)
+                    : copiarReadbackROM();
+            if (exito && romGrabada != null) {
+                // La configuración cambió al grabar fuses e ID: se recuerda con la clave nueva
+                String claveNueva = leerClaveChip(chipPIC);
+                if (claveNueva != null) {
+                    ultimasImagenes.recordar(claveNueva, romGrabada);
+                }
+            }
+            return exito;
+        } finally {
+            finalizarOperacion(token);
+        }
+    }
+
+    /** Borra el chip y programa todas las regiones presentes en la imagen */
+    private boolean programarCompleto(
+            ChipPic chipPIC,
+            DatosPicProcesados datosPicProcesados,
+            byte[] IDPic,
+            List<Integer> fusesUsuario,
+            TokenCancelacion token) {
         try {
             // Detectar qué regiones están presentes en el firmware cargado para soportar
             // "Programar todo" también con HEX parciales.
-            DatosPicProcesados datosPicProcesados = new DatosPicProcesados(context, firmware, chipPIC);
-            datosPicProcesados.iniciarProcesamientoDeDatos();
-
             boolean hasRom = datosPicProcesados.tieneRomEnHex() || datosPicProcesados.tieneRomData();
-            boolean hasEeprom = chipPIC.isTamanoValidoDeEEPROM()
-                    && (datosPicProcesados.tieneEepromEnHex() || datosPicProcesados.tieneEepromData());
-            boolean usuarioConfiguroFuses = fusesUsuario != null && !fusesUsuario.isEmpty();
-            boolean usuarioConfiguroID = IDPic != null && IDPic.length > 1 && !(IDPic.length == 1 && IDPic[0] == 0);
-            boolean hasConfig = datosPicProcesados.tieneConfigEnHex() || datosPicProcesados.tieneConfigData()
-                    || usuarioConfiguroFuses || usuarioConfiguroID;
+            boolean hasEeprom = tieneEeprom(chipPIC, datosPicProcesados);
+            boolean hasConfig = tieneConfiguracion(datosPicProcesados, IDPic, fusesUsuario);
 
             if (!hasRom && !hasEeprom && !hasConfig) {
                 notifyError(context.getString(R.string.error_programando_pic) + ": HEX sin regiones programables");
@@ -154,46 +351,86 @@ public class PicProgrammingManager {
                 return false;
             }
 
-            // Paso 2: Programar ROM si existe en HEX
-            if (hasRom) {
-                notifyProgress(context.getString(R.string.programando_memoria_rom), 30);
-                if (!protocolo.programarMemoriaROMDelPic(chipPIC, datosPicProcesados)) {
-                    notifyError(context.getString(R.string.error_programando_rom));
+            // Primera grabación con un enlace rápido: probar la ventana ROM en el chip recién
+            // borrado antes de usarla, y borrar de nuevo el patrón de la prueba. Solo en flash:
+            // un chip EPROM u OTP no se puede borrar y el patrón lo inutilizaría
+            if (hasRom && chipPIC.isFlashChip() && protocolo.getVentanaEscrituraROMCandidata() > 1) {
+                protocolo.probarVentanaEscrituraROM(chipPIC);
+                if (!protocolo.borrarMemoriasDelPic()) {
+                    notifyError(context.getString(R.string.error_borrando_memorias));
                     return false;
                 }
             }
 
-            // Paso 3: Programar EEPROM si existe en HEX
-            if (hasEeprom) {
-                notifyProgress(context.getString(R.string.programando_memoria_eeprom), 50);
-                if (!protocolo.programarMemoriaEEPROMDelPic(chipPIC, datosPicProcesados)) {
-                    notifyError(context.getString(R.string.error_programando_eeprom));
+            // Paso 2: Programar ROM si existe en HEX
+            if (hasRom) {
+                String paso = context.getString(R.string.programando_memoria_rom);
+                if (notificarSiCancelada(token, paso)) {
                     return false;
                 }
-            }
-
-            // Paso 4: Programar Fuses/ID si existen en HEX o por usuario
-            if (hasConfig) {
-                notifyProgress(context.getString(R.string.programando_fuses_id), 70);
-                if (!protocolo.programarFusesIDDelPic(chipPIC, datosPicProcesados, IDPic, fusesUsuario)) {
-                    notifyError(context.getString(R.string.error_programando_fuses));
+                notifyProgress(paso, 30);
+                // Recién borrado: basta con grabar hasta el último bloque con datos
+                if (!protocolo.programarMemoriaROMDelPic(chipPIC, datosPicProcesados, true)) {
+                    notificarFallo(token, paso, context.getString(R.string.error_programando_rom));
                     return false;
                 }
             }
 
-            // Paso 5: Programar Fuses adicionales para PIC18F (solo si hubo config)
-            if (hasConfig && chipPIC.getTipoDeNucleoBit() == 16) {
-                notifyProgress(context.getString(R.string.programando_fuses_18f), 90);
-                if (!protocolo.programarFusesDePics18F()) {
-                    notifyError(context.getString(R.string.error_programando_fuses_18f));
+            return programarEepromYConfiguracion(
+                    chipPIC, datosPicProcesados, hasEeprom, hasConfig, IDPic, fusesUsuario, token);
+
+        } catch (Exception e) {
+            notifyError(context.getString(R.string.error_inesperado) + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Reescribe las primeras palabras de la ROM sin borrar y programa el resto de regiones */
+    private boolean programarDiferencias(
+            ChipPic chipPIC,
+            DatosPicProcesados datosPicProcesados,
+            int palabras,
+            byte[] IDPic,
+            List<Integer> fusesUsuario,
+            TokenCancelacion token) {
+        try {
+            String paso = context.getString(R.string.programando_memoria_rom);
+            if (palabras == 0) {
+                notifyProgress(context.getString(R.string.rom_sin_cambios_no_se_reescribe), 30);
+            } else {
+                notifyProgress(context.getString(R.string.programando_palabras_rom, palabras), 30);
+                if (!protocolo.programarPrefijoROMDelPic(chipPIC, datosPicProcesados, palabras)) {
+                    notificarFallo(token, paso, context.getString(R.string.error_programando_rom));
                     return false;
                 }
+
+                // La caché identifica el chip solo por su configuración: otro chip igual
+                // configurado puede tener otra ROM más allá del prefijo. La lectura posterior
+                // a la grabación lo confirma; si no coincide se graba completo.
+                byte[] rom = datosPicProcesados.obtenerBytesHexROMProcesado();
+                ResultadoLectura leida = protocolo.getReadbackROM();
+                if (leida == null
+                        || !leida.esExitosa()
+                        || HexFileUtils.contarPalabrasHastaUltimaDiferencia(
+                                        leida.getDatos(),
+                                        leida.getLongitud(),
+                                        rom,
+                                        rom.length / 2,
+                                        chipPIC.getTipoDeNucleoBit())
+                                != 0) {
+                    notifyProgress(context.getString(R.string.rom_distinta_de_la_recordada), 30);
+                    return programarCompleto(chipPIC, datosPicProcesados, IDPic, fusesUsuario, token);
+                }
             }
 
-            // Completado
-            notifyProgress(context.getString(R.string.programacion_completada), 100);
-            notifyCompleted(true);
-            return true;
+            return programarEepromYConfiguracion(
+                    chipPIC,
+                    datosPicProcesados,
+                    tieneEeprom(chipPIC, datosPicProcesados),
+                    tieneConfiguracion(datosPicProcesados, IDPic, fusesUsuario),
+                    IDPic,
+                    fusesUsuario,
+                    token);
 
         } catch (Exception e) {
             notifyError(context.getString(R.string.error_inesperado) + ": " + e.getMessage());
@@ -201,6 +438,142 @@ public class PicProgrammingManager {
         }
     }
 
+    /** Programa EEPROM, fuses e ID (pasos 3 a 5) y notifica el final */
+    private boolean programarEepromYConfiguracion(
+            ChipPic chipPIC,
+            DatosPicProcesados datosPicProcesados,
+            boolean hasEeprom,
+            boolean hasConfig,
+            byte[] IDPic,
+            List<Integer> fusesUsuario,
+            TokenCancelacion token)
+            throws ChipConfigurationException {
+        // Paso 3: Programar EEPROM si existe en HEX
+        if (hasEeprom) {
+            String paso = context.getString(R.string.programando_memoria_eeprom);
+            if (notificarSiCancelada(token, paso)) {
+                return false;
+            }
+            notifyProgress(paso, 50);
+            if (!protocolo.programarMemoriaEEPROMDelPic(chipPIC, datosPicProcesados)) {
+                notificarFallo(token, paso, context.getString(R.string.error_programando_eeprom));
+                return false;
+            }
+        }
+
+        // Paso 4: Programar Fuses/ID si existen en HEX o por usuario
+        if (hasConfig) {
+            String paso = context.getString(R.string.programando_fuses_id);
+            if (notificarSiCancelada(token, paso)) {
+                return false;
+            }
+            notifyProgress(paso, 70);
+            if (!protocolo.programarFusesIDDelPic(chipPIC, datosPicProcesados, IDPic, fusesUsuario)) {
+                notifyError(context.getString(R.string.error_programando_fuses));
+                return false;
+            }
+        }
+
+        // Paso 5: Programar Fuses adicionales para PIC18F (solo si hubo config)
+        if (hasConfig && chipPIC.getTipoDeNucleoBit() == 16) {
+            notifyProgress(context.getString(R.string.programando_fuses_18f), 90);
+            if (!protocolo.programarFusesDePics18F()) {
+                notifyError(context.getString(R.string.error_programando_fuses_18f));
+                return false;
+            }
+        }
+
+        // Completado
+        notifyProgress(context.getString(R.string.programacion_completada), 100);
+        notifyCompleted(true);
+        return true;
+    }
+
+    private static boolean tieneEeprom(ChipPic chipPIC, DatosPicProcesados datos) {
+        return chipPIC.isTamanoValidoDeEEPROM() && (datos.tieneEepromEnHex() || datos.tieneEepromData());
+    }
+
+    private static boolean tieneConfiguracion(DatosPicProcesados datos, byte[] IDPic, List<Integer> fusesUsuario) {
+        boolean usuarioConfiguroFuses = fusesUsuario != null && !fusesUsuario.isEmpty();
+        boolean usuarioConfiguroID = IDPic != null && IDPic.length > 1 && !(IDPic.length == 1 && IDPic[0] == 0);
+        return datos.tieneConfigEnHex() || datos.tieneConfigData() || usuarioConfiguroFuses || usuarioConfiguroID;
+    }
+
+    /** La ROM solo puede reescribirse sin borrado en chips flash de 12 y 14 bits */
+    private static boolean admiteDiferencial(ChipPic chipPIC, DatosPicProcesados datos) {
+        try {
+            boolean hasRom = datos.tieneRomEnHex() || datos.tieneRomData();
+            return hasRom && chipPIC.isFlashChip() && chipPIC.getTipoDeNucleoBit() != 16;
+        } catch (ChipConfigurationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lee el bloque de configuración y construye la clave del chip en la caché diferencial
+     *
+     * @return Clave del chip, o null si no se pudo leer
+     */
+    private String leerClaveChip(ChipPic chipPIC) {
+        try {
+            ResultadoLectura config = protocolo.leerDatosDeConfiguracion(bufferLecturaConfig);
+            if (!config.esExitosa()) {
+                return null;
+            }
+            bufferLecturaConfig = config.getDatos();
+            return CacheUltimasImagenes.crearClave(
+                    chipPIC.getNombreDelPic(), config.getDatos(), config.getLongitud());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compara la imagen con el contenido actual de la ROM, recordado o leído
+     *
+     * Lo recordado solo se usa si indica que hay algo que reescribir, porque
+     * la lectura posterior a esa grabación lo confirma. Si indica que no hay
+     * cambios se lee la ROM, ya que no habrá grabación que lo compruebe.
+     *
+     * @return Palabras a reescribir desde la dirección 0, o -1 si no se pudo
+     *         conocer el contenido actual
+     */
+    private int calcularPalabrasACambiar(ChipPic chipPIC, String clave, byte[] rom) {
+        try {
+            int coreBits = chipPIC.getTipoDeNucleoBit();
+            byte[] recordada = ultimasImagenes.obtener(clave);
+            if (recordada != null) {
+                int palabras = HexFileUtils.contarPalabrasHastaUltimaDiferencia(
+                        recordada, recordada.length, rom, rom.length / 2, coreBits);
+                if (palabras > 0) {
+                    notifyProgress(context.getString(R.string.rom_anterior_conocida), 20);
+                    return palabras;
+                }
+            }
+
+            notifyProgress(context.getString(R.string.leyendo_memoria), 20);
+            ResultadoLectura lectura = protocolo.leerMemoriaROM(chipPIC, bufferLecturaROM);
+            if (!lectura.esExitosa()) {
+                return -1;
+            }
+            bufferLecturaROM = lectura.getDatos();
+            longitudLecturaROM = lectura.getLongitud();
+            return HexFileUtils.contarPalabrasHastaUltimaDiferencia(
+                    bufferLecturaROM, longitudLecturaROM, rom, rom.length / 2, coreBits);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /** @return Copia de la ROM leída tras la última grabación, o null si no hay una vigente */
+    private byte[] copiarReadbackROM() {
+        ResultadoLectura leida = protocolo.getReadbackROM();
+        if (leida == null || !leida.esExitosa()) {
+            return null;
+        }
+        return Arrays.copyOf(leida.getDatos(), leida.getLongitud());
+    }
+
     /**
      * Programa solo la memoria ROM del chip PIC con borrado previo
      *
@@ -209,22 +582,35 @@ public class PicProgrammingManager {
      * @return true si la programacion fue exitosa, false en caso contrario
      */
     public boolean programRomOnly(ChipPic chipPIC, String firmware) {
-        if (protocolo == null || chipPIC == null || firmware == null) {
+        return programRomOnly(chipPIC, crearFuente(firmware));
+    }
+
+    /**
+     * Programa solo la memoria ROM leyendo el firmware desde su fuente
+     *
+     * @param chipPIC Chip PIC a programar
+     * @param fuente  Origen del archivo HEX
+     * @return true si la programacion fue exitosa, false en caso contrario
+     */
+    public boolean programRomOnly(ChipPic chipPIC, FuenteHex fuente) {
+        if (protocolo == null || chipPIC == null || fuente == null) {
             notifyError(context.getString(R.string.protocolo_no_inicializado));
             return false;
         }
 
+        TokenCancelacion token = iniciarOperacion();
         try {
             notifyStarted();
 
             // Para modo "solo ROM" NO se fuerza chip erase global para no perder
             // EEPROM/Fuses/ID existentes. Se intenta escritura directa de ROM.
-            DatosPicProcesados datosPicProcesados = new DatosPicProcesados(context, firmware, chipPIC);
-            datosPicProcesados.iniciarProcesamientoDeDatos();
+            ultimasImagenes.olvidarTodo();
+            DatosPicProcesados datosPicProcesados = obtenerDatosProcesados(chipPIC, fuente);
 
-            notifyProgress(context.getString(R.string.programando_memoria_rom), 50);
+            String paso = context.getString(R.string.programando_memoria_rom);
+            notifyProgress(paso, 50);
             if (!protocolo.programarMemoriaROMDelPic(chipPIC, datosPicProcesados)) {
-                notifyError(context.getString(R.string.error_programando_rom));
+                notificarFallo(token, paso, context.getString(R.string.error_programando_rom));
                 return false;
             }
 
@@ -236,6 +622,8 @@ public class PicProgrammingManager {
         } catch (Exception e) {
             notifyError(context.getString(R.string.error_inesperado) + ": " + e.getMessage());
             return false;
+        } finally {
+            finalizarOperacion(token);
         }
     }
 
@@ -247,7 +635,18 @@ public class PicProgrammingManager {
      * @return true si la programacion fue exitosa, false en caso contrario
      */
     public boolean programEepromOnly(ChipPic chipPIC, String firmware) {
-        if (protocolo == null || chipPIC == null || firmware == null) {
+        return programEepromOnly(chipPIC, crearFuente(firmware));
+    }
+
+    /**
+     * Programa solo la memoria EEPROM leyendo el firmware desde su fuente
+     *
+     * @param chipPIC Chip PIC a programar
+     * @param fuente  Origen del archivo HEX
+     * @return true si la programacion fue exitosa, false en caso contrario
+     */
+    public boolean programEepromOnly(ChipPic chipPIC, FuenteHex fuente) {
+        if (protocolo == null || chipPIC == null || fuente == null) {
             notifyError(context.getString(R.string.protocolo_no_inicializado));
             return false;
         }
@@ -257,16 +656,17 @@ public class PicProgrammingManager {
             return false;
         }
 
+        TokenCancelacion token = iniciarOperacion();
         try {
             notifyStarted();
 
             // Programar EEPROM
-            DatosPicProcesados datosPicProcesados = new DatosPicProcesados(context, firmware, chipPIC);
-            datosPicProcesados.iniciarProcesamientoDeDatos();
+            DatosPicProcesados datosPicProcesados = obtenerDatosProcesados(chipPIC, fuente);
 
-            notifyProgress(context.getString(R.string.programando_memoria_eeprom), 50);
+            String paso = context.getString(R.string.programando_memoria_eeprom);
+            notifyProgress(paso, 50);
             if (!protocolo.programarMemoriaEEPROMDelPic(chipPIC, datosPicProcesados)) {
-                notifyError(context.getString(R.string.error_programando_eeprom));
+                notificarFallo(token, paso, context.getString(R.string.error_programando_eeprom));
                 return false;
             }
 
@@ -278,6 +678,8 @@ public class PicProgrammingManager {
         } catch (Exception e) {
             notifyError(context.getString(R.string.error_inesperado) + ": " + e.getMessage());
             return false;
+        } finally {
+            finalizarOperacion(token);
         }
     }
 
@@ -287,7 +689,18 @@ public class PicProgrammingManager {
      * @return true si la programacion fue exitosa, false en caso contrario
      */
     public boolean programConfigOnly(ChipPic chipPIC, String firmware, byte[] IDPic, List<Integer> fusesUsuario) {
-        if (protocolo == null || chipPIC == null || firmware == null) {
+        return programConfigOnly(chipPIC, crearFuente(firmware), IDPic, fusesUsuario);
+    }
+
+    /**
+     * Programa solo la configuración (Fuses e ID) leyendo el firmware desde su fuente
+     *
+     * @param chipPIC Chip PIC a programar
+     * @param fuente  Origen del archivo HEX
+     * @return true si la programacion fue exitosa, false en caso contrario
+     */
+    public boolean programConfigOnly(ChipPic chipPIC, FuenteHex fuente, byte[] IDPic, List<Integer> fusesUsuario) {
+        if (protocolo == null || chipPIC == null || fuente == null) {
             notifyError(context.getString(R.string.protocolo_no_inicializado));
             return false;
         }
@@ -295,9 +708,9 @@ public class PicProgrammingManager {
         try {
             notifyStarted();
 
-            // Programar Fuses e ID
-            DatosPicProcesados datosPicProcesados = new DatosPicProcesados(context, firmware, chipPIC);
-            datosPicProcesados.iniciarProcesamientoDeDatos();
+            // Programar Fuses e ID; la configuración forma parte de la clave diferencial
+            ultimasImagenes.olvidarTodo();
+            DatosPicProcesados datosPicProcesados = obtenerDatosProcesados(chipPIC, fuente);
 
             notifyProgress(context.getString(R.string.programando_fuses_id), 50);
             if (!protocolo.programarFusesIDDelPic(chipPIC, datosPicProcesados, IDPic, fusesUsuario)) {
@@ -325,71 +738,186 @@ public class PicProgrammingManager {
         }
     }
 
+    /**
+     * Obtiene los datos procesados del firmware para el chip, reutilizando la imagen en caché si
+     * el mismo contenido ya se procesó para el mismo modelo de chip.
+     *
+     * @param chipPIC Chip PIC objetivo
+     * @param fuente  Origen del archivo HEX
+     * @return Datos procesados; compartidos entre llamadas, no deben modificarse
+     */
+    public DatosPicProcesados obtenerDatosProcesados(ChipPic chipPIC, FuenteHex fuente)
+            throws HexProcessingException, ChipConfigurationException {
+        return cacheImagenes.obtenerOProcesar(context, fuente, chipPIC);
+    }
+
+    /** @return Caché de imágenes procesadas, con sus contadores de aciertos y fallos */
+    public CacheImagenesProcesadas getCacheImagenes() {
+        return cacheImagenes;
+    }
+
+    /** Envuelve un firmware en texto como fuente, o null si no hay contenido. */
+    private static FuenteHex crearFuente(String firmware) {
+        if (firmware == null || firmware.trim().isEmpty()) {
+            return null;
+        }
+        return FuenteHex.desdeTexto(firmware);
+    }
+
     /**
      * Lee la memoria ROM del chip PIC
      *
      * @param chipPIC Chip PIC del cual leer
-     * @return Contenido de la memoria ROM como string
+     * @return Resultado binario de la lectura de la memoria ROM
      */
-    public String readRomMemory(ChipPic chipPIC) {
+    public ResultadoLectura readRomMemory(ChipPic chipPIC) {
         if (protocolo == null || chipPIC == null) {
-            notifyError(context.getString(R.string.protocolo_no_inicializado));
-            return "";
+            String error = context.getString(R.string.protocolo_no_inicializado);
+            notifyError(error);
+            return ResultadoLectura.fallida(ResultadoLectura.TipoError.PUERTO_NO_INICIALIZADO, error);
         }
 
+        TokenCancelacion token = iniciarOperacion();
+        ResultadoLectura resultado;
         try {
-            return protocolo.leerMemoriaROMDelPic(chipPIC);
-        } catch (Exception e) {
+            resultado = protocolo.leerMemoriaROM(chipPIC, null);
+        } finally {
+            finalizarOperacion(token);
+        }
+        if (!resultado.tieneDatosUtilizables()) {
             notifyError(
-                    context.getString(R.string.error_leyendo_memoria_rom) + ": " + e.getMessage());
-            return "";
+                    context.getString(R.string.error_leyendo_memoria_rom)
+                            + ": "
+                            + resultado.getMensaje());
         }
+        return resultado;
     }
 
     /**
      * Lee la memoria EEPROM del chip PIC
      *
      * @param chipPIC Chip PIC del cual leer
-     * @return Contenido de la memoria EEPROM como string
+     * @return Resultado binario de la lectura; vacío si el chip no tiene EEPROM
      */
-    public String readEepromMemory(ChipPic chipPIC) {
+    public ResultadoLectura readEepromMemory(ChipPic chipPIC) {
         if (protocolo == null || chipPIC == null) {
-            notifyError(context.getString(R.string.protocolo_no_inicializado));
-            return "";
+            String error = context.getString(R.string.protocolo_no_inicializado);
+            notifyError(error);
+            return ResultadoLectura.fallida(ResultadoLectura.TipoError.PUERTO_NO_INICIALIZADO, error);
+        }
+
+        if (!chipPIC.isTamanoValidoDeEEPROM()) {
+            return ResultadoLectura.exitosa(null, 0);
         }
 
+        TokenCancelacion token = iniciarOperacion();
+        ResultadoLectura resultado;
         try {
-            if (chipPIC.isTamanoValidoDeEEPROM()) {
-                return protocolo.leerMemoriaEEPROMDelPic(chipPIC);
-            }
-            return "";
-        } catch (Exception e) {
+            resultado = protocolo.leerMemoriaEEPROM(chipPIC, null);
+        } finally {
+            finalizarOperacion(token);
+        }
+        if (!resultado.tieneDatosUtilizables()) {
             notifyError(
                     context.getString(R.string.error_leyendo_memoria_eeprom)
                             + ": "
-                            + e.getMessage());
-            return "";
+                            + resultado.getMensaje());
         }
+        return resultado;
     }
 
     /**
      * Lee la memoria de configuración del chip PIC
      *
      * @param chipPIC Chip PIC del cual leer
-     * @return Contenido de la memoria de configuración como string
+     * @return Resultado binario con los 26 bytes de configuración
      */
-    public String readConfigData(ChipPic chipPIC) {
+    public ResultadoLectura readConfigData(ChipPic chipPIC) {
         if (protocolo == null || chipPIC == null) {
-            notifyError(context.getString(R.string.protocolo_no_inicializado));
-            return "";
+            String error = context.getString(R.string.protocolo_no_inicializado);
+            notifyError(error);
+            return ResultadoLectura.fallida(ResultadoLectura.TipoError.PUERTO_NO_INICIALIZADO, error);
         }
 
-        try {
-            return protocolo.leerDatosDeConfiguracionDelPic();
-        } catch (Exception e) {
-            notifyError("Error leyendo datos de configuración: " + e.getMessage());
-            return "";
+        ResultadoLectura resultado = protocolo.leerDatosDeConfiguracion(null);
+        if (!resultado.tieneDatosUtilizables()) {
+            notifyError("Error leyendo datos de configuración: " + resultado.getMensaje());
         }
+        return resultado;
+    }
+
+    /**
+     * Pide la cancelación de la operación larga en curso (programar o leer memorias). Es
+     * cooperativa: el protocolo la atiende en el siguiente bloque, deja el programador sin
+     * voltajes y la operación termina con un error que indica el progreso alcanzado. Puede
+     * llamarse desde cualquier hilo.
+     *
+     * @return true si había una operación en curso que cancelar
+     */
+    public boolean cancelarOperacion() {
+        TokenCancelacion token = tokenEnCurso;
+        if (token == null) {
+            return false;
+        }
+        token.cancelar();
+        return true;
+    }
+
+    /** @return true si hay una operación cancelable en curso */
+    public boolean isOperacionEnCurso() {
+        return tokenEnCurso != null;
+    }
+
+    /**
+     * @return true si se pidió cancelar la operación en curso; útil en los
+     *         listeners para distinguir una cancelación de un fallo
+     */
+    public boolean isCancelacionSolicitada() {
+        TokenCancelacion token = tokenEnCurso;
+        return token != null && token.isCancelado();
+    }
+
+    /** Crea el token de una operación nueva y lo asocia al protocolo */
+    private TokenCancelacion iniciarOperacion() {
+        TokenCancelacion token = new TokenCancelacion();
+        tokenEnCurso = token;
+        protocolo.setTokenCancelacion(token);
+        return token;
+    }
+
+    /** Desasocia el token si sigue siendo el de la operación terminada */
+    private void finalizarOperacion(TokenCancelacion token) {
+        if (protocolo.getTokenCancelacion() == token) {
+            protocolo.setTokenCancelacion(null);
+        }
+        if (tokenEnCurso == token) {
+            tokenEnCurso = null;
+        }
+    }
+
+    /**
+     * Notifica la cancelación si se pidió antes de empezar un paso.
+     *
+     * @return true si la operación fue cancelada
+     */
+    private boolean notificarSiCancelada(TokenCancelacion token, String paso) {
+        if (!token.isCancelado()) {
+            return false;
+        }
+        notifyError(describirCancelacion(token, paso));
+        return true;
+    }
+
+    /** Notifica el fallo de un paso, distinguiendo una cancelación de un error */
+    private void notificarFallo(TokenCancelacion token, String paso, String error) {
+        if (!notificarSiCancelada(token, paso)) {
+            notifyError(error);
+        }
+    }
+
+    private String describirCancelacion(TokenCancelacion token, String paso) {
+        return context.getString(
+                R.string.operacion_cancelada, paso, token.getCompletados(), token.getTotal());
     }
 
     /**
@@ -403,6 +931,7 @@ public class PicProgrammingManager {
             return false;
         }
 
+        ultimasImagenes.olvidarTodo();
         try {
             return protocolo.borrarMemoriasDelPic();
         } catch (Exception e) {
@@ -516,20 +1045,22 @@ public class PicProgrammingManager {
     /** Verifica ROM vacía por lectura comparando palabra blank por núcleo. */
     private boolean verificarRomVaciaPorLectura(ChipPic chipPic) {
         try {
-            String romHex = protocolo.leerMemoriaROMDelPic(chipPic);
-            if (romHex == null || romHex.startsWith("Error") || romHex.isEmpty()) {
+            ResultadoLectura lectura = protocolo.leerMemoriaROM(chipPic, bufferLecturaROM);
+            if (!lectura.tieneDatosUtilizables() || lectura.getLongitud() == 0) {
                 return false;
             }
+            bufferLecturaROM = lectura.getDatos();
 
             int coreBits = chipPic.getTipoDeNucleoBit();
             int blankWord = (~(0xFFFF << coreBits)) & 0xFFFF;
-            String blankWordHex = String.format("%04X", blankWord);
+            byte blankAlto = (byte) (blankWord >> 8);
+            byte blankBajo = (byte) blankWord;
 
-            String romNormalizada = romHex.replaceAll("\\s+", "").toUpperCase();
-            int max = romNormalizada.length() - (romNormalizada.length() % 4);
-            for (int i = 0; i < max; i += 4) {
-                String palabra = romNormalizada.substring(i, i + 4);
-                if (!blankWordHex.equals(palabra)) {
+            // El programador devuelve cada palabra como [MSB, LSB]
+            byte[] rom = lectura.getDatos();
+            int max = lectura.getLongitud() - (lectura.getLongitud() % 2);
+            for (int i = 0; i < max; i += 2) {
+                if (rom[i] != blankAlto || rom[i + 1] != blankBajo) {
                     return false;
                 }
             }
@@ -542,16 +1073,15 @@ public class PicProgrammingManager {
     /** Verifica EEPROM vacía por lectura comprobando bytes 0xFF. */
     private boolean verificarEepromVaciaPorLectura(ChipPic chipPic) {
         try {
-            String eepromHex = protocolo.leerMemoriaEEPROMDelPic(chipPic);
-            if (eepromHex == null || eepromHex.startsWith("Error") || eepromHex.isEmpty()) {
+            ResultadoLectura lectura = protocolo.leerMemoriaEEPROM(chipPic, bufferLecturaEEPROM);
+            if (!lectura.tieneDatosUtilizables() || lectura.getLongitud() == 0) {
                 return false;
             }
+            bufferLecturaEEPROM = lectura.getDatos();
 
-            String eepromNormalizada = eepromHex.replaceAll("\\s+", "").toUpperCase();
-            int max = eepromNormalizada.length() - (eepromNormalizada.length() % 2);
-            for (int i = 0; i < max; i += 2) {
-                String byteHex = eepromNormalizada.substring(i, i + 2);
-                if (!"FF".equals(byteHex)) {
+            byte[] eeprom = lectura.getDatos();
+            for (int i = 0; i < lectura.getLongitud(); i++) {
+                if (eeprom[i] != (byte) 0xFF) {
                     return false;
                 }
             }
@@ -564,27 +1094,27 @@ public class PicProgrammingManager {
     /** Verifica que configuración/fuses coincidan con FUSEblank del chip. */
     private boolean verificarConfiguracionVaciaPorLectura(ChipPic chipPic) {
         try {
-            String configData = protocolo.leerDatosDeConfiguracionDelPic();
-            if (configData == null || configData.startsWith("Error") || configData.length() < 24) {
+            ResultadoLectura lectura = protocolo.leerDatosDeConfiguracion(bufferLecturaConfig);
+            if (!lectura.tieneDatosUtilizables() || lectura.getLongitud() < 12) {
                 return false;
             }
+            bufferLecturaConfig = lectura.getDatos();
 
             int[] fusesBlank = chipPic.getFuseBlank();
             if (fusesBlank == null || fusesBlank.length == 0) {
                 return true;
             }
 
-            String configNormalizada = configData.replaceAll("\\s+", "").toUpperCase();
+            // Fuses a partir del byte 10, cada uno en little-endian
+            byte[] config = lectura.getDatos();
             int maxFuses = Math.min(fusesBlank.length, 7);
             for (int i = 0; i < maxFuses; i++) {
-                int inicio = 20 + (i * 4);
-                if (inicio + 4 > configNormalizada.length()) {
+                int inicio = 10 + (i * 2);
+                if (inicio + 2 > lectura.getLongitud()) {
                     break;
                 }
-                String fuseLeidoLE = configNormalizada.substring(inicio, inicio + 4);
-                String fuseLeido = fuseLeidoLE.substring(2, 4) + fuseLeidoLE.substring(0, 2);
-                String fuseBlankHex = String.format("%04X", fusesBlank[i]);
-                if (!fuseBlankHex.equals(fuseLeido)) {
+                int fuseLeido = (config[inicio] & 0xFF) | ((config[inicio + 1] & 0xFF) << 8);
+                if (fuseLeido != (fusesBlank[i] & 0xFFFF)) {
                     return false;
                 }
             }
@@ -0,0 +1,378 @@
+package com.diamon.managers;
+
+import android.content.Context;
+
+import com.diamon.chip.ChipPic;
+import com.diamon.datos.CacheImagenesProcesadas;
+import com.diamon.datos.DatosPicProcesados;
+import com.diamon.datos.FuenteHex;
+import com.diamon.excepciones.UsbCommunicationException;
+import com.diamon.protocolo.ProtocoloP18A;
+import com.diamon.pic.R;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Modo de producción: ciclo continuo de detección, grabación y verificación.
+ *
+ * Sondea el socket del programador hasta que se inserta un chip y entonces lo
+ * borra, lo programa, lo verifica (por CRC de bloque, deteniendo la lectura
+ * en la primera diferencia) e informa el resultado. Después espera a que el operador retire
+ * el chip antes de aceptar el siguiente, de modo que el ritmo queda limitado
+ * solo por el tiempo de inserción.
+ *
+ * El ciclo ocupa el hilo del programador mientras está activo: las demás
+ * operaciones enviadas al mismo ejecutor esperan en cola, o se rechazan si la
+ * cola está llena, y nunca intercalan bytes con el ciclo.
+ */
+public class ProductionModeManager {
+
+    // Pausa entre sondeos del socket cuando el programador no responde
+    private static final int INTERVALO_SONDEO_MS = 200;
+
+    private final Context context;
+    private final PicProgrammingManager programmingManager;
+    private final ProgrammerExecutor ejecutor;
+
+    // Identifica el ciclo vigente; un ciclo termina en cuanto deja de serlo
+    private volatile Object cicloActual;
+    private Future<?> futuroCiclo;
+
+    private int aprobados;
+    private int rechazados;
+    private long siguienteNumeroSerie = 1;
+
+    /** Interfaz para notificar el ciclo de producción; se invoca desde el hilo del programador */
+    public interface ProductionListener {
+        void onEsperandoChip();
+
+        void onChipDetectado(long numeroSerie);
+
+        void onProgreso(long numeroSerie, String message, int progress);
+
+        void onChipTerminado(ResultadoChip resultado);
+
+        void onEsperandoRetiro();
+
+        void onDetenido(int aprobados, int rechazados);
+    }
+
+    /**
+     * Punto de inyección del número de serie: devuelve el ID de usuario que se
+     * graba en el chip con ese número.
+     */
+    public interface GeneradorNumeroSerie {
+        byte[] generarID(long numeroSerie);
+    }
+
+    /** Resultado de un chip del lote */
+    public static class ResultadoChip {
+        public final long numeroSerie;
+        public final boolean programado;
+        public final boolean verificado;
+        public final String error;
+        public final VerificationManager.VerificationResult verificacion;
+        public final long duracionMs;
+
+        public ResultadoChip(
+                long numeroSerie,
+                boolean programado,
+                boolean verificado,
+                String error,
+                VerificationManager.VerificationResult verificacion,
+                long duracionMs) {
+            this.numeroSerie = numeroSerie;
+            this.programado = programado;
+            this.verificado = verificado;
+            this.error = error;
+            this.verificacion = verificacion;
+            this.duracionMs = duracionMs;
+        }
+
+        public boolean aprobado() {
+            return programado && verificado;
+        }
+    }
+
+    /**
+     * Constructor del modo de producción
+     *
+     * @param context       Contexto de la aplicacion
+     * @param protocolo     Protocolo del programador conectado
+     * @param cacheImagenes Caché de imágenes procesadas, compartida con el gestor principal
+     * @param ejecutor      Hilo del programador que usa el protocolo
+     */
+    public ProductionModeManager(
+            Context context,
+            ProtocoloP18A protocolo,
+            CacheImagenesProcesadas cacheImagenes,
+            ProgrammerExecutor ejecutor) {
+        this.context = context;
+        this.ejecutor = ejecutor;
+        this.programmingManager = new PicProgrammingManager(context, cacheImagenes);
+        this.programmingManager.setProtocolo(protocolo);
+    }
+
+    /**
+     * Inicia el ciclo de producción. El HEX se procesa una sola vez antes de
+     * empezar.
+     *
+     * @param chipPIC       Chip PIC del lote
+     * @param fuente        Origen del archivo HEX
+     * @param IDPic         ID de usuario fijo, o null; se ignora si hay generador
+     * @param fusesUsuario  Fuses configurados por el usuario, o null
+     * @param generador     Generador del ID por número de serie, o null
+     * @param listener      Listener del ciclo, o null
+     * @return null si el ciclo arrancó, o un mensaje de error
+     */
+    public synchronized String iniciar(
+            ChipPic chipPIC,
+            FuenteHex fuente,
+            byte[] IDPic,
+            List<Integer> fusesUsuario,
+            GeneradorNumeroSerie generador,
+            ProductionListener listener) {
+        if (cicloActual != null) {
+            return context.getString(R.string.modo_produccion_ya_activo);
+        }
+        if (programmingManager.getProtocolo() == null) {
+            return context.getString(R.string.protocolo_no_inicializado);
+        }
+        if (chipPIC == null || fuente == null) {
+            return context.getString(R.string.datos_invalidos_para_programac);
+        }
+
+        DatosPicProcesados datos;
+        try {
+            datos = programmingManager.obtenerDatosProcesados(chipPIC, fuente);
+        } catch (Exception e) {
+            return context.getString(R.string.error_inesperado) + ": " + e.getMessage();
+        }
+
+        Object ciclo = new Object();
+        cicloActual = ciclo;
+        futuroCiclo = ejecutor.enviar(
+                context.getString(R.string.modo_produccion),
+                () -> ejecutarCiclo(ciclo, chipPIC, datos, IDPic, fusesUsuario, generador, listener));
+        if (futuroCiclo == null) {
+            cicloActual = null;
+            return context.getString(R.string.programador_ocupado);
+        }
+        return null;
+    }
+
+    /**
+     * Detiene el ciclo; no espera a que termine. Si hay un chip grabándose, la
+     * operación se cancela en el siguiente bloque y el chip cuenta como
+     * rechazado. Un ciclo nuevo iniciado antes espera en la cola del ejecutor.
+     * El hilo del programador no se interrumpe: cortaría el comando en curso
+     * sin rellenar la memoria ni apagar los voltajes.
+     */
+    public synchronized void detener() {
+        cicloActual = null;
+        programmingManager.cancelarOperacion();
+        if (futuroCiclo != null) {
+            futuroCiclo.cancel(false);
+            futuroCiclo = null;
+        }
+    }
+
+    public boolean isActivo() {
+        return cicloActual != null;
+    }
+
+    public synchronized int getAprobados() {
+        return aprobados;
+    }
+
+    public synchronized int getRechazados() {
+        return rechazados;
+    }
+
+    /**
+     * Reinicia los contadores y la numeración de serie.
+     *
+     * @param primerNumeroSerie Número de serie del próximo chip
+     */
+    public synchronized void reiniciarContadores(long primerNumeroSerie) {
+        aprobados = 0;
+        rechazados = 0;
+        siguienteNumeroSerie = primerNumeroSerie;
+    }
+
+    private void ejecutarCiclo(
+            Object ciclo,
+            ChipPic chipPIC,
+            DatosPicProcesados datos,
+            byte[] IDPic,
+            List<Integer> fusesUsuario,
+            GeneradorNumeroSerie generador,
+            ProductionListener listener) {
+        try {
+            ejecutarChips(ciclo, chipPIC, datos, IDPic, fusesUsuario, generador, listener);
+        } finally {
+            synchronized (this) {
+                if (cicloActual == ciclo) {
+                    cicloActual = null;
+                }
+            }
+            if (listener != null) {
+                listener.onDetenido(getAprobados(), getRechazados());
+            }
+        }
+    }
+
+    /** Bucle del ciclo: un chip por vuelta hasta que el ciclo deja de ser el vigente */
+    private void ejecutarChips(
+            Object ciclo,
+            ChipPic chipPIC,
+            DatosPicProcesados datos,
+            byte[] IDPic,
+            List<Integer> fusesUsuario,
+            GeneradorNumeroSerie generador,
+            ProductionListener listener) {
+        while (cicloActual == ciclo) {
+            if (listener != null) {
+                listener.onEsperandoChip();
+            }
+            if (!esperarSocket(ciclo, true)) {
+                break;
+            }
+
+            long numeroSerie;
+            synchronized (this) {
+                numeroSerie = siguienteNumeroSerie++;
+            }
+            if (listener != null) {
+                listener.onChipDetectado(numeroSerie);
+            }
+
+            ResultadoChip resultado = procesarChip(
+                    numeroSerie, chipPIC, datos, IDPic, fusesUsuario, generador, listener);
+            synchronized (this) {
+                if (resultado.aprobado()) {
+                    aprobados++;
+                } else {
+                    rechazados++;
+                }
+            }
+            if (listener != null) {
+                listener.onChipTerminado(resultado);
+                listener.onEsperandoRetiro();
+            }
+
+            if (!esperarSocket(ciclo, false)) {
+                break;
+            }
+        }
+    }
+
+    /** Graba y verifica un chip ya insertado */
+    private ResultadoChip procesarChip(
+            long numeroSerie,
+            ChipPic chipPIC,
+            DatosPicProcesados datos,
+            byte[] IDPic,
+            List<Integer> fusesUsuario,
+            GeneradorNumeroSerie generador,
+            ProductionListener listener) {
+        long inicio = System.nanoTime();
+        final String[] ultimoError = new String[1];
+        programmingManager.setProgrammingListener(new PicProgrammingManager.ProgrammingListener() {
+            @Override
+            public void onProgrammingStarted() {}
+
+            @Override
+            public void onProgrammingProgress(String message, int progress) {
+                if (listener != null) {
+                    listener.onProgreso(numeroSerie, message, progress);
+                }
+            }
+
+            @Override
+            public void onProgrammingCompleted(boolean success) {}
+
+            @Override
+            public void onProgrammingError(String errorMessage) {
+                ultimoError[0] = errorMessage;
+            }
+        });
+
+        byte[] id = IDPic;
+        if (generador != null) {
+            try {
+                id = generador.generarID(numeroSerie);
+            } catch (Exception e) {
+                return new ResultadoChip(
+                        numeroSerie, false, false,
+                        context.getString(R.string.error_generando_numero_serie, e.getMessage()),
+                        null, (System.nanoTime() - inicio) / 1_000_000L);
+            }
+        }
+
+        // programChip borra las memorias antes de grabar
+        boolean programado = programmingManager.programChip(chipPIC, datos, id, fusesUsuario);
+        if (!programado) {
+            return new ResultadoChip(
+                    numeroSerie, false, false, ultimoError[0], null, (System.nanoTime() - inicio) / 1_000_000L);
+        }
+
+        // El chip sigue en el socket: la ROM se compara por CRC con la lectura hecha al grabar
+        byte[] rom = datos.obtenerBytesHexROMProcesado();
+        VerificationManager.VerificationResult verificacion = VerificationManager.verifyConChecksums(
+                context, programmingManager.getProtocolo(), chipPIC, datos, true, true);
+
+        // Sin ROM en la imagen no hay nada que comparar en esa región
+        boolean romCorrecta = rom == null || rom.length == 0 || verificacion.romVerified;
+        boolean verificado = romCorrecta && verificacion.eepromVerified;
+        String error = null;
+        if (!romCorrecta) {
+            error = context.getString(R.string.verificacion_rom_fallo);
+        } else if (!verificacion.eepromVerified) {
+            error = context.getString(R.string.verificacion_eeprom_fallo);
+        }
+        return new ResultadoChip(
+                numeroSerie, true, verificado, error, verificacion, (System.nanoTime() - inicio) / 1_000_000L);
+    }
+
+    /**
+     * Sondea el socket hasta que el chip esté dentro o fuera.
+     *
+     * Si el programador no responde a tiempo, su respuesta puede llegar más
+     * tarde; antes del siguiente sondeo se descarta y se resincroniza el
+     * enlace para que no se confunda con la del saludo.
+     *
+     * @param ciclo  Ciclo que espera
+     * @param dentro true para esperar la inserción, false para la retirada
+     * @return true si ocurrió el cambio, false si el ciclo se detuvo antes
+     */
+    private boolean esperarSocket(Object ciclo, boolean dentro) {
+        ProtocoloP18A protocolo = programmingManager.getProtocolo();
+        while (cicloActual == ciclo) {
+            try {
+                boolean detectado = dentro
+                        ? protocolo.detectarPicEnElSocket()
+                        : protocolo.detectarSiEstaFueraElPicDelSocket();
+                if (detectado) {
+                    return true;
+                }
+            } catch (RuntimeException e) {
+                // La detección envuelve en RuntimeException los fallos de comunicación
+                if (!(e.getCause() instanceof UsbCommunicationException)) {
+                    throw e;
+                }
+                // Sin respuesta dentro del tiempo de espera: el chip aún no cambió
+                protocolo.resincronizar();
+            }
+
+            try {
+                Thread.sleep(INTERVALO_SONDEO_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,167 @@
+package com.diamon.managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecutor serializado de las operaciones de un programador.
+ *
+ * Todas las operaciones que hablan con el puerto serie pasan por un único hilo
+ * de trabajo, de modo que dos pulsaciones seguidas nunca intercalan bytes en el
+ * flujo del protocolo. Las operaciones esperan en una cola acotada: si está
+ * llena, {@link #enviar} rechaza la operación en lugar de acumular trabajo.
+ * Las operaciones pendientes pueden cancelarse antes de empezar.
+ *
+ * El hilo de trabajo nunca se interrumpe: un comando cortado a medias deja el
+ * firmware sin rellenar la memoria ni apagar los voltajes. Al cerrar, la
+ * operación en curso se cancela con el cancelador registrado, que marca su
+ * {@link com.diamon.nucleo.TokenCancelacion}.
+ */
+public class ProgrammerExecutor {
+
+    /** Operaciones que pueden esperar detrás de la que está en curso */
+    public static final int CAPACIDAD_POR_DEFECTO = 4;
+
+    /** Espera máxima de {@link #cerrar()} a que la operación cancelada termine */
+    public static final long ESPERA_CIERRE_MS = 1000;
+
+    private final ThreadPoolExecutor ejecutor;
+
+    private volatile String operacionEnCurso;
+
+    // Pide la cancelación cooperativa de la operación en curso al cerrar
+    private volatile Runnable cancelador;
+
+    /**
+     * @param nombreHilo Nombre del hilo de trabajo
+     */
+    public ProgrammerExecutor(String nombreHilo) {
+        this(nombreHilo, CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * @param nombreHilo Nombre del hilo de trabajo
+     * @param capacidad  Operaciones que pueden esperar en cola
+     */
+    public ProgrammerExecutor(String nombreHilo, int capacidad) {
+        if (capacidad < 1) {
+            throw new IllegalArgumentException("La capacidad de la cola debe ser al menos 1");
+        }
+        this.ejecutor = new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidad),
+                tarea -> new Thread(tarea, nombreHilo),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Encola una operación con resultado.
+     *
+     * @param nombre    Nombre de la operación, para diagnóstico
+     * @param operacion Operación a ejecutar en el hilo del programador
+     * @return Futuro de la operación, o null si la cola está llena o el
+     *         ejecutor está cerrado
+     */
+    public <T> Future<T> enviar(String nombre, Callable<T> operacion) {
+        try {
+            return ejecutor.submit(() -> {
+                operacionEnCurso = nombre;
+                try {
+                    return operacion.call();
+                } finally {
+                    operacionEnCurso = null;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Encola una operación sin resultado.
+     *
+     * @param nombre    Nombre de la operación, para diagnóstico
+     * @param operacion Operación a ejecutar en el hilo del programador
+     * @return Futuro de la operación, o null si la cola está llena o el
+     *         ejecutor está cerrado
+     */
+    public Future<?> enviar(String nombre, Runnable operacion) {
+        return enviar(nombre, () -> {
+            operacion.run();
+            return null;
+        });
+    }
+
+    /** @return Nombre de la operación en curso, o null si el programador está libre */
+    public String getOperacionEnCurso() {
+        return operacionEnCurso;
+    }
+
+    /** @return Operaciones esperando en cola */
+    public int getPendientes() {
+        return ejecutor.getQueue().size();
+    }
+
+    /** @return true si hay una operación en curso o en cola */
+    public boolean estaOcupado() {
+        return ejecutor.getActiveCount() > 0 || !ejecutor.getQueue().isEmpty();
+    }
+
+    /**
+     * Cancela las operaciones que aún no empezaron; la operación en curso
+     * continúa.
+     *
+     * @return Número de operaciones canceladas
+     */
+    public int cancelarPendientes() {
+        List<Runnable> pendientes = new ArrayList<>();
+        ejecutor.getQueue().drainTo(pendientes);
+        for (Runnable pendiente : pendientes) {
+            if (pendiente instanceof Future) {
+                ((Future<?>) pendiente).cancel(false);
+            }
+        }
+        return pendientes.size();
+    }
+
+    /**
+     * Registra cómo cancelar la operación en curso, normalmente
+     * {@link PicProgrammingManager#cancelarOperacion()} del gestor que usa este hilo.
+     *
+     * @param cancelador Cancelación cooperativa, o null
+     */
+    public void setCancelador(Runnable cancelador) {
+        this.cancelador = cancelador;
+    }
+
+    /**
+     * Cancela las operaciones pendientes, pide la cancelación cooperativa de la
+     * operación en curso y espera hasta {@link #ESPERA_CIERRE_MS} a que termine,
+     * para que el puerto pueda cerrarse después. No acepta operaciones nuevas.
+     *
+     * @return true si el hilo de trabajo terminó dentro de la espera
+     */
+    public boolean cerrar() {
+        cancelarPendientes();
+        Runnable cancelar = cancelador;
+        if (cancelar != null) {
+            cancelar.run();
+        }
+        ejecutor.shutdown();
+        try {
+            return ejecutor.awaitTermination(ESPERA_CIERRE_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -26,6 +26,10 @@ import java.util.List;
  * Maneja la deteccion de dispositivos USB, permisos y configuracion del puerto
  * serial.
  * Usa SafeBroadcastManager para registro seguro de BroadcastReceivers.
+ *
+ * La conexion se abre siempre en el hilo del programador: la busqueda del
+ * enlace de LinkTuner tarda y solo puede hacerla el hilo que usa el
+ * protocolo, y el puerto y el protocolo solo cambian en ese hilo.
  */
 public class UsbConnectionManager {
 
@@ -41,12 +45,20 @@ public class UsbConnectionManager {
     private final Context context;
     private final SafeBroadcastManager broadcastManager;
     private final Handler mainHandler;
+    private final ProgrammerExecutor ejecutor;
     private UsbManager usbManager;
-    private UsbSerialPort usbSerialPort;
-    private List<UsbSerialDriver> drivers;
-    private ProtocoloP18A protocolo;
+    // Los escribe el hilo del programador; el hilo principal los consulta
+    private volatile UsbSerialPort usbSerialPort;
+    private volatile List<UsbSerialDriver> drivers;
+    private volatile ProtocoloP18A protocolo;
     private TipoProtocolo tipoProtocolo = TipoProtocolo.P18A;
 
+    // Ajuste de velocidad y latencia del enlace, recordado por dispositivo
+    private final LinkTuner linkTuner;
+    private String claveDispositivo;
+    // Fallos del enlace del protocolo al empezar la operacion en curso
+    private int fallosDeEnlaceAlIniciar;
+
     // Interfaz para notificar eventos de conexion
     private UsbConnectionListener connectionListener;
 
@@ -59,15 +71,19 @@ public class UsbConnectionManager {
         void onConnectionError(String errorMessage);
     }
 
-    /** BroadcastReceiver para manejar permisos USB */
+    /** BroadcastReceiver para manejar permisos USB; conecta en el hilo del programador */
     private final BroadcastReceiver usbReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
             if (ACTION_USB_PERMISSION.equals(intent.getAction())) {
                 // Verificar que drivers no sea null antes de acceder
-                if (drivers != null && !drivers.isEmpty()) {
-                    UsbSerialDriver driver = drivers.get(0);
-                    connectToDevice(driver);
+                List<UsbSerialDriver> detectados = drivers;
+                if (detectados != null && !detectados.isEmpty()) {
+                    UsbSerialDriver driver = detectados.get(0);
+                    String nombre = UsbConnectionManager.this.context.getString(R.string.conectando_programador);
+                    if (ejecutor.enviar(nombre, () -> connectToDevice(driver)) == null) {
+                        notifyError(UsbConnectionManager.this.context.getString(R.string.programador_ocupado));
+                    }
                 }
             }
         }
@@ -76,13 +92,16 @@ public class UsbConnectionManager {
     /**
      * Constructor del gestor de conexiones USB
      *
-     * @param context Contexto de la aplicacion
+     * @param context  Contexto de la aplicacion
+     * @param ejecutor Hilo del programador, donde se abre la conexion
      */
-    public UsbConnectionManager(Context context) {
+    public UsbConnectionManager(Context context, ProgrammerExecutor ejecutor) {
         this.context = context;
+        this.ejecutor = ejecutor;
         this.usbManager = (UsbManager) context.getSystemService(Context.USB_SERVICE);
         this.broadcastManager = new SafeBroadcastManager(context);
         this.mainHandler = new Handler(Looper.getMainLooper());
+        this.linkTuner = new LinkTuner(context);
     }
 
     /**
@@ -98,7 +117,8 @@ public class UsbConnectionManager {
      * Inicializa el gestor USB.
      * NOTA: El registro del BroadcastReceiver DEBE hacerse en el main thread,
      * pero el escaneo de drivers puede estar en background.
-     * Esta funcion puede llamarse desde cualquier hilo.
+     * Debe llamarse desde el hilo del programador: si ya hay permiso, conecta
+     * en el acto.
      */
     public void initialize() {
         // Registrar el BroadcastReceiver en el hilo principal para evitar bloqueos del
@@ -140,7 +160,8 @@ public class UsbConnectionManager {
     }
 
     /**
-     * Conecta al dispositivo USB programador
+     * Conecta al dispositivo USB programador. Debe llamarse desde el hilo del
+     * programador.
      *
      * @param driver Driver USB del dispositivo programador
      */
@@ -164,17 +185,21 @@ public class UsbConnectionManager {
             usbSerialPort.open(usbManager.openDevice(driver.getDevice()));
 
             // Configurar parametros del puerto serial
-            usbSerialPort.setParameters(BAUD_RATE, DATA_BITS, STOP_BITS, PARITY);
+            configurarPuerto(usbSerialPort);
 
-            // Crear e inicializar protocolo
+            // Crear e inicializar protocolo con el enlace mas rapido que soporte el
+            // dispositivo (guardado de conexiones anteriores o buscado ahora)
             protocolo = new ProtocoloP18A(context, usbSerialPort, tipoProtocolo);
-            boolean protocoloIniciado = protocolo.iniciarProtocolo();
+            fallosDeEnlaceAlIniciar = 0;
+            claveDispositivo = LinkTuner.crearClave(driver.getDevice());
+            boolean protocoloIniciado = linkTuner.sintonizar(usbSerialPort, protocolo, claveDispositivo);
 
             if (!protocoloIniciado) {
                 cleanupConnection();
                 notifyError(context.getString(R.string.error_inicializando_protocolo_));
                 return;
             }
+            linkTuner.aplicarVentanaROM(protocolo);
 
             // Notificar conexion exitosa
             if (connectionListener != null) {
@@ -191,6 +216,73 @@ public class UsbConnectionManager {
         }
     }
 
+    /**
+     * Aplica los parametros serie del programador K150 a un puerto ya abierto
+     *
+     * @param puerto Puerto abierto
+     * @throws IOException Si el puerto rechaza la configuracion
+     */
+    static void configurarPuerto(UsbSerialPort puerto) throws IOException {
+        configurarPuerto(puerto, BAUD_RATE);
+    }
+
+    /**
+     * Aplica los parametros serie del programador con otra velocidad
+     *
+     * @param puerto  Puerto abierto
+     * @param baudios Velocidad en baudios
+     * @throws IOException Si el puerto rechaza la configuracion
+     */
+    static void configurarPuerto(UsbSerialPort puerto, int baudios) throws IOException {
+        puerto.setParameters(baudios, DATA_BITS, STOP_BITS, PARITY);
+    }
+
+    /**
+     * Marca el comienzo de una operacion del programador; los fallos del
+     * enlace se cuentan a partir de aqui. Debe llamarse desde el hilo del
+     * programador.
+     */
+    public void iniciarOperacion() {
+        if (protocolo != null) {
+            fallosDeEnlaceAlIniciar = protocolo.getFallosDeEnlace();
+        }
+    }
+
+    /**
+     * Informa del resultado de una operacion del programador para que el enlace
+     * vuelva a los parametros por defecto si el ajuste deja de ser fiable. Un
+     * fallo solo cuenta si durante la operacion hubo timeouts o errores del
+     * driver; un chip que no verifica o un HEX invalido no dicen nada del
+     * enlace. Debe llamarse desde el hilo del programador.
+     *
+     * @param exito true si la operacion termino bien
+     */
+    public void registrarResultadoOperacion(boolean exito) {
+        if (!isConnected()) {
+            return;
+        }
+        linkTuner.recordarVentanaROM(protocolo, claveDispositivo);
+        if (exito) {
+            linkTuner.registrarExito();
+        } else if (protocolo.getFallosDeEnlace() != fallosDeEnlaceAlIniciar
+                && linkTuner.registrarFallo(usbSerialPort, protocolo, claveDispositivo)) {
+            Log.w(TAG, "Enlace degradado a " + linkTuner.getAjusteActual());
+            linkTuner.aplicarVentanaROM(protocolo);
+        }
+    }
+
+    /** @return Velocidad y latencia del enlace actual */
+    public LinkTuner.AjusteEnlace getAjusteEnlace() {
+        return linkTuner.getAjusteActual();
+    }
+
+    /** Olvida el ajuste guardado del dispositivo; se vuelve a buscar al reconectar */
+    public void olvidarAjusteEnlace() {
+        if (claveDispositivo != null) {
+            linkTuner.olvidar(claveDispositivo);
+        }
+    }
+
     /** Limpia el estado de conexion cuando ocurre un error */
     private void cleanupConnection() {
         if (usbSerialPort != null) {
@@ -2,8 +2,11 @@ package com.diamon.managers;
 
 import com.diamon.pic.R;
 import com.diamon.chip.ChipPic;
+import com.diamon.datos.DatosPicProcesados;
 import com.diamon.excepciones.ChipConfigurationException;
 import com.diamon.nucleo.Protocolo;
+import com.diamon.nucleo.ResultadoLectura;
+import com.diamon.nucleo.TablaChecksums;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,6 +22,7 @@ import java.util.Map;
  * <li>Lee EEPROM después de programar y compara byte-a-byte
  * <li>Detecta si la ROM está locked (todo ceros)
  * <li>Lee y decodifica la configuración de fuses del chip
+ * <li>Verificación rápida por CRC de bloque, reutilizando la lectura hecha al grabar
  * </ul>
  *
  * @author Danielk10
@@ -100,8 +104,8 @@ public class VerificationManager {
      *
      * CORREGIDO: Ahora recibe byte[] procesados del HEX (como hace Python).
      * Python compara: read_rom() bytes == flash_data.rom_data bytes
-     * Android ahora: leerMemoriaROMDelPic() → bytes == DatosPicProcesados.romData
-     * bytes
+     * Android ahora: leerMemoriaROM() → bytes == DatosPicProcesados.romData
+     * bytes, sin pasar por texto hexadecimal
      *
      * @param protocolo           Protocolo de comunicación activo
      * @param chipPIC             Configuración del chip
@@ -111,6 +115,24 @@ public class VerificationManager {
      */
     public static VerificationResult verify(android.content.Context context, Protocolo protocolo, ChipPic chipPIC,
             byte[] expectedRomBytes, byte[] expectedEepromBytes) {
+        return verify(context, protocolo, chipPIC, expectedRomBytes, expectedEepromBytes, false);
+    }
+
+    /**
+     * Ejecuta la pipeline de verificación comparando cada fragmento de ROM y EEPROM
+     * mientras se lee del puerto serie.
+     *
+     * <p>
+     * Con {@code abortOnFirstMismatch} la lectura se detiene en el primer byte
+     * distinto, de modo que un chip defectuoso se rechaza sin esperar el volcado
+     * completo; el conteo de diferencias refleja entonces solo lo comparado.
+     *
+     * @param abortOnFirstMismatch true para detener cada lectura en la primera
+     *                             diferencia
+     * @return Resultado de la verificación
+     */
+    public static VerificationResult verify(android.content.Context context, Protocolo protocolo, ChipPic chipPIC,
+            byte[] expectedRomBytes, byte[] expectedEepromBytes, boolean abortOnFirstMismatch) {
 
         List<String> messages = new ArrayList<>();
         boolean romVerified = false;
@@ -123,35 +145,36 @@ public class VerificationManager {
         // 1. Leer configuración del chip (equivalente a read_config +
         // _print_chip_config)
         try {
-            String configData = protocolo.leerDatosDeConfiguracionDelPic();
-            if (configData != null && !configData.startsWith("Error") && configData.length() >= 4) {
-                // Config tiene 26 bytes = 52 chars hex
+            ResultadoLectura lecturaConfig = protocolo.leerDatosDeConfiguracion(null);
+            if (lecturaConfig.tieneDatosUtilizables() && lecturaConfig.getLongitud() >= 2) {
+                // Config tiene 26 bytes
+                byte[] config = lecturaConfig.getDatos();
+                int configLen = lecturaConfig.getLongitud();
+
                 // Bytes 0-1: Chip ID
-                if (configData.length() >= 4) {
-                    chipIdHex = "0x" + configData.substring(0, 4);
-                }
+                chipIdHex = String.format("0x%02X%02X", config[0] & 0xFF, config[1] & 0xFF);
+
                 // Últimos 2 bytes: Calibración
-                if (configData.length() >= 52) {
-                    calibrationHex = "0x" + configData.substring(48, 52);
+                if (configLen >= 26) {
+                    calibrationHex = String.format("0x%02X%02X", config[24] & 0xFF, config[25] & 0xFF);
                 }
 
                 // Intentar decodificar fuses desde la config leída
                 try {
-                    if (configData.length() >= 48) {
-                        List<Integer> fuseValues = new ArrayList<>();
+                    if (configLen >= 24) {
                         int tipoNucleo = chipPIC.getTipoDeNucleoBit();
                         int numFuses = (tipoNucleo == 16) ? 7 : 1;
+                        int[] fuseValues = new int[numFuses];
+                        int leidos = 0;
 
-                        for (int i = 0; i < numFuses && (20 + i * 4) <= configData.length() - 4; i++) {
-                            int startIdx = 20 + i * 4;
-                            String fuseHex = configData.substring(startIdx, startIdx + 4);
-                            // Little-endian: swap bytes
-                            String swapped = fuseHex.substring(2, 4) + fuseHex.substring(0, 2);
-                            fuseValues.add(Integer.parseInt(swapped, 16));
+                        for (int i = 0; i < numFuses && (10 + i * 2) <= configLen - 2; i++) {
+                            int startIdx = 10 + i * 2;
+                            // Little-endian
+                            fuseValues[leidos++] = (config[startIdx] & 0xFF) | ((config[startIdx + 1] & 0xFF) << 8);
                         }
 
-                        if (!fuseValues.isEmpty()) {
-                            decodedFuses = chipPIC.decodeFuseData(fuseValues);
+                        if (leidos > 0) {
+                            decodedFuses = chipPIC.decodeFuseData(fuseValues, leidos);
                             messages.add(context.getString(R.string.fuses_decodificados_exito));
                         }
                     }
@@ -171,45 +194,40 @@ public class VerificationManager {
         if (expectedRomBytes != null && expectedRomBytes.length > 0) {
             try {
                 messages.add(context.getString(R.string.verificando_rom_label));
-                String actualRomHex = protocolo.leerMemoriaROMDelPic(chipPIC);
+                StreamingVerifier romVerifier = new StreamingVerifier(expectedRomBytes, abortOnFirstMismatch);
+                ResultadoLectura lecturaRom = protocolo.leerMemoriaROM(chipPIC, null, romVerifier);
 
-                if (actualRomHex != null && !actualRomHex.startsWith("Error")) {
-                    // Convertir hex string leído del chip a byte[]
-                    byte[] actualRomBytes = hexStringToBytes(actualRomHex);
+                if (lecturaRom.tieneDatosUtilizables()) {
+                    romVerifier.finish(lecturaRom.getLongitud());
 
-                    if (actualRomBytes != null) {
-                        // Comparar byte-a-byte (como Python)
-                        if (bytesEqual(expectedRomBytes, actualRomBytes)) {
-                            romVerified = true;
-                            messages.add(context.getString(R.string.rom_verificada_exito));
-                        } else {
+                    // Comparar byte-a-byte (como Python), ya hecho durante la lectura
+                    if (romVerifier.isVerified()) {
+                        romVerified = true;
+                        messages.add(context.getString(R.string.rom_verificada_exito));
+                    } else {
+                        if (!romVerifier.isAborted()) {
                             // Detectar si está locked (todo ceros) — como Python:
                             // no_of_zeros = pic_rom_data.count(b'\x00')
                             // is_maybe_locked = pic_rom_data_len == no_of_zeros
-                            int zeroCount = 0;
-                            for (byte b : actualRomBytes) {
-                                if (b == 0)
-                                    zeroCount++;
-                            }
+                            int actualRomLen = lecturaRom.getLongitud();
+                            int zeroCount = romVerifier.getZeroCount();
                             boolean calWord = chipPIC.isFlagCalibration();
 
                             if (calWord) {
                                 // Si tiene cal_word, los últimos 2 bytes no serán cero
-                                romMaybeLocked = (actualRomBytes.length - 2) == zeroCount;
+                                romMaybeLocked = (actualRomLen - 2) == zeroCount;
                             } else {
-                                romMaybeLocked = actualRomBytes.length == zeroCount;
+                                romMaybeLocked = actualRomLen == zeroCount;
                             }
+                        }
 
-                            if (romMaybeLocked) {
-                                messages.add(context.getString(R.string.rom_fallo_locked_label));
-                            } else {
-                                // Agregar info de mismatch para debug
-                                int mismatchCount = countMismatches(expectedRomBytes, actualRomBytes);
-                                messages.add(context.getString(R.string.rom_fallo_mismatch, mismatchCount, expectedRomBytes.length));
-                            }
+                        if (romMaybeLocked) {
+                            messages.add(context.getString(R.string.rom_fallo_locked_label));
+                        } else {
+                            // Agregar info de mismatch para debug
+                            messages.add(context.getString(R.string.rom_fallo_mismatch,
+                                    romVerifier.getMismatchCount(), romVerifier.getComparedLength()));
                         }
-                    } else {
-                        messages.add(context.getString(R.string.error_convertir_rom));
                     }
                 } else {
                     messages.add(context.getString(R.string.error_leyendo_rom_verif));
@@ -224,21 +242,19 @@ public class VerificationManager {
             try {
                 if (chipPIC.isTamanoValidoDeEEPROM()) {
                     messages.add(context.getString(R.string.verificando_eeprom_label));
-                    String actualEepromHex = protocolo.leerMemoriaEEPROMDelPic(chipPIC);
+                    StreamingVerifier eepromVerifier = new StreamingVerifier(expectedEepromBytes,
+                            abortOnFirstMismatch);
+                    ResultadoLectura lecturaEeprom = protocolo.leerMemoriaEEPROM(chipPIC, null, eepromVerifier);
 
-                    if (actualEepromHex != null && !actualEepromHex.startsWith("Error")) {
-                        byte[] actualEepromBytes = hexStringToBytes(actualEepromHex);
+                    if (lecturaEeprom.tieneDatosUtilizables()) {
+                        eepromVerifier.finish(lecturaEeprom.getLongitud());
 
-                        if (actualEepromBytes != null) {
-                            if (bytesEqual(expectedEepromBytes, actualEepromBytes)) {
-                                eepromVerified = true;
-                                messages.add(context.getString(R.string.eeprom_verificada_exito));
-                            } else {
-                                int mismatchCount = countMismatches(expectedEepromBytes, actualEepromBytes);
-                                messages.add(context.getString(R.string.eeprom_fallo_mismatch, mismatchCount, expectedEepromBytes.length));
-                            }
+                        if (eepromVerifier.isVerified()) {
+                            eepromVerified = true;
+                            messages.add(context.getString(R.string.eeprom_verificada_exito));
                         } else {
-                            messages.add(context.getString(R.string.error_convertir_eeprom));
+                            messages.add(context.getString(R.string.eeprom_fallo_mismatch,
+                                    eepromVerifier.getMismatchCount(), eepromVerifier.getComparedLength()));
                         }
                     } else {
                         messages.add(context.getString(R.string.error_leyendo_eeprom_verif));
@@ -259,62 +275,367 @@ public class VerificationManager {
     }
 
     /**
-     * Compara dos arrays de bytes teniendo en cuenta que pueden tener tamaños
-     * ligeramente distintos.
-     * Compara hasta el tamaño del menor.
+     * Verificación rápida por CRC de bloque.
+     *
+     * <p>
+     * Compara el CRC32 de cada bloque de 64 bytes leído con la tabla de la imagen, que se
+     * calcula una sola vez por imagen procesada, y solo compara byte a byte los bloques cuyo
+     * CRC difiere. El resultado es el mismo que el de la comparación completa.
+     *
+     * <p>
+     * El K150 no calcula checksums en el chip, así que la memoria siempre se recibe completa.
+     * Con {@code usarReadback} la ROM se verifica con la lectura que el protocolo hizo al
+     * terminar de grabar, sin volver a volcarla por el puerto serie; solo debe pedirse justo
+     * después de grabar, con el mismo chip en el socket. Si no hay una lectura vigente, los CRC
+     * se calculan mientras llega el volcado.
+     *
+     * @param datos                Imagen procesada a comparar
+     * @param usarReadback         true para usar la lectura posterior a la grabación
+     * @param abortOnFirstMismatch true para detener cada lectura en el primer bloque distinto
+     * @return Resultado de la verificación
      */
-    private static boolean bytesEqual(byte[] expected, byte[] actual) {
-        int compareLength = Math.min(expected.length, actual.length);
-        for (int i = 0; i < compareLength; i++) {
-            if (expected[i] != actual[i]) {
-                return false;
+    public static VerificationResult verifyConChecksums(android.content.Context context, Protocolo protocolo,
+            ChipPic chipPIC, DatosPicProcesados datos, boolean usarReadback, boolean abortOnFirstMismatch) {
+
+        // 1. Configuración y fuses: la misma lectura que la verificación completa
+        VerificationResult configuracion = verify(context, protocolo, chipPIC, null, null, abortOnFirstMismatch);
+        List<String> messages = new ArrayList<>(configuracion.messages);
+        boolean romVerified = false;
+        boolean eepromVerified = false;
+        boolean romMaybeLocked = false;
+
+        // 2. ROM: lectura posterior a la grabación si la hay, o volcado con CRC incremental
+        byte[] expectedRomBytes = datos.obtenerBytesHexROMProcesado();
+        if (expectedRomBytes != null && expectedRomBytes.length > 0) {
+            try {
+                messages.add(context.getString(R.string.verificando_rom_label));
+                ChecksumVerifier romVerifier = new ChecksumVerifier(
+                        expectedRomBytes, datos.getChecksumsROM(), abortOnFirstMismatch);
+
+                ResultadoLectura lecturaRom = usarReadback ? protocolo.getReadbackROM() : null;
+                TablaChecksums checksumsLeidos = protocolo.getChecksumsReadbackROM();
+                if (lecturaRom != null && checksumsLeidos != null) {
+                    // Se consume: otra verificación debe leer el chip de nuevo
+                    protocolo.descartarReadbackROM();
+                    romVerifier.compararTabla(lecturaRom.getDatos(), checksumsLeidos);
+                    messages.add(context.getString(R.string.rom_comparada_con_readback));
+                } else {
+                    lecturaRom = protocolo.leerMemoriaROM(chipPIC, null, romVerifier);
+                }
+
+                if (lecturaRom.tieneDatosUtilizables()) {
+                    romVerifier.finish(lecturaRom.getLongitud());
+
+                    if (romVerifier.isVerified()) {
+                        romVerified = true;
+                        messages.add(context.getString(R.string.rom_verificada_exito));
+                    } else {
+                        if (!romVerifier.isAborted()) {
+                            int actualRomLen = lecturaRom.getLongitud();
+                            int zeroCount = contarCeros(lecturaRom.getDatos(), actualRomLen);
+                            if (chipPIC.isFlagCalibration()) {
+                                romMaybeLocked = (actualRomLen - 2) == zeroCount;
+                            } else {
+                                romMaybeLocked = actualRomLen == zeroCount;
+                            }
+                        }
+
+                        if (romMaybeLocked) {
+                            messages.add(context.getString(R.string.rom_fallo_locked_label));
+                        } else {
+                            messages.add(context.getString(R.string.rom_fallo_mismatch,
+                                    romVerifier.getMismatchCount(), romVerifier.getComparedLength()));
+                            messages.add(context.getString(R.string.rom_bloques_con_diferencias,
+                                    romVerifier.getBloquesDistintos()));
+                        }
+                    }
+                } else {
+                    messages.add(context.getString(R.string.error_leyendo_rom_verif));
+                }
+            } catch (Exception e) {
+                messages.add(context.getString(R.string.error_verif_rom_detalle, e.getMessage()));
             }
         }
-        // Si los tamaños difieren, verificar que los bytes extra son blancos (0xFF)
-        if (expected.length != actual.length) {
-            byte[] longer = expected.length > actual.length ? expected : actual;
-            for (int i = compareLength; i < longer.length; i++) {
-                if (longer[i] != (byte) 0xFF && longer[i] != 0x00) {
-                    return false;
+
+        // 3. EEPROM: siempre se vuelca, con CRC incremental
+        byte[] expectedEepromBytes = datos.obtenerBytesHexEEPROMProcesado();
+        if (expectedEepromBytes != null && expectedEepromBytes.length > 0) {
+            try {
+                if (chipPIC.isTamanoValidoDeEEPROM()) {
+                    messages.add(context.getString(R.string.verificando_eeprom_label));
+                    ChecksumVerifier eepromVerifier = new ChecksumVerifier(
+                            expectedEepromBytes, datos.getChecksumsEEPROM(), abortOnFirstMismatch);
+                    ResultadoLectura lecturaEeprom = protocolo.leerMemoriaEEPROM(chipPIC, null, eepromVerifier);
+
+                    if (lecturaEeprom.tieneDatosUtilizables()) {
+                        eepromVerifier.finish(lecturaEeprom.getLongitud());
+
+                        if (eepromVerifier.isVerified()) {
+                            eepromVerified = true;
+                            messages.add(context.getString(R.string.eeprom_verificada_exito));
+                        } else {
+                            messages.add(context.getString(R.string.eeprom_fallo_mismatch,
+                                    eepromVerifier.getMismatchCount(), eepromVerifier.getComparedLength()));
+                        }
+                    } else {
+                        messages.add(context.getString(R.string.error_leyendo_eeprom_verif));
+                    }
+                } else {
+                    eepromVerified = true; // No EEPROM = OK
+                    messages.add(context.getString(R.string.chip_sin_eeprom_verif));
                 }
+            } catch (Exception e) {
+                messages.add(context.getString(R.string.error_verif_eeprom_detalle, e.getMessage()));
             }
+        } else {
+            eepromVerified = true; // No se esperaba EEPROM
         }
-        return true;
+
+        return new VerificationResult(romVerified, eepromVerified, romMaybeLocked,
+                configuracion.chipIdHex, configuracion.calibrationHex, configuracion.decodedFuses, messages);
+    }
+
+    private static int contarCeros(byte[] datos, int longitud) {
+        int ceros = 0;
+        for (int i = 0; i < longitud; i++) {
+            if (datos[i] == 0) {
+                ceros++;
+            }
+        }
+        return ceros;
     }
 
     /**
-     * Cuenta los bytes que no coinciden entre dos arrays.
+     * Verificador por CRC de bloque.
+     *
+     * <p>
+     * Calcula el CRC32 de cada bloque de la lectura a medida que llega y lo compara con la
+     * tabla de la imagen esperada. Los bloques que coinciden no se recorren más; los distintos
+     * pasan por un {@link StreamingVerifier}, que aplica las mismas reglas que la comparación
+     * completa y cuenta las diferencias reales (un bloque fuera de la imagen puede diferir en
+     * CRC y ser válido si está en blanco).
      */
-    private static int countMismatches(byte[] expected, byte[] actual) {
-        int mismatches = 0;
-        int maxLen = Math.max(expected.length, actual.length);
-        for (int i = 0; i < maxLen; i++) {
-            byte e = i < expected.length ? expected[i] : (byte) 0xFF;
-            byte a = i < actual.length ? actual[i] : (byte) 0xFF;
-            if (e != a)
-                mismatches++;
+    public static class ChecksumVerifier extends TablaChecksums.Acumulador {
+        private final TablaChecksums esperada;
+        private final StreamingVerifier diferencias;
+        private final int expectedLength;
+        private int bloquesDistintos;
+        private int comparedLength;
+        private boolean aborted;
+
+        /**
+         * @param expected             Imagen esperada (ROM o EEPROM procesada del HEX)
+         * @param esperada             Tabla de CRC de la imagen, o null para calcularla
+         * @param abortOnFirstMismatch true para pedir que la lectura se detenga en el
+         *                             primer bloque con diferencias
+         */
+        public ChecksumVerifier(byte[] expected, TablaChecksums esperada, boolean abortOnFirstMismatch) {
+            byte[] imagen = expected != null ? expected : new byte[0];
+            this.esperada = esperada != null ? esperada : TablaChecksums.calcular(imagen, imagen.length);
+            this.diferencias = new StreamingVerifier(imagen, abortOnFirstMismatch);
+            this.expectedLength = imagen.length;
+        }
+
+        @Override
+        protected boolean bloqueCompletado(int bloque, int crc, byte[] datos, int inicio, int longitud) {
+            comparedLength = inicio + longitud;
+            if (bloque < esperada.getCantidadBloques()
+                    && esperada.getCrc(bloque) == crc
+                    && esperada.getLongitudBloque(bloque) == longitud) {
+                return true;
+            }
+            return compararBytes(datos, inicio, longitud);
+        }
+
+        /**
+         * Compara una lectura cuyos CRC ya se calcularon, sin recorrer los bloques que
+         * coinciden.
+         *
+         * @param datos Búfer de la lectura
+         * @param leida Tabla de CRC de la lectura
+         */
+        public void compararTabla(byte[] datos, TablaChecksums leida) {
+            for (int bloque = 0; bloque < leida.getCantidadBloques() && !aborted; bloque++) {
+                int longitud = leida.getLongitudBloque(bloque);
+                comparedLength = bloque * TablaChecksums.TAMANO_BLOQUE + longitud;
+                if (!leida.coincideBloque(bloque, esperada)) {
+                    compararBytes(datos, bloque * TablaChecksums.TAMANO_BLOQUE, longitud);
+                }
+            }
+        }
+
+        private boolean compararBytes(byte[] datos, int inicio, int longitud) {
+            int previas = diferencias.getMismatchCount();
+            boolean continuar = diferencias.fragmentoRecibido(datos, inicio, longitud);
+            if (diferencias.getMismatchCount() > previas) {
+                bloquesDistintos++;
+            }
+            if (!continuar) {
+                aborted = true;
+            }
+            return continuar;
+        }
+
+        /**
+         * Cierra la verificación con la longitud final leída: compara el último bloque parcial
+         * y exige que la imagen esperada esté en blanco más allá de lo leído.
+         *
+         * @param totalRead Bytes recibidos del chip
+         */
+        public void finish(int totalRead) {
+            if (!aborted) {
+                terminar();
+            }
+            diferencias.finish(totalRead);
+            if (!aborted) {
+                comparedLength = Math.max(totalRead, expectedLength);
+            }
+        }
+
+        /** @return true si la lectura terminó y no hubo diferencias */
+        public boolean isVerified() {
+            return !aborted && diferencias.isVerified();
+        }
+
+        /** @return true si se pidió detener la lectura por una diferencia */
+        public boolean isAborted() {
+            return aborted;
+        }
+
+        public int getMismatchCount() {
+            return diferencias.getMismatchCount();
+        }
+
+        /** @return Bytes considerados en la comparación hasta ahora */
+        public int getComparedLength() {
+            return comparedLength;
+        }
+
+        /** @return Offset del primer byte distinto, o -1 si no hubo diferencias */
+        public int getFirstMismatchOffset() {
+            return diferencias.getFirstMismatchOffset();
+        }
+
+        /** @return Bloques cuyo CRC difería y tenían diferencias reales */
+        public int getBloquesDistintos() {
+            return bloquesDistintos;
         }
-        return mismatches;
     }
 
     /**
-     * Convierte un hex string a byte array.
+     * Verificador incremental de memoria.
+     *
+     * <p>
+     * Se registra como observador de la lectura y compara cada fragmento (hasta 64
+     * bytes) contra la imagen esperada en cuanto llega del puerto serie, sin
+     * guardar ni convertir el volcado. Mantiene las mismas reglas que la
+     * comparación completa: los bytes fuera del tamaño común solo son aceptables
+     * si están en blanco (0xFF o 0x00).
      */
-    private static byte[] hexStringToBytes(String hexStr) {
-        if (hexStr == null)
-            return null;
-        String clean = hexStr.replaceAll("\\s+", "");
-        if (clean.length() % 2 != 0)
-            return null;
+    public static class StreamingVerifier implements Protocolo.ObservadorLectura {
+        private final byte[] expected;
+        private final boolean abortOnFirstMismatch;
+        private int mismatchCount;
+        private int zeroCount;
+        private int comparedLength;
+        private int firstMismatchOffset = -1;
+        private boolean aborted;
+        private boolean finished;
 
-        try {
-            byte[] result = new byte[clean.length() / 2];
-            for (int i = 0; i < result.length; i++) {
-                result[i] = (byte) Integer.parseInt(clean.substring(i * 2, i * 2 + 2), 16);
+        /**
+         * @param expected             Imagen esperada (ROM o EEPROM procesada del HEX)
+         * @param abortOnFirstMismatch true para pedir que la lectura se detenga en la
+         *                             primera diferencia
+         */
+        public StreamingVerifier(byte[] expected, boolean abortOnFirstMismatch) {
+            this.expected = expected != null ? expected : new byte[0];
+            this.abortOnFirstMismatch = abortOnFirstMismatch;
+        }
+
+        @Override
+        public boolean fragmentoRecibido(byte[] datos, int offset, int longitud) {
+            int end = offset + longitud;
+            for (int i = offset; i < end; i++) {
+                byte actual = datos[i];
+                if (actual == 0) {
+                    zeroCount++;
+                }
+                if (!matches(i, actual)) {
+                    if (firstMismatchOffset < 0) {
+                        firstMismatchOffset = i;
+                    }
+                    mismatchCount++;
+                }
+            }
+            comparedLength = end;
+
+            if (abortOnFirstMismatch && mismatchCount > 0) {
+                aborted = true;
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Cierra la verificación con la longitud final leída. Si la lectura fue más
+         * corta que la imagen esperada, los bytes esperados restantes deben estar en
+         * blanco.
+         *
+         * @param totalRead Bytes recibidos del chip
+         */
+        public void finish(int totalRead) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (aborted) {
+                return;
             }
-            return result;
-        } catch (NumberFormatException e) {
-            return null;
+            for (int i = totalRead; i < expected.length; i++) {
+                if (expected[i] != (byte) 0xFF && expected[i] != 0x00) {
+                    if (firstMismatchOffset < 0) {
+                        firstMismatchOffset = i;
+                    }
+                    mismatchCount++;
+                }
+            }
+            comparedLength = Math.max(totalRead, expected.length);
+        }
+
+        private boolean matches(int offset, byte actual) {
+            if (offset < expected.length) {
+                return expected[offset] == actual;
+            }
+            return actual == (byte) 0xFF || actual == 0x00;
+        }
+
+        /** @return true si la lectura terminó y no hubo diferencias */
+        public boolean isVerified() {
+            return finished && !aborted && mismatchCount == 0;
+        }
+
+        /** @return true si se pidió detener la lectura por una diferencia */
+        public boolean isAborted() {
+            return aborted;
+        }
+
+        public int getMismatchCount() {
+            return mismatchCount;
+        }
+
+        /** @return Bytes considerados en la comparación hasta ahora */
+        public int getComparedLength() {
+            return comparedLength;
+        }
+
+        /** @return Offset del primer byte distinto, o -1 si no hubo diferencias */
+        public int getFirstMismatchOffset() {
+            return firstMismatchOffset;
+        }
+
+        /** @return Bytes en cero recibidos (para detectar chips protegidos) */
+        public int getZeroCount() {
+            return zeroCount;
         }
     }
 
@@ -0,0 +1,341 @@
+package com.diamon.nucleo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Métricas de las transferencias de un protocolo con el programador.
+ *
+ * <p>Cada escritura y lectura del puerto se anota bajo la operación en curso: la descripción de
+ * la última escritura (por ejemplo {@code comando_7} o {@code bloque_ROM}), de modo que las
+ * lecturas que le siguen, las respuestas del firmware, cuentan para el comando que las provocó.
+ * Por operación se acumulan contadores, bytes, lecturas vacías, timeouts e histogramas de
+ * latencia, suficientes para ver en qué se va el tiempo de un ciclo de grabación.
+ *
+ * <p>El registro no asigna memoria una vez creada la operación y cuesta un acceso a mapa y un
+ * cerrojo sin contención; puede desactivarse con {@link #setActiva(boolean)}. Las consultas
+ * devuelven copias y pueden hacerse desde cualquier hilo.
+ *
+ * @author Danielk10
+ * @version 1.0
+ * @since 2025
+ */
+public final class MetricasProtocolo {
+
+    /**
+     * Histograma de latencias en microsegundos con cubetas log-lineales, al estilo de
+     * HdrHistogram: cada potencia de dos se divide en {@link #SUBCUBETAS} cubetas, con un error
+     * relativo máximo del 12,5 %. Los valores por encima de unos 35 minutos se acumulan en la
+     * última cubeta.
+     */
+    public static final class Histograma {
+        private static final int BITS_SUBCUBETA = 3;
+        private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+        private static final int EXPONENTE_MAXIMO = 31;
+        private static final int CUBETAS =
+                SUBCUBETAS + (EXPONENTE_MAXIMO - BITS_SUBCUBETA + 1) * SUBCUBETAS;
+
+        private final long[] cuentas;
+        private long muestras;
+        private long suma;
+        private long minimo = Long.MAX_VALUE;
+        private long maximo;
+
+        Histograma() {
+            cuentas = new long[CUBETAS];
+        }
+
+        private Histograma(Histograma otro) {
+            cuentas = otro.cuentas.clone();
+            muestras = otro.muestras;
+            suma = otro.suma;
+            minimo = otro.minimo;
+            maximo = otro.maximo;
+        }
+
+        void registrar(long micros) {
+            cuentas[indice(micros)]++;
+            muestras++;
+            suma += micros;
+            minimo = Math.min(minimo, micros);
+            maximo = Math.max(maximo, micros);
+        }
+
+        private static int indice(long valor) {
+            if (valor < SUBCUBETAS) {
+                return (int) Math.max(0, valor);
+            }
+            int exponente = 63 - Long.numberOfLeadingZeros(valor);
+            if (exponente > EXPONENTE_MAXIMO) {
+                return CUBETAS - 1;
+            }
+            int sub = (int) (valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+            return SUBCUBETAS + (exponente - BITS_SUBCUBETA) * SUBCUBETAS + sub;
+        }
+
+        /** Valor central de una cubeta */
+        private static long valorDeCubeta(int indice) {
+            if (indice < SUBCUBETAS) {
+                return indice;
+            }
+            int exponente = (indice - SUBCUBETAS) / SUBCUBETAS + BITS_SUBCUBETA;
+            int sub = (indice - SUBCUBETAS) % SUBCUBETAS;
+            long ancho = 1L << (exponente - BITS_SUBCUBETA);
+            return ((long) (SUBCUBETAS + sub) << (exponente - BITS_SUBCUBETA)) + ancho / 2;
+        }
+
+        /** @return Número de valores registrados */
+        public long getMuestras() {
+            return muestras;
+        }
+
+        /** @return Valor mínimo registrado, o 0 si no hay muestras */
+        public long getMinimoMicros() {
+            return muestras == 0 ? 0 : minimo;
+        }
+
+        /** @return Valor máximo registrado */
+        public long getMaximoMicros() {
+            return maximo;
+        }
+
+        /** @return Media de los valores, o 0 si no hay muestras */
+        public double getMediaMicros() {
+            return muestras == 0 ? 0 : (double) suma / muestras;
+        }
+
+        /**
+         * @param percentil Percentil entre 0 y 100
+         * @return Valor aproximado del percentil, acotado por el mínimo y el máximo exactos
+         */
+        public long getPercentilMicros(double percentil) {
+            if (muestras == 0) {
+                return 0;
+            }
+            long objetivo = Math.max(1, (long) Math.ceil(muestras * percentil / 100.0));
+            long acumuladas = 0;
+            for (int i = 0; i < cuentas.length; i++) {
+                acumuladas += cuentas[i];
+                if (acumuladas >= objetivo) {
+                    return Math.max(minimo, Math.min(maximo, valorDeCubeta(i)));
+                }
+            }
+            return maximo;
+        }
+    }
+
+    /** Acumulados de una operación */
+    public static final class Operacion {
+        private final String nombre;
+        private long escrituras;
+        private long bytesEscritos;
+        private long lecturas;
+        private long lecturasVacias;
+        private long bytesLeidos;
+        private long timeouts;
+        private final Histograma latenciaEscritura;
+        private final Histograma latenciaLectura;
+
+        Operacion(String nombre) {
+            this.nombre = nombre;
+            this.latenciaEscritura = new Histograma();
+            this.latenciaLectura = new Histograma();
+        }
+
+        private Operacion(Operacion otra) {
+            nombre = otra.nombre;
+            escrituras = otra.escrituras;
+            bytesEscritos = otra.bytesEscritos;
+            lecturas = otra.lecturas;
+            lecturasVacias = otra.lecturasVacias;
+            bytesLeidos = otra.bytesLeidos;
+            timeouts = otra.timeouts;
+            latenciaEscritura = new Histograma(otra.latenciaEscritura);
+            latenciaLectura = new Histograma(otra.latenciaLectura);
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        public long getEscrituras() {
+            return escrituras;
+        }
+
+        public long getBytesEscritos() {
+            return bytesEscritos;
+        }
+
+        /** @return Lecturas del driver, incluidas las que no devolvieron datos */
+        public long getLecturas() {
+            return lecturas;
+        }
+
+        /** @return Lecturas que vencieron sin datos */
+        public long getLecturasVacias() {
+            return lecturasVacias;
+        }
+
+        public long getBytesLeidos() {
+            return bytesLeidos;
+        }
+
+        /** @return Esperas de respuesta que terminaron en timeout */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /** @return Tiempo total en el puerto, en microsegundos */
+        public long getTiempoTotalMicros() {
+            return latenciaEscritura.suma + latenciaLectura.suma;
+        }
+
+        public Histograma getLatenciaEscritura() {
+            return latenciaEscritura;
+        }
+
+        public Histograma getLatenciaLectura() {
+            return latenciaLectura;
+        }
+    }
+
+    private final Map<String, Operacion> operaciones = new LinkedHashMap<>();
+    private volatile boolean activa = true;
+
+    /** @return true si se están registrando métricas */
+    public boolean isActiva() {
+        return activa;
+    }
+
+    /**
+     * @param activa false para dejar de registrar; lo acumulado se conserva
+     */
+    public void setActiva(boolean activa) {
+        this.activa = activa;
+    }
+
+    synchronized void registrarEscritura(String operacion, int bytes, long nanos) {
+        Operacion op = obtener(operacion);
+        op.escrituras++;
+        op.bytesEscritos += bytes;
+        op.latenciaEscritura.registrar(nanos / 1000);
+    }
+
+    synchronized void registrarLectura(String operacion, int bytes, long nanos) {
+        Operacion op = obtener(operacion);
+        op.lecturas++;
+        if (bytes > 0) {
+            op.bytesLeidos += bytes;
+        } else {
+            op.lecturasVacias++;
+        }
+        op.latenciaLectura.registrar(nanos / 1000);
+    }
+
+    synchronized void registrarTimeout(String operacion) {
+        obtener(operacion).timeouts++;
+    }
+
+    private Operacion obtener(String operacion) {
+        Operacion op = operaciones.get(operacion);
+        if (op == null) {
+            op = new Operacion(operacion);
+            operaciones.put(operacion, op);
+        }
+        return op;
+    }
+
+    /**
+     * @param nombre Descripción de la operación
+     * @return Copia de sus métricas, o null si no se ha registrado
+     */
+    public synchronized Operacion getOperacion(String nombre) {
+        Operacion op = operaciones.get(nombre);
+        return op == null ? null : new Operacion(op);
+    }
+
+    /** @return Copia de las métricas de todas las operaciones, en orden de aparición */
+    public synchronized List<Operacion> getOperaciones() {
+        List<Operacion> copia = new ArrayList<>(operaciones.size());
+        for (Operacion op : operaciones.values()) {
+            copia.add(new Operacion(op));
+        }
+        return copia;
+    }
+
+    /** Descarta todo lo acumulado, por ejemplo al empezar un ciclo a medir */
+    public synchronized void reiniciar() {
+        operaciones.clear();
+    }
+
+    /**
+     * Serializa las métricas en JSON, de mayor a menor tiempo total en el puerto.
+     *
+     * @return Documento JSON
+     */
+    public String aJson() {
+        List<Operacion> lista = getOperaciones();
+        Operacion[] ordenadas = lista.toArray(new Operacion[0]);
+        Arrays.sort(ordenadas, (a, b) -> Long.compare(b.getTiempoTotalMicros(), a.getTiempoTotalMicros()));
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"operaciones\": [");
+        for (int i = 0; i < ordenadas.length; i++) {
+            Operacion op = ordenadas[i];
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"operacion\": \"").append(escapar(op.nombre)).append('"');
+            json.append(", \"escrituras\": ").append(op.escrituras);
+            json.append(", \"bytes_escritos\": ").append(op.bytesEscritos);
+            json.append(", \"lecturas\": ").append(op.lecturas);
+            json.append(", \"lecturas_vacias\": ").append(op.lecturasVacias);
+            json.append(", \"bytes_leidos\": ").append(op.bytesLeidos);
+            json.append(", \"timeouts\": ").append(op.timeouts);
+            json.append(", \"tiempo_total_us\": ").append(op.getTiempoTotalMicros());
+            json.append(",\n      \"latencia_escritura_us\": ");
+            histogramaAJson(json, op.latenciaEscritura);
+            json.append(",\n      \"latencia_lectura_us\": ");
+            histogramaAJson(json, op.latenciaLectura);
+            json.append('}');
+        }
+        json.append(ordenadas.length == 0 ? "]\n}\n" : "\n  ]\n}\n");
+        return json.toString();
+    }
+
+    private static void histogramaAJson(StringBuilder json, Histograma h) {
+        json.append("{\"muestras\": ").append(h.getMuestras());
+        json.append(", \"min\": ").append(h.getMinimoMicros());
+        json.append(", \"media\": ").append(String.format(Locale.ROOT, "%.1f", h.getMediaMicros()));
+        json.append(", \"p50\": ").append(h.getPercentilMicros(50));
+        json.append(", \"p90\": ").append(h.getPercentilMicros(90));
+        json.append(", \"p99\": ").append(h.getPercentilMicros(99));
+        json.append(", \"max\": ").append(h.getMaximoMicros());
+        json.append('}');
+    }
+
+    private static String escapar(String texto) {
+        return texto.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Guarda las métricas en un archivo JSON.
+     *
+     * @param archivo Archivo de destino; se sobrescribe
+     * @throws IOException Si no se puede escribir
+     */
+    public void guardar(File archivo) throws IOException {
+        try (Writer escritor =
+                new OutputStreamWriter(new FileOutputStream(archivo), StandardCharsets.UTF_8)) {
+            escritor.write(aJson());
+        }
+    }
+}
@@ -10,7 +10,6 @@ import com.diamon.utilidades.ByteUtils;
 import com.hoho.android.usbserial.driver.UsbSerialPort;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
@@ -38,6 +37,25 @@ import java.util.List;
  */
 public abstract class Protocolo {
 
+    /**
+     * Receptor de los fragmentos de un volcado de memoria a medida que llegan del puerto.
+     *
+     * <p>Permite procesar la memoria durante la lectura (por ejemplo, verificarla) en lugar de
+     * esperar al volcado completo.
+     */
+    public interface ObservadorLectura {
+
+        /**
+         * Se invoca con cada fragmento recibido, de como máximo 64 bytes.
+         *
+         * @param datos Búfer de destino de la lectura
+         * @param offset Posición del fragmento dentro del búfer (igual a su dirección en bytes)
+         * @param longitud Bytes del fragmento
+         * @return true para continuar, false para abortar la lectura
+         */
+        boolean fragmentoRecibido(byte[] datos, int offset, int longitud);
+    }
+
     /** Contexto de la aplicación Android */
     protected final Context contexto;
 
@@ -47,6 +65,54 @@ public abstract class Protocolo {
     /** Nombre del protocolo para logging */
     protected final String nombreProtocolo;
 
+    /** Tamaño máximo de cada lectura al driver (un paquete USB full-speed) */
+    private static final int TAMANO_FRAGMENTO_RECEPCION = 64;
+
+    /** Lecturas vacías consecutivas que se resuelven con yield antes de empezar a dormir */
+    private static final int SONDEOS_SIN_ESPERA = 2;
+
+    /** Espera máxima entre sondeos vacíos en milisegundos */
+    private static final int ESPERA_MAXIMA_SONDEO_MS = 8;
+
+    /** Descripciones de los números de comando, para no construirlas en cada envío */
+    private static final String[] DESCRIPCIONES_COMANDO = new String[32];
+
+    static {
+        for (int i = 0; i < DESCRIPCIONES_COMANDO.length; i++) {
+            DESCRIPCIONES_COMANDO[i] = "comando_" + i;
+        }
+    }
+
+    /** Búferes de recepción reutilizables, indexados por tamaño de lectura */
+    private final byte[][] buffersRecepcion = new byte[TAMANO_FRAGMENTO_RECEPCION + 1][];
+
+    /** Búfer reutilizable para respuestas de un solo byte (ACKs) */
+    private final byte[] bufferByteUnico = new byte[1];
+
+    /** Búfer reutilizable para descartar datos residuales en clearBuffer() */
+    private final byte[] bufferDescarte = new byte[1024];
+
+    /** Token de cancelación de la operación en curso, o null si no es cancelable */
+    private volatile TokenCancelacion tokenCancelacion;
+
+    /** true durante lecturas internas cuyo avance no debe pisar el de la operación en curso */
+    private boolean progresoEnPausa;
+
+    /** Lectura de ROM hecha tras la última grabación, o null si no hay una vigente */
+    private ResultadoLectura readbackROM;
+
+    /** CRC por bloque de {@link #readbackROM}, calculados mientras se recibía */
+    private TablaChecksums checksumsReadbackROM;
+
+    /** Contadores y latencias de las transferencias por operación */
+    private final MetricasProtocolo metricas = new MetricasProtocolo();
+
+    /** Descripción de la última escritura; las lecturas siguientes se anotan bajo ella */
+    private String operacionActual = "sin_operacion";
+
+    /** Lecturas vencidas y errores del driver; ver {@link #getFallosDeEnlace()} */
+    private volatile int fallosDeEnlace;
+
     /**
      * Constructor de la clase base Protocolo.
      *
@@ -59,6 +125,167 @@ public abstract class Protocolo {
         this.nombreProtocolo = this.getClass().getSimpleName();
     }
 
+    /**
+     * Asocia un token de cancelación a las operaciones siguientes.
+     *
+     * <p>Las operaciones largas (programar y leer memorias) lo consultan entre bloques; al
+     * cancelarse terminan de forma segura y devuelven el progreso parcial.
+     *
+     * @param token Token a consultar, o null para que las operaciones no sean cancelables
+     */
+    public void setTokenCancelacion(TokenCancelacion token) {
+        this.tokenCancelacion = token;
+    }
+
+    /** @return Token de cancelación vigente, o null */
+    public TokenCancelacion getTokenCancelacion() {
+        return tokenCancelacion;
+    }
+
+    /** @return true si la operación en curso debe detenerse en el próximo bloque */
+    protected boolean cancelacionSolicitada() {
+        TokenCancelacion token = tokenCancelacion;
+        return token != null && token.isCancelado();
+    }
+
+    /**
+     * Registra en el token vigente el progreso de la operación en curso.
+     *
+     * @param completados Unidades ya confirmadas
+     * @param total Unidades totales
+     */
+    protected void registrarProgreso(int completados, int total) {
+        TokenCancelacion token = tokenCancelacion;
+        if (token != null && !progresoEnPausa) {
+            token.registrarProgreso(completados, total);
+        }
+    }
+
+    /**
+     * Deja de anotar progreso en el token mientras dura una operación auxiliar, como la lectura
+     * posterior a una grabación, para que el token siga reflejando la operación principal. La
+     * cancelación se sigue consultando con normalidad.
+     *
+     * @param pausa true para dejar de anotar, false para reanudar
+     */
+    protected void pausarProgreso(boolean pausa) {
+        this.progresoEnPausa = pausa;
+    }
+
+    /**
+     * Guarda la lectura de ROM hecha justo después de grabar, para que la verificación pueda
+     * usarla en lugar de volver a leer la memoria completa.
+     *
+     * @param lectura Lectura completa de la ROM
+     * @param checksums CRC por bloque de la lectura
+     */
+    protected void recordarReadbackROM(ResultadoLectura lectura, TablaChecksums checksums) {
+        this.readbackROM = lectura;
+        this.checksumsReadbackROM = checksums;
+    }
+
+    /**
+     * Olvida la lectura posterior a la grabación. Debe llamarse ante cualquier operación que
+     * cambie la ROM o el chip del socket.
+     */
+    public void descartarReadbackROM() {
+        this.readbackROM = null;
+        this.checksumsReadbackROM = null;
+    }
+
+    /**
+     * @return Lectura de ROM hecha tras la última grabación, o null si no hay una vigente. Su
+     *     búfer puede reutilizarse en la siguiente grabación.
+     */
+    public ResultadoLectura getReadbackROM() {
+        return readbackROM;
+    }
+
+    /** @return CRC por bloque de {@link #getReadbackROM()}, o null */
+    public TablaChecksums getChecksumsReadbackROM() {
+        return checksumsReadbackROM;
+    }
+
+    /**
+     * @return Métricas de las transferencias de este protocolo; se acumulan hasta {@link
+     *     MetricasProtocolo#reiniciar()}
+     */
+    public MetricasProtocolo getMetricas() {
+        return metricas;
+    }
+
+    /**
+     * Cuenta los fallos atribuibles al enlace: lecturas que vencieron sin la respuesta completa
+     * y errores de E/S del driver. Comparando el valor antes y después de una operación se
+     * distingue un enlace poco fiable de un fallo del chip, como una verificación que no
+     * coincide.
+     *
+     * @return Fallos del enlace desde que se creó el protocolo
+     */
+    public int getFallosDeEnlace() {
+        return fallosDeEnlace;
+    }
+
+    /**
+     * Escribe en el puerto y anota la transferencia bajo {@code descripcion}, que pasa a ser la
+     * operación en curso para las lecturas siguientes.
+     *
+     * @param datos Bytes a escribir
+     * @param timeoutMillis Timeout de escritura del driver
+     * @param descripcion Operación a la que pertenece la escritura
+     * @throws IOException Si falla el driver
+     */
+    protected void escribirPuerto(byte[] datos, int timeoutMillis, String descripcion)
+            throws IOException {
+        operacionActual = descripcion;
+        try {
+            if (!metricas.isActiva()) {
+                usbSerialPort.write(datos, timeoutMillis);
+                return;
+            }
+            long inicio = System.nanoTime();
+            usbSerialPort.write(datos, timeoutMillis);
+            metricas.registrarEscritura(descripcion, datos.length, System.nanoTime() - inicio);
+        } catch (IOException e) {
+            fallosDeEnlace++;
+            throw e;
+        }
+    }
+
+    /**
+     * Hace una lectura del driver y la anota bajo la operación en curso.
+     *
+     * @param destino Búfer de lectura
+     * @param timeoutMillis Timeout de lectura del driver
+     * @return Bytes leídos
+     * @throws IOException Si falla el driver
+     */
+    protected int leerPuerto(byte[] destino, int timeoutMillis) throws IOException {
+        try {
+            if (!metricas.isActiva()) {
+                return usbSerialPort.read(destino, timeoutMillis);
+            }
+            long inicio = System.nanoTime();
+            int leidos = usbSerialPort.read(destino, timeoutMillis);
+            metricas.registrarLectura(operacionActual, leidos, System.nanoTime() - inicio);
+            return leidos;
+        } catch (IOException e) {
+            fallosDeEnlace++;
+            throw e;
+        }
+    }
+
+    /**
+     * @param comando Número de comando del firmware
+     * @return Descripción con la que se anotan sus métricas
+     */
+    protected static String descripcionComando(int comando) {
+        int numero = comando & 0xFF;
+        return numero < DESCRIPCIONES_COMANDO.length
+                ? DESCRIPCIONES_COMANDO[numero]
+                : "comando_" + numero;
+    }
+
     /**
      * Limpia el buffer de recepción USB consumiendo todos los datos pendientes.
      *
@@ -74,11 +301,10 @@ public abstract class Protocolo {
         }
 
         try {
-            byte[] tmpBuffer = new byte[1024];
             int totalLimpiado = 0;
             int bytesLeidos;
 
-            while ((bytesLeidos = usbSerialPort.read(tmpBuffer, 100)) > 0) {
+            while ((bytesLeidos = leerPuerto(bufferDescarte, 100)) > 0) {
                 totalLimpiado += bytesLeidos;
             }
 
@@ -96,6 +322,33 @@ public abstract class Protocolo {
      * @throws UsbCommunicationException Si ocurre error de comunicación o timeout
      */
     protected byte[] readBytes(int count, int timeoutMillis) throws UsbCommunicationException {
+        if (count <= 0) {
+            String mensaje = "El número de bytes a leer debe ser mayor que 0: " + count;
+            throw new IllegalArgumentException(mensaje);
+        }
+
+        byte[] resultado = new byte[count];
+        readBytes(resultado, 0, count, timeoutMillis);
+        return resultado;
+    }
+
+    /**
+     * Lee exactamente {@code count} bytes del puerto serie sobre un array del llamador.
+     *
+     * <p>Ruta de lectura sin asignaciones: los fragmentos se reciben en búferes reutilizables
+     * del protocolo y se copian al destino. Cuando el puerto no entrega datos se aplica un
+     * sondeo adaptativo (yield primero, luego esperas cortas crecientes) en lugar de una
+     * espera fija, de modo que un ACK que llega justo después de un read vacío se procesa en
+     * menos de un milisegundo.
+     *
+     * @param destino Array donde se copian los bytes leídos
+     * @param offset Posición inicial en el destino
+     * @param count Número de bytes a leer (debe ser mayor que 0)
+     * @param timeoutMillis Tiempo máximo de espera en milisegundos
+     * @throws UsbCommunicationException Si ocurre error de comunicación o timeout
+     */
+    protected void readBytes(byte[] destino, int offset, int count, int timeoutMillis)
+            throws UsbCommunicationException {
         if (usbSerialPort == null) {
             throw new UsbCommunicationException("Puerto USB no inicializado");
         }
@@ -105,55 +358,166 @@ public abstract class Protocolo {
             throw new IllegalArgumentException(mensaje);
         }
 
+        if (destino == null || offset < 0 || offset + count > destino.length) {
+            throw new IllegalArgumentException("Destino insuficiente para leer " + count + " bytes");
+        }
+
         try {
-            // Crear un buffer para almacenar los datos leídos
-            ByteBuffer byteBuffer = ByteBuffer.allocate(count);
-            long startTime = System.currentTimeMillis();
+            int leidos = 0;
+            int sondeosVacios = 0;
+            long inicio = System.nanoTime();
+            long limite = inicio + timeoutMillis * 1_000_000L;
 
             // Mientras no se hayan leído todos los bytes y el tiempo de espera no haya expirado
-            while (byteBuffer.position() < count
-                    && (System.currentTimeMillis() - startTime) < timeoutMillis) {
+            while (leidos < count) {
+                long restanteNanos = limite - System.nanoTime();
+                if (restanteNanos <= 0) {
+                    break;
+                }
+
+                // Nunca pasar 0 al driver: en usb-serial significa bloqueo indefinido
+                int timeoutLectura = (int) Math.max(1, Math.min(100, restanteNanos / 1_000_000L));
 
-                // Leer los bytes restantes
-                int remaining = count - byteBuffer.position();
-                byte[] tmpBuffer = new byte[remaining];
-                int bytesRead = usbSerialPort.read(tmpBuffer, Math.min(timeoutMillis, 100));
+                // Leer solo los bytes restantes para no consumir la respuesta siguiente
+                int fragmento = Math.min(count - leidos, TAMANO_FRAGMENTO_RECEPCION);
+                byte[] bufferTemporal = obtenerBufferRecepcion(fragmento);
+                int bytesRead = leerPuerto(bufferTemporal, timeoutLectura);
 
                 if (bytesRead > 0) {
-                    // Añadir los bytes leídos al buffer
-                    byteBuffer.put(tmpBuffer, 0, bytesRead);
+                    System.arraycopy(bufferTemporal, 0, destino, offset + leidos, bytesRead);
+                    leidos += bytesRead;
+                    sondeosVacios = 0;
 
                 } else if (bytesRead == 0) {
-                    // Si no se reciben datos, esperar brevemente antes de reintentar
-                    try {
-                        Thread.sleep(10);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new UsbCommunicationException("Hilo interrumpido durante lectura", e);
-                    }
+                    esperarSondeo(sondeosVacios++);
                 }
             }
 
             // Verificar si se leyeron todos los bytes
-            if (byteBuffer.position() < count) {
-                long tiempoTranscurrido = System.currentTimeMillis() - startTime;
+            if (leidos < count) {
+                long tiempoTranscurrido = (System.nanoTime() - inicio) / 1_000_000L;
                 String mensaje =
                         String.format(
-                                "Timeout leyendo bytes: esperados=%d, leídos=%d, tiempo=%dms",
-                                count, byteBuffer.position(), tiempoTranscurrido);
-                throw UsbCommunicationException.crearTimeoutError("lectura", timeoutMillis);
+                                "Timeout leyendo bytes de %s: esperados=%d, leídos=%d, tiempo=%dms",
+                                operacionActual, count, leidos, tiempoTranscurrido);
+                metricas.registrarTimeout(operacionActual);
+                fallosDeEnlace++;
+                throw new UsbCommunicationException(
+                        mensaje,
+                        UsbCommunicationException.CodigosError.TIMEOUT_LECTURA,
+                        "lectura",
+                        true);
             }
 
-            // Obtener los datos leídos
-            byte[] resultado = byteBuffer.array();
+        } catch (IOException e) {
+            throw new UsbCommunicationException("Error I/O durante lectura USB", e);
+        }
+    }
+
+    /**
+     * Lee un único byte del puerto serie sin asignar memoria.
+     *
+     * @param timeoutMillis Tiempo máximo de espera en milisegundos
+     * @return Byte leído
+     * @throws UsbCommunicationException Si ocurre error de comunicación o timeout
+     */
+    protected byte leerByte(int timeoutMillis) throws UsbCommunicationException {
+        readBytes(bufferByteUnico, 0, 1, timeoutMillis);
+        return bufferByteUnico[0];
+    }
+
+    /**
+     * Realiza una única lectura del driver y copia lo recibido al destino.
+     *
+     * <p>A diferencia de {@link #readBytes(byte[], int, int, int)} no reintenta ni lanza timeout:
+     * devuelve 0 si el programador no envió datos, lo que permite a los volcados de memoria
+     * detectar el final de la transmisión. Nunca pide más de {@code maximo} bytes.
+     *
+     * @param destino Array donde se copian los bytes leídos
+     * @param offset Posición inicial en el destino
+     * @param maximo Máximo de bytes a leer
+     * @param timeoutMillis Tiempo máximo de espera del driver en milisegundos
+     * @return Cantidad de bytes copiados al destino
+     * @throws UsbCommunicationException Si ocurre un error de I/O
+     */
+    protected int leerFragmento(byte[] destino, int offset, int maximo, int timeoutMillis)
+            throws UsbCommunicationException {
+        if (usbSerialPort == null) {
+            throw new UsbCommunicationException("Puerto USB no inicializado");
+        }
+
+        int fragmento = Math.min(maximo, TAMANO_FRAGMENTO_RECEPCION);
+        if (fragmento <= 0) {
+            return 0;
+        }
 
-            return resultado;
+        try {
+            byte[] bufferTemporal = obtenerBufferRecepcion(fragmento);
+            int bytesRead = leerPuerto(bufferTemporal, timeoutMillis);
+            if (bytesRead <= 0) {
+                return 0;
+            }
+            System.arraycopy(bufferTemporal, 0, destino, offset, bytesRead);
+            return bytesRead;
 
         } catch (IOException e) {
             throw new UsbCommunicationException("Error I/O durante lectura USB", e);
         }
     }
 
+    /**
+     * Devuelve el búfer del llamador si tiene capacidad suficiente o uno nuevo del tamaño justo.
+     *
+     * @param destino Búfer reutilizable del llamador, puede ser null
+     * @param tamano Capacidad mínima requerida
+     * @return Búfer con al menos {@code tamano} bytes
+     */
+    protected static byte[] prepararDestino(byte[] destino, int tamano) {
+        if (destino != null && destino.length >= tamano) {
+            return destino;
+        }
+        return new byte[tamano];
+    }
+
+    /**
+     * Devuelve un búfer reutilizable de exactamente {@code tamano} bytes.
+     *
+     * <p>El driver USB lee hasta {@code dest.length} bytes, por lo que el tamaño del búfer
+     * define cuántos bytes se piden. Cada tamaño se asigna una sola vez por protocolo.
+     */
+    private byte[] obtenerBufferRecepcion(int tamano) {
+        byte[] buffer = buffersRecepcion[tamano];
+        if (buffer == null) {
+            buffer = new byte[tamano];
+            buffersRecepcion[tamano] = buffer;
+        }
+        return buffer;
+    }
+
+    /**
+     * Espera entre sondeos vacíos con retroceso exponencial acotado.
+     *
+     * @param sondeosVacios Número de lecturas vacías consecutivas previas
+     * @throws UsbCommunicationException Si el hilo es interrumpido
+     */
+    private void esperarSondeo(int sondeosVacios) throws UsbCommunicationException {
+        if (sondeosVacios < SONDEOS_SIN_ESPERA) {
+            Thread.yield();
+            return;
+        }
+
+        // Acotar el exponente: con un driver que vuelve sin esperar los sondeos vacíos se
+        // acumulan deprisa y el desplazamiento desbordaría a una espera negativa
+        int exponente = Math.min(sondeosVacios - SONDEOS_SIN_ESPERA, 8);
+        int espera = Math.min(ESPERA_MAXIMA_SONDEO_MS, 1 << exponente);
+        try {
+            Thread.sleep(espera);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UsbCommunicationException("Hilo interrumpido durante lectura", e);
+        }
+    }
+
     /**
      * Espera una respuesta específica del dispositivo USB con logging detallado.
      *
@@ -200,9 +564,8 @@ public abstract class Protocolo {
         }
 
         try {
-            byte[] respuestaBytes = readBytes(1, timeoutMs);
-            response[0] = respuestaBytes[0];
-            return (respuestaBytes[0] == expected);
+            response[0] = leerByte(timeoutMs);
+            return (response[0] == expected);
         } catch (Exception e) {
             throw new UsbCommunicationException("Error leyendo respuesta USB: " + errorMessage, e);
         }
@@ -239,28 +602,28 @@ public abstract class Protocolo {
 
             // Paso 1: Enviar 0x01 para inicializar
             byte[] inicializacion = ByteUtils.prepararDatosUSB(contexto, new byte[] {0x01}, "inicializacion");
-            usbSerialPort.write(inicializacion, 100);
+            escribirPuerto(inicializacion, 100, "inicializacion");
             // Paso 2: Esperar respuesta 'Q'
             expectResponse(new byte[] {'Q'}, 500);
 
             // Paso 3: Enviar 'P' para ir a la tabla de salto
             byte[] salto = ByteUtils.prepararDatosUSB(contexto, new byte[] {'P'}, "salto_tabla");
-            usbSerialPort.write(salto, 100);
+            escribirPuerto(salto, 100, "salto_tabla");
 
             // Paso 4: Leer acknowledgment 'P'
-            byte[] ack = readBytes(1, 100);
-            if (ack[0] != 'P') {
+            byte ack = leerByte(100);
+            if (ack != 'P') {
                 String mensaje =
                         String.format(
-                                "Acknowledgment inválido: esperado 'P', recibido 0x%02X", ack[0]);
+                                "Acknowledgment inválido: esperado 'P', recibido 0x%02X", ack);
                 throw UsbCommunicationException.crearRespuestaInesperada(
-                        "P", String.format("0x%02X", ack[0]), "enviarComando");
+                        "P", String.format("0x%02X", ack), "enviarComando");
             }
 
             // Paso 5: Enviar el número del comando, si es necesario
             if (data[0] != 0) {
                 byte[] comandoFinal = ByteUtils.prepararDatosUSB(contexto, data, "comando_final");
-                usbSerialPort.write(comandoFinal, 100);
+                escribirPuerto(comandoFinal, 100, descripcionComando(data[0]));
             } else {
             }
 
@@ -288,7 +651,7 @@ public abstract class Protocolo {
                     ByteUtils.prepararDatosUSB(
                             contexto,
                             comando.getBytes(StandardCharsets.US_ASCII), "inicializacion");
-            usbSerialPort.write(data, 100);
+            escribirPuerto(data, 100, "iniciar_protocolo");
 
             // Leer respuesta
             byte[] respuesta = readBytes(1, 100);
@@ -317,6 +680,33 @@ public abstract class Protocolo {
         }
     }
 
+    /**
+     * Vuelve a sincronizar el enlace después de una respuesta que no llegó a tiempo.
+     *
+     * <p>Descarta lo que el firmware haya enviado tarde, para que esos bytes no se tomen por la
+     * respuesta del siguiente saludo, y lo devuelve a la tabla de saltos.
+     *
+     * @return true si el firmware volvió a responder al saludo
+     */
+    public boolean resincronizar() {
+        return descartarRecepcion() && resetearComandos();
+    }
+
+    /**
+     * Descarta los bytes pendientes de recepción, por ejemplo la respuesta tardía o el ruido
+     * de un intento anterior a otra velocidad.
+     *
+     * @return true si el puerto se pudo vaciar
+     */
+    public boolean descartarRecepcion() {
+        try {
+            clearBuffer();
+            return true;
+        } catch (UsbCommunicationException e) {
+            return false;
+        }
+    }
+
     /**
      * Espera el inicio de un nuevo comando enviando un byte de sincronización.
      *
@@ -330,7 +720,7 @@ public abstract class Protocolo {
         try {
 
             byte[] data = ByteUtils.prepararDatosUSB(contexto, new byte[] {0}, "sincronizacion");
-            usbSerialPort.write(data, 100);
+            escribirPuerto(data, 100, "sincronizacion");
 
             return true;
 
@@ -371,7 +761,7 @@ public abstract class Protocolo {
 
         try {
 
-            usbSerialPort.write(datos, timeoutMillis);
+            escribirPuerto(datos, timeoutMillis, descripcion);
 
         } catch (IOException e) {
             throw new UsbCommunicationException("Error escribiendo datos USB: " + descripcion, e);
@@ -408,6 +798,58 @@ public abstract class Protocolo {
 
     public abstract String leerDatosDeConfiguracionDelPic();
 
+    /**
+     * Lee la memoria ROM en binario, sin conversión a texto.
+     *
+     * @param chipPIC Chip a leer
+     * @param destino Búfer reutilizable para los datos, o null para asignar uno nuevo
+     * @return Resultado con los bytes leídos en el orden del programador
+     */
+    public ResultadoLectura leerMemoriaROM(ChipPic chipPIC, byte[] destino) {
+        return leerMemoriaROM(chipPIC, destino, null);
+    }
+
+    /**
+     * Lee la memoria ROM en binario notificando cada fragmento a medida que llega.
+     *
+     * @param chipPIC Chip a leer
+     * @param destino Búfer reutilizable para los datos, o null para asignar uno nuevo
+     * @param observador Receptor de fragmentos que puede abortar la lectura, o null
+     * @return Resultado con los bytes leídos en el orden del programador
+     */
+    public abstract ResultadoLectura leerMemoriaROM(
+            ChipPic chipPIC, byte[] destino, ObservadorLectura observador);
+
+    /**
+     * Lee la memoria EEPROM en binario, sin conversión a texto.
+     *
+     * @param chipPIC Chip a leer
+     * @param destino Búfer reutilizable para los datos, o null para asignar uno nuevo
+     * @return Resultado con los bytes leídos
+     */
+    public ResultadoLectura leerMemoriaEEPROM(ChipPic chipPIC, byte[] destino) {
+        return leerMemoriaEEPROM(chipPIC, destino, null);
+    }
+
+    /**
+     * Lee la memoria EEPROM en binario notificando cada fragmento a medida que llega.
+     *
+     * @param chipPIC Chip a leer
+     * @param destino Búfer reutilizable para los datos, o null para asignar uno nuevo
+     * @param observador Receptor de fragmentos que puede abortar la lectura, o null
+     * @return Resultado con los bytes leídos
+     */
+    public abstract ResultadoLectura leerMemoriaEEPROM(
+            ChipPic chipPIC, byte[] destino, ObservadorLectura observador);
+
+    /**
+     * Lee el bloque de configuración (chip ID, ID, fuses y calibración) en binario.
+     *
+     * @param destino Búfer reutilizable para los datos, o null para asignar uno nuevo
+     * @return Resultado con los bytes de configuración
+     */
+    public abstract ResultadoLectura leerDatosDeConfiguracion(byte[] destino);
+
     public abstract String leerDatosDeCalibracionDelPic();
 
     public abstract boolean borrarMemoriasDelPic();
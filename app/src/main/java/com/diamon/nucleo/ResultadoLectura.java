@@ -0,0 +1,194 @@
+package com.diamon.nucleo;
+
+import android.content.Context;
+
+import com.diamon.pic.R;
+import com.diamon.utilidades.ByteUtils;
+
+import java.util.Arrays;
+
+/**
+ * Resultado binario de una lectura de memoria del programador.
+ *
+ * <p>Transporta los bytes tal como llegan del puerto USB, sin pasar por texto hexadecimal, junto
+ * con un error tipado. El array de datos puede ser un búfer reutilizable del llamador y ser más
+ * largo que lo leído: solo los primeros {@link #getLongitud()} bytes son válidos.
+ *
+ * @author Danielk10
+ * @version 1.0
+ * @since 2025
+ */
+public final class ResultadoLectura {
+
+    /** Tipos de error posibles durante una lectura de memoria */
+    public enum TipoError {
+        /** Lectura completa */
+        NINGUNO,
+        /** El programador dejó de enviar datos antes de completar la memoria */
+        LECTURA_INCOMPLETA,
+        /** El observador de la lectura pidió detenerla antes de completar la memoria */
+        LECTURA_ABORTADA,
+        /** El usuario canceló la lectura; los bytes recibidos hasta entonces se conservan */
+        LECTURA_CANCELADA,
+        /** El programador no envió el acknowledgment esperado */
+        SIN_RESPUESTA,
+        /** No hay puerto USB disponible */
+        PUERTO_NO_INICIALIZADO,
+        /** Error de comunicación USB durante la lectura */
+        ERROR_COMUNICACION,
+        /** El chip no tiene definido el tamaño de la memoria solicitada */
+        CONFIGURACION_INVALIDA
+    }
+
+    private static final byte[] SIN_DATOS = new byte[0];
+
+    private final byte[] datos;
+    private final int longitud;
+    private final TipoError error;
+    private final String mensaje;
+
+    private ResultadoLectura(byte[] datos, int longitud, TipoError error, String mensaje) {
+        this.datos = datos != null ? datos : SIN_DATOS;
+        this.longitud = longitud;
+        this.error = error;
+        this.mensaje = mensaje;
+    }
+
+    /**
+     * Crea un resultado para una lectura completa.
+     *
+     * @param datos Búfer con los bytes leídos
+     * @param longitud Cantidad de bytes válidos en el búfer
+     */
+    public static ResultadoLectura exitosa(byte[] datos, int longitud) {
+        return new ResultadoLectura(datos, longitud, TipoError.NINGUNO, null);
+    }
+
+    /**
+     * Crea un resultado para una lectura que terminó antes de tiempo.
+     *
+     * @param datos Búfer con los bytes recibidos
+     * @param longitud Cantidad de bytes válidos en el búfer
+     * @param esperados Cantidad de bytes que se esperaban
+     */
+    public static ResultadoLectura incompleta(byte[] datos, int longitud, int esperados) {
+        return new ResultadoLectura(
+                datos,
+                longitud,
+                TipoError.LECTURA_INCOMPLETA,
+                "Lectura incompleta: esperados=" + esperados + ", leídos=" + longitud);
+    }
+
+    /**
+     * Crea un resultado para una lectura detenida a petición del observador.
+     *
+     * @param datos Búfer con los bytes recibidos
+     * @param longitud Cantidad de bytes válidos en el búfer
+     */
+    public static ResultadoLectura abortada(byte[] datos, int longitud) {
+        return new ResultadoLectura(
+                datos,
+                longitud,
+                TipoError.LECTURA_ABORTADA,
+                "Lectura abortada tras " + longitud + " bytes");
+    }
+
+    /**
+     * Crea un resultado para una lectura cancelada mediante su token.
+     *
+     * <p>No se considera con datos utilizables, pero conserva lo recibido para informar el
+     * progreso parcial.
+     *
+     * @param contexto Contexto para localizar el mensaje
+     * @param datos Búfer con los bytes recibidos
+     * @param longitud Cantidad de bytes válidos en el búfer
+     * @param esperados Cantidad de bytes que se esperaban
+     */
+    public static ResultadoLectura cancelada(
+            Context contexto, byte[] datos, int longitud, int esperados) {
+        return new ResultadoLectura(
+                datos,
+                longitud,
+                TipoError.LECTURA_CANCELADA,
+                contexto.getString(R.string.lectura_cancelada, longitud, esperados));
+    }
+
+    /**
+     * Crea un resultado de error sin datos.
+     *
+     * @param error Tipo de error
+     * @param mensaje Descripción del error
+     */
+    public static ResultadoLectura fallida(TipoError error, String mensaje) {
+        return new ResultadoLectura(SIN_DATOS, 0, error, mensaje);
+    }
+
+    /** @return true si se leyó la memoria completa */
+    public boolean esExitosa() {
+        return error == TipoError.NINGUNO;
+    }
+
+    /** @return true si la lectura se detuvo por una cancelación del usuario */
+    public boolean fueCancelada() {
+        return error == TipoError.LECTURA_CANCELADA;
+    }
+
+    /**
+     * Indica si los datos pueden usarse, aunque la lectura sea parcial.
+     *
+     * @return true si la lectura fue completa, incompleta o abortada, false si falló la
+     *     comunicación
+     */
+    public boolean tieneDatosUtilizables() {
+        return error == TipoError.NINGUNO
+                || error == TipoError.LECTURA_INCOMPLETA
+                || error == TipoError.LECTURA_ABORTADA;
+    }
+
+    /** @return Búfer con los datos; solo los primeros {@link #getLongitud()} bytes son válidos */
+    public byte[] getDatos() {
+        return datos;
+    }
+
+    /** @return Cantidad de bytes válidos */
+    public int getLongitud() {
+        return longitud;
+    }
+
+    /** @return Tipo de error de la lectura */
+    public TipoError getError() {
+        return error;
+    }
+
+    /** @return Descripción del error, o null si la lectura fue completa */
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    /**
+     * Devuelve un array con exactamente los bytes válidos.
+     *
+     * <p>Si el búfer ya tiene el tamaño justo se devuelve sin copiar.
+     *
+     * @return Array de {@link #getLongitud()} bytes
+     */
+    public byte[] obtenerDatosExactos() {
+        if (datos.length == longitud) {
+            return datos;
+        }
+        return Arrays.copyOf(datos, longitud);
+    }
+
+    /**
+     * Convierte los bytes válidos a texto hexadecimal en mayúsculas.
+     *
+     * <p>Solo para compatibilidad con las API basadas en String.
+     *
+     * @return String hexadecimal de los bytes leídos
+     */
+    public String aHex() {
+        StringBuilder sb = new StringBuilder(longitud * 2);
+        ByteUtils.appendHexToBuilder(datos, longitud, sb);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package com.diamon.nucleo;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * CRC32 por bloque de una imagen de memoria.
+ *
+ * <p>Permite verificar una lectura comparando un entero por bloque en lugar de cada byte: solo
+ * los bloques cuyo CRC difiere necesitan la comparación byte a byte. La tabla de una imagen
+ * procesada se calcula una vez y se comparte; la de una lectura se calcula mientras llegan los
+ * fragmentos del puerto serie mediante un {@link Acumulador}.
+ *
+ * <p>Las tablas son inmutables. El último bloque puede ser más corto que {@link #TAMANO_BLOQUE}.
+ *
+ * @author Danielk10
+ * @version 1.0
+ * @since 2025
+ */
+public final class TablaChecksums {
+
+    /** Bytes por bloque: un fragmento de lectura del programador */
+    public static final int TAMANO_BLOQUE = 64;
+
+    private final int[] crcs;
+    private final int longitud;
+
+    private TablaChecksums(int[] crcs, int longitud) {
+        this.crcs = crcs;
+        this.longitud = longitud;
+    }
+
+    /**
+     * Calcula la tabla de una imagen completa.
+     *
+     * @param datos Imagen de memoria
+     * @param longitud Bytes válidos de {@code datos}
+     * @return Tabla con un CRC por bloque
+     */
+    public static TablaChecksums calcular(byte[] datos, int longitud) {
+        Acumulador acumulador = new Acumulador();
+        acumulador.fragmentoRecibido(datos, 0, longitud);
+        return acumulador.terminar();
+    }
+
+    /** @return Número de bloques de la tabla */
+    public int getCantidadBloques() {
+        return crcs.length;
+    }
+
+    /** @return Bytes cubiertos por la tabla */
+    public int getLongitud() {
+        return longitud;
+    }
+
+    /**
+     * @param bloque Índice del bloque
+     * @return CRC32 del bloque
+     */
+    public int getCrc(int bloque) {
+        return crcs[bloque];
+    }
+
+    /**
+     * @param bloque Índice del bloque
+     * @return Bytes del bloque; solo el último puede ser menor que {@link #TAMANO_BLOQUE}
+     */
+    public int getLongitudBloque(int bloque) {
+        return Math.min(TAMANO_BLOQUE, longitud - bloque * TAMANO_BLOQUE);
+    }
+
+    /**
+     * Indica si un bloque coincide con el de otra tabla: mismo CRC y misma longitud.
+     *
+     * @param bloque Índice del bloque
+     * @param otra Tabla a comparar
+     * @return false si el bloque no existe en alguna de las dos tablas o difiere
+     */
+    public boolean coincideBloque(int bloque, TablaChecksums otra) {
+        return bloque < crcs.length
+                && bloque < otra.crcs.length
+                && crcs[bloque] == otra.crcs[bloque]
+                && getLongitudBloque(bloque) == otra.getLongitudBloque(bloque);
+    }
+
+    /**
+     * Calcula los CRC de una lectura a medida que llegan sus fragmentos.
+     *
+     * <p>Los fragmentos deben llegar en orden y contiguos, como los entrega el protocolo; un
+     * bloque puede repartirse entre varios fragmentos. Cada bloque cerrado se notifica a
+     * {@link #bloqueCompletado}, que las subclases usan para comparar sin esperar al final.
+     */
+    public static class Acumulador implements Protocolo.ObservadorLectura {
+        private final CRC32 crc = new CRC32();
+        private int[] crcs = new int[16];
+        private int bloques;
+        private int posicion;
+        private byte[] ultimoBufer;
+
+        @Override
+        public boolean fragmentoRecibido(byte[] datos, int offset, int longitud) {
+            ultimoBufer = datos;
+            int fin = offset + longitud;
+            int i = offset;
+            while (i < fin) {
+                int finBloque = (bloques + 1) * TAMANO_BLOQUE;
+                int hasta = Math.min(fin, finBloque);
+                crc.update(datos, i, hasta - i);
+                i = hasta;
+                posicion = hasta;
+                if (posicion == finBloque && !cerrarBloque(TAMANO_BLOQUE)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Cierra el último bloque parcial, si lo hay, y devuelve la tabla de lo recibido.
+         *
+         * @return Tabla de los bytes recibidos hasta ahora
+         */
+        public TablaChecksums terminar() {
+            int resto = posicion - bloques * TAMANO_BLOQUE;
+            if (resto > 0) {
+                cerrarBloque(resto);
+            }
+            return new TablaChecksums(Arrays.copyOf(crcs, bloques), posicion);
+        }
+
+        private boolean cerrarBloque(int longitudBloque) {
+            int valor = (int) crc.getValue();
+            crc.reset();
+            if (bloques == crcs.length) {
+                crcs = Arrays.copyOf(crcs, bloques * 2);
+            }
+            int bloque = bloques++;
+            crcs[bloque] = valor;
+            return bloqueCompletado(
+                    bloque, valor, ultimoBufer, bloque * TAMANO_BLOQUE, longitudBloque);
+        }
+
+        /**
+         * Se invoca al cerrar cada bloque.
+         *
+         * @param bloque Índice del bloque
+         * @param crc CRC32 del bloque
+         * @param datos Búfer de la lectura
+         * @param inicio Posición del bloque en el búfer
+         * @param longitud Bytes del bloque
+         * @return true para continuar, false para abortar la lectura
+         */
+        protected boolean bloqueCompletado(
+                int bloque, int crc, byte[] datos, int inicio, int longitud) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.diamon.nucleo;
+
+/**
+ * Señal de cancelación cooperativa de una operación larga del programador.
+ *
+ * <p>El hilo que pide la cancelación solo marca el token; el protocolo lo consulta entre
+ * bloques y, al verlo marcado, deja de enviar datos del usuario, completa el comando en curso con
+ * relleno en blanco cuando el firmware no puede abandonarlo a medias, desactiva los voltajes de
+ * programación y resetea los comandos antes de devolver el control. Así el firmware queda en un
+ * estado conocido sin esperar a que expire cada timeout.
+ *
+ * <p>El token también transporta el progreso alcanzado, que el protocolo actualiza tras cada
+ * bloque confirmado, para informar cuánto se completó antes de la cancelación. Un token
+ * cancelado no puede reutilizarse: cada operación crea el suyo. Una subclase puede redefinir
+ * {@link #registrarProgreso(int, int)} para seguir el avance o cancelar en un punto concreto.
+ *
+ * @author Danielk10
+ * @version 1.0
+ * @since 2025
+ */
+public class TokenCancelacion {
+
+    private volatile boolean cancelado;
+    private volatile int completados;
+    private volatile int total;
+
+    /** Pide la cancelación; puede llamarse desde cualquier hilo */
+    public void cancelar() {
+        cancelado = true;
+    }
+
+    /** @return true si se pidió la cancelación */
+    public boolean isCancelado() {
+        return cancelado;
+    }
+
+    /**
+     * Registra el progreso de la operación en curso.
+     *
+     * @param completados Unidades ya confirmadas (bloques, bytes...)
+     * @param total Unidades totales de la operación
+     */
+    public void registrarProgreso(int completados, int total) {
+        this.total = total;
+        this.completados = completados;
+    }
+
+    /** @return Unidades confirmadas antes de la cancelación o del final */
+    public int getCompletados() {
+        return completados;
+    }
+
+    /** @return Unidades totales de la última operación registrada */
+    public int getTotal() {
+        return total;
+    }
+}
@@ -50,6 +50,7 @@ import android.graphics.drawable.LayerDrawable;
 
 import com.diamon.chip.ChipPic;
 import com.diamon.datos.DatosPicProcesados;
+import com.diamon.datos.FuenteHex;
 import com.diamon.excepciones.ChipConfigurationException;
 import com.diamon.managers.ChipSelectionManager;
 import com.diamon.managers.FileManager;
@@ -57,8 +58,10 @@ import com.diamon.managers.FuseConfigPopup;
 import com.diamon.managers.HexExportManager;
 import com.diamon.managers.MemoryDisplayManager;
 import com.diamon.managers.PicProgrammingManager;
+import com.diamon.managers.ProgrammerExecutor;
 import com.diamon.managers.ProgrammingDialogManager;
 import com.diamon.managers.UsbConnectionManager;
+import com.diamon.nucleo.ResultadoLectura;
 import com.diamon.managers.SocketDrawingManager;
 import com.diamon.protocolo.TipoProtocolo;
 import com.diamon.politicas.PoliticaPrivacidadActivity;
@@ -112,6 +115,7 @@ public class MainActivity extends AppCompatActivity
 
     private UsbConnectionManager usbManager;
     private PicProgrammingManager programmingManager;
+    private ProgrammerExecutor programmerExecutor; // Hilo único para todo acceso al programador
     private FileManager fileManager;
     private ChipSelectionManager chipSelectionManager;
     private MemoryDisplayManager memoryDisplayManager;
@@ -122,10 +126,10 @@ public class MainActivity extends AppCompatActivity
     private FuseConfigPopup fuseConfigPopup; // NUEVO
     private HexExportManager hexExportManager; // NUEVO: Export manager
 
-    private String firmware = "";
-    private String lastReadRomData = ""; // Últimos datos ROM leídos
-    private String lastReadEepromData = ""; // Últimos datos EEPROM leídos
-    private String lastReadConfigData = ""; // Últimos datos Config leídos
+    private FuenteHex fuenteFirmware; // Archivo cargado, leído por flujo al procesarlo
+    private byte[] lastReadRomData = new byte[0]; // Últimos datos ROM leídos
+    private byte[] lastReadEepromData = new byte[0]; // Últimos datos EEPROM leídos
+    private byte[] lastReadConfigData = new byte[0]; // Últimos datos Config leídos
     private ChipPic currentChip;
     private SocketDrawingManager socketDrawingManager; // NUEVO: Gestor de dibujo de zócalo/ICSP
 
@@ -172,8 +176,8 @@ public class MainActivity extends AppCompatActivity
         initializeManagers();
         setupListeners();
         setupToolbar();
-        // Inicializar USB en un hilo secundario para no bloquear el onCreate.
-        new Thread(() -> {
+        // Inicializar USB en el hilo del programador para no bloquear el onCreate.
+        programmerExecutor.enviar(getString(R.string.inicializar_usb), () -> {
             try {
                 if (usbManager != null) {
                     usbManager.initialize();
@@ -182,7 +186,7 @@ public class MainActivity extends AppCompatActivity
                 Analytics.trackEvent("USB: Init Error",
                         crearMapaAnalitica("Message", e.getMessage() != null ? e.getMessage() : "unknown"));
             }
-        }, "UsbInitializer").start();
+        });
 
         setupWakeLock();
     }
@@ -281,8 +285,10 @@ public class MainActivity extends AppCompatActivity
 
     private void initializeManagers() {
         Analytics.trackEvent("Init: Managers");
-        usbManager = new UsbConnectionManager(this);
         programmingManager = new PicProgrammingManager(this);
+        programmerExecutor = new ProgrammerExecutor("K150-programador");
+        programmerExecutor.setCancelador(programmingManager::cancelarOperacion);
+        usbManager = new UsbConnectionManager(this, programmerExecutor);
         socketDrawingManager = new SocketDrawingManager(this, chipSocketImageView);
 
         // Configurar listeners
@@ -332,7 +338,7 @@ public class MainActivity extends AppCompatActivity
         });
 
         // Iniciar carga asíncrona de chips
-        chipSelectionManager.initializeAsync();
+        chipSelectionManager.initializeAsync(programmerExecutor);
 
         memoryDisplayManager = new MemoryDisplayManager(this);
         dialogManager = new ProgrammingDialogManager(this);
@@ -458,6 +464,7 @@ public class MainActivity extends AppCompatActivity
     @Override
     public void onProgrammingCompleted(boolean success) {
         Analytics.trackEvent("Prog: Completed", crearMapaAnalitica("Success", String.valueOf(success)));
+        usbManager.registrarResultadoOperacion(success);
         runOnUiThread(() -> {
             if (success) {
                 appendLog("✓ " + getString(R.string.pic_programado_exitosamente));
@@ -470,6 +477,11 @@ public class MainActivity extends AppCompatActivity
     @Override
     public void onProgrammingError(String errorMessage) {
         Analytics.trackEvent("Prog: Error", crearMapaAnalitica("Message", errorMessage));
+        // Se invoca en el hilo del programador; una cancelación no es un fallo del enlace, y
+        // el gestor USB solo cuenta los fallos con timeouts o errores del driver
+        if (!programmingManager.isCancelacionSolicitada()) {
+            usbManager.registrarResultadoOperacion(false);
+        }
         runOnUiThread(() -> {
             appendLog("❌ " + errorMessage);
         });
@@ -631,8 +643,8 @@ public class MainActivity extends AppCompatActivity
         fileManager.setFileLoadListener(
                 new FileManager.FileLoadListener() {
                     @Override
-                    public void onFileLoaded(String content, String fileName) {
-                        firmware = content;
+                    public void onFileLoaded(FuenteHex fuente, String fileName) {
+                        fuenteFirmware = fuente;
 
                         // Detectar tipo de archivo para mensaje coherente
                         boolean esBin = fileName != null && fileName.toLowerCase().endsWith(".bin");
@@ -687,17 +699,41 @@ public class MainActivity extends AppCompatActivity
         }
     }
 
+    /**
+     * Encola una operación en el hilo del programador. Si la cola está llena se
+     * descarta la pulsación y se avisa en el log.
+     *
+     * @param nombre    Nombre visible de la operación, ya traducido
+     * @param operacion Operación; publica su resultado con runOnUiThread
+     * @return true si la operación quedó encolada
+     */
+    private boolean ejecutarEnProgramador(String nombre, Runnable operacion) {
+        Runnable conSeguimiento = () -> {
+            usbManager.iniciarOperacion();
+            operacion.run();
+        };
+        if (programmerExecutor.enviar(nombre, conSeguimiento) != null) {
+            return true;
+        }
+        String enCurso = programmerExecutor.getOperacionEnCurso();
+        appendLog("⚠ " + (enCurso != null
+                ? getString(R.string.programador_ocupado_con_operacion, enCurso)
+                : getString(R.string.programador_ocupado)));
+        return false;
+    }
+
     /** NUEVO: Procesa los datos del archivo HEX */
     private void procesarDatosHex() {
-        if (currentChip == null || firmware.isEmpty()) {
+        if (currentChip == null || fuenteFirmware == null) {
             return;
         }
 
-        new Thread(
+        ejecutarEnProgramador(
+                getString(R.string.procesar_hex),
                 () -> {
                     try {
-                        datosPicProcesados = new DatosPicProcesados(MainActivity.this, firmware, currentChip);
-                        datosPicProcesados.iniciarProcesamientoDeDatos();
+                        // Pasa por la caché del gestor: la grabación posterior reutiliza esta imagen
+                        datosPicProcesados = programmingManager.obtenerDatosProcesados(currentChip, fuenteFirmware);
 
                         runOnUiThread(
                                 () -> {
@@ -717,8 +753,7 @@ public class MainActivity extends AppCompatActivity
                                     appendLog("❌ " + getString(R.string.error_procesando_hex) + ": " + e.getMessage());
                                 });
                     }
-                })
-                .start();
+                });
     }
 
     /** NUEVO: Abre el popup de configuración de fusibles */
@@ -822,7 +857,7 @@ public class MainActivity extends AppCompatActivity
      * parcial
      */
     private void executeProgram() {
-        if (currentChip == null || firmware.isEmpty()) {
+        if (currentChip == null || fuenteFirmware == null) {
             appendLog("⚠ " + getString(R.string.seleccione_un_chip_y_cargue_un));
             return;
         }
@@ -845,6 +880,7 @@ public class MainActivity extends AppCompatActivity
 
         if (hasRom) {
             options.add(getString(R.string.programar_solo_rom));
+            options.add(getString(R.string.programar_solo_cambios));
         }
         if (hasEeprom) {
             options.add(getString(R.string.programar_solo_eeprom));
@@ -879,20 +915,24 @@ public class MainActivity extends AppCompatActivity
 
         dialogManager.showProgrammingDialog(
                 () -> {
-                    new Thread(
+                    boolean encolada = ejecutarEnProgramador(
+                            getString(R.string.programar_pic),
                             () -> {
                                 boolean success = false;
 
-                                if (operationType.equals(getString(R.string.programar_solo_rom))) {
-                                    success = programmingManager.programRomOnly(currentChip, firmware);
+                                if (operationType.equals(getString(R.string.programar_solo_cambios))) {
+                                    success = programmingManager.programChipDiferencial(currentChip, fuenteFirmware,
+                                            idToUse, fusesToUse);
+                                } else if (operationType.equals(getString(R.string.programar_solo_rom))) {
+                                    success = programmingManager.programRomOnly(currentChip, fuenteFirmware);
                                 } else if (operationType.equals(getString(R.string.programar_solo_eeprom))) {
-                                    success = programmingManager.programEepromOnly(currentChip, firmware);
+                                    success = programmingManager.programEepromOnly(currentChip, fuenteFirmware);
                                 } else if (operationType.equals(getString(R.string.programar_solo_config))) {
-                                    success = programmingManager.programConfigOnly(currentChip, firmware, idToUse,
+                                    success = programmingManager.programConfigOnly(currentChip, fuenteFirmware, idToUse,
                                             fusesToUse);
                                 } else {
                                     // Default: Programar todo
-                                    success = programmingManager.programChip(currentChip, firmware, idToUse,
+                                    success = programmingManager.programChip(currentChip, fuenteFirmware, idToUse,
                                             fusesToUse);
                                 }
 
@@ -901,10 +941,16 @@ public class MainActivity extends AppCompatActivity
                                         () -> {
                                             dialogManager.updateProgrammingResult(finalSuccess);
                                         });
-                            })
-                            .start();
+                            });
+                    if (!encolada) {
+                        dialogManager.updateProgrammingResult(false);
+                    }
                 },
                 () -> {
+                    // Cerrar el diálogo a mitad de grabación la aborta en el siguiente bloque
+                    if (programmingManager.cancelarOperacion()) {
+                        appendLog("⚠ " + getString(R.string.cancelando_operacion));
+                    }
                     publicidad.mostrarBanner();
                 });
     }
@@ -921,32 +967,33 @@ public class MainActivity extends AppCompatActivity
         // Mostrar popup con estado de carga ANTES de leer (no bloquea UI)
         memoryDisplayManager.showLoadingState();
 
-        // Leer memoria en hilo secundario
-        new Thread(
+        // Leer memoria en el hilo del programador
+        boolean encolada = ejecutarEnProgramador(
+                getString(R.string.leer_memoria),
                 () -> {
-                    String romData = programmingManager.readRomMemory(currentChip);
-                    String eepromData = programmingManager.readEepromMemory(currentChip);
-                    String configData = programmingManager.readConfigData(currentChip);
+                    ResultadoLectura romData = programmingManager.readRomMemory(currentChip);
+                    ResultadoLectura eepromData = programmingManager.readEepromMemory(currentChip);
+                    ResultadoLectura configData = programmingManager.readConfigData(currentChip);
 
                     // NUEVO: Guardar datos para exportación posterior
-                    final String romResult = romData;
-                    final String eepromResult = eepromData;
-                    final String configResult = configData;
+                    final byte[] romResult = romData.obtenerDatosExactos();
+                    final byte[] eepromResult = eepromData.obtenerDatosExactos();
+                    final byte[] configResult = configData.obtenerDatosExactos();
 
                     runOnUiThread(
                             () -> {
                                 try {
                                     // Guardar datos leídos para exportación
-                                    lastReadRomData = romResult != null ? romResult : "";
-                                    lastReadEepromData = eepromResult != null ? eepromResult : "";
-                                    lastReadConfigData = configResult != null ? configResult : "";
+                                    lastReadRomData = romResult;
+                                    lastReadEepromData = eepromResult;
+                                    lastReadConfigData = configResult;
 
                                     int romSize = currentChip.getTamanoROM();
                                     int eepromSize = currentChip.isTamanoValidoDeEEPROM()
                                             ? currentChip.getTamanoEEPROM()
                                             : 0;
                                     boolean hasEeprom = currentChip.isTamanoValidoDeEEPROM()
-                                            && !lastReadEepromData.isEmpty();
+                                            && lastReadEepromData.length > 0;
 
                                     // Actualizar popup con los datos leídos
                                     memoryDisplayManager.updateWithData(
@@ -966,12 +1013,16 @@ public class MainActivity extends AppCompatActivity
                                     publicidad.mostrarBanner();
                                 }
                             });
-                })
-                .start();
+                });
+        if (!encolada) {
+            memoryDisplayManager.dismiss();
+            publicidad.mostrarBanner();
+        }
     }
 
     private void executeEraseMemory() {
-        new Thread(
+        ejecutarEnProgramador(
+                getString(R.string.borrar_memoria),
                 () -> {
                     boolean success = programmingManager.eraseMemory();
                     runOnUiThread(
@@ -983,8 +1034,7 @@ public class MainActivity extends AppCompatActivity
                                     appendLog("❌ " + getString(R.string.error_borrando_memoria));
                                 }
                             });
-                })
-                .start();
+                });
     }
 
     private void executeVerifyMemory() {
@@ -995,27 +1045,27 @@ public class MainActivity extends AppCompatActivity
 
         appendLog("⏳ " + getString(R.string.verificando_memoria));
 
-        new Thread(
+        ejecutarEnProgramador(
+                getString(R.string.verificar),
                 () -> {
                     try {
                         // Procesar el HEX cargado (firmware) a bytes si es necesario
-                        if (datosPicProcesados == null || firmware == null || firmware.isEmpty()) {
+                        if (datosPicProcesados == null || fuenteFirmware == null) {
                              runOnUiThread(() -> appendLog("❌ " +
                                      getString(R.string.error_verificando_memoria) + ": " + getString(R.string.no_hay_firmware_valido)));
                             return;
                         }
 
-                        // Usar VerificationManager para verificación real con bytes procesados
-                        byte[] expectedRomBytes = datosPicProcesados.obtenerBytesHexROMProcesado();
-                        byte[] expectedEepromBytes = datosPicProcesados.obtenerBytesHexEEPROMProcesado();
-
+                        // Verificación por CRC de bloque contra la imagen procesada; el chip
+                        // pudo cambiar desde la última grabación, así que se vuelve a leer
                         com.diamon.managers.VerificationManager.VerificationResult result = com.diamon.managers.VerificationManager
-                                .verify(
+                                .verifyConChecksums(
                                         MainActivity.this,
                                         programmingManager.getProtocolo(),
                                         currentChip,
-                                        expectedRomBytes,
-                                        expectedEepromBytes);
+                                        datosPicProcesados,
+                                        false,
+                                        false);
 
                         runOnUiThread(
                                 () -> {
@@ -1060,12 +1110,12 @@ public class MainActivity extends AppCompatActivity
                                         getString(R.string.error_verificando_memoria)
                                                 + ": " + e.getMessage()));
                     }
-                })
-                .start();
+                });
     }
 
     private void executeDetectChip() {
-        new Thread(
+        ejecutarEnProgramador(
+                getString(R.string.detectar_pic),
                 () -> {
                     boolean detected = programmingManager.detectChipInSocket();
                     runOnUiThread(
@@ -1077,8 +1127,7 @@ public class MainActivity extends AppCompatActivity
                                             R.string.no_se_detecto_pic_en_socket));
                                 }
                             });
-                })
-                .start();
+                });
     }
 
     /** Ejecuta la verificación de borrado (Blank Check) */
@@ -1090,7 +1139,7 @@ public class MainActivity extends AppCompatActivity
 
         appendLog("⏳ " + getString(R.string.verificando_borrado) + "...");
 
-        new Thread(() -> {
+        ejecutarEnProgramador(getString(R.string.verificar_borrado), () -> {
             try {
                 PicProgrammingManager.ResultadoVerificacionBorrado resultado = programmingManager
                         .verificarBorradoCompleto(currentChip);
@@ -1126,7 +1175,7 @@ public class MainActivity extends AppCompatActivity
             } catch (Exception e) {
                 runOnUiThread(() -> appendLog("❌ " + getString(R.string.error_verificando_borrado) + ": " + e.getMessage()));
             }
-        }).start();
+        });
     }
 
     @SuppressLint("InvalidWakeLockTag")
@@ -1186,7 +1235,7 @@ public class MainActivity extends AppCompatActivity
 
     /** NUEVO: Muestra diálogo para exportar memoria leída */
     private void showExportDialog() {
-        if (lastReadRomData.isEmpty() && lastReadEepromData.isEmpty() && lastReadConfigData.isEmpty()) {
+        if (lastReadRomData.length == 0 && lastReadEepromData.length == 0 && lastReadConfigData.length == 0) {
             appendLog("⚠ " + getString(R.string.no_hay_datos_para_exportar));
             return;
         }
@@ -1194,21 +1243,21 @@ public class MainActivity extends AppCompatActivity
         String chipName = (currentChip != null) ? currentChip.getNombreDelPic() : "PIC";
         java.util.List<String> options = new java.util.ArrayList<>();
 
-        if (!lastReadRomData.isEmpty()) {
+        if (lastReadRomData.length > 0) {
             options.add(getString(R.string.exportar_rom_hex));
             options.add(getString(R.string.exportar_rom_bin));
         }
-        if (!lastReadEepromData.isEmpty()) {
+        if (lastReadEepromData.length > 0) {
             options.add(getString(R.string.exportar_eeprom_hex));
             options.add(getString(R.string.exportar_eeprom_bin));
         }
-        if (!lastReadConfigData.isEmpty()) {
+        if (lastReadConfigData.length > 0) {
             options.add(getString(R.string.exportar_config_hex));
             options.add(getString(R.string.exportar_config_bin));
         }
 
         // Si hay al menos ROM y (EEPROM o Config), ofrecer un volcado completo
-        if (!lastReadRomData.isEmpty() && (!lastReadEepromData.isEmpty() || !lastReadConfigData.isEmpty())) {
+        if (lastReadRomData.length > 0 && (lastReadEepromData.length > 0 || lastReadConfigData.length > 0)) {
             options.add(getString(R.string.exportar_dump_completo));
             options.add(getString(R.string.exportar_dump_completo_bin));
         }
@@ -1228,26 +1277,26 @@ public class MainActivity extends AppCompatActivity
                     }
 
                     if (selected.equals(getString(R.string.exportar_rom_hex))) {
-                        byte[] romBytes = stringHexToByteArray(lastReadRomData);
+                        byte[] romBytes = lastReadRomData;
                         if (romBytes != null && romBytes.length > 0) {
                             romBytes = HexExportManager.formatForHexExport(romBytes, coreBits, false);
                             hexExportManager.exportAsHex(romBytes, chipName + "_ROM");
                         }
                     } else if (selected.equals(getString(R.string.exportar_rom_bin))) {
-                        hexExportManager.exportBinStringAsFile(lastReadRomData, chipName + "_ROM");
+                        hexExportManager.exportAsBinary(lastReadRomData, chipName + "_ROM");
 
                     } else if (selected.equals(getString(R.string.exportar_eeprom_hex))) {
                         int eepromAddr = (coreBits == 16) ? 0xF000 : 0x4200;
-                        byte[] eepromBytes = stringHexToByteArray(lastReadEepromData);
+                        byte[] eepromBytes = lastReadEepromData;
                         if (eepromBytes != null && eepromBytes.length > 0) {
                             eepromBytes = HexExportManager.formatForHexExport(eepromBytes, coreBits, true);
                             hexExportManager.exportAsHexWithAddress(eepromBytes, eepromAddr, chipName + "_EEPROM");
                         }
                     } else if (selected.equals(getString(R.string.exportar_eeprom_bin))) {
-                        hexExportManager.exportBinStringAsFile(lastReadEepromData, chipName + "_EEPROM");
+                        hexExportManager.exportAsBinary(lastReadEepromData, chipName + "_EEPROM");
 
                     } else if (selected.equals(getString(R.string.exportar_config_hex))) {
-                        byte[] rawConfig = stringHexToByteArray(lastReadConfigData);
+                        byte[] rawConfig = lastReadConfigData;
                         ConfigSplitData configSplitData = splitRawConfigForHex(rawConfig, coreBits);
                         if (configSplitData != null) {
                             hexExportManager.exportConfigAsHexSplit(
@@ -1258,15 +1307,15 @@ public class MainActivity extends AppCompatActivity
                                     chipName + "_CONFIG");
                         }
                     } else if (selected.equals(getString(R.string.exportar_config_bin))) {
-                        byte[] configBytes = stringHexToByteArray(lastReadConfigData);
+                        byte[] configBytes = lastReadConfigData;
                         if (configBytes != null && configBytes.length > 0) {
                             hexExportManager.exportAsBinary(configBytes, chipName + "_CONFIG");
                         }
 
                     } else if (selected.equals(getString(R.string.exportar_dump_completo))) {
-                        byte[] romBytes = stringHexToByteArray(lastReadRomData);
-                        byte[] eepromBytes = stringHexToByteArray(lastReadEepromData);
-                        byte[] rawConfig = stringHexToByteArray(lastReadConfigData);
+                        byte[] romBytes = lastReadRomData;
+                        byte[] eepromBytes = lastReadEepromData;
+                        byte[] rawConfig = lastReadConfigData;
 
                         int eepromAddr = (coreBits == 16) ? 0xF000 : 0x4200;
 
@@ -1289,9 +1338,9 @@ public class MainActivity extends AppCompatActivity
                                     eepromAddr, 0x4000, chipName + "_FULL");
                         }
                     } else if (selected.equals(getString(R.string.exportar_dump_completo_bin))) {
-                        byte[] romBytes = stringHexToByteArray(lastReadRomData);
-                        byte[] eepromBytes = stringHexToByteArray(lastReadEepromData);
-                        byte[] rawConfig = stringHexToByteArray(lastReadConfigData);
+                        byte[] romBytes = lastReadRomData;
+                        byte[] eepromBytes = lastReadEepromData;
+                        byte[] rawConfig = lastReadConfigData;
 
                         byte[] fullBinData = buildFullBinaryDump(romBytes, eepromBytes, rawConfig, coreBits);
                         if (fullBinData != null && fullBinData.length > 0) {
@@ -1344,22 +1393,6 @@ public class MainActivity extends AppCompatActivity
         return fullBin;
     }
 
-    private byte[] stringHexToByteArray(String s) {
-        if (s == null || s.isEmpty())
-            return new byte[0];
-        try {
-            int len = s.length();
-            byte[] data = new byte[len / 2];
-            for (int i = 0; i < len; i += 2) {
-                data[i / 2] = (byte) ((Character.digit(s.charAt(i), 16) << 4)
-                        + Character.digit(s.charAt(i + 1), 16));
-            }
-            return data;
-        } catch (Exception e) {
-            return new byte[0];
-        }
-    }
-
     private ConfigSplitData splitRawConfigForHex(byte[] rawConfig, int coreBits) {
         if (rawConfig == null || rawConfig.length == 0) {
             return null;
@@ -1737,6 +1770,10 @@ public class MainActivity extends AppCompatActivity
                 publicidad.destruirPublicidad();
             }
 
+            if (programmerExecutor != null) {
+                programmerExecutor.cerrar();
+            }
+
             if (usbManager != null) {
                 usbManager.release();
             }
@@ -7,7 +7,10 @@ import com.diamon.datos.DatosPicProcesados;
 import com.diamon.excepciones.ChipConfigurationException;
 import com.diamon.excepciones.UsbCommunicationException;
 import com.diamon.nucleo.Protocolo;
+import com.diamon.nucleo.ResultadoLectura;
+import com.diamon.nucleo.TablaChecksums;
 import com.diamon.utilidades.ByteUtils;
+import com.diamon.utilidades.HexFileUtils;
 import com.hoho.android.usbserial.driver.UsbSerialPort;
 
 import java.io.ByteArrayOutputStream;
@@ -57,9 +60,48 @@ public class ProtocoloP18A extends Protocolo {
     /** Tipo de protocolo activo (define los command numbers de conexión) */
     private final TipoProtocolo tipoProtocolo;
 
+    /** Bytes que devuelve el comando 13 tras el ACK 'C': chip ID, ID, fuses y calibración */
+    private static final int TAMANO_CONFIGURACION = 26;
+
+    /** Tamaño de bloque exigido por el firmware para el comando 7 (programar ROM) */
+    private static final int TAMANO_BLOQUE_ROM = 32;
+
+    /** Máximo de bloques ROM que se permiten en vuelo sin confirmar */
+    public static final int VENTANA_MAXIMA_ROM = 4;
+
+    /** Bloques que graba la prueba de la ventana ROM: dos ventanas completas en vuelo */
+    private static final int BLOQUES_PRUEBA_VENTANA_ROM = 2 * VENTANA_MAXIMA_ROM;
+
+    /**
+     * Bytes que el firmware K150 puede aceptar mientras graba una unidad EEPROM: la unidad
+     * en proceso más la FIFO de recepción de 2 bytes del USART del PIC16F628A.
+     */
+    private static final int CAPACIDAD_RECEPCION_FIRMWARE = 4;
+
+    /** Máximo de unidades EEPROM de 2 bytes por transferencia USB */
+    public static final int UNIDADES_MAXIMAS_LOTE_EEPROM = CAPACIDAD_RECEPCION_FIRMWARE / 2;
+
     /** Últimos fuses 18F cargados por cmd 0x09 para commit posterior con cmd 0x11. */
     private int[] pendingFuses18fCommit;
 
+    /** Bloques ROM en vuelo permitidos (1 = lock-step clásico) */
+    private int ventanaEscrituraROM = 1;
+
+    /** Ventana pendiente de probar con el chip borrado (1 = nada que probar) */
+    private int ventanaEscrituraROMCandidata = 1;
+
+    /** Búfer reutilizable para el bloque ROM en transmisión */
+    private final byte[] bloqueROM = new byte[TAMANO_BLOQUE_ROM];
+
+    /** Unidades EEPROM de 2 bytes agrupadas por transferencia (1 = lock-step clásico) */
+    private int unidadesPorLoteEEPROM = 1;
+
+    /** Búferes reutilizables para lotes EEPROM, indexados por número de unidades */
+    private final byte[][] bloquesEEPROM = new byte[UNIDADES_MAXIMAS_LOTE_EEPROM + 1][];
+
+    /** Búfer reutilizable para la lectura de ROM posterior a cada grabación */
+    private byte[] bufferReadbackROM;
+
     /**
      * Constructor del protocolo con tipo por defecto (P18A).
      *
@@ -80,6 +122,10 @@ public class ProtocoloP18A extends Protocolo {
     public ProtocoloP18A(Context contexto, UsbSerialPort usbSerialPort, TipoProtocolo tipoProtocolo) {
         super(contexto, usbSerialPort);
         this.tipoProtocolo = tipoProtocolo;
+
+        for (int i = 1; i <= UNIDADES_MAXIMAS_LOTE_EEPROM; i++) {
+            bloquesEEPROM[i] = new byte[i * 2];
+        }
     }
 
     /** Retorna el tipo de protocolo activo. */
@@ -87,6 +133,136 @@ public class ProtocoloP18A extends Protocolo {
         return tipoProtocolo;
     }
 
+    /**
+     * Configura la escritura ROM segmentada (pipelined).
+     *
+     * <p>Con un valor mayor que 1 se envían varios bloques de 32 bytes antes de esperar el
+     * 'Y' del primero. Si el firmware rechaza un bloque o se pierde un ACK, la programación
+     * se repite automáticamente en lock-step y la ventana queda en 1 para esta conexión. Al
+     * conectar se usa la ventana guardada con el enlace ajustado, que solo pasa de 1 tras
+     * superar {@link #probarVentanaEscrituraROM(ChipPic)}.
+     *
+     * @param ventana Bloques en vuelo permitidos, entre 1 y {@link #VENTANA_MAXIMA_ROM}
+     */
+    public void setVentanaEscrituraROM(int ventana) {
+        this.ventanaEscrituraROM = Math.max(1, Math.min(VENTANA_MAXIMA_ROM, ventana));
+    }
+
+    /** Retorna los bloques ROM en vuelo permitidos actualmente. */
+    public int getVentanaEscrituraROM() {
+        return ventanaEscrituraROM;
+    }
+
+    /**
+     * Configura una ventana ROM que aún no se ha probado con este programador. No se usa
+     * hasta que {@link #probarVentanaEscrituraROM(ChipPic)} la confirma.
+     *
+     * @param ventana Ventana a probar; 1 si no hay nada que probar
+     */
+    public void setVentanaEscrituraROMCandidata(int ventana) {
+        this.ventanaEscrituraROMCandidata = Math.max(1, Math.min(VENTANA_MAXIMA_ROM, ventana));
+    }
+
+    /** Retorna la ventana ROM pendiente de probar, o 1 si no hay ninguna. */
+    public int getVentanaEscrituraROMCandidata() {
+        return ventanaEscrituraROMCandidata;
+    }
+
+    /**
+     * Prueba la ventana candidata sobre un chip recién borrado.
+     *
+     * <p>Graba desde la dirección 0 un patrón de {@link #BLOQUES_PRUEBA_VENTANA_ROM} bloques con
+     * la ventana candidata, lo lee y lo compara en los bits del núcleo: un ACK a tiempo no
+     * basta, porque un byte perdido en el puente desplaza el resto del bloque sin que el
+     * firmware lo note. Si coincide, la ventana pasa a usarse; si no, se mantiene el
+     * lock-step. En ambos casos la candidata queda resuelta, salvo que la operación se cancele.
+     * La lectura se detiene en cuanto cubre el patrón.
+     *
+     * <p>El patrón queda grabado: el llamador debe borrar el chip antes de programar la imagen.
+     * Por eso solo se prueba en chips flash; en un chip EPROM u OTP no se graba nada y la
+     * candidata sigue pendiente para el siguiente chip flash.
+     *
+     * @param chipPIC Chip en el socket, recién borrado
+     * @return true si la ventana candidata grabó el patrón sin errores
+     */
+    public boolean probarVentanaEscrituraROM(ChipPic chipPIC) {
+        int ventana = ventanaEscrituraROMCandidata;
+        if (chipPIC == null || ventana <= 1 || !chipPIC.isFlashChip()) {
+            return false;
+        }
+
+        try {
+            int nucleo = chipPIC.getTipoDeNucleoBit();
+            int palabrasPorBloque = TAMANO_BLOQUE_ROM / 2;
+            int palabras = Math.min(BLOQUES_PRUEBA_VENTANA_ROM, chipPIC.getTamanoROM() / palabrasPorBloque)
+                    * palabrasPorBloque;
+            if (palabras == 0) {
+                return false;
+            }
+            byte[] patron = crearPatronPruebaROM(palabras, nucleo);
+            int bytesPatron = palabras * 2;
+
+            boolean correcta;
+            pausarProgreso(true);
+            try {
+                correcta = enviarSecuenciaROM(patron, palabras, ventana);
+                if (correcta) {
+                    ResultadoLectura leida = leerMemoriaROM(
+                            chipPIC, null, (datos, offset, longitud) -> offset + longitud < bytesPatron);
+                    // Una lectura corta no cubre el patrón y cuenta como diferencia
+                    correcta = leida.tieneDatosUtilizables()
+                            && HexFileUtils.contarPalabrasHastaUltimaDiferencia(
+                                    leida.getDatos(), leida.getLongitud(), patron, palabras, nucleo) == 0;
+                }
+            } finally {
+                pausarProgreso(false);
+            }
+
+            if (cancelacionSolicitada()) {
+                return false;
+            }
+            ventanaEscrituraROMCandidata = 1;
+            if (correcta) {
+                ventanaEscrituraROM = ventana;
+            }
+            return correcta;
+
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /** Palabras distintas entre sí y del blanco, con los bits altos del núcleo también en uso */
+    private static byte[] crearPatronPruebaROM(int palabras, int nucleo) {
+        int mascara = (~(0xFFFF << nucleo)) & 0xFFFF;
+        byte[] patron = new byte[palabras * 2];
+        for (int i = 0; i < palabras; i++) {
+            int valor = ((i * 0x0A53) ^ 0x35C6) & mascara;
+            patron[i * 2] = (byte) (valor >> 8);
+            patron[i * 2 + 1] = (byte) valor;
+        }
+        return patron;
+    }
+
+    /**
+     * Configura cuántas unidades EEPROM de 2 bytes viajan en cada transferencia USB.
+     *
+     * <p>El firmware sigue confirmando cada unidad con 'Y' y todas se validan. Si alguna no
+     * se confirma, la programación se repite en lock-step y el valor vuelve a 1. Por defecto
+     * es 1: con {@link #UNIDADES_MAXIMAS_LOTE_EEPROM} solo se ahorra la latencia del puente USB
+     * de una de cada dos unidades, poco frente al resto de la grabación.
+     *
+     * @param unidades Unidades por lote, entre 1 y {@link #UNIDADES_MAXIMAS_LOTE_EEPROM}
+     */
+    public void setUnidadesPorLoteEEPROM(int unidades) {
+        this.unidadesPorLoteEEPROM = Math.max(1, Math.min(UNIDADES_MAXIMAS_LOTE_EEPROM, unidades));
+    }
+
+    /** Retorna las unidades EEPROM agrupadas por transferencia actualmente. */
+    public int getUnidadesPorLoteEEPROM() {
+        return unidadesPorLoteEEPROM;
+    }
+
     private int getCmdEraseChip() {
         return (tipoProtocolo == TipoProtocolo.P18A) ? 0x0E : 0x0F;
     }
@@ -297,6 +473,26 @@ public class ProtocoloP18A extends Protocolo {
     @Override
     public boolean programarMemoriaROMDelPic(ChipPic chipPIC, DatosPicProcesados datosPic)
             throws ChipConfigurationException {
+        return programarMemoriaROMDelPic(chipPIC, datosPic, false);
+    }
+
+    /**
+     * Programa la memoria ROM, opcionalmente sin transmitir el blanco final.
+     *
+     * <p>El comando 7 del firmware siempre escribe desde la dirección 0 y no admite
+     * escrituras direccionadas, así que no se pueden saltar bloques intermedios. Con el chip
+     * recién borrado sí basta con enviar hasta el último bloque con datos: el resto ya está en
+     * blanco. Un bootloader pequeño en un 18F grande se graba así en una fracción del tiempo.
+     * Sin borrado previo se envía la ROM completa para sobrescribir el contenido anterior.
+     *
+     * @param chipPIC Chip a programar
+     * @param datosPic Imagen procesada
+     * @param chipBorrado true si las memorias se borraron justo antes
+     * @return true si la programación fue exitosa
+     */
+    public boolean programarMemoriaROMDelPic(
+            ChipPic chipPIC, DatosPicProcesados datosPic, boolean chipBorrado)
+            throws ChipConfigurationException {
         // Validaciones de entrada
         if (chipPIC == null) {
             throw new IllegalArgumentException("ChipPIC no puede ser null");
@@ -320,106 +516,255 @@ public class ProtocoloP18A extends Protocolo {
                 return false;
             }
 
-            // Ajustar el buffer a bloques de 32 bytes exigidos por el protocolo.
-            int totalSize = wordCount * 2;
-            if (totalSize % 32 != 0) {
-                int paddingNeeded = 32 - (totalSize % 32);
+            if (chipBorrado) {
+                wordCount = HexFileUtils.contarPalabrasHastaUltimoDato(
+                        romData, wordCount, chipPIC.getTipoDeNucleoBit());
+                if (wordCount == 0) {
+                    // Imagen en blanco sobre un chip borrado: no hay nada que grabar
+                    return true;
+                }
+            }
 
-                // Crear nuevo array con padding
-                byte[] paddedRomData = new byte[romData.length + paddingNeeded];
-                System.arraycopy(romData, 0, paddedRomData, 0, romData.length);
-                // Llenar padding con 0xFF (valor por defecto para ROM vacía)
-                Arrays.fill(paddedRomData, romData.length, paddedRomData.length, (byte) 0xFF);
+            return grabarPalabrasROM(chipPIC, romData, wordCount);
 
-                romData = paddedRomData;
-                wordCount = romData.length / 2;
-            }
+        } catch (UsbCommunicationException e) {
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
 
-            // Iniciar secuencia de comandos del programador.
-            if (!resetearComandos()) {
-                return false;
-            }
+    /**
+     * Programa las primeras palabras de la ROM sin borrado previo.
+     *
+     * <p>Es la región mínima que admite el comando 7, que siempre escribe desde la dirección 0:
+     * para reprogramar un chip cuyo contenido se conoce basta con llegar hasta la última
+     * palabra que cambia. El resto de la ROM conserva lo que tenía.
+     *
+     * @param chipPIC Chip a programar
+     * @param datosPic Imagen procesada
+     * @param palabras Palabras a escribir desde la dirección 0; 0 no escribe nada
+     * @return true si la programación fue exitosa
+     */
+    public boolean programarPrefijoROMDelPic(
+            ChipPic chipPIC, DatosPicProcesados datosPic, int palabras)
+            throws ChipConfigurationException {
+        if (chipPIC == null) {
+            throw new IllegalArgumentException("ChipPIC no puede ser null");
+        }
 
-            if (!activarVoltajesDeProgramacion()) {
+        if (datosPic == null) {
+            throw new IllegalArgumentException("DatosPicProcesados no puede ser null");
+        }
+
+        try {
+            byte[] romData = datosPic.obtenerBytesHexROMProcesado();
+            if (romData == null || palabras < 0 || palabras > romData.length / 2
+                    || palabras > chipPIC.getTamanoROM()) {
                 return false;
             }
+            if (palabras == 0) {
+                return true;
+            }
+            return grabarPalabrasROM(chipPIC, romData, palabras);
+
+        } catch (UsbCommunicationException e) {
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Rellena la ROM a bloques de 32 bytes y la envía con la ventana configurada, volviendo a
+     * lock-step si el firmware pierde algún ACK.
+     *
+     * @param chipPIC Chip a programar
+     * @param romData Imagen ROM completa
+     * @param wordCount Palabras a enviar desde la dirección 0
+     * @return true si el firmware confirmó todos los bloques
+     */
+    private boolean grabarPalabrasROM(ChipPic chipPIC, byte[] romData, int wordCount)
+            throws UsbCommunicationException {
+        // Ajustar el buffer a bloques de 32 bytes exigidos por el protocolo.
+        int totalSize = wordCount * 2;
+        if (totalSize % 32 != 0) {
+            int paddedSize = totalSize + 32 - (totalSize % 32);
+
+            // Crear nuevo array con padding; lo que exceda la imagen se rellena
+            byte[] paddedRomData = new byte[paddedSize];
+            int copiados = Math.min(romData.length, paddedSize);
+            System.arraycopy(romData, 0, paddedRomData, 0, copiados);
+            // Llenar padding con 0xFF (valor por defecto para ROM vacía)
+            Arrays.fill(paddedRomData, copiados, paddedSize, (byte) 0xFF);
+
+            romData = paddedRomData;
+            wordCount = paddedSize / 2;
+        }
 
-            // Comando para programar ROM (0x07).
-            escribirDatosUSB(new byte[] { 0x07 }, 10, "comando_programar_ROM");
+        descartarReadbackROM();
 
-            // Enviar cantidad de palabras a programar.
-            byte[] wordCountMessage = ByteUtils.shortToBytes((short) wordCount, true);
-            escribirDatosUSB(wordCountMessage, TIMEOUT_DEFAULT, "tamaño_palabras_ROM");
+        int ventana = ventanaEscrituraROM;
+        boolean exitoso = enviarSecuenciaROM(romData, wordCount, ventana);
 
-            // Validar respuesta inicial 'Y'.
-            byte[] response = new byte[1];
-            if (!leerRespuesta(
-                    response, 'Y', "Error: No se recibió confirmación después de enviar tamaño")) {
-                desactivarVoltajesDeProgramacion();
-                resetearComandos();
-                return false;
+        // Fallback a lock-step: si el firmware rechazó un bloque o perdió un ACK con
+        // varios bloques en vuelo, repetir la secuencia completa esperando cada 'Y'.
+        // Una cancelación no es un fallo del firmware y no se reintenta.
+        if (!exitoso && ventana > 1 && !cancelacionSolicitada()) {
+            ventanaEscrituraROM = 1;
+            exitoso = enviarSecuenciaROM(romData, wordCount, 1);
+        }
+
+        if (!exitoso) {
+            return false;
+        }
+
+        // Lectura posterior sin afectar el resultado principal: se guarda con sus CRC por
+        // bloque para que la verificación no tenga que volver a leer la ROM completa. Su
+        // avance no se anota en el token, que sigue contando los bloques grabados.
+        pausarProgreso(true);
+        try {
+            TablaChecksums.Acumulador acumulador = new TablaChecksums.Acumulador();
+            ResultadoLectura romLeida = leerMemoriaROM(chipPIC, bufferReadbackROM, acumulador);
+            if (romLeida.esExitosa()) {
+                bufferReadbackROM = romLeida.getDatos();
+                recordarReadbackROM(romLeida, acumulador.terminar());
             }
+        } catch (Exception e) {
+            // No fallar por esto: la verificación volverá a leer la ROM
+        } finally {
+            pausarProgreso(false);
+        }
 
-            // Enviar datos en bloques de 32 bytes.
-            int bloquesEnviados = 0;
-            try {
-                for (int i = 0; i < romData.length; i += 32) {
-                    byte[] chunk = Arrays.copyOfRange(romData, i, Math.min(i + 32, romData.length));
-                    bloquesEnviados++;
+        return true;
+    }
 
-                    escribirDatosUSB(chunk, 10, String.format("bloque_ROM_%d", bloquesEnviados));
+    /**
+     * Ejecuta la secuencia del comando 7 (programar ROM) con una ventana de bloques en vuelo.
+     *
+     * <p>Con {@code ventana == 1} el comportamiento es el lock-step original: cada bloque de
+     * 32 bytes espera su 'Y' antes de enviar el siguiente. Con una ventana mayor se mantienen
+     * hasta {@code ventana} bloques encolados en el driver serie y los ACK se emparejan en
+     * orden a medida que llegan, de modo que la transmisión del bloque siguiente se solapa
+     * con la grabación del actual.
+     *
+     * <p>El firmware no sale del comando 7 hasta recibir {@code wordCount} palabras, así que una
+     * cancelación no puede cortar la secuencia: a partir de ese momento los bloques que faltan
+     * se envían en blanco (0xFF, borrado para cualquier núcleo una vez enmascarado), se emparejan
+     * sus 'Y' y la 'P' final, y se cierra como siempre devolviendo false. El progreso del token
+     * se queda en el último bloque real confirmado.
+     *
+     * @param romData   ROM ya rellenada a múltiplos de 32 bytes
+     * @param wordCount Número de palabras a programar, múltiplo de 16; puede ser menor
+     *                  que la ROM si se omite el blanco final
+     * @param ventana   Máximo de bloques enviados sin confirmar (>= 1)
+     * @return true si todos los bloques y la confirmación final 'P' fueron recibidos
+     */
+    private boolean enviarSecuenciaROM(byte[] romData, int wordCount, int ventana)
+            throws UsbCommunicationException {
+        // Iniciar secuencia de comandos del programador.
+        if (!resetearComandos()) {
+            return false;
+        }
 
-                    // Timeout extendido para operaciones de programación masivas.
-                    if (!leerRespuesta(
-                            response,
-                            'Y',
-                            "Error: No se recibió confirmación de bloque",
-                            TIMEOUT_EXTENDED)) {
-                        desactivarVoltajesDeProgramacion();
-                        resetearComandos();
-                        return false;
+        if (!activarVoltajesDeProgramacion()) {
+            return false;
+        }
+
+        // Comando para programar ROM (0x07).
+        escribirDatosUSB(new byte[] { 0x07 }, 10, "comando_programar_ROM");
+
+        // Enviar cantidad de palabras a programar.
+        byte[] wordCountMessage = ByteUtils.shortToBytes((short) wordCount, true);
+        escribirDatosUSB(wordCountMessage, TIMEOUT_DEFAULT, "tamaño_palabras_ROM");
+
+        // Validar respuesta inicial 'Y'.
+        byte[] response = new byte[1];
+        if (!leerRespuesta(
+                response, 'Y', "Error: No se recibió confirmación después de enviar tamaño")) {
+            desactivarVoltajesDeProgramacion();
+            resetearComandos();
+            return false;
+        }
+
+        // Enviar datos en bloques de 32 bytes con hasta 'ventana' bloques sin confirmar.
+        int totalBloques = wordCount * 2 / TAMANO_BLOQUE_ROM;
+        int bloquesEnviados = 0;
+        int bloquesConfirmados = 0;
+        // Primer bloque relleno en blanco tras una cancelación; los anteriores llevan datos
+        int bloquesReales = totalBloques;
+        registrarProgreso(0, totalBloques);
+        try {
+            while (bloquesConfirmados < totalBloques) {
+                if (bloquesReales == totalBloques && cancelacionSolicitada()) {
+                    bloquesReales = bloquesEnviados;
+                    Arrays.fill(bloqueROM, (byte) 0xFF);
+                }
+                while (bloquesEnviados < totalBloques
+                        && bloquesEnviados - bloquesConfirmados < ventana) {
+                    if (bloquesEnviados < bloquesReales) {
+                        System.arraycopy(
+                                romData,
+                                bloquesEnviados * TAMANO_BLOQUE_ROM,
+                                bloqueROM,
+                                0,
+                                TAMANO_BLOQUE_ROM);
                     }
+                    bloquesEnviados++;
+
+                    escribirDatosUSB(
+                            bloqueROM,
+                            10,
+                            bloquesEnviados <= bloquesReales ? "bloque_ROM" : "relleno_ROM_cancelado");
                 }
 
-                // Timeout extendido para confirmación final de programación.
+                // Timeout extendido para operaciones de programación masivas.
                 if (!leerRespuesta(
                         response,
-                        'P',
-                        "Error: No se recibió confirmación final de programación",
+                        'Y',
+                        "Error: No se recibió confirmación de bloque",
                         TIMEOUT_EXTENDED)) {
+                    // Los ACK de los bloques en vuelo no deben tomarse por la 'v' de apagado
+                    if (ventana > 1) {
+                        clearBuffer();
+                    }
                     desactivarVoltajesDeProgramacion();
                     resetearComandos();
                     return false;
                 }
+                bloquesConfirmados++;
+                if (bloquesConfirmados <= bloquesReales) {
+                    registrarProgreso(bloquesConfirmados, totalBloques);
+                }
+            }
 
-            } catch (Exception e) {
-                // Ante error en transmisión, limpiar estado y finalizar con error.
+            // Timeout extendido para confirmación final de programación.
+            if (!leerRespuesta(
+                    response,
+                    'P',
+                    "Error: No se recibió confirmación final de programación",
+                    TIMEOUT_EXTENDED)) {
                 desactivarVoltajesDeProgramacion();
                 resetearComandos();
                 return false;
             }
 
-            // Finalizar secuencia
-            desactivarVoltajesDeProgramacion();
-            resetearComandos();
-
-            // Verificación de lectura posterior sin afectar el resultado principal.
+        } catch (Exception e) {
+            // Ante error en transmisión, limpiar estado y finalizar con error.
+            // Con varios bloques en vuelo pueden quedar ACK pendientes en el buffer.
             try {
-                String romLeida = leerMemoriaROMDelPic(chipPIC);
-                if (romLeida == null || romLeida.startsWith("Error")) {
-                    // Sin impacto funcional: la verificación es informativa.
-                }
-            } catch (Exception e) {
-                // No fallar por esto, solo advertir
+                clearBuffer();
+            } catch (Exception ignored) {
             }
-
-            return true;
-
-        } catch (UsbCommunicationException e) {
-            return false;
-        } catch (Exception e) {
+            desactivarVoltajesDeProgramacion();
+            resetearComandos();
             return false;
         }
+
+        // Finalizar secuencia
+        desactivarVoltajesDeProgramacion();
+        resetearComandos();
+        return bloquesReales == totalBloques;
     }
 
     @Override
@@ -459,67 +804,128 @@ public class ProtocoloP18A extends Protocolo {
                 return false;
             }
 
-            // Preparar secuencia de programación
-            if (!resetearComandos()) {
-                return false;
+            int unidadesPorLote = unidadesPorLoteEEPROM;
+            boolean exitoso = enviarSecuenciaEEPROM(eepromData, unidadesPorLote);
+
+            // Fallback a lock-step: repetir la secuencia completa con una unidad por
+            // transferencia si el firmware no confirmó alguna unidad del lote.
+            if (!exitoso && unidadesPorLote > 1 && !cancelacionSolicitada()) {
+                unidadesPorLoteEEPROM = 1;
+                exitoso = enviarSecuenciaEEPROM(eepromData, 1);
             }
 
-            if (!activarVoltajesDeProgramacion()) {
+            if (!exitoso) {
                 return false;
             }
 
-            // Comando para programar EEPROM (0x08)
-            escribirDatosUSB(new byte[] { 0x08 }, 10, "comando_programar_EEPROM");
+            return true;
 
-            // Enviar cantidad de bytes
-            byte[] byteCountMessage = ByteUtils.shortToBytes((short) byteCount, true);
-            escribirDatosUSB(byteCountMessage, TIMEOUT_DEFAULT, "tamaño_bytes_EEPROM");
+        } catch (UsbCommunicationException e) {
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
 
-            // Validar respuesta inicial 'Y'
-            byte[] response = new byte[1];
-            if (!leerRespuesta(
-                    response, 'Y', "Error: No se recibió confirmación después de enviar tamaño")) {
-                desactivarVoltajesDeProgramacion();
-                resetearComandos();
-                return false;
-            }
+    /**
+     * Ejecuta la secuencia del comando 8 (programar EEPROM) agrupando unidades de 2 bytes.
+     *
+     * <p>Cada transferencia USB lleva {@code unidadesPorLote} unidades consecutivas y después
+     * se lee un 'Y' por cada una, de modo que ninguna confirmación del firmware se omite.
+     * La cancelación se comprueba entre lotes; como el firmware no sale del comando 8 hasta
+     * recibir todos los bytes anunciados, las unidades que faltan se envían como 0xFF y la
+     * secuencia se cierra con el relleno y la 'P' de siempre antes de devolver false.
+     *
+     * @param eepromData      Datos EEPROM (longitud par)
+     * @param unidadesPorLote Unidades de 2 bytes por transferencia (>= 1)
+     * @return true si todas las unidades y la confirmación final 'P' fueron recibidas
+     */
+    private boolean enviarSecuenciaEEPROM(byte[] eepromData, int unidadesPorLote)
+            throws UsbCommunicationException {
+        // Preparar secuencia de programación
+        if (!resetearComandos()) {
+            return false;
+        }
 
-            // Enviar datos en bloques de 2 bytes
-            int bloquesEnviados = 0;
-            for (int i = 0; i < eepromData.length; i += 2) {
-                byte[] chunk = Arrays.copyOfRange(eepromData, i, i + 2);
-                bloquesEnviados++;
+        if (!activarVoltajesDeProgramacion()) {
+            return false;
+        }
 
-                escribirDatosUSB(chunk, 10, String.format("bloque_EEPROM_%d", bloquesEnviados));
+        // Comando para programar EEPROM (0x08)
+        escribirDatosUSB(new byte[] { 0x08 }, 10, "comando_programar_EEPROM");
 
-                if (!leerRespuesta(response, 'Y', "Error: No se recibió confirmación de bloque")) {
-                    desactivarVoltajesDeProgramacion();
-                    resetearComandos();
-                    return false;
+        // Enviar cantidad de bytes
+        byte[] byteCountMessage = ByteUtils.shortToBytes((short) eepromData.length, true);
+        escribirDatosUSB(byteCountMessage, TIMEOUT_DEFAULT, "tamaño_bytes_EEPROM");
+
+        // Validar respuesta inicial 'Y'
+        byte[] response = new byte[1];
+        if (!leerRespuesta(
+                response, 'Y', "Error: No se recibió confirmación después de enviar tamaño")) {
+            desactivarVoltajesDeProgramacion();
+            resetearComandos();
+            return false;
+        }
+
+        // Enviar datos en lotes de unidades de 2 bytes
+        int totalUnidades = eepromData.length / 2;
+        int unidadesEnviadas = 0;
+        boolean cancelada = false;
+        registrarProgreso(0, totalUnidades);
+        try {
+            while (unidadesEnviadas < totalUnidades) {
+                if (!cancelada && cancelacionSolicitada()) {
+                    cancelada = true;
                 }
-            }
 
-            // Enviar 2 bytes adicionales al final (relleno según protocolo)
-            escribirDatosUSB(new byte[] { 0x00, 0x00 }, 10, "relleno_final_EEPROM");
+                int unidadesLote = Math.min(unidadesPorLote, totalUnidades - unidadesEnviadas);
+                byte[] lote = bloquesEEPROM[unidadesLote];
+                if (cancelada) {
+                    Arrays.fill(lote, (byte) 0xFF);
+                } else {
+                    System.arraycopy(eepromData, unidadesEnviadas * 2, lote, 0, lote.length);
+                }
 
-            // Validar respuesta final 'P'
-            if (!leerRespuesta(response, 'P', "Error: No se recibió confirmación final")) {
-                desactivarVoltajesDeProgramacion();
-                resetearComandos();
-                return false;
-            }
+                escribirDatosUSB(lote, 10, cancelada ? "relleno_EEPROM_cancelado" : "bloque_EEPROM");
 
-            // Finalizar secuencia
+                // Una confirmación por unidad, en orden
+                for (int i = 0; i < unidadesLote; i++) {
+                    if (!leerRespuesta(response, 'Y', "Error: No se recibió confirmación de bloque")) {
+                        clearBuffer();
+                        desactivarVoltajesDeProgramacion();
+                        resetearComandos();
+                        return false;
+                    }
+                }
+                unidadesEnviadas += unidadesLote;
+                if (!cancelada) {
+                    registrarProgreso(unidadesEnviadas, totalUnidades);
+                }
+            }
+        } catch (UsbCommunicationException e) {
+            try {
+                clearBuffer();
+            } catch (Exception ignored) {
+            }
             desactivarVoltajesDeProgramacion();
             resetearComandos();
+            return false;
+        }
 
-            return true;
+        // Enviar 2 bytes adicionales al final (relleno según protocolo)
+        escribirDatosUSB(new byte[] { 0x00, 0x00 }, 10, "relleno_final_EEPROM");
 
-        } catch (UsbCommunicationException e) {
-            return false;
-        } catch (Exception e) {
+        // Validar respuesta final 'P'
+        if (!leerRespuesta(response, 'P', "Error: No se recibió confirmación final")) {
+            desactivarVoltajesDeProgramacion();
+            resetearComandos();
             return false;
         }
+
+        // Finalizar secuencia
+        desactivarVoltajesDeProgramacion();
+        resetearComandos();
+        return !cancelada;
     }
 
     @Override
@@ -600,7 +1006,7 @@ public class ProtocoloP18A extends Protocolo {
             activarVoltajesDeProgramacion();
 
             // Enviar comando para programar FUSES e ID
-            usbSerialPort.write(new byte[] { 0x09 }, 10);
+            escribirPuerto(new byte[] { 0x09 }, 10, descripcionComando(0x09));
 
             // Preparar cuerpo del comando
             ByteArrayOutputStream commandBody = new ByteArrayOutputStream();
@@ -629,11 +1035,11 @@ public class ProtocoloP18A extends Protocolo {
             }
 
             // Enviar comando preparado
-            usbSerialPort.write(commandBody.toByteArray(), 100);
+            escribirPuerto(commandBody.toByteArray(), 100, "datos_fuses_ID");
 
             // Leer respuesta (algunas variantes antiguas pueden responder "00")
             byte[] response = new byte[2];
-            int responseLen = usbSerialPort.read(response, 120);
+            int responseLen = leerPuerto(response, 120);
 
             // Desactivar voltajes y limpiar comandos
             desactivarVoltajesDeProgramacion();
@@ -713,82 +1119,117 @@ public class ProtocoloP18A extends Protocolo {
 
     @Override
     public String leerMemoriaROMDelPic(ChipPic chipPIC) {
-        StringBuilder datos = new StringBuilder();
+        ResultadoLectura resultado = leerMemoriaROM(chipPIC, null);
+        if (!resultado.tieneDatosUtilizables()) {
+            return "Error al leer Memoria ROM: " + resultado.getMensaje();
+        }
+        return resultado.aHex();
+    }
 
+    @Override
+    public ResultadoLectura leerMemoriaROM(
+            ChipPic chipPIC, byte[] destino, ObservadorLectura observador) {
         try {
             // Tamaño total de la memoria ROM esperada
             int romSize = chipPIC.getTamanoROM() * 2; // Convertir palabras a bytes
-            byte[] buffer = new byte[64]; // Búfer temporal para leer datos en bloques
-            int bytesLeidos = 0;
-
-            // Resetear y activar los voltajes de programación
-            resetearComandos();
-            activarVoltajesDeProgramacion();
-
-            // Enviar el comando para leer ROM (11)
-            usbSerialPort.write(new byte[] { 0x0B }, 10); // Comando 11 en decimal es 0x0B
-
-            // Leer los datos en múltiples iteraciones
-            while (bytesLeidos < romSize) {
-                int leidos = usbSerialPort.read(buffer, 100); // Leer hasta 64 bytes
-                if (leidos > 0) {
-                    ByteUtils.appendHexToBuilder(buffer, leidos, datos);
-                    bytesLeidos += leidos;
-                } else {
-                    // Si no se reciben datos, salir del bucle para evitar un bloqueo infinito
-                    break;
-                }
-            }
-            return datos.toString();
+            // Comando 11 en decimal es 0x0B
+            return leerVolcadoDeMemoria((byte) 0x0B, romSize, destino, observador);
 
-        } catch (Exception e) {
-            return "Error al leer Memoria ROM: " + e.getMessage();
-        } finally {
-            // BUG FIX: Limpiar el buffer antes de enviar comandos de limpieza.
-            // Si se seleccionó el chip incorrecto, romSize es erróneo y el bucle
-            // termina dejando bytes ROM residuales en el buffer. Sin clearBuffer(),
-            // desactivarVoltajesDeProgramacion() y resetearComandos() leerían esos
-            // bytes en lugar de la respuesta 'Q' esperada, rompiendo el protocolo.
-            try { clearBuffer(); } catch (Exception ignored) {}
-            desactivarVoltajesDeProgramacion();
-            resetearComandos();
+        } catch (ChipConfigurationException e) {
+            return ResultadoLectura.fallida(ResultadoLectura.TipoError.CONFIGURACION_INVALIDA, e.getMessage());
         }
     }
 
     @Override
     public String leerMemoriaEEPROMDelPic(ChipPic chipPIC) {
-        StringBuilder datos = new StringBuilder();
+        ResultadoLectura resultado = leerMemoriaEEPROM(chipPIC, null);
+        if (!resultado.tieneDatosUtilizables()) {
+            return "Error al leer Memoria EEPROM: " + resultado.getMensaje();
+        }
+        return resultado.aHex();
+    }
 
+    @Override
+    public ResultadoLectura leerMemoriaEEPROM(
+            ChipPic chipPIC, byte[] destino, ObservadorLectura observador) {
         try {
             // Tamaño total de la memoria EEPROM esperada
-            int romSize = chipPIC.getTamanoEEPROM();
-            byte[] buffer = new byte[64];
-            int bytesLeidos = 0;
+            int eepromSize = chipPIC.getTamanoEEPROM();
+            // Comando 12 en decimal es 0x0C
+            return leerVolcadoDeMemoria((byte) 0x0C, eepromSize, destino, observador);
+
+        } catch (ChipConfigurationException e) {
+            return ResultadoLectura.fallida(ResultadoLectura.TipoError.CONFIGURACION_INVALIDA, e.getMessage());
+        }
+    }
+
+    /**
+     * Envía un comando de volcado de memoria y recibe los datos directamente en binario.
+     *
+     * <p>El programador transmite la memoria completa sin ACK inicial; si deja de enviar datos
+     * antes del tamaño esperado se devuelve una lectura incompleta con lo recibido. Cada
+     * fragmento se entrega al observador en cuanto llega; si este pide abortar, se deja de
+     * copiar y el resto de la transmisión se descarta durante la limpieza. Lo mismo ocurre si
+     * se cancela la operación, con un resultado cancelado que conserva lo recibido.
+     *
+     * @param comando Comando de lectura (11 ROM, 12 EEPROM)
+     * @param tamano Bytes esperados
+     * @param destino Búfer reutilizable del llamador, puede ser null
+     * @param observador Receptor de fragmentos, puede ser null
+     * @return Resultado de la lectura
+     */
+    private ResultadoLectura leerVolcadoDeMemoria(
+            byte comando, int tamano, byte[] destino, ObservadorLectura observador) {
+        if (usbSerialPort == null) {
+            return ResultadoLectura.fallida(
+                    ResultadoLectura.TipoError.PUERTO_NO_INICIALIZADO, "Puerto USB no inicializado");
+        }
+
+        byte[] datos = prepararDestino(destino, tamano);
+        int bytesLeidos = 0;
 
+        try {
             // Resetear y activar los voltajes de programación
             resetearComandos();
             activarVoltajesDeProgramacion();
 
-            // Enviar el comando para leer EEPROM (12)
-            usbSerialPort.write(new byte[] { 0x0C }, 10); // Comando 12 en decimal es 0x0C
+            escribirPuerto(new byte[] { comando }, 10, descripcionComando(comando));
 
-            // Leer los datos en múltiples iteraciones
-            while (bytesLeidos < romSize) {
-                int leidos = usbSerialPort.read(buffer, 100);
+            // Leer los datos en múltiples iteraciones, directamente sobre el destino
+            registrarProgreso(0, tamano);
+            while (bytesLeidos < tamano) {
+                if (cancelacionSolicitada()) {
+                    return ResultadoLectura.cancelada(contexto, datos, bytesLeidos, tamano);
+                }
+
+                int leidos = leerFragmento(datos, bytesLeidos, tamano - bytesLeidos, TIMEOUT_DEFAULT);
                 if (leidos > 0) {
-                    ByteUtils.appendHexToBuilder(buffer, leidos, datos);
+                    int inicioFragmento = bytesLeidos;
                     bytesLeidos += leidos;
+                    registrarProgreso(bytesLeidos, tamano);
+                    if (observador != null
+                            && !observador.fragmentoRecibido(datos, inicioFragmento, leidos)) {
+                        return ResultadoLectura.abortada(datos, bytesLeidos);
+                    }
                 } else {
+                    // Si no se reciben datos, salir del bucle para evitar un bloqueo infinito
                     break;
                 }
             }
-            return datos.toString();
+
+            if (bytesLeidos < tamano) {
+                return ResultadoLectura.incompleta(datos, bytesLeidos, tamano);
+            }
+            return ResultadoLectura.exitosa(datos, bytesLeidos);
 
         } catch (Exception e) {
-            return "Error al leer Memoria EEPROM: " + e.getMessage();
+            return ResultadoLectura.fallida(ResultadoLectura.TipoError.ERROR_COMUNICACION, e.getMessage());
         } finally {
-            // BUG FIX: Igual que en leerMemoriaROMDelPic — limpiar residuos antes
-            // de los comandos de desactivación para evitar corrupción del protocolo.
+            // BUG FIX: Limpiar el buffer antes de enviar comandos de limpieza.
+            // Si se seleccionó el chip incorrecto, el tamaño es erróneo y el bucle
+            // termina dejando bytes residuales en el buffer. Sin clearBuffer(),
+            // desactivarVoltajesDeProgramacion() y resetearComandos() leerían esos
+            // bytes en lugar de la respuesta 'Q' esperada, rompiendo el protocolo.
             try { clearBuffer(); } catch (Exception ignored) {}
             desactivarVoltajesDeProgramacion();
             resetearComandos();
@@ -797,7 +1238,28 @@ public class ProtocoloP18A extends Protocolo {
 
     @Override
     public String leerDatosDeConfiguracionDelPic() {
-        StringBuilder datos = new StringBuilder();
+        ResultadoLectura resultado = leerDatosDeConfiguracion(null);
+        switch (resultado.getError()) {
+            case NINGUNO:
+            case LECTURA_INCOMPLETA:
+                return resultado.aHex();
+            case SIN_RESPUESTA:
+                return "Error: " + resultado.getMensaje();
+            default:
+                return "Error al leer Datos de configuración: " + resultado.getMensaje();
+        }
+    }
+
+    @Override
+    public ResultadoLectura leerDatosDeConfiguracion(byte[] destino) {
+        if (usbSerialPort == null) {
+            return ResultadoLectura.fallida(
+                    ResultadoLectura.TipoError.PUERTO_NO_INICIALIZADO, "Puerto USB no inicializado");
+        }
+
+        byte[] datos = prepararDestino(destino, TAMANO_CONFIGURACION);
+        int bytesLeidos = 0;
+        boolean completado = false;
 
         try {
             // Resetear y activar los voltajes de programación
@@ -806,27 +1268,24 @@ public class ProtocoloP18A extends Protocolo {
             activarVoltajesDeProgramacion();
 
             // Comando para leer la configuración
-            usbSerialPort.write(new byte[] { Byte.parseByte("13") }, 10); // 0x0D es 13 en hexadecimal
-
-            int size = 26; // Convertir palabras a bytes
-
-            byte[] buffer = new byte[64]; // Búfer temporal para leer datos en bloques
-
-            int bytesLeidos = 0;
+            escribirPuerto(new byte[] { 0x0D }, 10, descripcionComando(0x0D)); // 0x0D es 13 en decimal
 
             // Leer el acknowledgment ('C')
             byte[] ack = new byte[1];
-            int bytesRead = usbSerialPort.read(ack, 100);
+            int bytesRead = leerPuerto(ack, 100);
 
             if (bytesRead != 1 || ack[0] != 'C') {
-                return "Error: No se recibió el acknowledgment ('C')";
+                return ResultadoLectura.fallida(
+                        ResultadoLectura.TipoError.SIN_RESPUESTA,
+                        "No se recibió el acknowledgment ('C')");
             }
 
             // Leer los datos en múltiples iteraciones
-            while (bytesLeidos < size) {
-                int leidos = usbSerialPort.read(buffer, 100); // Leer hasta 64 bytes
+            while (bytesLeidos < TAMANO_CONFIGURACION) {
+                int leidos =
+                        leerFragmento(
+                                datos, bytesLeidos, TAMANO_CONFIGURACION - bytesLeidos, TIMEOUT_DEFAULT);
                 if (leidos > 0) {
-                    ByteUtils.appendHexToBuilder(buffer, leidos, datos);
                     bytesLeidos += leidos;
                 } else {
                     // Si no se reciben datos, salir del bucle para evitar un bloqueo infinito
@@ -839,10 +1298,22 @@ public class ProtocoloP18A extends Protocolo {
 
             resetearComandos();
 
-            return datos.toString();
+            completado = true;
 
-        } catch (IOException e) {
-            return "Error al leer Datos de configuración: " + e.toString();
+            if (bytesLeidos < TAMANO_CONFIGURACION) {
+                return ResultadoLectura.incompleta(datos, bytesLeidos, TAMANO_CONFIGURACION);
+            }
+            return ResultadoLectura.exitosa(datos, bytesLeidos);
+
+        } catch (IOException | UsbCommunicationException e) {
+            return ResultadoLectura.fallida(ResultadoLectura.TipoError.ERROR_COMUNICACION, e.toString());
+        } finally {
+            if (!completado) {
+                // Sin ACK o con error de I/O: descartar residuos y dejar el programador en reposo
+                try { clearBuffer(); } catch (Exception ignored) {}
+                desactivarVoltajesDeProgramacion();
+                resetearComandos();
+            }
         }
     }
 
@@ -851,25 +1322,25 @@ public class ProtocoloP18A extends Protocolo {
         // La calibración se obtiene del mismo comando de lectura de config (cmd 13)
         // Los últimos 2 bytes de los 26 bytes de config contienen el valor de
         // calibración
-        String configData = leerDatosDeConfiguracionDelPic();
+        ResultadoLectura configData = leerDatosDeConfiguracion(null);
 
-        if (configData == null || configData.startsWith("Error") || configData.length() < 52) {
+        if (!configData.tieneDatosUtilizables() || configData.getLongitud() < TAMANO_CONFIGURACION) {
             return null;
         }
 
-        // El valor de calibración está en los últimos 2 bytes (4 caracteres hex)
-        // de la respuesta de 26 bytes (52 caracteres hex)
-        try {
-            String calibrationHex = configData.substring(configData.length() - 4);
-            return calibrationHex;
-        } catch (Exception e) {
-            return null;
-        }
+        // El valor de calibración está en los últimos 2 bytes de la respuesta de 26 bytes
+        byte[] config = configData.getDatos();
+        return String.format(
+                "%02X%02X",
+                config[TAMANO_CONFIGURACION - 2] & 0xFF,
+                config[TAMANO_CONFIGURACION - 1] & 0xFF);
     }
 
     @Override
     public boolean borrarMemoriasDelPic() {
 
+        descartarReadbackROM();
+
         try {
             // Preparar secuencia de borrado
             if (!resetearComandos()) {
@@ -916,12 +1387,15 @@ public class ProtocoloP18A extends Protocolo {
 
             // Comando ERASE CHECK ROM según protocolo activo.
             // High-byte recomendado para núcleos de 14 bits: 0x3F
-            usbSerialPort.write(new byte[] { (byte) getCmdRomBlankCheck(), (byte) 0x3F }, 10);
+            escribirPuerto(
+                    new byte[] { (byte) getCmdRomBlankCheck(), (byte) 0x3F },
+                    10,
+                    descripcionComando(getCmdRomBlankCheck()));
 
             int intentosSinDatos = 0;
             while (true) {
                 byte[] buffer = new byte[1];
-                int leidos = usbSerialPort.read(buffer, 100);
+                int leidos = leerPuerto(buffer, 100);
 
                 if (leidos > 0) {
                     intentosSinDatos = 0;
@@ -965,10 +1439,13 @@ public class ProtocoloP18A extends Protocolo {
             resetearComandos();
 
             // Comando ERASE CHECK EEPROM según protocolo activo.
-            usbSerialPort.write(new byte[] { (byte) getCmdEepromBlankCheck() }, 10);
+            escribirPuerto(
+                    new byte[] { (byte) getCmdEepromBlankCheck() },
+                    10,
+                    descripcionComando(getCmdEepromBlankCheck()));
 
             byte[] response = new byte[1];
-            int leidos = usbSerialPort.read(response, 300);
+            int leidos = leerPuerto(response, 300);
             resetearComandos();
 
             if (leidos != 1) {
@@ -1004,7 +1481,10 @@ public class ProtocoloP18A extends Protocolo {
             }
 
             // Comando 17 (0x11 para P18A) o 18 (0x12 para otros): commit de fuses para 18F tras cmd 9
-            usbSerialPort.write(new byte[] { (byte) getCmdCommitFuses18f() }, 10);
+            escribirPuerto(
+                    new byte[] { (byte) getCmdCommitFuses18f() },
+                    10,
+                    descripcionComando(getCmdCommitFuses18f()));
 
             ByteArrayOutputStream commandBody = new ByteArrayOutputStream();
             // 10 bytes de ID en cero según referencia picpro (program_18fxxxx_fuse)
@@ -1015,7 +1495,7 @@ public class ProtocoloP18A extends Protocolo {
                         .putShort((short) fuse)
                         .array());
             }
-            usbSerialPort.write(commandBody.toByteArray(), 100);
+            escribirPuerto(commandBody.toByteArray(), 100, "datos_fuses_18F");
 
             byte[] response = readBytes(1, TIMEOUT_EXTENDED);
             return response.length == 1 && response[0] == 'Y';
@@ -1044,7 +1524,10 @@ public class ProtocoloP18A extends Protocolo {
             resetearComandos();
 
             // Enviar comando para detectar chip en socket
-            usbSerialPort.write(new byte[] { (byte) tipoProtocolo.getCmdDetectarEnSocket() }, 10);
+            escribirPuerto(
+                    new byte[] { (byte) tipoProtocolo.getCmdDetectarEnSocket() },
+                    10,
+                    descripcionComando(tipoProtocolo.getCmdDetectarEnSocket()));
 
             byte[] response = new byte[1];
 
@@ -1082,7 +1565,10 @@ public class ProtocoloP18A extends Protocolo {
             resetearComandos();
 
             // Enviar comando para detectar chip fuera del socket
-            usbSerialPort.write(new byte[] { (byte) tipoProtocolo.getCmdDetectarFueraSocket() }, 10);
+            escribirPuerto(
+                    new byte[] { (byte) tipoProtocolo.getCmdDetectarFueraSocket() },
+                    10,
+                    descripcionComando(tipoProtocolo.getCmdDetectarFueraSocket()));
 
             byte[] response = new byte[1];
 
@@ -1095,6 +1581,9 @@ public class ProtocoloP18A extends Protocolo {
 
                 resetearComandos();
 
+                // El chip grabado salió del socket: su lectura ya no sirve para verificar
+                descartarReadbackROM();
+
                 return true;
 
             } else {
@@ -1120,7 +1609,10 @@ public class ProtocoloP18A extends Protocolo {
             resetearComandos();
 
             // Enviar comando para obtener versión del programador
-            usbSerialPort.write(new byte[] { (byte) tipoProtocolo.getCmdVersion() }, 10);
+            escribirPuerto(
+                    new byte[] { (byte) tipoProtocolo.getCmdVersion() },
+                    10,
+                    descripcionComando(tipoProtocolo.getCmdVersion()));
 
             int size = 1; // Convertir palabras a bytes
 
@@ -1132,7 +1624,7 @@ public class ProtocoloP18A extends Protocolo {
 
             // Leer los datos en múltiples iteraciones
             while (bytesLeidos < size) {
-                int leidos = usbSerialPort.read(buffer, 100); // Leer hasta 64 bytes
+                int leidos = leerPuerto(buffer, 100); // Leer hasta 64 bytes
                 if (leidos > 0) {
                     for (int i = 0; i < leidos; i++) {
 
@@ -1181,7 +1673,10 @@ public class ProtocoloP18A extends Protocolo {
             resetearComandos();
 
             // Enviar comando para obtener protocolo del programador
-            usbSerialPort.write(new byte[] { (byte) tipoProtocolo.getCmdProtocolo() }, 10);
+            escribirPuerto(
+                    new byte[] { (byte) tipoProtocolo.getCmdProtocolo() },
+                    10,
+                    descripcionComando(tipoProtocolo.getCmdProtocolo()));
 
             int size = 4; // Convertir palabras a bytes
 
@@ -1193,7 +1688,7 @@ public class ProtocoloP18A extends Protocolo {
 
             // Leer los datos en múltiples iteraciones
             while (bytesLeidos < size) {
-                int leidos = usbSerialPort.read(buffer, 100); // Leer hasta 64 bytes
+                int leidos = leerPuerto(buffer, 100); // Leer hasta 64 bytes
                 if (leidos > 0) {
                     for (int i = 0; i < leidos; i++) {
                         bytes[bytesLeidos + i] = buffer[i];
@@ -1228,14 +1723,17 @@ public class ProtocoloP18A extends Protocolo {
             byte[] BE4_address = ByteBuffer.allocate(4).putInt(address).array();
 
             // Enviar comando
-            usbSerialPort.write(new byte[] { cmd }, 10);
+            escribirPuerto(new byte[] { cmd }, 10, descripcionComando(cmd));
 
             // Enviar los 3 bytes de la dirección
-            usbSerialPort.write(new byte[] { BE4_address[1], BE4_address[2], BE4_address[3] }, 10);
+            escribirPuerto(
+                    new byte[] { BE4_address[1], BE4_address[2], BE4_address[3] },
+                    10,
+                    "direccion_vector_depuracion");
 
             // Leer respuesta (1 byte)
             byte[] response = new byte[1];
-            usbSerialPort.read(response, 100);
+            leerPuerto(response, 100);
 
             // Validar la respuesta
             if (response[0] == 'Y') {
@@ -1260,11 +1758,12 @@ public class ProtocoloP18A extends Protocolo {
             resetearComandos();
 
             // Enviar comando (23/0x17 para P18A o 24/0x18 para otros): leer vector de depuración
-            usbSerialPort.write(new byte[] { (byte) ((tipoProtocolo == TipoProtocolo.P18A) ? 0x17 : 0x18) }, 10);
+            byte cmd = (byte) ((tipoProtocolo == TipoProtocolo.P18A) ? 0x17 : 0x18);
+            escribirPuerto(new byte[] { cmd }, 10, descripcionComando(cmd));
 
             // Leer la respuesta (4 bytes)
             byte[] response = new byte[4];
-            usbSerialPort.read(response, 100);
+            leerPuerto(response, 100);
 
             // Verificar si el primer byte es 0xEF y extraer la dirección
             if (response[0] == (byte) 0xEF) {
@@ -136,9 +136,22 @@ public final class ByteUtils {
      * @param sb     StringBuilder donde añadir los datos
      */
     public static void appendHexToBuilder(byte[] data, int length, StringBuilder sb) {
+        appendHexToBuilder(data, 0, length, sb);
+    }
+
+    /**
+     * Añade la representación hexadecimal de un rango de bytes a un StringBuilder
+     * existente.
+     *
+     * @param data   Array de bytes
+     * @param offset Posición del primer byte a procesar
+     * @param length Cantidad de bytes a procesar
+     * @param sb     StringBuilder donde añadir los datos
+     */
+    public static void appendHexToBuilder(byte[] data, int offset, int length, StringBuilder sb) {
         if (data == null || sb == null)
             return;
-        for (int j = 0; j < length; j++) {
+        for (int j = offset; j < offset + length; j++) {
             int v = data[j] & 0xFF;
             sb.append(HEX_ARRAY[v >>> 4]);
             sb.append(HEX_ARRAY[v & 0x0F]);
@@ -1,72 +1,28 @@
 package com.diamon.utilidades;
 
+import com.diamon.datos.MapaSegmentos;
 import com.diamon.pic.R;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 public class HexFileUtils {
 
     /**
-     * Filtra registros de un archivo HEX por rango de direcciones.
+     * Copia los segmentos de un archivo HEX sobre una copia de los datos por defecto.
      *
-     * @param records Lista de registros HEX como pares (dirección, datos en string).
-     * @param lowerBound Límite inferior del rango.
-     * @param upperBound Límite superior del rango.
-     * @return Nueva lista de registros dentro del rango especificado.
+     * @param segmentos Segmentos (dirección, bytes) a fusionar.
+     * @param defaultData Datos por defecto (blank) de la región.
+     * @param baseAddress Dirección que corresponde al índice 0 de los datos.
+     * @return Nuevo arreglo con los segmentos aplicados; lo que excede el final se descarta.
      */
-
-    // Este metodo esta corregido
-    public static List<HexFileUtils.Pair<Integer, String>> rangeFilterRecords(
-            List<HexFileUtils.Pair<Integer, String>> records, int lowerBound, int upperBound) {
-
-        List<HexFileUtils.Pair<Integer, String>> result = new ArrayList<>();
-
-        for (HexFileUtils.Pair<Integer, String> record : records) {
-            int address = record.first; // Dirección del registro
-            String data = record.second; // Datos del registro en formato string
-            int recordEnd =
-                    address
-                            + (data.length()
-                                    / 2); // Final del registro (cada par de caracteres es 1 byte)
-
-            // Caso 2: Registro parcialmente por debajo del límite inferior
-            if (address < lowerBound && recordEnd > lowerBound) {
-                int slicePos =
-                        (lowerBound - address) * 2; // Calcular posición de corte en caracteres
-                String slicedData = data.substring(slicePos); // Cortar los datos desde slicePos
-                result.add(new HexFileUtils.Pair<>(lowerBound, slicedData));
-            }
-            // Caso 3: Registro dentro del rango
-            else if (address >= lowerBound && address < upperBound) {
-                if (recordEnd <= upperBound) {
-                    // Registro completamente dentro del rango
-                    result.add(record);
-                } else {
-                    // Caso 4: Registro parcialmente fuera por encima del límite superior
-                    int sliceLength =
-                            (upperBound - address) * 2; // Calcular longitud de corte en caracteres
-                    String slicedData =
-                            data.substring(0, sliceLength); // Cortar los datos hasta sliceLength
-                    result.add(new HexFileUtils.Pair<>(address, slicedData));
-                }
-            }
-            // Caso 1 y 5: Registro fuera del rango (no hacer nada)
-        }
-
-        return result;
-    }
-
-    public static byte[] mergeRecords(
-            android.content.Context context, List<HexFileUtils.Pair<Integer, String>> records, byte[] defaultData, int baseAddress) {
+    public static byte[] mergeSegments(
+            android.content.Context context, MapaSegmentos segmentos, byte[] defaultData, int baseAddress) {
 
         // Clonamos el arreglo para no modificar el original
         byte[] dataArray = defaultData.clone();
 
-        for (HexFileUtils.Pair<Integer, String> record : records) {
-            int address = record.first;
-            String data = record.second;
+        for (int i = 0; i < segmentos.cantidadSegmentos(); i++) {
+            int address = segmentos.inicio(i);
 
             // Calcula el índice inicial en el arreglo según la dirección base
             int startIndex = address - baseAddress;
@@ -75,40 +31,14 @@ public class HexFileUtils {
                         getString(context, R.string.record_address_error, String.valueOf(address)));
             }
 
-            // Escribe los datos en la posición correcta
-            for (int i = 0;
-                    i < data.length();
-                    i += 2) { // Procesamos de 2 en 2 caracteres (1 byte en hexadecimal)
-                int dataIndex = startIndex + i / 2; // Calcula el índice en bytes
-                if (dataIndex >= dataArray.length) {
-                    break; // Evita sobrescribir fuera del arreglo
-                }
-
-                // Convierte los caracteres hexadecimales a un byte
-                String byteHex = data.substring(i, i + 2);
-                dataArray[dataIndex] = (byte) Integer.parseInt(byteHex, 16);
-            }
+            // Escribe los datos en la posición correcta, sin sobrepasar el arreglo
+            int length = Math.min(segmentos.longitud(i), dataArray.length - startIndex);
+            System.arraycopy(segmentos.datos(i), 0, dataArray, startIndex, length);
         }
 
         return dataArray;
     }
 
-    /** Clase Pair para representar pares de valores (dirección, datos). */
-    public static class Pair<F, S> {
-        public final F first;
-        public final S second;
-
-        public Pair(F first, S second) {
-            this.first = first;
-            this.second = second;
-        }
-
-        @Override
-        public String toString() {
-            return "(" + first + ", " + second + ")";
-        }
-    }
-
     /**
      * Genera datos en blanco para la ROM en base al tamaño.
      *
@@ -138,6 +68,61 @@ public class HexFileUtils {
         return romBlank;
     }
 
+    /**
+     * Cuenta las palabras de ROM que hay que grabar para que la imagen quede completa
+     * sobre un chip borrado: hasta la última palabra distinta del blanco, inclusive.
+     *
+     * <p>Una palabra es blanca si todos los bits del núcleo están a 1, por lo que también
+     * se reconoce el relleno 0xFF. Las palabras se leen en big-endian, igual que las
+     * genera {@link #generateRomBlank(int, int)}.
+     *
+     * @param romData Datos ROM (2 bytes por palabra, big-endian).
+     * @param wordCount Número de palabras a considerar desde el inicio.
+     * @param coreBits Número de bits del núcleo del chip.
+     * @return Palabras hasta el último dato, o 0 si toda la ROM está en blanco.
+     */
+    public static int contarPalabrasHastaUltimoDato(byte[] romData, int wordCount, int coreBits) {
+        int mascara = (~(0xFFFF << coreBits)) & 0xFFFF;
+        for (int palabra = wordCount - 1; palabra >= 0; palabra--) {
+            int valor = ((romData[palabra * 2] & 0xFF) << 8) | (romData[palabra * 2 + 1] & 0xFF);
+            if ((valor & mascara) != mascara) {
+                return palabra + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Cuenta las palabras de ROM que hay que reescribir desde la dirección 0 para pasar del
+     * contenido actual a la imagen nueva: hasta la última palabra que difiere, inclusive.
+     *
+     * <p>Solo se comparan los bits del núcleo. Si el contenido actual no cubre la imagen se
+     * considera distinto a partir de donde termina.
+     *
+     * @param actual ROM actual del chip (2 bytes por palabra, big-endian).
+     * @param longitudActual Bytes válidos de {@code actual}.
+     * @param nueva Imagen ROM a grabar.
+     * @param wordCount Número de palabras de la imagen a considerar.
+     * @param coreBits Número de bits del núcleo del chip.
+     * @return Palabras a reescribir, o 0 si la ROM ya coincide.
+     */
+    public static int contarPalabrasHastaUltimaDiferencia(
+            byte[] actual, int longitudActual, byte[] nueva, int wordCount, int coreBits) {
+        if (longitudActual / 2 < wordCount) {
+            return wordCount;
+        }
+        int mascara = (~(0xFFFF << coreBits)) & 0xFFFF;
+        for (int palabra = wordCount - 1; palabra >= 0; palabra--) {
+            int i = palabra * 2;
+            int valorActual = ((actual[i] & 0xFF) << 8) | (actual[i + 1] & 0xFF);
+            int valorNuevo = ((nueva[i] & 0xFF) << 8) | (nueva[i + 1] & 0xFF);
+            if (((valorActual ^ valorNuevo) & mascara) != 0) {
+                return palabra + 1;
+            }
+        }
+        return 0;
+    }
+
     /**
      * Genera datos en blanco para la EEPROM en base al tamaño.
      *
@@ -151,42 +136,6 @@ public class HexFileUtils {
         return eepromBlank;
     }
 
-    public static List<HexFileUtils.Pair<Integer, String>> swabRecords(
-            List<HexFileUtils.Pair<Integer, String>> records) {
-        List<HexFileUtils.Pair<Integer, String>> swabbedRecords = new ArrayList<>();
-
-        for (HexFileUtils.Pair<Integer, String> record : records) {
-            StringBuilder swappedData = new StringBuilder();
-
-            // Rellenar datos con '3F' si son más cortos de 4 caracteres
-            String paddedData = record.second;
-            if (paddedData.length() % 4 != 0) {
-                int paddingLength =
-                        4 - (paddedData.length() % 4); // Calcular cuántos caracteres faltan
-                paddedData =
-                        String.format(
-                                        "%-" + (paddedData.length() + paddingLength) + "s",
-                                        paddedData)
-                                .replace(' ', '3');
-                paddedData =
-                        paddedData.replaceAll("3{2}", "3F"); // Asegurar que el padding sea '3F'
-            }
-
-            // Procesar cada palabra (2 bytes -> 4 caracteres hex)
-            for (int i = 0; i < paddedData.length(); i += 4) {
-                String word = paddedData.substring(i, i + 4); // Obtener una palabra
-                swappedData.append(word.substring(2, 4)); // Byte bajo
-                swappedData.append(word.substring(0, 2)); // Byte alto
-            }
-
-            // Añadir el registro con los datos intercambiados
-            swabbedRecords.add(
-                    new HexFileUtils.Pair<Integer, String>(record.first, swappedData.toString()));
-        }
-
-        return swabbedRecords;
-    }
-
     public static byte[] generarArrayDeDatos(byte dato, int numeroDeDatos) {
 
         byte[] datos = new byte[numeroDeDatos];
@@ -0,0 +1,47 @@
+package com.diamon.chip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ChipPicTest {
+
+    @Test
+    public void fuses_debenDecodificarseYVolverACodificarseConLaTablaCompilada() throws Exception {
+        ChipPic chip = ChipsDePrueba.pic16F628A();
+        Map<String, Map<String, List<ChipPic.FuseValue>>> fuses = new LinkedHashMap<>();
+        Map<String, List<ChipPic.FuseValue>> wdt = new LinkedHashMap<>();
+        wdt.put("Enabled", Arrays.asList(new ChipPic.FuseValue(0, 0x3FFF)));
+        wdt.put("Disabled", Arrays.asList(new ChipPic.FuseValue(0, 0x3FFB)));
+        fuses.put("WDT", wdt);
+        Map<String, List<ChipPic.FuseValue>> pwrte = new LinkedHashMap<>();
+        pwrte.put("Enabled", Arrays.asList(new ChipPic.FuseValue(0, 0x3FF7)));
+        pwrte.put("Disabled", Arrays.asList(new ChipPic.FuseValue(0, 0x3FFF)));
+        fuses.put("PWRTE", pwrte);
+        chip.setFusesMap(fuses);
+
+        // 0x3F74: bit 2 (WDT) en 1 y bit 3 (PWRTE) en 0
+        int[] palabras = { 0x3F74 };
+        Map<String, String> decodificados = chip.decodeFuseData(palabras, palabras.length);
+        assertEquals("Enabled", decodificados.get("WDT"));
+        assertEquals("Enabled", decodificados.get("PWRTE"));
+
+        // El nombre se busca sin distinguir mayúsculas, como antes
+        Map<String, String> configuracion = new HashMap<>();
+        configuracion.put("wdt", "Disabled");
+        configuracion.put("PWRTE", "Enabled");
+        assertArrayEquals(new int[] { 0x3FF3 }, chip.codificarFuses(configuracion));
+        assertEquals(Arrays.asList(0x3FF3), chip.encodeFuseData(configuracion));
+
+        configuracion.put("WDT", "Quizas");
+        assertThrows(ChipPic.FuseError.class, () -> chip.codificarFuses(configuracion));
+    }
+}
@@ -0,0 +1,43 @@
+package com.diamon.chip;
+
+import java.util.HashMap;
+
+/**
+ * Chips de prueba con los datos de chipinfo.cid, sin cargar la base de datos.
+ */
+public final class ChipsDePrueba {
+
+    private ChipsDePrueba() {}
+
+    /** @return PIC16F628A: núcleo de 14 bits, 2K palabras de ROM y 128 bytes de EEPROM */
+    public static ChipPic pic16F628A() throws Exception {
+        return conMemoriaDel16F628A("16F628A");
+    }
+
+    /**
+     * @param nombre Modelo del chip
+     * @return Chip con el nombre indicado y las memorias y fuses del PIC16F628A
+     */
+    public static ChipPic conMemoriaDel16F628A(String nombre) throws Exception {
+        return new ChipPic(
+                nombre,
+                "Y",
+                "18pin",
+                "2",
+                "Y",
+                "Vpp2Vcc",
+                "50",
+                "1",
+                "0",
+                "bit14_B",
+                "000800",
+                "00000080",
+                new String[] { "3FFF" },
+                "N",
+                "N",
+                "N",
+                "N",
+                "1060",
+                new HashMap<>());
+    }
+}
@@ -0,0 +1,68 @@
+package com.diamon.datos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+
+import com.diamon.chip.ChipsDePrueba;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+public class CacheImagenesProcesadasTest {
+
+    private static final String HEX = ":04000000831603134D\n:02400E00743FFD\n:00000001FF\n";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = mock(Context.class);
+        when(context.getString(anyInt())).thenReturn("msg");
+        when(context.getString(anyInt(), any())).thenReturn("msg");
+    }
+
+    @Test
+    public void cacheImagenes_debeReutilizarMismoContenidoYChipYDescartarLaMenosUsada() throws Exception {
+        CacheImagenesProcesadas cache = new CacheImagenesProcesadas();
+        DatosPicProcesados primero =
+                cache.obtenerOProcesar(context, FuenteHex.desdeTexto(HEX), ChipsDePrueba.pic16F628A());
+        int bytesUnaImagen = cache.getBytesOcupados();
+
+        // El mismo contenido leído por flujo tiene la misma huella
+        byte[] bytesHex = HEX.getBytes(StandardCharsets.UTF_8);
+        DatosPicProcesados segundo = cache.obtenerOProcesar(
+                context,
+                FuenteHex.desdeFlujo(() -> new ByteArrayInputStream(bytesHex)),
+                ChipsDePrueba.pic16F628A());
+        assertSame(primero, segundo);
+        assertEquals(1, cache.getAciertos());
+        assertEquals(1, cache.getFallos());
+
+        DatosPicProcesados otroChip = cache.obtenerOProcesar(
+                context, FuenteHex.desdeTexto(HEX), ChipsDePrueba.conMemoriaDel16F628A("16F627A"));
+        assertNotSame(primero, otroChip);
+        assertEquals(2, cache.getFallos());
+        assertEquals(2, cache.tamano());
+
+        // Con espacio para una sola imagen, la segunda desplaza a la primera
+        CacheImagenesProcesadas chica = new CacheImagenesProcesadas(bytesUnaImagen);
+        chica.guardar(primero);
+        chica.guardar(otroChip);
+        assertEquals(1, chica.tamano());
+        assertNull(chica.obtener(primero.getHuellaFirmware(), ChipsDePrueba.pic16F628A()));
+        assertSame(
+                otroChip,
+                chica.obtener(primero.getHuellaFirmware(), ChipsDePrueba.conMemoriaDel16F628A("16F627A")));
+    }
+}
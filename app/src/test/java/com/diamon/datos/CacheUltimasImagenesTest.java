@@ -0,0 +1,36 @@
+package com.diamon.datos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.diamon.utilidades.ByteUtils;
+
+import org.junit.Test;
+
+public class CacheUltimasImagenesTest {
+
+    @Test
+    public void cache_debeRecordarLaUltimaRomPorChipYDescartarLaMenosUsada() {
+        byte[] primera = { 0x01, 0x02 };
+        byte[] segunda = { 0x03, 0x04 };
+
+        CacheUltimasImagenes cache = new CacheUltimasImagenes(2);
+        byte[] config = { 0x07, 0x10, 0x01, 0x02 };
+        String clave = CacheUltimasImagenes.crearClave("16F628A", config, 2);
+        assertEquals("16F628A:" + ByteUtils.bytesToHex(new byte[] { 0x07, 0x10 }), clave);
+        cache.recordar(clave, primera);
+        assertSame(primera, cache.obtener(clave));
+
+        cache.recordar("b", segunda);
+        cache.obtener(clave);
+        cache.recordar("c", segunda);
+        assertNull(cache.obtener("b"));
+        assertSame(primera, cache.obtener(clave));
+
+        cache.olvidar(clave);
+        assertNull(cache.obtener(clave));
+        cache.olvidarTodo();
+        assertEquals(0, cache.tamano());
+    }
+}
@@ -2,6 +2,8 @@ package com.diamon.datos;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
@@ -10,49 +12,36 @@ import static org.mockito.Mockito.when;
 import android.content.Context;
 
 import com.diamon.chip.ChipPic;
+import com.diamon.chip.ChipsDePrueba;
+import com.diamon.nucleo.TablaChecksums;
+import com.diamon.utilidades.HexFileUtils;
 
+import org.junit.Before;
 import org.junit.Test;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 public class DatosPicProcesadosTest {
 
-    private ChipPic crearChip16F628A() throws Exception {
-        Map<String, Object> fuses = new HashMap<>();
-        return new ChipPic(
-                "16F628A",
-                "Y",
-                "18pin",
-                "2",
-                "Y",
-                "Vpp2Vcc",
-                "50",
-                "1",
-                "0",
-                "bit14_B",
-                "000800",
-                "00000080",
-                new String[] { "3FFF" },
-                "N",
-                "N",
-                "N",
-                "N",
-                "1060",
-                fuses);
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = mock(Context.class);
+        when(context.getString(anyInt())).thenReturn("msg");
+        when(context.getString(anyInt(), any())).thenReturn("msg");
     }
 
     @Test
     public void configOnlyHex_debeInterpretarFuseConEndianCorrectoEnBit14() throws Exception {
         String hexConfigOnly = ":02400E00743FFD\n:00000001FF\n";
-        Context context = mock(Context.class);
-        when(context.getString(anyInt())).thenReturn("msg");
-        when(context.getString(anyInt(), any())).thenReturn("msg");
 
         DatosPicProcesados procesado = new DatosPicProcesados(
                 context,
                 hexConfigOnly,
-                crearChip16F628A());
+                ChipsDePrueba.pic16F628A());
 
         procesado.iniciarProcesamientoDeDatos();
 
@@ -67,14 +56,11 @@ public class DatosPicProcesadosTest {
                 ":10420000410042004300440045004600470048008A\n"
                         + ":00000001FF\n";
 
-        Context context = mock(Context.class);
-        when(context.getString(anyInt())).thenReturn("msg");
-        when(context.getString(anyInt(), any())).thenReturn("msg");
 
         DatosPicProcesados procesado = new DatosPicProcesados(
                 context,
                 hexEepromOnly,
-                crearChip16F628A());
+                ChipsDePrueba.pic16F628A());
 
         procesado.iniciarProcesamientoDeDatos();
 
@@ -86,4 +72,108 @@ public class DatosPicProcesadosTest {
 
         assertArrayEquals(esperado, java.util.Arrays.copyOf(eeprom, esperado.length));
     }
+
+    @Test
+    public void hexLeidoPorFlujo_debeCoincidirConHexEnTextoEIgnorarRegionesAjenas() throws Exception {
+        String hex =
+                ":020000040000FA\r\n"
+                        + ":04000000831603134D\r\n"
+                        + ":10420000410042004300440045004600470048008A\r\n"
+                        + ":02400E00743FFD\r\n"
+                        + ":020000040001F9\r\n"
+                        + ":10000000FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF00\r\n"
+                        + ":00000001FF\r\n"
+                        + "; comentario final\r\n";
+
+
+        DatosPicProcesados desdeTexto = new DatosPicProcesados(context, hex, ChipsDePrueba.pic16F628A());
+        desdeTexto.iniciarProcesamientoDeDatos();
+
+        byte[] bytesHex = hex.getBytes(StandardCharsets.US_ASCII);
+        DatosPicProcesados desdeFlujo = new DatosPicProcesados(
+                context,
+                FuenteHex.desdeFlujo(() -> new ByteArrayInputStream(bytesHex)),
+                ChipsDePrueba.pic16F628A());
+        desdeFlujo.iniciarProcesamientoDeDatos();
+
+        assertArrayEquals(desdeTexto.obtenerBytesHexROMProcesado(), desdeFlujo.obtenerBytesHexROMProcesado());
+        assertArrayEquals(desdeTexto.obtenerBytesHexEEPROMProcesado(), desdeFlujo.obtenerBytesHexEEPROMProcesado());
+        assertArrayEquals(desdeTexto.obtenerValoresIntHexFusesProcesado(), desdeFlujo.obtenerValoresIntHexFusesProcesado());
+        assertArrayEquals(desdeTexto.obtenerValoresBytesHexIDProcesado(), desdeFlujo.obtenerValoresBytesHexIDProcesado());
+
+        // El registro en 0x10000 queda fuera de las regiones del 16F628A y no se retiene
+        ProcesadorHex procesado = new ProcesadorHex(
+                context,
+                new ByteArrayInputStream(bytesHex),
+                new int[] { 0x0000, 0x1000, 0x4200, 0xFFFF, 0x4000, 0x4008, 0x400E, 0x4010 });
+        MapaSegmentos segmentos = procesado.getSegmentos();
+        assertEquals(3, segmentos.cantidadSegmentos());
+        assertEquals(4 + 2 + 16, segmentos.totalBytes());
+    }
+
+    @Test
+    public void comentarios_debenIgnorarseEnTextoYTerminarElFlujoEnLaPrimeraColumna() throws Exception {
+        String registros =
+                "# cabecera del ensamblador\n"
+                        + "   ; nota sangrada\n"
+                        + ":04000000831603134D\n"
+                        + ":00000001FF\n";
+
+        // Un texto con el banner del compilador en la primera columna se procesa entero
+        ProcesadorHex conBanner = new ProcesadorHex(context, "; MPASM 5.51 listado\n" + registros);
+        assertEquals(4, conBanner.getSegmentos().totalBytes());
+
+        // Por flujo, como en el selector de archivos, ese ';' termina el archivo: el listado
+        // que sigue no se procesa
+        String archivo = registros + "; fin del archivo: lo que sigue no es HEX\nlistado del ensamblador\n";
+        ProcesadorHex desdeFlujo = new ProcesadorHex(
+                context, new ByteArrayInputStream(archivo.getBytes(StandardCharsets.US_ASCII)), null);
+        ProcesadorHex desdeTexto = new ProcesadorHex(context, registros);
+
+        assertEquals(4, desdeFlujo.getSegmentos().totalBytes());
+        assertArrayEquals(
+                Arrays.copyOf(desdeTexto.getSegmentos().datos(0), 4),
+                Arrays.copyOf(desdeFlujo.getSegmentos().datos(0), 4));
+    }
+
+    @Test
+    public void romDispersa_debeContarSoloHastaLaUltimaPalabraConDatos() throws Exception {
+        // Dos palabras en 0x0000 y una en 0x0040: el resto de la ROM queda en blanco
+        String hexDisperso = ":040000008A010A283F\n:02008000080076\n:00000001FF\n";
+
+        ChipPic chip = ChipsDePrueba.pic16F628A();
+        DatosPicProcesados procesado = new DatosPicProcesados(context, hexDisperso, chip);
+        procesado.iniciarProcesamientoDeDatos();
+        byte[] rom = procesado.obtenerBytesHexROMProcesado();
+
+        assertEquals(chip.getTamanoROM() * 2, rom.length);
+        assertEquals(0x41, HexFileUtils.contarPalabrasHastaUltimoDato(
+                rom, rom.length / 2, 14));
+
+        byte[] enBlanco = HexFileUtils.generateRomBlank(14, 16);
+        assertEquals(0, HexFileUtils.contarPalabrasHastaUltimoDato(enBlanco, 16, 14));
+
+        // El relleno 0xFF es blanco en 14 bits; el blanco de 12 bits no lo es en 16
+        byte[] rellena = { 0x12, 0x34, (byte) 0xFF, (byte) 0xFF };
+        assertEquals(1, HexFileUtils.contarPalabrasHastaUltimoDato(rellena, 2, 14));
+        byte[] blanco12 = { 0x0F, (byte) 0xFF, 0x0F, (byte) 0xFF };
+        assertEquals(2, HexFileUtils.contarPalabrasHastaUltimoDato(blanco12, 2, 16));
+    }
+
+    @Test
+    public void checksumsROM_debenCalcularseUnaVezPorImagen() throws Exception {
+        DatosPicProcesados procesado = new DatosPicProcesados(
+                context, ":040000008A010A283F\n:02008000080076\n:00000001FF\n", ChipsDePrueba.pic16F628A());
+        procesado.iniciarProcesamientoDeDatos();
+        byte[] rom = procesado.obtenerBytesHexROMProcesado();
+
+        TablaChecksums tabla = procesado.getChecksumsROM();
+        assertSame(tabla, procesado.getChecksumsROM());
+        assertEquals((rom.length + TablaChecksums.TAMANO_BLOQUE - 1) / TablaChecksums.TAMANO_BLOQUE,
+                tabla.getCantidadBloques());
+        TablaChecksums calculada = TablaChecksums.calcular(rom, rom.length);
+        for (int bloque = 0; bloque < tabla.getCantidadBloques(); bloque++) {
+            assertTrue(tabla.coincideBloque(bloque, calculada));
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package com.diamon.datos;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class MapaSegmentosTest {
+
+    @Test
+    public void mapaSegmentos_debeFusionarRegistrosYFiltrarEIntercambiarEnElSitio() {
+        MapaSegmentos mapa = new MapaSegmentos();
+        mapa.escribir(0x10, new byte[] { 1, 2, 3, 4 }, 0, 4);
+        mapa.escribir(0x00, new byte[] { 9, 9 }, 0, 2);
+        mapa.escribir(0x14, new byte[] { 5, 6 }, 0, 2);
+        // Solapa el final del primer tramo: los bytes nuevos prevalecen
+        mapa.escribir(0x13, new byte[] { 7, 8 }, 0, 2);
+
+        assertEquals(2, mapa.cantidadSegmentos());
+        assertEquals(0x10, mapa.inicio(1));
+        assertArrayEquals(
+                new byte[] { 1, 2, 3, 7, 8, 6 },
+                Arrays.copyOf(mapa.datos(1), mapa.longitud(1)));
+
+        MapaSegmentos rango = mapa.filtrarRango(0x01, 0x13);
+        assertEquals(2, rango.cantidadSegmentos());
+        assertEquals(0x01, rango.inicio(0));
+        assertEquals(1, rango.longitud(0));
+
+        rango.intercambiarBytes((byte) 0x3F);
+        assertArrayEquals(
+                new byte[] { 2, 1, 0x3F, 3 },
+                Arrays.copyOf(rango.datos(1), rango.longitud(1)));
+        // El mapa original no se modifica
+        assertEquals(1, mapa.datos(1)[0]);
+    }
+}
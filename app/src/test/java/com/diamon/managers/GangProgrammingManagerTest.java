@@ -0,0 +1,248 @@
+package com.diamon.managers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.diamon.chip.ChipsDePrueba;
+import com.diamon.datos.FuenteHex;
+import com.diamon.pic.R;
+import com.diamon.protocolo.PuertoSimulado;
+import com.diamon.protocolo.SimuladorK150;
+import com.diamon.protocolo.TipoProtocolo;
+import com.hoho.android.usbserial.driver.UsbSerialPort;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Grabación múltiple con dos programadores simulados.
+ */
+public class GangProgrammingManagerTest {
+
+    private static final String HEX = ":04000000831603134D\n:02400E00743FFD\n:00000001FF\n";
+
+    private final CountDownLatch liberar = new CountDownLatch(1);
+    private Context context;
+    private GangProgrammingManager gang;
+    private SimuladorK150[] simuladores;
+    private UsbSerialPort[] puertos;
+
+    @Before
+    public void setUp() {
+        context = mock(Context.class);
+        when(context.getString(anyInt())).thenAnswer(invocation -> "texto-" + invocation.getArgument(0));
+        when(context.getString(anyInt(), any())).thenAnswer(invocation -> "texto-" + invocation.getArgument(0));
+
+        SharedPreferences preferencias = mock(SharedPreferences.class);
+        SharedPreferences.Editor editor = mock(SharedPreferences.Editor.class);
+        when(preferencias.edit()).thenReturn(editor);
+        when(editor.putString(anyString(), anyString())).thenReturn(editor);
+        when(editor.remove(anyString())).thenReturn(editor);
+        when(context.getSharedPreferences(anyString(), anyInt())).thenReturn(preferencias);
+
+        gang = new GangProgrammingManager(context);
+        simuladores = new SimuladorK150[2];
+        puertos = new UsbSerialPort[2];
+        for (int socket = 0; socket < 2; socket++) {
+            simuladores[socket] = new SimuladorK150(SimuladorK150.ModeloChip.pic16F628A());
+            puertos[socket] = PuertoSimulado.crear(simuladores[socket]);
+            assertTrue(gang.conectarPuerto("k150-" + socket, puertos[socket], TipoProtocolo.P18A));
+        }
+        assertEquals(2, gang.getCantidadProgramadores());
+    }
+
+    @After
+    public void tearDown() {
+        liberar.countDown();
+        gang.liberar();
+    }
+
+    /** Cuenta los avisos de cada socket; el que indique la prueba lanza una excepción */
+    private static class Avisos implements GangProgrammingManager.GangListener {
+        final Map<Integer, AtomicInteger> completados = new ConcurrentHashMap<>();
+        final CountDownLatch enCurso = new CountDownLatch(1);
+        volatile int socketEnCurso = -1;
+        volatile int socketQueFalla = -1;
+
+        @Override
+        public void onSocketProgress(int socket, String message, int progress) {
+            if (socket == socketQueFalla) {
+                throw new IllegalStateException("listener roto");
+            }
+            if (socket == socketEnCurso) {
+                enCurso.countDown();
+            }
+        }
+
+        @Override
+        public void onSocketCompleted(GangProgrammingManager.ResultadoSocket resultado) {
+            completados.computeIfAbsent(resultado.socket, s -> new AtomicInteger()).incrementAndGet();
+        }
+
+        int completados(int socket) {
+            AtomicInteger avisos = completados.get(socket);
+            return avisos == null ? 0 : avisos.get();
+        }
+    }
+
+    private GangProgrammingManager.ResultadoGang programar(Avisos avisos) throws Exception {
+        return gang.programarTodos(
+                ChipsDePrueba.pic16F628A(), FuenteHex.desdeTexto(HEX), new byte[] { 0 }, Arrays.asList(), avisos);
+    }
+
+    /** Ocupa el hilo del socket y llena su cola hasta que la prueba lo libera */
+    private void ocuparSocket(int socket, boolean llenarCola) throws InterruptedException {
+        ProgrammerExecutor hilo = gang.getHiloDelSocket(socket);
+        CountDownLatch enCurso = new CountDownLatch(1);
+        hilo.enviar("bloqueante", () -> {
+            enCurso.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(enCurso.await(5, TimeUnit.SECONDS));
+        if (llenarCola) {
+            assertNotNull(hilo.enviar("en cola", () -> {}));
+        }
+    }
+
+    private static byte[] romEnBlanco() {
+        return new SimuladorK150(SimuladorK150.ModeloChip.pic16F628A()).getROM();
+    }
+
+    /** Espera a que el hilo del socket termine todo lo que tenía encolado */
+    private void esperarSocket(int socket) throws Exception {
+        // Con la cola llena se reintenta hasta que el hilo la vacía
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Future<?> fin;
+        while ((fin = gang.getHiloDelSocket(socket).enviar("fin", () -> {})) == null) {
+            assertTrue(System.nanoTime() < limite);
+            Thread.sleep(10);
+        }
+        fin.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void programarTodos_debeGrabarLaMismaImagenEnCadaSocket() throws Exception {
+        Avisos avisos = new Avisos();
+        GangProgrammingManager.ResultadoGang resultado = programar(avisos);
+
+        assertTrue(resultado.todosExitosos());
+        assertEquals(2, resultado.getExitosos());
+        assertEquals(1, avisos.completados(0));
+        assertEquals(1, avisos.completados(1));
+        assertFalse(Arrays.equals(romEnBlanco(), simuladores[0].getROM()));
+        assertArrayEquals(simuladores[0].getROM(), simuladores[1].getROM());
+        assertFalse(simuladores[0].isVoltajesActivos());
+        assertFalse(simuladores[1].isVoltajesActivos());
+    }
+
+    @Test
+    public void programarTodos_debeRechazarElSocketConLaColaLlena() throws Exception {
+        ocuparSocket(1, true);
+
+        Avisos avisos = new Avisos();
+        GangProgrammingManager.ResultadoGang resultado = programar(avisos);
+
+        assertTrue(resultado.resultados.get(0).exito);
+        assertFalse(resultado.resultados.get(1).exito);
+        assertEquals(context.getString(R.string.programador_ocupado), resultado.resultados.get(1).error);
+        assertEquals(1, avisos.completados(0));
+        assertEquals(1, avisos.completados(1));
+    }
+
+    @Test
+    public void programarTodos_debeInformarElSocketQueFalla() throws Exception {
+        doThrow(new IOException("cable desconectado")).when(puertos[1]).write(any(byte[].class), anyInt());
+
+        Avisos avisos = new Avisos();
+        GangProgrammingManager.ResultadoGang resultado = programar(avisos);
+
+        assertTrue(resultado.resultados.get(0).exito);
+        assertFalse(resultado.resultados.get(1).exito);
+        assertNotNull(resultado.resultados.get(1).error);
+        assertEquals(1, resultado.getFallidos());
+        assertEquals(1, avisos.completados(0));
+        assertEquals(1, avisos.completados(1));
+    }
+
+    @Test
+    public void programarTodos_debeAvisarUnaVezSiLaTareaLanzaUnaExcepcion() throws Exception {
+        Avisos avisos = new Avisos();
+        avisos.socketQueFalla = 1;
+        GangProgrammingManager.ResultadoGang resultado = programar(avisos);
+
+        assertTrue(resultado.resultados.get(0).exito);
+        assertFalse(resultado.resultados.get(1).exito);
+        assertTrue(resultado.resultados.get(1).error.startsWith(context.getString(R.string.error_inesperado)));
+        assertEquals(1, avisos.completados(0));
+        assertEquals(1, avisos.completados(1));
+    }
+
+    @Test
+    public void programarTodos_interrumpido_debeAvisarUnaVezPorSocketYConservarLaInterrupcion() throws Exception {
+        // El socket 0 queda en cola tras una tarea bloqueante; el 1 graba despacio
+        ocuparSocket(0, false);
+        simuladores[1].setLatencia(20_000L, 200_000L);
+        simuladores[1].setEsperaReal(true);
+
+        Avisos avisos = new Avisos();
+        avisos.socketEnCurso = 1;
+        AtomicReference<GangProgrammingManager.ResultadoGang> resultado = new AtomicReference<>();
+        AtomicReference<Boolean> interrupcionConservada = new AtomicReference<>();
+        Thread llamador = new Thread(() -> {
+            try {
+                resultado.set(programar(avisos));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            interrupcionConservada.set(Thread.currentThread().isInterrupted());
+        });
+        llamador.start();
+        assertTrue(avisos.enCurso.await(10, TimeUnit.SECONDS));
+
+        llamador.interrupt();
+        llamador.join(10_000);
+        assertFalse(llamador.isAlive());
+        assertTrue(interrupcionConservada.get());
+
+        String interrumpida = context.getString(R.string.grabacion_interrumpida);
+        assertFalse(resultado.get().resultados.get(0).exito);
+        assertEquals(interrumpida, resultado.get().resultados.get(0).error);
+        assertFalse(resultado.get().resultados.get(1).exito);
+
+        // La tarea del socket 0 ya no graba al liberarse; la del 1 termina su bloque y avisa
+        liberar.countDown();
+        esperarSocket(0);
+        esperarSocket(1);
+        assertEquals(1, avisos.completados(0));
+        assertEquals(1, avisos.completados(1));
+        assertArrayEquals(romEnBlanco(), simuladores[0].getROM());
+        assertFalse(simuladores[1].isVoltajesActivos());
+    }
+}
@@ -0,0 +1,239 @@
+package com.diamon.managers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+
+import com.diamon.chip.ChipsDePrueba;
+import com.diamon.datos.CacheImagenesProcesadas;
+import com.diamon.datos.FuenteHex;
+import com.diamon.pic.R;
+import com.diamon.protocolo.ProtocoloP18A;
+import com.diamon.protocolo.PuertoSimulado;
+import com.diamon.protocolo.SimuladorK150;
+import com.diamon.protocolo.TipoProtocolo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ciclo del modo de producción contra un {@link SimuladorK150} al que la prueba
+ * inserta y retira el chip.
+ */
+public class ProductionModeManagerTest {
+
+    private static final String HEX = ":04000000831603134D\n:02400E00743FFD\n:00000001FF\n";
+
+    private Context context;
+    private SimuladorK150 simulador;
+    private ProtocoloP18A protocolo;
+    private ProgrammerExecutor ejecutor;
+    private ProductionModeManager produccion;
+    private Eventos eventos;
+
+    @Before
+    public void setUp() {
+        context = mock(Context.class);
+        when(context.getString(anyInt())).thenAnswer(invocation -> "texto-" + invocation.getArgument(0));
+        when(context.getString(anyInt(), any())).thenAnswer(invocation -> "texto-" + invocation.getArgument(0));
+
+        simulador = new SimuladorK150(SimuladorK150.ModeloChip.pic16F628A());
+        simulador.setChipEnSocket(false);
+        protocolo = spy(new ProtocoloP18A(context, PuertoSimulado.crear(simulador), TipoProtocolo.P18A));
+        ejecutor = new ProgrammerExecutor("prueba-produccion");
+        produccion = new ProductionModeManager(context, protocolo, new CacheImagenesProcesadas(), ejecutor);
+        eventos = new Eventos();
+    }
+
+    @After
+    public void tearDown() {
+        produccion.detener();
+        ejecutor.cerrar();
+    }
+
+    /** Registra los avisos del ciclo en orden */
+    private class Eventos implements ProductionModeManager.ProductionListener {
+        final BlockingQueue<String> cola = new LinkedBlockingQueue<>();
+        final List<ProductionModeManager.ResultadoChip> resultados = new CopyOnWriteArrayList<>();
+        final List<byte[]> configuraciones = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onEsperandoChip() {
+            cola.add("esperando");
+        }
+
+        @Override
+        public void onChipDetectado(long numeroSerie) {
+            cola.add("detectado " + numeroSerie);
+        }
+
+        @Override
+        public void onProgreso(long numeroSerie, String message, int progress) {
+            cola.add("progreso");
+        }
+
+        @Override
+        public void onChipTerminado(ProductionModeManager.ResultadoChip resultado) {
+            resultados.add(resultado);
+            configuraciones.add(simulador.getConfiguracion());
+            cola.add("terminado " + resultado.numeroSerie);
+        }
+
+        @Override
+        public void onEsperandoRetiro() {
+            cola.add("retiro");
+        }
+
+        @Override
+        public void onDetenido(int aprobados, int rechazados) {
+            cola.add("detenido " + aprobados + "/" + rechazados);
+        }
+
+        /** Espera el aviso indicado, saltando los demás */
+        void esperar(String evento) throws InterruptedException {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            String recibido;
+            do {
+                recibido = cola.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+                assertNotNull("No llegó " + evento, recibido);
+            } while (!recibido.equals(evento));
+        }
+    }
+
+    private String iniciar(ProductionModeManager.GeneradorNumeroSerie generador) throws Exception {
+        return produccion.iniciar(
+                ChipsDePrueba.pic16F628A(), FuenteHex.desdeTexto(HEX), null, new ArrayList<>(), generador, eventos);
+    }
+
+    private static byte[] idDelSocket(byte[] configuracion) {
+        return Arrays.copyOfRange(configuracion, 2, 10);
+    }
+
+    @Test
+    public void ciclo_debeGrabarCadaChipInsertadoConSuNumeroDeSerie() throws Exception {
+        List<Long> numerosGenerados = new CopyOnWriteArrayList<>();
+        assertNull(iniciar(numeroSerie -> {
+            numerosGenerados.add(numeroSerie);
+            return new byte[] { 0x12, 0x34, 0x56, (byte) numeroSerie };
+        }));
+        assertTrue(produccion.isActivo());
+        assertEquals(context.getString(R.string.modo_produccion_ya_activo), iniciar(null));
+
+        for (long numeroSerie = 1; numeroSerie <= 2; numeroSerie++) {
+            eventos.esperar("esperando");
+            simulador.setChipEnSocket(true);
+            eventos.esperar("detectado " + numeroSerie);
+            eventos.esperar("terminado " + numeroSerie);
+            eventos.esperar("retiro");
+            simulador.setChipEnSocket(false);
+        }
+        eventos.esperar("esperando");
+
+        assertEquals(Arrays.asList(1L, 2L), numerosGenerados);
+        for (ProductionModeManager.ResultadoChip resultado : eventos.resultados) {
+            assertTrue(resultado.error, resultado.aprobado());
+            assertTrue(resultado.verificacion.romVerified);
+        }
+        assertFalse(
+                "Cada chip lleva su propio ID",
+                Arrays.equals(
+                        idDelSocket(eventos.configuraciones.get(0)), idDelSocket(eventos.configuraciones.get(1))));
+        assertEquals(2, produccion.getAprobados());
+        assertEquals(0, produccion.getRechazados());
+
+        produccion.detener();
+        eventos.esperar("detenido 2/0");
+        assertFalse(produccion.isActivo());
+        assertFalse(simulador.isVoltajesActivos());
+    }
+
+    @Test
+    public void contadores_debenContarLosRechazadosYReiniciarLaNumeracion() throws Exception {
+        produccion.reiniciarContadores(100);
+        assertNull(iniciar(numeroSerie -> {
+            if (numeroSerie == 100) {
+                throw new IllegalStateException("sin números");
+            }
+            return new byte[] { 0, 0, 0, (byte) numeroSerie };
+        }));
+
+        simulador.setChipEnSocket(true);
+        eventos.esperar("terminado 100");
+        ProductionModeManager.ResultadoChip rechazado = eventos.resultados.get(0);
+        assertFalse(rechazado.programado);
+        assertEquals(context.getString(R.string.error_generando_numero_serie, "sin números"), rechazado.error);
+        assertArrayEquals(
+                "El chip rechazado no se graba",
+                new SimuladorK150(SimuladorK150.ModeloChip.pic16F628A()).getROM(),
+                simulador.getROM());
+
+        eventos.esperar("retiro");
+        simulador.setChipEnSocket(false);
+        eventos.esperar("esperando");
+        simulador.setChipEnSocket(true);
+        eventos.esperar("terminado 101");
+        assertTrue(eventos.resultados.get(1).aprobado());
+        assertEquals(1, produccion.getAprobados());
+        assertEquals(1, produccion.getRechazados());
+
+        produccion.detener();
+        eventos.esperar("detenido 1/1");
+        produccion.reiniciarContadores(1);
+        assertEquals(0, produccion.getAprobados());
+        assertEquals(0, produccion.getRechazados());
+    }
+
+    @Test
+    public void detener_debeCancelarElChipQueSeEstaGrabando() throws Exception {
+        simulador.setLatencia(20_000L, 200_000L);
+        simulador.setEsperaReal(true);
+        simulador.setChipEnSocket(true);
+        assertNull(iniciar(null));
+
+        eventos.esperar("progreso");
+        produccion.detener();
+        assertFalse(produccion.isActivo());
+        eventos.esperar("detenido 0/1");
+
+        ProductionModeManager.ResultadoChip resultado = eventos.resultados.get(0);
+        assertFalse(resultado.aprobado());
+        assertFalse(resultado.programado);
+        assertFalse("Los voltajes deben quedar desactivados", simulador.isVoltajesActivos());
+    }
+
+    @Test
+    public void esperarSocket_debeResincronizarTrasUnSondeoSinRespuesta() throws Exception {
+        assertNull(iniciar(null));
+        eventos.esperar("esperando");
+
+        // Sin chip el firmware no contesta a la detección y vence el tiempo de espera
+        verify(protocolo, timeout(5000).atLeastOnce()).resincronizar();
+        assertTrue(produccion.isActivo());
+
+        simulador.setChipEnSocket(true);
+        eventos.esperar("terminado 1");
+        assertTrue("El enlace sigue sincronizado", eventos.resultados.get(0).aprobado());
+    }
+}
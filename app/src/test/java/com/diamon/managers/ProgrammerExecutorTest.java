@@ -0,0 +1,104 @@
+package com.diamon.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ProgrammerExecutorTest {
+
+    private final CountDownLatch enCurso = new CountDownLatch(1);
+    private final CountDownLatch liberar = new CountDownLatch(1);
+    private ProgrammerExecutor ejecutor;
+
+    @After
+    public void tearDown() {
+        liberar.countDown();
+        if (ejecutor != null) {
+            ejecutor.cerrar();
+        }
+    }
+
+    /** Ocupa el hilo de trabajo hasta que la prueba lo libera */
+    private Future<?> ocupar() throws InterruptedException {
+        Future<?> futuro = ejecutor.enviar("bloqueante", () -> {
+            enCurso.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(enCurso.await(5, TimeUnit.SECONDS));
+        return futuro;
+    }
+
+    @Test
+    public void enviar_debeDevolverNullConLaColaLlena() throws Exception {
+        ejecutor = new ProgrammerExecutor("prueba", 1);
+        assertFalse(ejecutor.estaOcupado());
+
+        ocupar();
+        assertTrue(ejecutor.estaOcupado());
+        assertEquals("bloqueante", ejecutor.getOperacionEnCurso());
+
+        Future<Integer> enCola = ejecutor.enviar("en cola", () -> 1);
+        assertNotNull(enCola);
+        assertEquals(1, ejecutor.getPendientes());
+        assertNull("La cola ya está llena", ejecutor.enviar("rechazada", () -> 2));
+
+        liberar.countDown();
+        assertEquals(Integer.valueOf(1), enCola.get(5, TimeUnit.SECONDS));
+        assertNotNull("Con la cola vacía vuelve a aceptar", ejecutor.enviar("final", () -> 3));
+        assertNull(ejecutor.getOperacionEnCurso());
+    }
+
+    @Test
+    public void cancelarPendientes_noDebeTocarLaOperacionEnCurso() throws Exception {
+        ejecutor = new ProgrammerExecutor("prueba", 2);
+        Future<?> actual = ocupar();
+        AtomicBoolean ejecutada = new AtomicBoolean();
+        Future<?> primera = ejecutor.enviar("pendiente 1", () -> ejecutada.set(true));
+        Future<?> segunda = ejecutor.enviar("pendiente 2", () -> ejecutada.set(true));
+
+        assertEquals(2, ejecutor.cancelarPendientes());
+        assertTrue(primera.isCancelled());
+        assertTrue(segunda.isCancelled());
+        assertFalse(actual.isDone());
+        assertEquals(0, ejecutor.getPendientes());
+        assertTrue("La operación en curso sigue ocupando el hilo", ejecutor.estaOcupado());
+
+        liberar.countDown();
+        actual.get(5, TimeUnit.SECONDS);
+        assertFalse(ejecutada.get());
+    }
+
+    @Test
+    public void cerrar_debeCancelarLaOperacionEnCursoSinInterrumpirElHilo() throws Exception {
+        ejecutor = new ProgrammerExecutor("prueba");
+        AtomicBoolean interrumpido = new AtomicBoolean();
+        ejecutor.setCancelador(liberar::countDown);
+        ejecutor.enviar("cancelable", () -> {
+            enCurso.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                interrumpido.set(true);
+            }
+        });
+        assertTrue(enCurso.await(5, TimeUnit.SECONDS));
+
+        assertTrue("Debe terminar dentro de la espera", ejecutor.cerrar());
+        assertFalse(interrumpido.get());
+        assertNull("Cerrado no acepta operaciones", ejecutor.enviar("tarde", () -> 1));
+    }
+}
@@ -0,0 +1,78 @@
+package com.diamon.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.diamon.nucleo.TablaChecksums;
+import com.diamon.utilidades.HexFileUtils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class VerificationManagerTest {
+
+    /** ROM de 14 bits en blanco con unas pocas palabras grabadas */
+    private static byte[] crearRom() {
+        byte[] rom = HexFileUtils.generateRomBlank(14, 0x800);
+        rom[0] = 0x01;
+        rom[1] = (byte) 0x8A;
+        rom[2] = 0x28;
+        rom[3] = 0x0A;
+        rom[0x80] = 0x00;
+        rom[0x81] = 0x08;
+        return rom;
+    }
+
+    @Test
+    public void verificacionPorChecksums_debeCompararSoloLosBloquesConCrcDistinto() {
+        byte[] rom = crearRom();
+        TablaChecksums tabla = TablaChecksums.calcular(rom, rom.length);
+
+        // Una lectura con dos bytes cambiados en el mismo bloque: un bloque distinto, dos diferencias
+        byte[] leida = rom.clone();
+        leida[130] ^= 0x01;
+        leida[131] ^= 0x01;
+        VerificationManager.ChecksumVerifier enStreaming =
+                new VerificationManager.ChecksumVerifier(rom, tabla, false);
+        for (int offset = 0; offset < leida.length; offset += 64) {
+            enStreaming.fragmentoRecibido(leida, offset, Math.min(64, leida.length - offset));
+        }
+        enStreaming.finish(leida.length);
+        assertFalse(enStreaming.isVerified());
+        assertEquals(1, enStreaming.getBloquesDistintos());
+        assertEquals(2, enStreaming.getMismatchCount());
+        assertEquals(130, enStreaming.getFirstMismatchOffset());
+
+        // Con la tabla de la lectura ya calculada el resultado es el mismo
+        VerificationManager.ChecksumVerifier conTabla =
+                new VerificationManager.ChecksumVerifier(rom, tabla, false);
+        conTabla.compararTabla(leida, TablaChecksums.calcular(leida, leida.length));
+        conTabla.finish(leida.length);
+        assertEquals(1, conTabla.getBloquesDistintos());
+        assertEquals(2, conTabla.getMismatchCount());
+    }
+
+    @Test
+    public void verificacionPorChecksums_debeAceptarUnaLecturaMasLargaSoloConColaEnBlanco() {
+        byte[] rom = crearRom();
+        TablaChecksums tabla = TablaChecksums.calcular(rom, rom.length);
+
+        byte[] larga = Arrays.copyOf(rom, rom.length + 10);
+        Arrays.fill(larga, rom.length, larga.length, (byte) 0xFF);
+        VerificationManager.ChecksumVerifier conCola =
+                new VerificationManager.ChecksumVerifier(rom, tabla, true);
+        conCola.compararTabla(larga, TablaChecksums.calcular(larga, larga.length));
+        conCola.finish(larga.length);
+        assertTrue(conCola.isVerified());
+        assertEquals(larga.length, conCola.getComparedLength());
+
+        larga[rom.length + 4] = 0x12;
+        VerificationManager.ChecksumVerifier colaConDatos =
+                new VerificationManager.ChecksumVerifier(rom, tabla, true);
+        colaConDatos.compararTabla(larga, TablaChecksums.calcular(larga, larga.length));
+        colaConDatos.finish(larga.length);
+        assertFalse(colaConDatos.isVerified());
+    }
+}
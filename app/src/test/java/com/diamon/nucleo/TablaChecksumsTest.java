@@ -0,0 +1,50 @@
+package com.diamon.nucleo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TablaChecksumsTest {
+
+    private static byte[] crearImagen(int longitud) {
+        byte[] imagen = new byte[longitud];
+        for (int i = 0; i < imagen.length; i++) {
+            imagen[i] = (byte) (i * 7 + (i >> 8));
+        }
+        return imagen;
+    }
+
+    @Test
+    public void acumulador_debeCoincidirConLaTablaCalculadaDeUnaVez() {
+        // Fragmentos de 50 bytes: ninguno coincide con el límite de un bloque
+        byte[] imagen = crearImagen(1000);
+        TablaChecksums tabla = TablaChecksums.calcular(imagen, imagen.length);
+        assertEquals((imagen.length + TablaChecksums.TAMANO_BLOQUE - 1) / TablaChecksums.TAMANO_BLOQUE,
+                tabla.getCantidadBloques());
+
+        TablaChecksums.Acumulador acumulador = new TablaChecksums.Acumulador();
+        for (int offset = 0; offset < imagen.length; offset += 50) {
+            acumulador.fragmentoRecibido(imagen, offset, Math.min(50, imagen.length - offset));
+        }
+        TablaChecksums porFragmentos = acumulador.terminar();
+        assertEquals(tabla.getCantidadBloques(), porFragmentos.getCantidadBloques());
+        for (int bloque = 0; bloque < tabla.getCantidadBloques(); bloque++) {
+            assertTrue(tabla.coincideBloque(bloque, porFragmentos));
+        }
+    }
+
+    @Test
+    public void bloqueAlterado_soloDebeDejarDeCoincidirEseBloque() {
+        byte[] imagen = crearImagen(256);
+        byte[] alterada = imagen.clone();
+        alterada[130] ^= 0x01;
+
+        TablaChecksums tabla = TablaChecksums.calcular(imagen, imagen.length);
+        TablaChecksums otra = TablaChecksums.calcular(alterada, alterada.length);
+        assertTrue(tabla.coincideBloque(0, otra));
+        assertFalse(tabla.coincideBloque(130 / TablaChecksums.TAMANO_BLOQUE, otra));
+        assertTrue(tabla.coincideBloque(3, otra));
+    }
+}
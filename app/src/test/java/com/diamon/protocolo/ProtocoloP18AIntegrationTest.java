@@ -1,6 +1,7 @@
 package com.diamon.protocolo;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
@@ -8,6 +9,9 @@ import static org.mockito.Mockito.*;
 import android.content.Context;
 
 import com.diamon.chip.ChipPic;
+import com.diamon.datos.DatosPicProcesados;
+import com.diamon.managers.PicProgrammingManager;
+import com.diamon.nucleo.TokenCancelacion;
 import com.hoho.android.usbserial.driver.UsbSerialPort;
 
 import org.junit.After;
@@ -21,12 +25,16 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Pruebas de integración para validar la lógica de ProtocoloP18A en local
- * comunicando con el emulador K150 (vtty).
+ * comunicando con el emulador K150 (vtty), o con {@link SimuladorK150} si el
+ * emulador no está disponible.
  */
 public class ProtocoloP18AIntegrationTest {
 
@@ -36,6 +44,7 @@ public class ProtocoloP18AIntegrationTest {
     private FileInputStream in;
     private FileOutputStream out;
     private UsbSerialPort mockUsbPort;
+    private SimuladorK150 simulador;
     private Context mockContext;
     private ProtocoloP18A protocolo;
     private ChipPic chip16f628a;
@@ -44,65 +53,14 @@ public class ProtocoloP18AIntegrationTest {
 
     @Before
     public void setUp() throws Exception {
-        // Validar que el puerto virtual del emulador esté listo
         File vtty = new File(VTTY_PATH);
-        assertTrue("El puerto virtual " + VTTY_PATH + " no existe. ¿Está corriendo el emulador?", vtty.exists());
-
-        // Abrir flujos al PTY
-        in = new FileInputStream(vtty);
-        out = new FileOutputStream(vtty);
-
-        // Limpiar cualquier byte basura previo
-        while (in.available() > 0) {
-            in.read();
+        if (vtty.exists()) {
+            conectarEmulador(vtty);
+        } else {
+            // Sin emulador externo: firmware simulado en el mismo proceso
+            conectarSimulador(SimuladorK150.ModeloChip.pic16F628A());
         }
 
-        // Resetear la máquina de estados del emulador al estado AWAITING_JUMP_TABLE
-        out.write(new byte[]{0x01});
-        out.flush();
-
-        // Esperar y consumir la respuesta 'Q' del emulador
-        long startWait = System.currentTimeMillis();
-        while (in.available() == 0 && (System.currentTimeMillis() - startWait) < 500) {
-            Thread.sleep(5);
-        }
-        while (in.available() > 0) {
-            in.read();
-        }
-
-        // Mock de UsbSerialPort delegado a los flujos reales del PTY
-        mockUsbPort = mock(UsbSerialPort.class);
-
-        // Implementación de escritura
-        doAnswer(invocation -> {
-            byte[] src = invocation.getArgument(0);
-            out.write(src);
-            out.flush();
-            return null;
-        }).when(mockUsbPort).write(any(byte[].class), anyInt());
-
-        // Implementación de lectura con control de timeout
-        when(mockUsbPort.read(any(byte[].class), anyInt())).thenAnswer(invocation -> {
-            byte[] dest = invocation.getArgument(0);
-            int timeout = invocation.getArgument(1);
-            long start = System.currentTimeMillis();
-            int totalRead = 0;
-            
-            while (totalRead < dest.length && (System.currentTimeMillis() - start) < timeout) {
-                int avail = in.available();
-                if (avail > 0) {
-                    int toRead = Math.min(avail, dest.length - totalRead);
-                    int readNow = in.read(dest, totalRead, toRead);
-                    if (readNow > 0) {
-                        totalRead += readNow;
-                    }
-                } else {
-                    Thread.sleep(5);
-                }
-            }
-            return totalRead;
-        });
-
         // Mock de Context
         mockContext = mock(Context.class);
         when(mockContext.getString(anyInt())).thenReturn("msg");
@@ -181,6 +139,88 @@ public class ProtocoloP18AIntegrationTest {
                 fuses12f);
     }
 
+    /**
+     * Delega el mock del puerto en los flujos del PTY del emulador K150.
+     */
+    private void conectarEmulador(File vtty) throws Exception {
+        // Abrir flujos al PTY
+        in = new FileInputStream(vtty);
+        out = new FileOutputStream(vtty);
+
+        // Limpiar cualquier byte basura previo
+        while (in.available() > 0) {
+            in.read();
+        }
+
+        // Resetear la máquina de estados del emulador al estado AWAITING_JUMP_TABLE
+        out.write(new byte[]{0x01});
+        out.flush();
+
+        // Esperar y consumir la respuesta 'Q' del emulador
+        long startWait = System.currentTimeMillis();
+        while (in.available() == 0 && (System.currentTimeMillis() - startWait) < 500) {
+            Thread.sleep(5);
+        }
+        while (in.available() > 0) {
+            in.read();
+        }
+
+        // Mock de UsbSerialPort delegado a los flujos reales del PTY
+        mockUsbPort = mock(UsbSerialPort.class);
+
+        // Implementación de escritura
+        doAnswer(invocation -> {
+            byte[] src = invocation.getArgument(0);
+            out.write(src);
+            out.flush();
+            return null;
+        }).when(mockUsbPort).write(any(byte[].class), anyInt());
+
+        // Implementación de lectura con control de timeout
+        when(mockUsbPort.read(any(byte[].class), anyInt())).thenAnswer(invocation -> {
+            byte[] dest = invocation.getArgument(0);
+            int timeout = invocation.getArgument(1);
+            long start = System.currentTimeMillis();
+            int totalRead = 0;
+            
+            while (totalRead < dest.length && (System.currentTimeMillis() - start) < timeout) {
+                int avail = in.available();
+                if (avail > 0) {
+                    int toRead = Math.min(avail, dest.length - totalRead);
+                    int readNow = in.read(dest, totalRead, toRead);
+                    if (readNow > 0) {
+                        totalRead += readNow;
+                    }
+                } else {
+                    Thread.sleep(5);
+                }
+            }
+            return totalRead;
+        });
+    }
+
+    /**
+     * Delega el mock del puerto en un {@link SimuladorK150}: las pruebas no necesitan
+     * procesos ni PTY y pueden ejecutarse en paralelo.
+     *
+     * @param modelo Chip colocado en el socket simulado
+     */
+    private void conectarSimulador(SimuladorK150.ModeloChip modelo) throws Exception {
+        simulador = new SimuladorK150(modelo);
+        // El puerto consulta el campo en cada transferencia: colocarChipSimulado lo reemplaza
+        mockUsbPort = PuertoSimulado.crear(() -> simulador);
+    }
+
+    /**
+     * Cambia el chip del socket simulado por el que ejercita la prueba. Con el emulador externo
+     * no hace nada: el chip lo fija el propio emulador.
+     */
+    private void colocarChipSimulado(SimuladorK150.ModeloChip modelo) {
+        if (simulador != null) {
+            simulador = new SimuladorK150(modelo);
+        }
+    }
+
     @After
     public void tearDown() throws Exception {
         if (in != null) {
@@ -462,6 +502,7 @@ public class ProtocoloP18AIntegrationTest {
 
     @Test
     public void testPIC18F2550ProgramacionYLectura() throws Exception {
+        colocarChipSimulado(SimuladorK150.ModeloChip.pic18F2550());
         // 1. Crear configuración de ChipPic para PIC18F2550
         Map<String, Object> fusesMap = new HashMap<>();
         ChipPic chip18f2550 = new ChipPic(
@@ -537,6 +578,7 @@ public class ProtocoloP18AIntegrationTest {
 
     @Test
     public void testPIC12F675ProgramacionYLectura() throws Exception {
+        colocarChipSimulado(SimuladorK150.ModeloChip.pic12F675());
         // 1. Crear configuración de ChipPic para PIC12F675
         Map<String, Object> fusesMap = new HashMap<>();
         ChipPic chip12f675 = new ChipPic(
@@ -835,6 +877,7 @@ public class ProtocoloP18AIntegrationTest {
 
     @Test
     public void testFusesVerificacionExacta_PIC12F675() throws Exception {
+        colocarChipSimulado(SimuladorK150.ModeloChip.pic12F675());
         // Validar fuses exactos para PIC12F675 (familia PIC12, 14-bit)
         assertTrue(protocolo.iniciarVariablesDeProgramacion(chip12f675));
         assertTrue(protocolo.borrarMemoriasDelPic());
@@ -869,6 +912,7 @@ public class ProtocoloP18AIntegrationTest {
 
     @Test
     public void testFusesVerificacionExacta_PIC18F2550() throws Exception {
+        colocarChipSimulado(SimuladorK150.ModeloChip.pic18F2550());
         // Validar fuses exactos para PIC18F2550 (familia PIC18, 16-bit, 7 fuses)
         assertTrue(protocolo.iniciarVariablesDeProgramacion(chip18f2550));
         assertTrue(protocolo.borrarMemoriasDelPic());
@@ -941,6 +985,7 @@ public class ProtocoloP18AIntegrationTest {
 
     @Test
     public void testFusesExtraidosDesdeHEX_PIC18F2550() throws Exception {
+        colocarChipSimulado(SimuladorK150.ModeloChip.pic18F2550());
         // Verificar fuses extraídos del HEX real de PIC18F2550
         String hexContent = new String(java.nio.file.Files.readAllBytes(
                 java.nio.file.Paths.get("/home/danielpdiamon/PIC-k150-Programing/waw_pic18f2550.hex")),
@@ -1021,6 +1066,7 @@ public class ProtocoloP18AIntegrationTest {
 
     @Test
     public void testICSP_PIC18F2550_FusesCompletos() throws Exception {
+        colocarChipSimulado(SimuladorK150.ModeloChip.pic18F2550());
         // Prueba ICSP con PIC18F2550 (16-bit, 7 fuses)
         chip18f2550.setActivarICSP(true);
         assertTrue("El chip PIC18F2550 debería tener ICSP activado", chip18f2550.isISCPModo());
@@ -1069,6 +1115,7 @@ public class ProtocoloP18AIntegrationTest {
 
     @Test
     public void testICSP_PIC12F675_FusesCompletos() throws Exception {
+        colocarChipSimulado(SimuladorK150.ModeloChip.pic12F675());
         // Prueba ICSP con PIC12F675 (14-bit, 1 fuse)
         chip12f675.setActivarICSP(true);
         assertTrue("El chip PIC12F675 debería tener ICSP activado", chip12f675.isISCPModo());
@@ -1106,4 +1153,392 @@ public class ProtocoloP18AIntegrationTest {
         String idLeido = extraerIDDeConfigString(config, 4);
         assertEquals("El ID del PIC12F675 en ICSP no coincide", "AABBCCDD", idLeido);
     }
+
+    /**
+     * Imagen completa del PIC16F628A generada en la prueba, sin depender de un HEX externo:
+     * palabras de 14 bits distintas entre sí para detectar desplazamientos y una EEPROM sin
+     * bytes en blanco.
+     */
+    private DatosPicProcesados crearImagen16F628A() throws Exception {
+        byte[] rom = new byte[chip16f628a.getTamanoROM() * 2];
+        for (int i = 0; i < rom.length; i += 2) {
+            rom[i] = (byte) ((i >> 8) & 0x3F);
+            rom[i + 1] = (byte) i;
+        }
+        byte[] eeprom = new byte[chip16f628a.getTamanoEEPROM()];
+        for (int i = 0; i < eeprom.length; i++) {
+            eeprom[i] = (byte) (0x80 + i);
+        }
+
+        DatosPicProcesados datosPic = mock(DatosPicProcesados.class);
+        when(datosPic.tieneRomEnHex()).thenReturn(true);
+        when(datosPic.obtenerBytesHexROMProcesado()).thenReturn(rom);
+        when(datosPic.obtenerBytesHexEEPROMProcesado()).thenReturn(eeprom);
+        return datosPic;
+    }
+
+    @Test
+    public void testProgramacionROMSegmentadaCoincideConLockStep() throws Exception {
+        assertTrue(protocolo.iniciarVariablesDeProgramacion(chip16f628a));
+
+        DatosPicProcesados datosPic = crearImagen16F628A();
+
+        // 1. Programar en lock-step y guardar la ROM leída como referencia
+        assertTrue(protocolo.borrarMemoriasDelPic());
+        assertTrue("Fallo al programar ROM en lock-step", protocolo.programarMemoriaROMDelPic(chip16f628a, datosPic));
+        String romLockStep = protocolo.leerMemoriaROMDelPic(chip16f628a);
+
+        // 2. Programar con varios bloques en vuelo
+        protocolo.setVentanaEscrituraROM(2);
+        assertTrue(protocolo.borrarMemoriasDelPic());
+        assertTrue("Fallo al programar ROM segmentada", protocolo.programarMemoriaROMDelPic(chip16f628a, datosPic));
+        String romSegmentada = protocolo.leerMemoriaROMDelPic(chip16f628a);
+
+        assertEquals("La ROM segmentada debe coincidir con la de lock-step", romLockStep, romSegmentada);
+        assertEquals("El firmware debe haber aceptado la ventana sin fallback",
+                2, protocolo.getVentanaEscrituraROM());
+    }
+
+    @Test
+    public void testProgramacionEEPROMPorLotesCoincideConLockStep() throws Exception {
+        assertTrue(protocolo.iniciarVariablesDeProgramacion(chip16f628a));
+
+        DatosPicProcesados datosPic = crearImagen16F628A();
+
+        // 1. Programar EEPROM en lock-step
+        protocolo.setUnidadesPorLoteEEPROM(1);
+        assertTrue(protocolo.borrarMemoriasDelPic());
+        assertTrue("Fallo al programar EEPROM en lock-step", protocolo.programarMemoriaEEPROMDelPic(chip16f628a, datosPic));
+        String eepromLockStep = protocolo.leerMemoriaEEPROMDelPic(chip16f628a);
+
+        // 2. Programar EEPROM agrupando unidades por transferencia
+        protocolo.setUnidadesPorLoteEEPROM(ProtocoloP18A.UNIDADES_MAXIMAS_LOTE_EEPROM);
+        assertTrue(protocolo.borrarMemoriasDelPic());
+        assertTrue("Fallo al programar EEPROM por lotes", protocolo.programarMemoriaEEPROMDelPic(chip16f628a, datosPic));
+        String eepromLotes = protocolo.leerMemoriaEEPROMDelPic(chip16f628a);
+
+        assertEquals("La EEPROM por lotes debe coincidir con la de lock-step", eepromLockStep, eepromLotes);
+        assertEquals("El firmware debe haber aceptado los lotes sin fallback",
+                ProtocoloP18A.UNIDADES_MAXIMAS_LOTE_EEPROM, protocolo.getUnidadesPorLoteEEPROM());
+    }
+
+    @Test
+    public void testLecturaBinariaCoincideConLecturaHex() throws Exception {
+        assertTrue(protocolo.iniciarVariablesDeProgramacion(chip16f628a));
+
+        DatosPicProcesados datosPic = crearImagen16F628A();
+        assertTrue(protocolo.programarMemoriaROMDelPic(chip16f628a, datosPic));
+
+        // Lectura binaria sobre un búfer reutilizable de mayor capacidad
+        byte[] buffer = new byte[chip16f628a.getTamanoROM() * 2 + 64];
+        com.diamon.nucleo.ResultadoLectura rom = protocolo.leerMemoriaROM(chip16f628a, buffer);
+        assertTrue("La lectura binaria de ROM debe completarse: " + rom.getMensaje(), rom.esExitosa());
+        assertSame("Debe reutilizar el búfer del llamador", buffer, rom.getDatos());
+        assertEquals(chip16f628a.getTamanoROM() * 2, rom.getLongitud());
+
+        String romHex = protocolo.leerMemoriaROMDelPic(chip16f628a);
+        assertEquals("La lectura binaria debe coincidir con la hexadecimal", romHex, rom.aHex());
+
+        com.diamon.nucleo.ResultadoLectura config = protocolo.leerDatosDeConfiguracion(null);
+        assertTrue("La lectura binaria de configuración debe completarse", config.esExitosa());
+        assertEquals(26, config.getLongitud());
+        assertEquals(protocolo.leerDatosDeConfiguracionDelPic(), config.aHex());
+    }
+
+    @Test
+    public void testVerificacionIncrementalAbortaEnPrimeraDiferencia() throws Exception {
+        assertTrue(protocolo.iniciarVariablesDeProgramacion(chip16f628a));
+
+        DatosPicProcesados datosPic = crearImagen16F628A();
+        assertTrue(protocolo.programarMemoriaROMDelPic(chip16f628a, datosPic));
+
+        byte[] esperada = datosPic.obtenerBytesHexROMProcesado();
+
+        // Imagen correcta: la verificación completa no encuentra diferencias
+        com.diamon.managers.VerificationManager.StreamingVerifier completo =
+                new com.diamon.managers.VerificationManager.StreamingVerifier(esperada, false);
+        com.diamon.nucleo.ResultadoLectura lectura = protocolo.leerMemoriaROM(chip16f628a, null, completo);
+        completo.finish(lectura.getLongitud());
+        assertTrue("La ROM programada debe verificarse", completo.isVerified());
+
+        // Imagen alterada en el primer byte: la lectura se detiene en el primer fragmento
+        byte[] alterada = esperada.clone();
+        alterada[0] = (byte) ~alterada[0];
+        com.diamon.managers.VerificationManager.StreamingVerifier abortable =
+                new com.diamon.managers.VerificationManager.StreamingVerifier(alterada, true);
+        com.diamon.nucleo.ResultadoLectura parcial = protocolo.leerMemoriaROM(chip16f628a, null, abortable);
+
+        assertEquals(com.diamon.nucleo.ResultadoLectura.TipoError.LECTURA_ABORTADA, parcial.getError());
+        assertTrue(abortable.isAborted());
+        assertEquals(0, abortable.getFirstMismatchOffset());
+        assertTrue("Debe abortar dentro del primer fragmento", abortable.getComparedLength() <= 64);
+    }
+
+    @Test
+    public void testCancelacionCooperativaDeProgramacionYLecturaROM() throws Exception {
+        assertTrue(protocolo.iniciarVariablesDeProgramacion(chip16f628a));
+
+        DatosPicProcesados datosPic = crearImagen16F628A();
+        assertTrue(protocolo.borrarMemoriasDelPic());
+
+        // 1. Cancelar la grabación en cuanto se confirma el segundo bloque
+        TokenCancelacion token = new TokenCancelacion() {
+            @Override
+            public void registrarProgreso(int completados, int total) {
+                super.registrarProgreso(completados, total);
+                if (completados >= 2) {
+                    cancelar();
+                }
+            }
+        };
+        protocolo.setTokenCancelacion(token);
+        assertFalse("La grabación cancelada no debe informar éxito",
+                protocolo.programarMemoriaROMDelPic(chip16f628a, datosPic));
+        assertTrue("Debe detenerse antes del último bloque", token.getCompletados() < token.getTotal());
+
+        // 2. Cancelar la lectura en cuanto llega el primer fragmento
+        TokenCancelacion tokenLectura = new TokenCancelacion();
+        protocolo.setTokenCancelacion(tokenLectura);
+        com.diamon.nucleo.ResultadoLectura parcial = protocolo.leerMemoriaROM(chip16f628a, null,
+                (datos, offset, longitud) -> {
+                    tokenLectura.cancelar();
+                    return true;
+                });
+        assertTrue(parcial.fueCancelada());
+        assertFalse(parcial.tieneDatosUtilizables());
+        assertTrue(parcial.getLongitud() > 0 && parcial.getLongitud() < chip16f628a.getTamanoROM() * 2);
+
+        // 3. Tras la cancelación el programador queda operativo
+        TokenCancelacion tokenFinal = new TokenCancelacion();
+        protocolo.setTokenCancelacion(tokenFinal);
+        assertTrue(protocolo.borrarMemoriasDelPic());
+        assertTrue("Debe poder grabar tras una cancelación", protocolo.programarMemoriaROMDelPic(chip16f628a, datosPic));
+
+        // La lectura posterior a la grabación no pisa el progreso en bloques
+        assertEquals(tokenFinal.getTotal(), tokenFinal.getCompletados());
+        assertTrue(tokenFinal.getTotal() <= chip16f628a.getTamanoROM() * 2 / 32);
+        protocolo.setTokenCancelacion(null);
+    }
+
+    @Test
+    public void testCancelacionAMitadDeGrabacionDejaElFirmwareOperativo() throws Exception {
+        assumeTrue("Solo con el firmware simulado", simulador != null);
+        // Enlace lento y esperas reales: la cancelación llega con la secuencia en curso
+        simulador.setLatencia(20_000L, 200_000L);
+        simulador.setEsperaReal(true);
+        assertTrue(protocolo.iniciarVariablesDeProgramacion(chip16f628a));
+        assertTrue(protocolo.borrarMemoriasDelPic());
+
+        DatosPicProcesados datosPic = crearImagen16F628A();
+        byte[] rom = datosPic.obtenerBytesHexROMProcesado();
+        byte[] eeprom = datosPic.obtenerBytesHexEEPROMProcesado();
+
+        // 1. ROM: cancelar al confirmarse el tercer bloque
+        protocolo.setTokenCancelacion(new TokenCancelacion() {
+            @Override
+            public void registrarProgreso(int completados, int total) {
+                super.registrarProgreso(completados, total);
+                if (completados == 3) {
+                    cancelar();
+                }
+            }
+        });
+        assertFalse(protocolo.programarMemoriaROMDelPic(chip16f628a, datosPic));
+        // Los bloques ya en vuelo se confirman; el relleno en blanco no cuenta como progreso
+        int completados = protocolo.getTokenCancelacion().getCompletados();
+        assertTrue(completados >= 3 && completados < protocolo.getTokenCancelacion().getTotal());
+        assertFalse("Los voltajes deben quedar desactivados", simulador.isVoltajesActivos());
+
+        // 2. EEPROM: cancelar tras la cuarta unidad
+        protocolo.setTokenCancelacion(new TokenCancelacion() {
+            @Override
+            public void registrarProgreso(int completados, int total) {
+                super.registrarProgreso(completados, total);
+                if (completados >= 4) {
+                    cancelar();
+                }
+            }
+        });
+        assertFalse(protocolo.programarMemoriaEEPROMDelPic(chip16f628a, datosPic));
+        assertFalse("Los voltajes deben quedar desactivados", simulador.isVoltajesActivos());
+
+        // 3. El enlace sigue sincronizado: la grabación siguiente completa y es exacta
+        protocolo.setTokenCancelacion(null);
+        simulador.setLatencia(0, 0);
+        assertTrue(protocolo.borrarMemoriasDelPic());
+        assertTrue(protocolo.programarMemoriaROMDelPic(chip16f628a, datosPic));
+        assertTrue(protocolo.programarMemoriaEEPROMDelPic(chip16f628a, datosPic));
+        assertArrayEquals(rom, Arrays.copyOf(simulador.getROM(), rom.length));
+        assertArrayEquals(eeprom, Arrays.copyOf(simulador.getEEPROM(), eeprom.length));
+    }
+
+    @Test
+    public void testSimuladorRecibeLaImagenExactaDeROMyEEPROM() throws Exception {
+        assumeTrue("Solo con el firmware simulado", simulador != null);
+        assertTrue(protocolo.iniciarVariablesDeProgramacion(chip16f628a));
+        assertTrue(protocolo.borrarMemoriasDelPic());
+
+        DatosPicProcesados datosPic = crearImagen16F628A();
+        byte[] rom = datosPic.obtenerBytesHexROMProcesado();
+        byte[] eeprom = datosPic.obtenerBytesHexEEPROMProcesado();
+
+        assertTrue(protocolo.programarMemoriaROMDelPic(chip16f628a, datosPic));
+        assertTrue(protocolo.programarMemoriaEEPROMDelPic(chip16f628a, datosPic));
+
+        assertArrayEquals(rom, Arrays.copyOf(simulador.getROM(), rom.length));
+        assertArrayEquals(eeprom, Arrays.copyOf(simulador.getEEPROM(), eeprom.length));
+        assertFalse("Los voltajes deben quedar desactivados", simulador.isVoltajesActivos());
+        assertFalse(protocolo.verificarSiEstaBorradaLaMemoriaROMDelPic(chip16f628a));
+    }
+
+    @Test
+    public void testProgramacionDiferencialDetectaOtroChipConLaMismaConfiguracion() throws Exception {
+        assumeTrue("Solo con el firmware simulado", simulador != null);
+        assertTrue(protocolo.iniciarVariablesDeProgramacion(chip16f628a));
+        PicProgrammingManager manager = new PicProgrammingManager(mockContext);
+        manager.setProtocolo(protocolo);
+
+        DatosPicProcesados datosA = crearImagen16F628A();
+        byte[] romA = datosA.obtenerBytesHexROMProcesado();
+        DatosPicProcesados datosB = crearImagen16F628A();
+        byte[] romB = datosB.obtenerBytesHexROMProcesado();
+        romB[1] ^= 0x01;
+        List<Integer> sinFuses = new ArrayList<>();
+
+        assertTrue(manager.programChipDiferencial(chip16f628a, datosA, new byte[] { 0 }, sinFuses));
+
+        // Otro chip con la misma configuración y distinta cola: la clave coincide, pero la
+        // lectura posterior al prefijo lo delata y se programa completo
+        byte[] enChip = simulador.getROM();
+        Arrays.fill(enChip, 2000, 2100, (byte) 0);
+        assertTrue(manager.programChipDiferencial(chip16f628a, datosB, new byte[] { 0 }, sinFuses));
+        assertArrayEquals(romB, Arrays.copyOf(simulador.getROM(), romB.length));
+
+        // El mismo chip otra vez: basta con el prefijo y el resultado es exacto
+        assertTrue(manager.programChipDiferencial(chip16f628a, datosA, new byte[] { 0 }, sinFuses));
+        assertArrayEquals(romA, Arrays.copyOf(simulador.getROM(), romA.length));
+    }
+
+    @Test
+    public void testMetricasPorComandoCuentanBytesYTimeouts() throws Exception {
+        assumeTrue("Solo con el firmware simulado", simulador != null);
+        com.diamon.nucleo.MetricasProtocolo metricas = protocolo.getMetricas();
+        metricas.reiniciar();
+
+        assertTrue(protocolo.iniciarVariablesDeProgramacion(chip16f628a));
+        assertTrue(protocolo.borrarMemoriasDelPic());
+        String rom = protocolo.leerMemoriaROMDelPic(chip16f628a);
+        assertFalse(rom.startsWith("Error"));
+
+        // El volcado de ROM se anota bajo el comando que lo pidió
+        com.diamon.nucleo.MetricasProtocolo.Operacion volcado = metricas.getOperacion("comando_11");
+        assertNotNull(volcado);
+        assertEquals(1, volcado.getEscrituras());
+        assertEquals(chip16f628a.getTamanoROM() * 2, volcado.getBytesLeidos());
+        assertEquals(volcado.getLecturas(), volcado.getLatenciaLectura().getMuestras());
+
+        com.diamon.nucleo.MetricasProtocolo.Operacion variables = metricas.getOperacion("configuracion_chip");
+        assertEquals(11, variables.getBytesEscritos());
+        assertEquals(1, variables.getBytesLeidos());
+
+        // Sin chip en el socket, la espera de la 'Y' termina en timeout y queda registrada
+        simulador.setChipEnSocket(false);
+        try {
+            protocolo.detectarPicEnElSocket();
+        } catch (RuntimeException esperado) {
+            // El timeout llega envuelto, como con el programador real
+        }
+        assertTrue(metricas.getOperacion("comando_18").getTimeouts() >= 1);
+        assertTrue(metricas.aJson().contains("\"operacion\": \"comando_11\""));
+    }
+
+    @Test
+    public void testFallosDeEnlaceSoloCuentanTimeouts() throws Exception {
+        assumeTrue("Solo con el firmware simulado", simulador != null);
+        int fallosIniciales = protocolo.getFallosDeEnlace();
+
+        // Una grabación correcta y una lectura no dejan fallos del enlace
+        assertTrue(protocolo.iniciarVariablesDeProgramacion(chip16f628a));
+        assertTrue(protocolo.borrarMemoriasDelPic());
+        assertFalse(protocolo.leerMemoriaROMDelPic(chip16f628a).startsWith("Error"));
+        assertEquals(fallosIniciales, protocolo.getFallosDeEnlace());
+
+        // Un timeout sí cuenta, y el enlace se recupera vaciando la recepción
+        simulador.setChipEnSocket(false);
+        try {
+            protocolo.detectarPicEnElSocket();
+        } catch (RuntimeException esperado) {
+            // El timeout llega envuelto, como con el programador real
+        }
+        assertTrue(protocolo.getFallosDeEnlace() > fallosIniciales);
+        assertTrue(protocolo.resincronizar());
+        simulador.setChipEnSocket(true);
+        assertTrue(protocolo.detectarPicEnElSocket());
+    }
+
+    @Test
+    public void testPruebaDeVentanaROMSoloLaActivaSiLaLecturaCoincide() throws Exception {
+        assumeTrue("Solo con el firmware simulado", simulador != null);
+        assertTrue(protocolo.iniciarVariablesDeProgramacion(chip16f628a));
+
+        // 1. Sin candidata no se prueba nada y se mantiene el lock-step
+        assertEquals(1, protocolo.getVentanaEscrituraROM());
+        assertFalse(protocolo.probarVentanaEscrituraROM(chip16f628a));
+
+        // 2. Un chip OTP no se puede borrar: no se graba el patrón y la candidata sigue pendiente
+        ChipPic chipOTP = new ChipPic(
+                "16C620A",
+                "Y",
+                "18pin",
+                "2",
+                "N",
+                "Vpp2Vcc",
+                "50",
+                "1",
+                "0",
+                "bit14_B",
+                "000800",
+                "00000080",
+                new String[] { "3FFF" },
+                "N",
+                "N",
+                "N",
+                "N",
+                "1060",
+                new HashMap<>());
+        protocolo.setVentanaEscrituraROMCandidata(ProtocoloP18A.VENTANA_MAXIMA_ROM);
+        assertTrue(protocolo.borrarMemoriasDelPic());
+        assertFalse(protocolo.probarVentanaEscrituraROM(chipOTP));
+        assertEquals(1, protocolo.getVentanaEscrituraROM());
+        assertEquals(ProtocoloP18A.VENTANA_MAXIMA_ROM, protocolo.getVentanaEscrituraROMCandidata());
+        assertTrue("El chip OTP sigue en blanco", protocolo.verificarSiEstaBorradaLaMemoriaROMDelPic(chipOTP));
+
+        // 3. Enlace fiel: el patrón se lee igual y la ventana pasa a usarse
+        assertTrue(protocolo.probarVentanaEscrituraROM(chip16f628a));
+        assertEquals(ProtocoloP18A.VENTANA_MAXIMA_ROM, protocolo.getVentanaEscrituraROM());
+        assertEquals(1, protocolo.getVentanaEscrituraROMCandidata());
+        assertFalse("El patrón queda grabado", protocolo.verificarSiEstaBorradaLaMemoriaROMDelPic(chip16f628a));
+
+        // 4. Un bloque alterado en el camino se confirma igual, pero la lectura lo delata
+        protocolo.setVentanaEscrituraROM(1);
+        protocolo.setVentanaEscrituraROMCandidata(ProtocoloP18A.VENTANA_MAXIMA_ROM);
+        assertTrue(protocolo.borrarMemoriasDelPic());
+        boolean[] alterado = { false };
+        doAnswer(invocation -> {
+            byte[] src = invocation.getArgument(0);
+            if (src.length == 32 && !alterado[0]) {
+                alterado[0] = true;
+                src = src.clone();
+                src[5] ^= 0x01;
+            }
+            simulador.escribir(src, src.length);
+            return null;
+        }).when(mockUsbPort).write(any(byte[].class), anyInt());
+
+        assertFalse(protocolo.probarVentanaEscrituraROM(chip16f628a));
+        assertTrue(alterado[0]);
+        assertEquals("Debe seguir en lock-step", 1, protocolo.getVentanaEscrituraROM());
+        assertEquals("La candidata queda resuelta", 1, protocolo.getVentanaEscrituraROMCandidata());
+        assertTrue(protocolo.borrarMemoriasDelPic());
+    }
 }
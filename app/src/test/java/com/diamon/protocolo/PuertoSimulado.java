@@ -0,0 +1,54 @@
+package com.diamon.protocolo;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.hoho.android.usbserial.driver.UsbSerialPort;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Puerto USB de prueba conectado a un {@link SimuladorK150}.
+ */
+public final class PuertoSimulado {
+
+    private PuertoSimulado() {}
+
+    /**
+     * @param simulador Simulador fijo al otro lado del puerto
+     * @return Puerto simulado
+     */
+    public static UsbSerialPort crear(SimuladorK150 simulador) {
+        return crear(() -> simulador);
+    }
+
+    /**
+     * @param simulador Devuelve el simulador en cada transferencia; permite cambiar el chip
+     *                  del socket sin volver a crear el puerto
+     * @return Puerto simulado
+     */
+    public static UsbSerialPort crear(Supplier<SimuladorK150> simulador) {
+        UsbSerialPort puerto = mock(UsbSerialPort.class);
+        try {
+            doAnswer(invocation -> {
+                byte[] src = invocation.getArgument(0);
+                simulador.get().escribir(src, src.length);
+                return null;
+            }).when(puerto).write(any(byte[].class), anyInt());
+
+            when(puerto.read(any(byte[].class), anyInt())).thenAnswer(invocation -> {
+                byte[] dest = invocation.getArgument(0);
+                int timeout = invocation.getArgument(1);
+                return simulador.get().leer(dest, dest.length, timeout);
+            });
+        } catch (IOException e) {
+            // No ocurre: el mock solo registra las respuestas
+            throw new IllegalStateException(e);
+        }
+        return puerto;
+    }
+}
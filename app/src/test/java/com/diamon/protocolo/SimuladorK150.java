@@ -0,0 +1,587 @@
+package com.diamon.protocolo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Firmware P18A del K150 simulado en memoria, sin procesos ni pseudo-terminales.
+ *
+ * <p>Reproduce la máquina de estados del firmware byte a byte: espera de la tabla de saltos
+ * ('P'), bucle de comandos y las fases de datos de cada comando, con las mismas respuestas
+ * que el emulador externo. Las respuestas se generan al escribir, por lo que una lectura sin
+ * datos pendientes nunca recibiría nada: en lugar de esperar el timeout se devuelve 0 y el
+ * tiempo se suma a un reloj simulado. Así las pruebas son deterministas y tardan milisegundos.
+ *
+ * <p>La latencia del enlace se configura por byte y por transferencia. Por defecto solo avanza
+ * el reloj simulado; con {@link #setEsperaReal(boolean)} también se espera de verdad, para
+ * medir tiempos de pared parecidos a los de un programador real.
+ *
+ * <p>Cada instancia es independiente y debe usarse desde un solo hilo, igual que un puerto
+ * serie; varias instancias pueden ejecutarse en paralelo.
+ *
+ * @author Danielk10
+ * @version 1.0
+ * @since 2025
+ */
+public class SimuladorK150 {
+
+    /** Bytes del bloque de configuración del comando 13 */
+    public static final int TAMANO_CONFIGURACION = 26;
+
+    /** Versión que informa el comando 20: 3 = K150 */
+    public static final int VERSION_K150 = 3;
+
+    private static final int TAMANO_BLOQUE_ROM = 32;
+    private static final int INICIO_ID = 2;
+    private static final int INICIO_FUSES = 10;
+    private static final int FIN_FUSES = 24;
+
+    /** Memorias y datos fijos de un chip */
+    public static final class ModeloChip {
+        public final String nombre;
+        public final int chipId;
+        public final int bitsNucleo;
+        public final int palabrasROM;
+        public final int bytesEEPROM;
+        public final int calibracion;
+
+        /**
+         * @param nombre Modelo del chip
+         * @param chipId Identificador que devuelve la lectura de configuración (bytes 0-1, LE)
+         * @param bitsNucleo Bits por palabra de ROM (12, 14 o 16)
+         * @param palabrasROM Capacidad de la ROM en palabras
+         * @param bytesEEPROM Capacidad de la EEPROM en bytes
+         * @param calibracion Valor de calibración de fábrica
+         */
+        public ModeloChip(
+                String nombre,
+                int chipId,
+                int bitsNucleo,
+                int palabrasROM,
+                int bytesEEPROM,
+                int calibracion) {
+            this.nombre = nombre;
+            this.chipId = chipId;
+            this.bitsNucleo = bitsNucleo;
+            this.palabrasROM = palabrasROM;
+            this.bytesEEPROM = bytesEEPROM;
+            this.calibracion = calibracion;
+        }
+
+        public static ModeloChip pic16F628A() {
+            return new ModeloChip("16F628A", 0x1060, 14, 0x0800, 0x80, 0x0000);
+        }
+
+        public static ModeloChip pic12F675() {
+            return new ModeloChip("12F675", 0x0FC0, 14, 0x0400, 0x80, 0x3480);
+        }
+
+        /** Mismo identificador que reporta el emulador externo para este chip */
+        public static ModeloChip pic18F2550() {
+            return new ModeloChip("18F2550", 0x1220, 16, 0x4000, 0x100, 0x0000);
+        }
+
+        /** Chip sin identificador con memoria suficiente para cualquiera de los anteriores */
+        public static ModeloChip generico() {
+            return new ModeloChip("generico", 0x0000, 16, 0x4000, 0x100, 0x0000);
+        }
+
+        /** @return Palabra de ROM borrada: todos los bits del núcleo a 1 */
+        public int palabraEnBlanco() {
+            return ~(0xFFFF << bitsNucleo) & 0xFFFF;
+        }
+    }
+
+    private enum Estado {
+        ESPERANDO_SALTO,
+        COMANDO,
+        PARAMETROS,
+        DATOS_ROM,
+        DATOS_EEPROM,
+        RELLENO_EEPROM
+    }
+
+    private final ModeloChip modelo;
+    private final byte[] rom;
+    private final byte[] eeprom;
+    private final byte[] configuracion = new byte[TAMANO_CONFIGURACION];
+
+    private Estado estado = Estado.ESPERANDO_SALTO;
+    private int comando;
+    private final byte[] parametros = new byte[24];
+    private int parametrosEsperados;
+    private int parametrosRecibidos;
+
+    /** Tamaños declarados por el comando 3 */
+    private int palabrasDeclaradas;
+    private int bytesEEPROMDeclarados;
+
+    private int bytesPorEscribir;
+    private int bytesEscritos;
+
+    private byte[] salida = new byte[256];
+    private int inicioSalida;
+    private int finSalida;
+
+    // Lo cambia el hilo de la prueba mientras el firmware atiende al del programador
+    private volatile boolean chipEnSocket = true;
+    private boolean voltajesActivos;
+    private int vectorDepuracion;
+
+    private long nanosPorByte;
+    private long nanosPorTransferencia;
+    private boolean esperaReal;
+    private long tiempoSimuladoNanos;
+    private long bytesRecibidos;
+    private long bytesEnviados;
+
+    public SimuladorK150() {
+        this(ModeloChip.generico());
+    }
+
+    /**
+     * @param modelo Chip colocado en el socket
+     */
+    public SimuladorK150(ModeloChip modelo) {
+        this.modelo = modelo;
+        this.rom = new byte[modelo.palabrasROM * 2];
+        this.eeprom = new byte[modelo.bytesEEPROM];
+        this.palabrasDeclaradas = modelo.palabrasROM;
+        this.bytesEEPROMDeclarados = modelo.bytesEEPROM;
+        borrarChip();
+        Arrays.fill(configuracion, INICIO_ID, FIN_FUSES, (byte) 0xFF);
+        // El chip ID viaja en little-endian, igual que los fuses
+        configuracion[0] = (byte) modelo.chipId;
+        configuracion[1] = (byte) (modelo.chipId >> 8);
+        configuracion[24] = (byte) (modelo.calibracion >> 8);
+        configuracion[25] = (byte) modelo.calibracion;
+    }
+
+    // ========== CONFIGURACIÓN DE LA SIMULACIÓN ==========
+
+    /**
+     * Configura la latencia del enlace serie.
+     *
+     * @param nanosPorByte Tiempo de cada byte en el cable, en cualquier sentido
+     * @param nanosPorTransferencia Tiempo fijo de cada escritura o lectura con datos
+     */
+    public void setLatencia(long nanosPorByte, long nanosPorTransferencia) {
+        this.nanosPorByte = Math.max(0, nanosPorByte);
+        this.nanosPorTransferencia = Math.max(0, nanosPorTransferencia);
+    }
+
+    /**
+     * Configura la latencia equivalente a una velocidad en baudios (10 bits por byte).
+     *
+     * @param baudios Velocidad del enlace
+     */
+    public void setBaudios(int baudios) {
+        setLatencia(10_000_000_000L / baudios, nanosPorTransferencia);
+    }
+
+    /**
+     * @param esperaReal true para dormir la latencia y los timeouts en lugar de solo sumarlos
+     *     al reloj simulado
+     */
+    public void setEsperaReal(boolean esperaReal) {
+        this.esperaReal = esperaReal;
+    }
+
+    /**
+     * Coloca o retira el chip del socket; los comandos de detección responden en consecuencia.
+     *
+     * @param chipEnSocket true si hay un chip en el socket
+     */
+    public void setChipEnSocket(boolean chipEnSocket) {
+        this.chipEnSocket = chipEnSocket;
+    }
+
+    /** Vuelve al arranque del firmware: tabla de saltos y sin respuestas pendientes */
+    public void reiniciar() {
+        estado = Estado.ESPERANDO_SALTO;
+        voltajesActivos = false;
+        inicioSalida = 0;
+        finSalida = 0;
+    }
+
+    // ========== PUERTO SERIE ==========
+
+    /**
+     * Entrega bytes al firmware, que los procesa en el acto.
+     *
+     * @param datos Bytes recibidos del host
+     * @param longitud Bytes válidos de {@code datos}
+     */
+    public void escribir(byte[] datos, int longitud) {
+        esperar(longitud * nanosPorByte + nanosPorTransferencia);
+        bytesRecibidos += longitud;
+        for (int i = 0; i < longitud; i++) {
+            procesar(datos[i] & 0xFF);
+        }
+    }
+
+    /**
+     * Lee las respuestas pendientes del firmware, como el controlador USB: devuelve lo que
+     * haya disponible sin esperar a llenar el destino.
+     *
+     * @param destino Búfer de lectura
+     * @param maximo Bytes máximos a copiar
+     * @param timeoutMs Espera si no hay datos
+     * @return Bytes copiados, o 0 si venció el timeout
+     */
+    public int leer(byte[] destino, int maximo, int timeoutMs) {
+        int disponibles = finSalida - inicioSalida;
+        if (disponibles == 0) {
+            esperar(timeoutMs * 1_000_000L);
+            return 0;
+        }
+        int copiados = Math.min(disponibles, maximo);
+        System.arraycopy(salida, inicioSalida, destino, 0, copiados);
+        inicioSalida += copiados;
+        if (inicioSalida == finSalida) {
+            inicioSalida = 0;
+            finSalida = 0;
+        }
+        bytesEnviados += copiados;
+        esperar(copiados * nanosPorByte + nanosPorTransferencia);
+        return copiados;
+    }
+
+    /** @return Bytes pendientes de lectura */
+    public int disponibles() {
+        return finSalida - inicioSalida;
+    }
+
+    private void esperar(long nanos) {
+        tiempoSimuladoNanos += nanos;
+        if (esperaReal && nanos > 0) {
+            LockSupport.parkNanos(nanos);
+        }
+    }
+
+    // ========== MÁQUINA DE ESTADOS DEL FIRMWARE ==========
+
+    private void procesar(int b) {
+        switch (estado) {
+            case ESPERANDO_SALTO:
+                if (b == 'P') {
+                    responder('P');
+                    estado = Estado.COMANDO;
+                } else if (b == 1) {
+                    responder('Q');
+                }
+                break;
+            case COMANDO:
+                iniciarComando(b);
+                break;
+            case PARAMETROS:
+                parametros[parametrosRecibidos++] = (byte) b;
+                if (parametrosRecibidos == parametrosEsperados) {
+                    estado = Estado.COMANDO;
+                    completarComando();
+                }
+                break;
+            case DATOS_ROM:
+                if (bytesEscritos < rom.length) {
+                    rom[bytesEscritos] = (byte) b;
+                }
+                bytesEscritos++;
+                if (bytesEscritos % TAMANO_BLOQUE_ROM == 0) {
+                    responder('Y');
+                }
+                if (bytesEscritos >= bytesPorEscribir) {
+                    responder('P');
+                    estado = Estado.COMANDO;
+                }
+                break;
+            case DATOS_EEPROM:
+                if (bytesEscritos < eeprom.length) {
+                    eeprom[bytesEscritos] = (byte) b;
+                }
+                bytesEscritos++;
+                if (bytesEscritos % 2 == 0) {
+                    responder('Y');
+                }
+                if (bytesEscritos >= bytesPorEscribir) {
+                    bytesEscritos = 0;
+                    estado = Estado.RELLENO_EEPROM;
+                }
+                break;
+            case RELLENO_EEPROM:
+                if (++bytesEscritos == 2) {
+                    responder('P');
+                    estado = Estado.COMANDO;
+                }
+                break;
+        }
+    }
+
+    private void iniciarComando(int cmd) {
+        comando = cmd;
+        switch (cmd) {
+            case 0:
+                break;
+            case 1:
+                responder('Q');
+                estado = Estado.ESPERANDO_SALTO;
+                break;
+            case 2:
+                esperarParametros(1);
+                break;
+            case 3:
+                esperarParametros(11);
+                break;
+            case 4:
+            case 6:
+                voltajesActivos = true;
+                responder('V');
+                break;
+            case 5:
+                voltajesActivos = false;
+                responder('v');
+                break;
+            case 7:
+            case 8:
+                esperarParametros(2);
+                break;
+            case 9:
+            case 0x11:
+                esperarParametros(24);
+                break;
+            case 10:
+                esperarParametros(4);
+                break;
+            case 11:
+                volcar(rom, palabrasDeclaradas * 2, 0xFF);
+                break;
+            case 12:
+                volcar(eeprom, bytesEEPROMDeclarados, 0xFF);
+                break;
+            case 13:
+                responder('C');
+                responder(configuracion, 0, TAMANO_CONFIGURACION);
+                break;
+            case 14:
+                borrarChip();
+                Arrays.fill(configuracion, INICIO_ID, FIN_FUSES, (byte) 0xFF);
+                responder('Y');
+                break;
+            case 15:
+                esperarParametros(1);
+                break;
+            case 16:
+                responder(esEEPROMEnBlanco() ? 'Y' : 'N');
+                break;
+            case 18:
+                responder('A');
+                if (chipEnSocket) {
+                    responder('Y');
+                }
+                break;
+            case 19:
+                responder('A');
+                if (!chipEnSocket) {
+                    responder('Y');
+                }
+                break;
+            case 20:
+                responder(VERSION_K150);
+                break;
+            case 21:
+                byte[] protocolo = "P18A".getBytes(StandardCharsets.US_ASCII);
+                responder(protocolo, 0, protocolo.length);
+                break;
+            case 22:
+                esperarParametros(3);
+                break;
+            case 23:
+                responder(0xEF);
+                responder(vectorDepuracion >> 16);
+                responder(vectorDepuracion >> 8);
+                responder(vectorDepuracion);
+                break;
+            default:
+                // Comando desconocido: el firmware lo ignora y sigue en el bucle
+                break;
+        }
+    }
+
+    private void esperarParametros(int cantidad) {
+        parametrosEsperados = cantidad;
+        parametrosRecibidos = 0;
+        estado = Estado.PARAMETROS;
+    }
+
+    private void completarComando() {
+        switch (comando) {
+            case 2:
+                responder(parametros[0]);
+                break;
+            case 3:
+                palabrasDeclaradas = leerCorto(0);
+                bytesEEPROMDeclarados = leerCorto(2);
+                responder('I');
+                break;
+            case 7:
+                iniciarEscritura(Estado.DATOS_ROM, leerCorto(0) * 2);
+                break;
+            case 8:
+                iniciarEscritura(Estado.DATOS_EEPROM, leerCorto(0));
+                break;
+            case 9:
+                // "00" seguido del ID y los fuses tal como los envía el host
+                System.arraycopy(parametros, 2, configuracion, INICIO_ID, FIN_FUSES - INICIO_ID);
+                responder('Y');
+                break;
+            case 0x11:
+                // 10 bytes de ID ignorados seguidos de los 7 fuses de un 18F
+                System.arraycopy(parametros, 10, configuracion, INICIO_FUSES, FIN_FUSES - INICIO_FUSES);
+                responder('Y');
+                break;
+            case 10:
+                configuracion[24] = parametros[0];
+                configuracion[25] = parametros[1];
+                configuracion[INICIO_FUSES] = parametros[3];
+                configuracion[INICIO_FUSES + 1] = parametros[2];
+                responder('Y');
+                break;
+            case 15:
+                responder(esROMEnBlanco(parametros[0] & 0xFF) ? 'Y' : 'N');
+                break;
+            case 22:
+                vectorDepuracion =
+                        ((parametros[0] & 0xFF) << 16)
+                                | ((parametros[1] & 0xFF) << 8)
+                                | (parametros[2] & 0xFF);
+                responder('Y');
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void iniciarEscritura(Estado fase, int bytes) {
+        responder('Y');
+        bytesPorEscribir = bytes;
+        bytesEscritos = 0;
+        if (bytes == 0) {
+            estado = fase == Estado.DATOS_ROM ? Estado.COMANDO : Estado.RELLENO_EEPROM;
+            if (fase == Estado.DATOS_ROM) {
+                responder('P');
+            }
+        } else {
+            estado = fase;
+        }
+    }
+
+    private int leerCorto(int posicion) {
+        return ((parametros[posicion] & 0xFF) << 8) | (parametros[posicion + 1] & 0xFF);
+    }
+
+    private void volcar(byte[] memoria, int longitud, int relleno) {
+        int copiables = Math.min(longitud, memoria.length);
+        responder(memoria, 0, copiables);
+        for (int i = copiables; i < longitud; i++) {
+            responder(relleno);
+        }
+    }
+
+    private void borrarChip() {
+        int blanco = modelo.palabraEnBlanco();
+        for (int i = 0; i < rom.length; i += 2) {
+            rom[i] = (byte) (blanco >> 8);
+            rom[i + 1] = (byte) blanco;
+        }
+        Arrays.fill(eeprom, (byte) 0xFF);
+    }
+
+    /** Una palabra está en blanco si su byte bajo es 0xFF y tiene a 1 los bits del byte alto */
+    private boolean esROMEnBlanco(int byteAlto) {
+        int limite = Math.min(palabrasDeclaradas * 2, rom.length);
+        for (int i = 0; i < limite; i += 2) {
+            if (((rom[i] & byteAlto) & 0xFF) != byteAlto || (rom[i + 1] & 0xFF) != 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean esEEPROMEnBlanco() {
+        int limite = Math.min(bytesEEPROMDeclarados, eeprom.length);
+        for (int i = 0; i < limite; i++) {
+            if (eeprom[i] != (byte) 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void responder(int b) {
+        asegurarSalida(1);
+        salida[finSalida++] = (byte) b;
+    }
+
+    private void responder(byte[] datos, int inicio, int longitud) {
+        asegurarSalida(longitud);
+        System.arraycopy(datos, inicio, salida, finSalida, longitud);
+        finSalida += longitud;
+    }
+
+    private void asegurarSalida(int extra) {
+        if (finSalida + extra <= salida.length) {
+            return;
+        }
+        int pendientes = finSalida - inicioSalida;
+        if (pendientes + extra > salida.length) {
+            salida = Arrays.copyOfRange(
+                    salida, inicioSalida, inicioSalida + Math.max(salida.length * 2, pendientes + extra));
+        } else {
+            System.arraycopy(salida, inicioSalida, salida, 0, pendientes);
+        }
+        inicioSalida = 0;
+        finSalida = pendientes;
+    }
+
+    // ========== ESTADO OBSERVABLE ==========
+
+    /** @return Modelo del chip en el socket */
+    public ModeloChip getModelo() {
+        return modelo;
+    }
+
+    /** @return ROM del chip (2 bytes por palabra, big-endian); se puede modificar */
+    public byte[] getROM() {
+        return rom;
+    }
+
+    /** @return EEPROM del chip; se puede modificar */
+    public byte[] getEEPROM() {
+        return eeprom;
+    }
+
+    /** @return Copia del bloque que devuelve el comando 13 */
+    public byte[] getConfiguracion() {
+        return configuracion.clone();
+    }
+
+    /** @return true si los voltajes de programación están activos */
+    public boolean isVoltajesActivos() {
+        return voltajesActivos;
+    }
+
+    /** @return Tiempo acumulado de latencias y timeouts simulados */
+    public long getTiempoSimuladoNanos() {
+        return tiempoSimuladoNanos;
+    }
+
+    /** @return Bytes recibidos del host */
+    public long getBytesRecibidos() {
+        return bytesRecibidos;
+    }
+
+    /** @return Bytes leídos por el host */
+    public long getBytesEnviados() {
+        return bytesEnviados;
+    }
+}
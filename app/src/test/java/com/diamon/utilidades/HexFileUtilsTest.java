@@ -0,0 +1,27 @@
+package com.diamon.utilidades;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class HexFileUtilsTest {
+
+    @Test
+    public void diferencia_debeLlegarHastaLaUltimaPalabraDistintaDentroDelNucleo() {
+        byte[] actual = HexFileUtils.generateRomBlank(14, 64);
+        byte[] nueva = actual.clone();
+        assertEquals(0, HexFileUtils.contarPalabrasHastaUltimaDiferencia(actual, actual.length, nueva, 64, 14));
+
+        // Cambian las palabras 3 y 20: hay que reescribir desde 0 hasta la 20 inclusive
+        nueva[6] = 0x12;
+        nueva[40] = 0x05;
+        assertEquals(21, HexFileUtils.contarPalabrasHastaUltimaDiferencia(actual, actual.length, nueva, 64, 14));
+
+        // Los bits fuera del núcleo no cuentan y una lectura corta obliga a reescribir todo
+        byte[] fueraDeNucleo = actual.clone();
+        fueraDeNucleo[0] = (byte) 0xFF;
+        assertEquals(0, HexFileUtils.contarPalabrasHastaUltimaDiferencia(
+                actual, actual.length, fueraDeNucleo, 64, 14));
+        assertEquals(64, HexFileUtils.contarPalabrasHastaUltimaDiferencia(actual, 10, nueva, 64, 14));
+    }
+}
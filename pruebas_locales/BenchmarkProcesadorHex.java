@@ -0,0 +1,114 @@
+import android.content.Context;
+import com.diamon.datos.ProcesadorHex;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Benchmark del parser Intel HEX de ProcesadorHex.
+ *
+ * <p>Genera un archivo HEX sintético de registros de 16 bytes y compara el throughput del parser
+ * (sobre String y sobre un flujo de bytes) con un recorrido mínimo de los mismos caracteres,
+ * que marca el límite impuesto por el ancho de banda de memoria. Un cociente cercano a 1 indica que el parser
+ * está limitado por la lectura de la entrada y no por el cómputo por carácter.
+ *
+ * <p>Uso: {@code ./run_benchmark_hex.sh [MB]}
+ */
+public class BenchmarkProcesadorHex {
+
+    private static final int REPETICIONES = 15;
+
+    public static void main(String[] args) throws Exception {
+        int megas = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        String hex = generarHex(megas * 1024 * 1024);
+        byte[] hexBytes = hex.getBytes(StandardCharsets.US_ASCII);
+        Context context = new Context() {};
+
+        System.out.printf("Archivo HEX sintético: %.1f MB, %d registros%n",
+                hex.length() / 1048576.0, hex.length() / 44);
+
+        // Calentamiento del JIT
+        for (int i = 0; i < 5; i++) {
+            recorrer(hex);
+            recorrer(hexBytes);
+            new ProcesadorHex(context, hex);
+            new ProcesadorHex(context, new ByteArrayInputStream(hexBytes), null);
+        }
+
+        double recorridoChars = medir(() -> recorrer(hex), hex.length());
+        double recorridoBytes = medir(() -> recorrer(hexBytes), hexBytes.length);
+        double parserString = medir(() -> new ProcesadorHex(context, hex), hex.length());
+        double parserFlujo = medir(
+                () -> new ProcesadorHex(context, new ByteArrayInputStream(hexBytes), null), hexBytes.length);
+
+        System.out.printf("Recorrido de caracteres : %8.1f MB/s%n", recorridoChars);
+        System.out.printf("Recorrido de bytes      : %8.1f MB/s%n", recorridoBytes);
+        System.out.printf("Parser (CharSequence)   : %8.1f MB/s (%.0f%% del recorrido)%n",
+                parserString, 100.0 * parserString / recorridoChars);
+        System.out.printf("Parser (InputStream)    : %8.1f MB/s (%.0f%% del recorrido)%n",
+                parserFlujo, 100.0 * parserFlujo / recorridoBytes);
+    }
+
+    private interface Tarea {
+        void ejecutar() throws Exception;
+    }
+
+    /** Devuelve el mejor throughput (MB/s) de varias repeticiones. */
+    private static double medir(Tarea tarea, int tamano) throws Exception {
+        long mejor = Long.MAX_VALUE;
+        for (int i = 0; i < REPETICIONES; i++) {
+            long inicio = System.nanoTime();
+            tarea.ejecutar();
+            mejor = Math.min(mejor, System.nanoTime() - inicio);
+        }
+        return (tamano / 1048576.0) / (mejor / 1e9);
+    }
+
+    private static volatile int sumidero;
+
+    /** Recorrido mínimo que toca cada carácter una vez: cota superior de throughput. */
+    private static void recorrer(CharSequence texto) {
+        int suma = 0;
+        for (int i = 0, n = texto.length(); i < n; i++) {
+            suma += texto.charAt(i);
+        }
+        sumidero = suma;
+    }
+
+    private static void recorrer(byte[] datos) {
+        int suma = 0;
+        for (byte b : datos) {
+            suma += b;
+        }
+        sumidero = suma;
+    }
+
+    /** Genera registros de datos de 16 bytes con registros de dirección extendida cada 64 KB. */
+    private static String generarHex(int tamanoObjetivo) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(tamanoObjetivo + 64);
+        byte[] datos = new byte[16];
+        int direccion = 0;
+
+        while (sb.length() < tamanoObjetivo) {
+            if ((direccion & 0xFFFF) == 0) {
+                int alto = direccion >>> 16;
+                int suma = 2 + 4 + (alto >> 8) + (alto & 0xFF);
+                sb.append(String.format(":02000004%04X%02X\n", alto, (256 - (suma & 0xFF)) & 0xFF));
+            }
+            random.nextBytes(datos);
+            int bajo = direccion & 0xFFFF;
+            int suma = 16 + (bajo >> 8) + (bajo & 0xFF);
+            sb.append(String.format(":10%04X00", bajo));
+            for (byte b : datos) {
+                sb.append(String.format("%02X", b & 0xFF));
+                suma += b & 0xFF;
+            }
+            sb.append(String.format("%02X\n", (256 - (suma & 0xFF)) & 0xFF));
+            direccion += 16;
+        }
+        sb.append(":00000001FF\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,373 @@
+import android.content.Context;
+import com.diamon.chip.ChipPic;
+import com.diamon.datos.DatosPicProcesados;
+import com.diamon.managers.VerificationManager;
+import com.diamon.nucleo.ResultadoLectura;
+import com.diamon.protocolo.ProtocoloP18A;
+import com.diamon.protocolo.SimuladorK150;
+import com.diamon.protocolo.TipoProtocolo;
+import com.hoho.android.usbserial.driver.PtyUsbSerialPort;
+import com.hoho.android.usbserial.driver.SimuladorUsbSerialPort;
+import com.hoho.android.usbserial.driver.UsbSerialPort;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Benchmark del protocolo P18A contra el emulador K150.
+ *
+ * <p>Conduce {@link ProtocoloP18A} a través de {@link PtyUsbSerialPort} y mide cada operación de un
+ * ciclo de grabación (borrar, comprobar el blanco, programar, leer y verificar) con chips de núcleo
+ * de 12, 14 y 16 bits. La EEPROM se programa dos veces, en lock-step y con el lote máximo,
+ * para comparar ambos modos. Tras unas iteraciones de calentamiento registra por operación la latencia
+ * (mínimo, media, percentiles y máximo), el throughput en bytes por segundo de la memoria que
+ * recorre y los bytes asignados por el hilo, y emite el resultado como JSON para comparar
+ * ejecuciones y detectar regresiones.
+ *
+ * <p>La imagen de cada chip es sintética (toda la ROM con datos), de modo que no depende de
+ * archivos externos. Las operaciones fallidas se cuentan pero no se incluyen en las latencias.
+ *
+ * <p>Uso: {@code ./run_benchmark_protocolo.sh [python|cpp|sim] [iteraciones] [salida.json]}, o
+ * directamente {@code java BenchmarkProtocoloP18A <vtty|sim[:baudios[:latencia_us]]> [iteraciones] [salida.json|-]
+ * [prefijo_metricas]}. Con el prefijo se guardan además las métricas por comando del protocolo de
+ * cada chip, sin las iteraciones de calentamiento.
+ * Con {@code sim} el firmware se simula en el mismo proceso con {@link SimuladorK150}, sin emulador
+ * externo.
+ */
+public class BenchmarkProtocoloP18A {
+
+    private static final String VTTY_POR_DEFECTO = "/home/danielpdiamon/emulador_picpro/vtty";
+    private static final String SIMULADOR = "sim";
+    private static final int ITERACIONES_POR_DEFECTO = 5;
+    private static final int CALENTAMIENTO = 2;
+
+    private static final String[] OPERACIONES = {
+        "borrar", "verificar_borrado", "programar", "programar_eeprom_lock_step", "programar_eeprom",
+        "leer", "verificar"
+    };
+
+    public static void main(String[] args) throws Exception {
+        String vtty = args.length > 0 ? args[0] : VTTY_POR_DEFECTO;
+        int iteraciones = args.length > 1 ? Integer.parseInt(args[1]) : ITERACIONES_POR_DEFECTO;
+        String salida = args.length > 2 ? args[2] : "-";
+        String prefijoMetricas = args.length > 3 ? args[3] : null;
+
+        UsbSerialPort puerto;
+        if (vtty.equals(SIMULADOR) || vtty.startsWith(SIMULADOR + ":")) {
+            puerto = new SimuladorUsbSerialPort(crearSimulador(vtty));
+        } else {
+            File puertoVirtual = new File(vtty);
+            if (!puertoVirtual.exists()) {
+                System.err.println("El puerto virtual " + vtty + " no existe. ¿Está corriendo el emulador?");
+                System.exit(1);
+            }
+            puerto = new PtyUsbSerialPort(puertoVirtual);
+        }
+
+        Context context = new Context() {};
+        List<Resultado> resultados = new ArrayList<>();
+        try {
+            for (ChipPic chip : crearPerfiles()) {
+                resultados.addAll(medirChip(context, puerto, chip, iteraciones, prefijoMetricas));
+            }
+        } finally {
+            puerto.close();
+        }
+
+        String json = aJson(vtty, iteraciones, resultados);
+        if ("-".equals(salida)) {
+            System.out.println(json);
+        } else {
+            try (Writer escritor = new OutputStreamWriter(new FileOutputStream(salida), StandardCharsets.UTF_8)) {
+                escritor.write(json);
+            }
+            System.err.println("Resultados escritos en " + salida);
+        }
+    }
+
+    /**
+     * Crea el firmware simulado. Sin velocidad solo se mide el coste del protocolo en la CPU;
+     * con {@code sim:<baudios>} se espera además el tiempo real de cada byte en el enlace, y con
+     * {@code sim:<baudios>:<latencia_us>} también la latencia fija del puente USB en cada
+     * transferencia, que es lo que ahorran los lotes.
+     */
+    private static SimuladorK150 crearSimulador(String especificacion) {
+        SimuladorK150 simulador = new SimuladorK150();
+        String[] partes = especificacion.split(":");
+        if (partes.length > 2) {
+            // Latencia fija del puente USB en cada transferencia, en microsegundos
+            simulador.setLatencia(0, Long.parseLong(partes[2]) * 1_000L);
+        }
+        if (partes.length > 1) {
+            simulador.setBaudios(Integer.parseInt(partes[1]));
+            simulador.setEsperaReal(true);
+        }
+        return simulador;
+    }
+
+    /** Resultado agregado de una operación sobre un chip */
+    private static final class Resultado {
+        final String chip;
+        final int nucleo;
+        final String operacion;
+        final long bytes;
+        final long[] nanos;
+        final long[] asignados;
+        final int fallos;
+
+        Resultado(String chip, int nucleo, String operacion, long bytes, long[] nanos, long[] asignados, int fallos) {
+            this.chip = chip;
+            this.nucleo = nucleo;
+            this.operacion = operacion;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.asignados = asignados;
+            this.fallos = fallos;
+        }
+    }
+
+    private interface Operacion {
+        boolean ejecutar() throws Exception;
+    }
+
+    private static List<Resultado> medirChip(
+            Context context, UsbSerialPort puerto, ChipPic chip, int iteraciones, String prefijoMetricas)
+            throws Exception {
+        reiniciarEmulador(puerto);
+        ProtocoloP18A protocolo = new ProtocoloP18A(context, puerto, TipoProtocolo.P18A);
+        if (!protocolo.iniciarVariablesDeProgramacion(chip)) {
+            throw new IllegalStateException("El emulador no aceptó las variables de " + chip.getNombreDelPic());
+        }
+
+        DatosPicProcesados datos = new DatosPicProcesados(context, generarHex(chip), chip);
+        datos.iniciarProcesamientoDeDatos();
+        int bytesRom = chip.getTamanoROM() * 2;
+        int bytesEeprom = chip.getTamanoEEPROM();
+        int unidadesPorLote = ProtocoloP18A.UNIDADES_MAXIMAS_LOTE_EEPROM;
+        byte[] bufer = new byte[bytesRom];
+
+        Operacion[] operaciones = {
+            protocolo::borrarMemoriasDelPic,
+            () -> protocolo.verificarSiEstaBorradaLaMemoriaROMDelPic(chip),
+            () -> protocolo.programarMemoriaROMDelPic(chip, datos),
+            () -> programarEEPROM(protocolo, chip, datos, 1),
+            () -> programarEEPROM(protocolo, chip, datos, unidadesPorLote),
+            () -> protocolo.leerMemoriaROM(chip, bufer).esExitosa(),
+            () -> VerificationManager.verifyConChecksums(context, protocolo, chip, datos, false, false).romVerified
+        };
+        long[] bytesPorOperacion = { 0, bytesRom, bytesRom, bytesEeprom, bytesEeprom, bytesRom, bytesRom };
+
+        int muestras = CALENTAMIENTO + iteraciones;
+        long[][] nanos = new long[operaciones.length][iteraciones];
+        long[][] asignados = new long[operaciones.length][iteraciones];
+        int[] validas = new int[operaciones.length];
+        int[] fallos = new int[operaciones.length];
+
+        // Cada iteración es un ciclo completo, en el orden en que se graba un chip
+        for (int i = 0; i < muestras; i++) {
+            if (i == CALENTAMIENTO) {
+                protocolo.getMetricas().reiniciar();
+            }
+            for (int op = 0; op < operaciones.length; op++) {
+                long asignadosAntes = bytesAsignados();
+                long inicio = System.nanoTime();
+                boolean exito = operaciones[op].ejecutar();
+                long duracion = System.nanoTime() - inicio;
+                long asignadosOp = bytesAsignados() - asignadosAntes;
+
+                if (i < CALENTAMIENTO) {
+                    continue;
+                }
+                if (!exito) {
+                    fallos[op]++;
+                    continue;
+                }
+                nanos[op][validas[op]] = duracion;
+                asignados[op][validas[op]] = asignadosOp;
+                validas[op]++;
+            }
+        }
+
+        List<Resultado> resultados = new ArrayList<>();
+        for (int op = 0; op < operaciones.length; op++) {
+            resultados.add(new Resultado(
+                    chip.getNombreDelPic(),
+                    chip.getTipoDeNucleoBit(),
+                    OPERACIONES[op],
+                    bytesPorOperacion[op],
+                    Arrays.copyOf(nanos[op], validas[op]),
+                    Arrays.copyOf(asignados[op], validas[op]),
+                    fallos[op]));
+        }
+        if (prefijoMetricas != null) {
+            File archivo = new File(prefijoMetricas + "_" + chip.getNombreDelPic() + ".json");
+            protocolo.getMetricas().guardar(archivo);
+            System.err.println("Métricas por comando escritas en " + archivo);
+        }
+        return resultados;
+    }
+
+    /**
+     * Programa la EEPROM con las unidades por transferencia indicadas. Si el protocolo tuvo que
+     * volver a lock-step, la medida no corresponde a ese modo y se cuenta como fallo.
+     */
+    private static boolean programarEEPROM(
+            ProtocoloP18A protocolo, ChipPic chip, DatosPicProcesados datos, int unidades) throws Exception {
+        protocolo.setUnidadesPorLoteEEPROM(unidades);
+        return protocolo.programarMemoriaEEPROMDelPic(chip, datos)
+                && protocolo.getUnidadesPorLoteEEPROM() == unidades;
+    }
+
+    /** Devuelve el emulador al estado de espera de comando, como las pruebas de integración */
+    private static void reiniciarEmulador(UsbSerialPort puerto) throws Exception {
+        byte[] descarte = new byte[64];
+        while (puerto.read(descarte, 20) > 0) {
+            // Vaciar bytes residuales de la ejecución anterior
+        }
+        puerto.write(new byte[] { 0x01 }, 10);
+        puerto.read(new byte[1], 500);
+    }
+
+    /** Bytes asignados por el hilo actual, o -1 si la JVM no lo soporta */
+    private static long bytesAsignados() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /** Perfiles de chip: los mismos que usan las pruebas de integración */
+    private static List<ChipPic> crearPerfiles() throws Exception {
+        List<ChipPic> perfiles = new ArrayList<>();
+        perfiles.add(new ChipPic("12F675", "Y", "8pin", "2", "Y", "Vpp2Vcc", "80", "1", "0", "bit14_B",
+                "000400", "00000080", new String[] { "31FF" }, "N", "Y", "Y", "N", "0FC0", new HashMap<>()));
+        perfiles.add(new ChipPic("16F628A", "Y", "18pin", "2", "Y", "Vpp2Vcc", "50", "1", "0", "bit14_B",
+                "000800", "00000080", new String[] { "3FFF" }, "N", "N", "N", "N", "1060", new HashMap<>()));
+        perfiles.add(new ChipPic("18F2550", "Y", "28pin", "4", "Y", "VccVpp1", "10", "1", "05", "bit16_B",
+                "004000", "00000100", new String[] { "CF3F", "1F3F", "8700", "00E5", "C00F", "E00F", "400F" },
+                "N", "N", "N", "N", "1240", new HashMap<>()));
+        return perfiles;
+    }
+
+    /**
+     * Genera un HEX con toda la ROM ocupada por palabras que varían, en registros de 16 bytes y
+     * con las palabras en little-endian como las emite MPLAB.
+     */
+    private static String generarHex(ChipPic chip) throws Exception {
+        int palabras = chip.getTamanoROM();
+        int mascara = (1 << chip.getTipoDeNucleoBit()) - 1;
+        StringBuilder hex = new StringBuilder(palabras * 6);
+        byte[] registro = new byte[16];
+        for (int palabra = 0; palabra < palabras; palabra += 8) {
+            int n = Math.min(8, palabras - palabra);
+            for (int i = 0; i < n; i++) {
+                int valor = ((palabra + i) * 0x9E37 + 0x1234) & mascara;
+                registro[i * 2] = (byte) valor;
+                registro[i * 2 + 1] = (byte) (valor >> 8);
+            }
+            agregarRegistro(hex, palabra * 2, 0x00, registro, n * 2);
+        }
+        agregarRegistro(hex, 0, 0x01, registro, 0);
+        return hex.toString();
+    }
+
+    private static void agregarRegistro(StringBuilder hex, int direccion, int tipo, byte[] datos, int longitud) {
+        int suma = longitud + (direccion >> 8) + (direccion & 0xFF) + tipo;
+        hex.append(String.format(":%02X%04X%02X", longitud, direccion & 0xFFFF, tipo));
+        for (int i = 0; i < longitud; i++) {
+            hex.append(String.format("%02X", datos[i] & 0xFF));
+            suma += datos[i] & 0xFF;
+        }
+        hex.append(String.format("%02X\n", (-suma) & 0xFF));
+    }
+
+    private static String aJson(String vtty, int iteraciones, List<Resultado> resultados) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"benchmark\": \"ProtocoloP18A\",\n");
+        json.append("  \"fecha\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"emulador\": \"").append(escapar(vtty)).append("\",\n");
+        json.append("  \"calentamiento\": ").append(CALENTAMIENTO).append(",\n");
+        json.append("  \"iteraciones\": ").append(iteraciones).append(",\n");
+        json.append("  \"resultados\": [");
+        for (int r = 0; r < resultados.size(); r++) {
+            Resultado resultado = resultados.get(r);
+            long[] ordenadas = resultado.nanos.clone();
+            Arrays.sort(ordenadas);
+            double mediaNs = media(ordenadas);
+            double mediaAsignados = media(resultado.asignados);
+
+            json.append(r == 0 ? "\n" : ",\n");
+            json.append("    {\"chip\": \"").append(resultado.chip).append("\"");
+            json.append(", \"nucleo_bits\": ").append(resultado.nucleo);
+            json.append(", \"operacion\": \"").append(resultado.operacion).append("\"");
+            json.append(", \"muestras\": ").append(ordenadas.length);
+            json.append(", \"fallos\": ").append(resultado.fallos);
+            json.append(", \"latencia_ms\": {");
+            json.append("\"min\": ").append(ms(ordenadas.length > 0 ? ordenadas[0] : -1));
+            json.append(", \"media\": ").append(ms(ordenadas.length > 0 ? mediaNs : -1));
+            json.append(", \"p50\": ").append(ms(percentil(ordenadas, 50)));
+            json.append(", \"p90\": ").append(ms(percentil(ordenadas, 90)));
+            json.append(", \"max\": ").append(ms(ordenadas.length > 0 ? ordenadas[ordenadas.length - 1] : -1));
+            json.append("}");
+            json.append(", \"bytes\": ").append(resultado.bytes);
+            json.append(", \"bytes_por_segundo\": ")
+                    .append(resultado.bytes > 0 && ordenadas.length > 0
+                            ? formatear(resultado.bytes / (percentil(ordenadas, 50) / 1e9))
+                            : "null");
+            json.append(", \"asignados_por_op\": ")
+                    .append(resultado.asignados.length > 0 && mediaAsignados >= 0
+                            ? String.valueOf(Math.round(mediaAsignados))
+                            : "null");
+            json.append(", \"asignados_por_segundo\": ")
+                    .append(resultado.asignados.length > 0 && mediaAsignados >= 0
+                            ? formatear(mediaAsignados / (mediaNs / 1e9))
+                            : "null");
+            json.append("}");
+        }
+        json.append("\n  ]\n}");
+        return json.toString();
+    }
+
+    private static double media(long[] valores) {
+        if (valores.length == 0) {
+            return -1;
+        }
+        double suma = 0;
+        for (long valor : valores) {
+            suma += valor;
+        }
+        return suma / valores.length;
+    }
+
+    /** Percentil por el método del rango más cercano, sobre valores ordenados */
+    private static double percentil(long[] ordenados, int p) {
+        if (ordenados.length == 0) {
+            return -1;
+        }
+        int indice = (int) Math.ceil(p / 100.0 * ordenados.length) - 1;
+        return ordenados[Math.max(0, indice)];
+    }
+
+    private static String ms(double nanos) {
+        return nanos < 0 ? "null" : formatear(nanos / 1e6);
+    }
+
+    private static String formatear(double valor) {
+        return String.format(java.util.Locale.ROOT, "%.3f", valor);
+    }
+
+    private static String escapar(String texto) {
+        return texto.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -18,9 +18,11 @@ public class R {
         public static final int borrando_memorias = 14;
         public static final int borrar_memoria = 15;
         public static final int calibracion_label = 16;
+        public static final int cancelando_operacion = 312;
         public static final int cancelar = 17;
         public static final int cargando_tutorial = 18;
         public static final int cargar_archivo_hex = 19;
+        public static final int cargar_base_de_datos_chips = 314;
         public static final int cerrar = 20;
         public static final int chip_esta_borrado = 21;
         public static final int chip_id_label = 22;
@@ -37,6 +39,7 @@ public class R {
         public static final int completa_todos_los_campos = 33;
         public static final int conectado = 34;
         public static final int conectado_al_programador = 35;
+        public static final int conectando_programador = 303;
         public static final int configuracion_de_fusibles = 36;
         public static final int configurar_fusibles = 37;
         public static final int copiado_msg = 38;
@@ -87,6 +90,7 @@ public class R {
         public static final int error_detectando_chip = 83;
         public static final int error_escribiendo_archivo_detalle = 84;
         public static final int error_exportando = 85;
+        public static final int error_generando_numero_serie = 301;
         public static final int error_generico_detalle = 86;
         public static final int error_hex_caracter = 87;
         public static final int error_hex_longitud = 88;
@@ -160,6 +164,8 @@ public class R {
         public static final int gputils_termux_asm = 156;
         public static final int grabacion_completada_pic = 157;
         public static final int grabacion_correcta_pic = 158;
+        public static final int grabacion_interrumpida = 305;
+        public static final int grabacion_multiple = 304;
         public static final int grabando_pic = 159;
         public static final int hex_compatible = 160;
         public static final int hex_procesado_correctamente = 161;
@@ -174,9 +180,11 @@ public class R {
         public static final int idioma_label = 170;
         public static final int importante_label = 171;
         public static final int include_file_label = 172;
+        public static final int inicializar_usb = 310;
         public static final int iniciando_programacion = 173;
         public static final int instalar = 174;
         public static final int label_chip = 175;
+        public static final int lectura_cancelada = 313;
         public static final int lectura_completa = 176;
         public static final int leer_memoria = 177;
         public static final int leyendo_memoria = 178;
@@ -192,6 +200,8 @@ public class R {
         public static final int modelo_programador = 188;
         public static final int modo = 189;
         public static final int modo_icsp = 190;
+        public static final int modo_produccion = 298;
+        public static final int modo_produccion_ya_activo = 299;
         public static final int no = 191;
         public static final int no_disponible = 192;
         public static final int no_hay_chip_seleccionado = 193;
@@ -204,6 +214,7 @@ public class R {
         public static final int nombre_del_fusible = 200;
         public static final int not_available = 201;
         public static final int nota_label = 202;
+        public static final int operacion_cancelada = 311;
         public static final int operaciones = 203;
         public static final int over_prog_factor_label = 204;
         public static final int palabras_rom = 205;
@@ -219,15 +230,20 @@ public class R {
         public static final int politica_de_privacidad = 215;
         public static final int politicas = 216;
         public static final int power_sequence_label = 217;
+        public static final int procesar_hex = 309;
         public static final int proceso_no_completado = 218;
         public static final int prog_delay_label = 219;
         public static final int prog_retries_label = 220;
         public static final int programacion_completada = 221;
+        public static final int programador_ocupado = 300;
+        public static final int programador_ocupado_con_operacion = 308;
         public static final int programando_fuses_18f = 222;
         public static final int programando_fuses_id = 223;
         public static final int programando_memoria_eeprom = 224;
         public static final int programando_memoria_rom = 225;
+        public static final int programando_palabras_rom = 295;
         public static final int programar_pic = 226;
+        public static final int programar_solo_cambios = 293;
         public static final int programar_solo_config = 227;
         public static final int programar_solo_eeprom = 228;
         public static final int programar_solo_rom = 229;
@@ -245,7 +261,11 @@ public class R {
         public static final int restaurar_desde_hex = 241;
         public static final int resultado_verificacion = 242;
         public static final int resultado_verificacion_borrado = 243;
+        public static final int rom_anterior_conocida = 296;
+        public static final int rom_bloques_con_diferencias = 307;
         public static final int rom_capacity_label = 244;
+        public static final int rom_comparada_con_readback = 306;
+        public static final int rom_distinta_de_la_recordada = 297;
         public static final int rom_fallo_locked_label = 245;
         public static final int rom_fallo_mismatch = 246;
         public static final int rom_info_usage = 247;
@@ -253,6 +273,7 @@ public class R {
         public static final int rom_not_blank = 249;
         public static final int rom_ok_blank = 250;
         public static final int rom_posible_locked = 251;
+        public static final int rom_sin_cambios_no_se_reescribe = 294;
         public static final int rom_total_info = 252;
         public static final int rom_verificada_exito = 253;
         public static final int rom_words_bytes = 254;
@@ -284,6 +305,7 @@ public class R {
         public static final int tutorial_instalacion = 280;
         public static final int valor_ejemplo_on_off = 281;
         public static final int verificacion_completa = 282;
+        public static final int verificacion_eeprom_fallo = 302;
         public static final int verificacion_rom_fallo = 283;
         public static final int verificacion_rom_ok = 284;
         public static final int verificada = 285;
@@ -1,58 +1,170 @@
 package com.hoho.android.usbserial.driver;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Puerto serie sobre el PTY del emulador K150.
+ *
+ * <p>Un hilo lector queda bloqueado en el {@link FileChannel} del PTY y deja cada fragmento en
+ * un búfer en cuanto el kernel lo entrega; {@link #read(byte[], int)} espera sobre una condición
+ * con plazo y vuelve con lo que haya llegado, igual que el driver USB real. No se sondea con
+ * {@code available()} ni se duerme entre intentos, así que las mediciones contra el emulador
+ * reflejan el coste del protocolo y no el del arnés. Los {@code FileChannel} no admiten
+ * {@code Selector}, por eso la espera la hace un hilo propio.
+ */
 public class PtyUsbSerialPort implements UsbSerialPort {
-    private final FileInputStream in;
-    private final FileOutputStream out;
+    private static final int TAMANO_LECTURA = 4096;
+
+    private final FileChannel entrada;
+    private final FileChannel salida;
+    private final Thread lector;
+
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition datosDisponibles = cerrojo.newCondition();
+    private byte[] pendientes = new byte[TAMANO_LECTURA];
+    private int inicio;
+    private int fin;
+    private IOException error;
+    private volatile boolean cerrado;
 
     public PtyUsbSerialPort(File vttyFile) throws IOException {
-        this.in = new FileInputStream(vttyFile);
-        this.out = new FileOutputStream(vttyFile);
+        this.entrada = FileChannel.open(vttyFile.toPath(), StandardOpenOption.READ);
+        try {
+            this.salida = FileChannel.open(vttyFile.toPath(), StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            entrada.close();
+            throw e;
+        }
+        this.lector = new Thread(this::leerContinuamente, "pty-lector-" + vttyFile.getName());
+        lector.setDaemon(true);
+        lector.start();
+    }
+
+    /** Bucle del hilo lector: bloquea en el canal y publica cada fragmento recibido */
+    private void leerContinuamente() {
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANO_LECTURA);
+        try {
+            while (!cerrado) {
+                buffer.clear();
+                int leidos = entrada.read(buffer);
+                if (leidos < 0) {
+                    throw new IOException("El PTY se cerró");
+                }
+                if (leidos > 0) {
+                    publicar(buffer.array(), leidos);
+                }
+            }
+        } catch (IOException e) {
+            cerrojo.lock();
+            try {
+                error = cerrado ? new ClosedChannelException() : e;
+                datosDisponibles.signalAll();
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+    }
+
+    private void publicar(byte[] datos, int longitud) {
+        cerrojo.lock();
+        try {
+            int enEspera = fin - inicio;
+            if (fin + longitud > pendientes.length) {
+                if (enEspera + longitud > pendientes.length) {
+                    pendientes = Arrays.copyOfRange(
+                            pendientes, inicio, inicio + Math.max(pendientes.length * 2, enEspera + longitud));
+                } else {
+                    System.arraycopy(pendientes, inicio, pendientes, 0, enEspera);
+                }
+                inicio = 0;
+                fin = enEspera;
+            }
+            System.arraycopy(datos, 0, pendientes, fin, longitud);
+            fin += longitud;
+            datosDisponibles.signalAll();
+        } finally {
+            cerrojo.unlock();
+        }
     }
 
     @Override
     public void write(byte[] src, int timeout) throws IOException {
-        out.write(src);
-        out.flush();
+        ByteBuffer buffer = ByteBuffer.wrap(src);
+        while (buffer.hasRemaining()) {
+            salida.write(buffer);
+        }
     }
 
+    /**
+     * Espera a que llegue algún dato y devuelve lo recibido, sin esperar a llenar el destino.
+     *
+     * @param dest Búfer de lectura
+     * @param timeout Espera máxima en milisegundos; 0 o menos espera indefinidamente, como el
+     *     driver USB
+     * @return Bytes copiados, o 0 si venció el plazo sin datos
+     */
     @Override
     public int read(byte[] dest, int timeout) throws IOException {
-        long start = System.currentTimeMillis();
-        int totalRead = 0;
+        long restanteNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        cerrojo.lock();
         try {
-            while (totalRead < dest.length && (System.currentTimeMillis() - start) < timeout) {
-                int avail = in.available();
-                if (avail > 0) {
-                    int toRead = Math.min(avail, dest.length - totalRead);
-                    int readNow = in.read(dest, totalRead, toRead);
-                    if (readNow > 0) {
-                        totalRead += readNow;
-                    }
+            while (fin == inicio) {
+                if (error != null) {
+                    throw error;
+                }
+                if (timeout <= 0) {
+                    datosDisponibles.await();
                 } else {
-                    Thread.sleep(2);
+                    if (restanteNanos <= 0) {
+                        return 0;
+                    }
+                    restanteNanos = datosDisponibles.awaitNanos(restanteNanos);
                 }
             }
+            int copiados = Math.min(fin - inicio, dest.length);
+            System.arraycopy(pendientes, inicio, dest, 0, copiados);
+            inicio += copiados;
+            if (inicio == fin) {
+                inicio = 0;
+                fin = 0;
+            }
+            return copiados;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            throw new IOException("Read interrupted", e);
+            throw new InterruptedIOException("Read interrupted");
+        } finally {
+            cerrojo.unlock();
         }
-        return totalRead;
     }
 
     @Override
     public void open(Object connection) {}
-    
+
     @Override
     public void close() throws IOException {
-        in.close();
-        out.close();
+        cerrado = true;
+        try {
+            entrada.close();
+        } finally {
+            salida.close();
+        }
+        try {
+            lector.join(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
-    
+
     @Override
     public void setParameters(int baudRate, int dataBits, int stopBits, int parity) {}
 }
@@ -0,0 +1,55 @@
+package com.hoho.android.usbserial.driver;
+
+import com.diamon.protocolo.SimuladorK150;
+
+import java.io.IOException;
+
+/**
+ * Puerto serie conectado a un {@link SimuladorK150} en el mismo proceso.
+ *
+ * <p>Sustituye a {@link PtyUsbSerialPort} cuando no hace falta el emulador externo: no abre
+ * ficheros ni lanza procesos y las lecturas sin datos vuelven en el acto.
+ */
+public class SimuladorUsbSerialPort implements UsbSerialPort {
+    private final SimuladorK150 simulador;
+    private boolean abierto = true;
+
+    public SimuladorUsbSerialPort(SimuladorK150 simulador) {
+        this.simulador = simulador;
+    }
+
+    public SimuladorK150 getSimulador() {
+        return simulador;
+    }
+
+    @Override
+    public void write(byte[] src, int timeout) throws IOException {
+        comprobarAbierto();
+        simulador.escribir(src, src.length);
+    }
+
+    @Override
+    public int read(byte[] dest, int timeout) throws IOException {
+        comprobarAbierto();
+        return simulador.leer(dest, dest.length, timeout);
+    }
+
+    private void comprobarAbierto() throws IOException {
+        if (!abierto) {
+            throw new IOException("Puerto cerrado");
+        }
+    }
+
+    @Override
+    public void open(Object connection) {
+        abierto = true;
+    }
+
+    @Override
+    public void close() {
+        abierto = false;
+    }
+
+    @Override
+    public void setParameters(int baudRate, int dataBits, int stopBits, int parity) {}
+}
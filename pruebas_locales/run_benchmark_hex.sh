@@ -0,0 +1,20 @@
+#!/usr/bin/env bash
+# ==============================================================================
+# Script para compilar y ejecutar el benchmark del parser Intel HEX
+# ==============================================================================
+set -euo pipefail
+
+BASE_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+PRUEBAS_DIR="${BASE_DIR}/pruebas_locales"
+MEGAS="${1:-8}"
+
+echo "=== 1. Compilando ProcesadorHex y el benchmark ==="
+rm -rf "${PRUEBAS_DIR}/build_benchmark"
+mkdir -p "${PRUEBAS_DIR}/build_benchmark"
+
+javac -encoding UTF-8 -d "${PRUEBAS_DIR}/build_benchmark" \
+      -sourcepath "${BASE_DIR}/app/src/main/java:${PRUEBAS_DIR}" \
+      "${PRUEBAS_DIR}/BenchmarkProcesadorHex.java"
+
+echo "=== 2. Ejecutando el benchmark (${MEGAS} MB) ==="
+java -Xmx1g -cp "${PRUEBAS_DIR}/build_benchmark" BenchmarkProcesadorHex "$MEGAS"
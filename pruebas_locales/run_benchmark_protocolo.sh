@@ -0,0 +1,68 @@
+#!/usr/bin/env bash
+# ==============================================================================
+# Script para iniciar el emulador K150 y ejecutar el benchmark del protocolo P18A
+# Uso: ./run_benchmark_protocolo.sh [python|cpp|sim] [iteraciones] [salida.json] [prefijo_metricas]
+# Con 'sim' (o 'sim:<baudios>[:<latencia_us>]') el firmware se simula dentro del proceso Java;
+# la latencia es la del puente USB en cada transferencia.
+# ==============================================================================
+set -euo pipefail
+
+BASE_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+PRUEBAS_DIR="${BASE_DIR}/pruebas_locales"
+EMULATOR_DIR="/home/danielpdiamon/emulador_picpro"
+VTTY="${EMULATOR_DIR}/vtty"
+MODE="${1:-python}" # 'python', 'cpp' o 'sim[:baudios[:latencia_us]]'
+ITERACIONES="${2:-5}"
+SALIDA="${3:--}" # '-' para imprimir el JSON por la salida estándar
+METRICAS=("${@:4:1}") # Prefijo opcional de los JSON con métricas por comando
+BUILD_DIR="$(mktemp -d)"
+
+echo "=== 1. Compilando el protocolo y el benchmark ===" >&2
+javac -encoding UTF-8 -d "$BUILD_DIR" \
+      -sourcepath "${BASE_DIR}/app/src/main/java:${BASE_DIR}/app/src/test/java:${PRUEBAS_DIR}" \
+      "${PRUEBAS_DIR}/BenchmarkProtocoloP18A.java"
+
+if [[ "$MODE" == sim* ]]; then
+    trap 'rm -rf "$BUILD_DIR"' EXIT
+    echo "=== 2. Ejecutando el benchmark con el firmware simulado (${ITERACIONES} iteraciones) ===" >&2
+    java -cp "$BUILD_DIR" BenchmarkProtocoloP18A "$MODE" "$ITERACIONES" "$SALIDA" "${METRICAS[@]}"
+    exit 0
+fi
+
+echo "=== 2. Iniciando el emulador K150 (${MODE}) en segundo plano ===" >&2
+pkill -f "emulador_k150.py" || true
+pkill -f "emulador_k150_cpp" || true
+rm -f "$VTTY"
+
+if [ "$MODE" = "cpp" ]; then
+    if [ ! -f "${EMULATOR_DIR}/emulador_k150_cpp" ]; then
+        g++ -O2 "${EMULATOR_DIR}/emulador_k150.cpp" -o "${EMULATOR_DIR}/emulador_k150_cpp"
+    fi
+    "${EMULATOR_DIR}/emulador_k150_cpp" >&2 &
+else
+    PYTHONUNBUFFERED=1 python3 "${EMULATOR_DIR}/emulador_k150.py" >&2 &
+fi
+EMU_PID=$!
+
+cleanup() {
+    kill $EMU_PID 2>/dev/null || true
+    rm -f "$VTTY"
+    rm -rf "$BUILD_DIR"
+}
+trap cleanup EXIT
+
+for i in {1..20}; do
+    if [ -L "$VTTY" ] && [ -e "$VTTY" ]; then
+        break
+    fi
+    sleep 0.5
+done
+
+if [ ! -e "$VTTY" ]; then
+    echo "ERROR: El puerto virtual $VTTY no se creó a tiempo." >&2
+    exit 1
+fi
+sleep 1
+
+echo "=== 3. Ejecutando el benchmark (${ITERACIONES} iteraciones) ===" >&2
+java -cp "$BUILD_DIR" BenchmarkProtocoloP18A "$VTTY" "$ITERACIONES" "$SALIDA" "${METRICAS[@]}"